@@ -0,0 +1,71 @@
+#!/bin/sh
+# Training run of the fast-start image: starts the extracted application against the fake Google Maps server,
+# sends a few requests of every endpoint and stops it, dumping the classes it loaded into a class-data sharing archive.
+# The archive is only valid for the JVM and the application jar it was created with, so it runs in the runtime image.
+#
+# Usage: cds-training.sh <build-dir> <archive>
+#   build-dir  the Maven project after mvn -Pfast-start package, for target/test-classes and the parking lots JSON
+#   archive    the archive to write, e.g. application.jsa
+# Run it from the directory of the extracted application (java -Djarmode=tools -jar app.jar extract).
+set -eu
+
+BUILD_DIR=$1
+ARCHIVE=$2
+APP_DIR=$(pwd)
+APP_JAR=$(ls ./*.jar | head -n 1)
+APP_PORT=${TRAINING_PORT:-3001}
+FAKE_PORT=${TRAINING_FAKE_GOOGLE_PORT:-8089}
+APP_URL=http://127.0.0.1:$APP_PORT
+
+# The fake server reads src/main/resources/allParkingLotsLocations.json relative to its directory
+(cd "$BUILD_DIR" && exec java -cp "target/test-classes:$APP_DIR/lib/*" com.example.RoutePlanner.FakeGoogleMapsServer "$FAKE_PORT") &
+FAKE_PID=$!
+
+java -XX:ArchiveClassesAtExit="$ARCHIVE" -Dspring.aot.enabled=true -jar "$APP_JAR" \
+    --server.port="$APP_PORT" \
+    --routeplanner.google.base-url=http://127.0.0.1:"$FAKE_PORT" \
+    --routeplanner.google.api-key=AIzaFakeKeyOfTheFakeGoogleMapsServer \
+    --routeplanner.occupancy.enabled=false \
+    --routeplanner.parking-lots.watch-file= &
+APP_PID=$!
+
+stop() {
+    kill "$APP_PID" "$FAKE_PID" 2>/dev/null || true
+}
+trap stop EXIT
+
+attempts=0
+until wget -q -O /dev/null "$APP_URL/actuator/health"; do
+    attempts=$((attempts + 1))
+    if [ "$attempts" -ge 120 ]; then
+        echo "The application did not start" >&2
+        exit 1
+    fi
+    sleep 0.5
+done
+
+# Failed requests are fine: the fake server fails 1% of its calls, and the error paths are worth training too
+request() {
+    wget -q -O /dev/null "$@" || true
+}
+for destination in Dizengoff%20Center Rabin%20Square Carmel%20Market Sarona; do
+    request "$APP_URL/routes?origin=Kfar%20Saba&destination=$destination"
+    request "$APP_URL/routes?origin=Raanana&destination=$destination&compact=true&zoom=14"
+    request "$APP_URL/routes/stream?origin=Herzliya&destination=$destination&limit=3"
+done
+request "$APP_URL/routes/path?from=32.0853,34.7818&to=32.0776,34.7857&mode=walking"
+request "$APP_URL/routes/path?from=32.1782,34.9076&to=32.0776,34.7857&mode=driving"
+request --header "Content-Type: application/json" \
+    --post-data '[{"origin":"Kfar Saba","destination":"Sarona"},{"origin":"Holon","destination":"Sarona","limit":2}]' \
+    "$APP_URL/routes/batch"
+request "$APP_URL/actuator/prometheus"
+
+# The archive is written when the JVM exits
+kill -TERM "$APP_PID"
+wait "$APP_PID" || true
+kill "$FAKE_PID" 2>/dev/null || true
+trap - EXIT
+if [ ! -s "$ARCHIVE" ]; then
+    echo "The training run did not write $ARCHIVE" >&2
+    exit 1
+fi
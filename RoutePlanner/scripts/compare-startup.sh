@@ -0,0 +1,51 @@
+#!/bin/sh
+# Compares the startup of the plain image (Dockerfile) and of the fast-start image (Dockerfile.fast-start):
+# the time from docker run until /actuator/health answers, and the latency of the first and second /routes requests,
+# against the fake Google Maps server so the upstream latency is the same for both.
+#
+# Usage: scripts/compare-startup.sh [runs], from the RoutePlanner directory. Needs docker, curl and mvn.
+set -eu
+
+RUNS=${1:-5}
+APP_PORT=3001
+FAKE_PORT=8089
+ROUTES_URL="http://127.0.0.1:$APP_PORT/routes?origin=Kfar%20Saba"
+
+docker build -q -t routeplanner:plain -f Dockerfile . > /dev/null
+docker build -q -t routeplanner:fast-start -f Dockerfile.fast-start . > /dev/null
+
+mvn -B -q test-compile dependency:build-classpath -Dmdep.outputFile=target/test-classpath.txt
+java -cp "target/test-classes:$(cat target/test-classpath.txt)" com.example.RoutePlanner.FakeGoogleMapsServer "$FAKE_PORT" > /dev/null &
+FAKE_PID=$!
+trap 'kill $FAKE_PID 2>/dev/null || true' EXIT
+
+now_millis() {
+    echo $(($(date +%s%N) / 1000000))
+}
+
+request_millis() {
+    curl -s -o /dev/null -w '%{time_total}' "$1" | awk '{ printf "%d", $1 * 1000 }'
+}
+
+printf '%-12s %4s %12s %14s %15s\n' image run startup_ms first_route_ms second_route_ms
+for image in plain fast-start; do
+    run=1
+    while [ "$run" -le "$RUNS" ]; do
+        start=$(now_millis)
+        container=$(docker run -d --rm --network host \
+            -e ROUTEPLANNER_GOOGLE_BASEURL=http://127.0.0.1:$FAKE_PORT \
+            -e GOOGLE_MAPS_API_KEY=AIzaFakeKeyOfTheFakeGoogleMapsServer \
+            -e ROUTEPLANNER_OCCUPANCY_ENABLED=false \
+            "routeplanner:$image")
+        until curl -s -o /dev/null "http://127.0.0.1:$APP_PORT/actuator/health"; do
+            sleep 0.05
+        done
+        startup=$(($(now_millis) - start))
+        # Different destinations, so the second request is not answered from the caches of the first
+        first=$(request_millis "$ROUTES_URL&destination=Dizengoff%20Center")
+        second=$(request_millis "$ROUTES_URL&destination=Sarona")
+        printf '%-12s %4d %12d %14d %15d\n' "$image" "$run" "$startup" "$first" "$second"
+        docker stop -t 5 "$container" > /dev/null
+        run=$((run + 1))
+    done
+done
@@ -0,0 +1,33 @@
+package org.example.routeplanner;
+import org.springframework.boot.web.server.Compression;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.boot.web.servlet.server.ConfigurableServletWebServerFactory;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Compresses the responses of the route planner with gzip, when the client accepts it.
+ * Only responses of the configured types and sizes are compressed: small responses are not worth the CPU,
+ * and event streams are left out so each route is flushed to the client as soon as it is sent.
+ */
+@Configuration
+public class CompressionConfig implements WebServerFactoryCustomizer<ConfigurableServletWebServerFactory> {
+
+    private final RoutePlannerProperties properties;
+
+    public CompressionConfig(RoutePlannerProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    public void customize(ConfigurableServletWebServerFactory factory) {
+        RoutePlannerProperties.Compression settings = properties.getCompression();
+        if (!settings.isEnabled()) {
+            return;
+        }
+        Compression compression = new Compression();
+        compression.setEnabled(true);
+        compression.setMinResponseSize(settings.getMinResponseSize());
+        compression.setMimeTypes(settings.getMimeTypes().toArray(String[]::new));
+        factory.setCompression(compression);
+    }
+}
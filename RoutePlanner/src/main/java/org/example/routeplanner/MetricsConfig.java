@@ -0,0 +1,36 @@
+package org.example.routeplanner;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.routeplanner.service.RoutePlannerMetrics;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+/**
+ * Times the JSON serialization of the responses as the serialization stage of {@link RoutePlannerMetrics}.
+ * The converter replaces the one of Spring Boot and uses the same object mapper. The time includes writing the JSON
+ * to the response, and so its compression and the flushes of a slow client.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter(ObjectMapper objectMapper, RoutePlannerMetrics metrics) {
+        return new MappingJackson2HttpMessageConverter(objectMapper) {
+            @Override
+            protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException, HttpMessageNotWritableException {
+                long start = System.nanoTime();
+                try {
+                    super.writeInternal(object, type, outputMessage);
+                } finally {
+                    metrics.recordStage(RoutePlannerMetrics.STAGE_SERIALIZATION, System.nanoTime() - start);
+                }
+            }
+        };
+    }
+}
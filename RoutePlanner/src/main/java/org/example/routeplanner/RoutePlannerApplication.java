@@ -2,8 +2,12 @@ package org.example.routeplanner;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
+import org.springframework.context.annotation.ImportRuntimeHints;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
+@ImportRuntimeHints(RoutePlannerRuntimeHints.class)
 public class RoutePlannerApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,933 @@
+package org.example.routeplanner;
+
+import org.example.routeplanner.service.FullLotPolicy;
+import org.example.routeplanner.service.LotSearchSource;
+import org.example.routeplanner.service.PlanningMode;
+import org.example.routeplanner.service.RoutingProviderType;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Configuration properties of the route planner service, bound from the {@code routeplanner.*} keys.
+ * The defaults keep the original behaviour of the service, so a service created without
+ * configuration (e.g. in unit tests) behaves exactly like before.
+ */
+@ConfigurationProperties(prefix = "routeplanner")
+public class RoutePlannerProperties {
+
+    private final Google google = new Google();
+    private final Planning planning = new Planning();
+    private final Geocoding geocoding = new Geocoding();
+    private final LotSearch lotSearch = new LotSearch();
+    private final WalkingCache walkingCache = new WalkingCache();
+    private final DrivingCache drivingCache = new DrivingCache();
+    private final PlanCache planCache = new PlanCache();
+    private final Ranking ranking = new Ranking();
+    private final Streaming streaming = new Streaming();
+    private final Batch batch = new Batch();
+    private final Compression compression = new Compression();
+    private final Coalescing coalescing = new Coalescing();
+    private final Routing routing = new Routing();
+    private final WalkingMatrix walkingMatrix = new WalkingMatrix();
+    private final Scheduler scheduler = new Scheduler();
+    private final Occupancy occupancy = new Occupancy();
+    private final ParkingLots parkingLots = new ParkingLots();
+    private final Threads threads = new Threads();
+
+    public Google getGoogle() {
+        return google;
+    }
+
+    public Planning getPlanning() {
+        return planning;
+    }
+
+    public Geocoding getGeocoding() {
+        return geocoding;
+    }
+
+    public LotSearch getLotSearch() {
+        return lotSearch;
+    }
+
+    public WalkingCache getWalkingCache() {
+        return walkingCache;
+    }
+
+    public DrivingCache getDrivingCache() {
+        return drivingCache;
+    }
+
+    public PlanCache getPlanCache() {
+        return planCache;
+    }
+
+    public Ranking getRanking() {
+        return ranking;
+    }
+
+    public Streaming getStreaming() {
+        return streaming;
+    }
+
+    public Batch getBatch() {
+        return batch;
+    }
+
+    public Compression getCompression() {
+        return compression;
+    }
+
+    public Coalescing getCoalescing() {
+        return coalescing;
+    }
+
+    public Routing getRouting() {
+        return routing;
+    }
+
+    public WalkingMatrix getWalkingMatrix() {
+        return walkingMatrix;
+    }
+
+    public Scheduler getScheduler() {
+        return scheduler;
+    }
+
+    public Occupancy getOccupancy() {
+        return occupancy;
+    }
+
+    public ParkingLots getParkingLots() {
+        return parkingLots;
+    }
+
+    public Threads getThreads() {
+        return threads;
+    }
+
+    /**
+     * Settings of the connection to Google Maps APIs.
+     */
+    public static class Google {
+        private String apiKey = "INSERT_KEY_HERE";
+        private String baseUrl;
+        private Integer maxRetries;
+        private Integer queriesPerSecond;
+
+        public String getApiKey() {
+            return apiKey;
+        }
+
+        public void setApiKey(String apiKey) {
+            this.apiKey = apiKey;
+        }
+
+        /**
+         * @return the scheme, host and port the requests are sent to instead of https://maps.googleapis.com,
+         * e.g. a local fake server, or null to call Google
+         */
+        public String getBaseUrl() {
+            return baseUrl;
+        }
+
+        public void setBaseUrl(String baseUrl) {
+            this.baseUrl = baseUrl;
+        }
+
+        /**
+         * @return how many times a failed request is retried, or null for the default of the Google Maps client
+         */
+        public Integer getMaxRetries() {
+            return maxRetries;
+        }
+
+        public void setMaxRetries(Integer maxRetries) {
+            this.maxRetries = maxRetries;
+        }
+
+        /**
+         * @return how many requests per second the Google Maps client sends at most, or null for the default of the client,
+         * which also sends at most 5 requests at once to a host
+         */
+        public Integer getQueriesPerSecond() {
+            return queriesPerSecond;
+        }
+
+        public void setQueriesPerSecond(Integer queriesPerSecond) {
+            this.queriesPerSecond = queriesPerSecond;
+        }
+    }
+
+    /**
+     * Settings of the way the driving and walking legs of each parking lot are computed.
+     */
+    public static class Planning {
+        private PlanningMode mode = PlanningMode.SERIAL;
+        private int maxInFlightPerRequest = 8;
+        private int poolSize = 32;
+        private int queueCapacity = 256;
+        private int matrixDirectionsLimit = 0;
+
+        public PlanningMode getMode() {
+            return mode;
+        }
+
+        public void setMode(PlanningMode mode) {
+            this.mode = mode;
+        }
+
+        public int getMaxInFlightPerRequest() {
+            return maxInFlightPerRequest;
+        }
+
+        public void setMaxInFlightPerRequest(int maxInFlightPerRequest) {
+            this.maxInFlightPerRequest = maxInFlightPerRequest;
+        }
+
+        public int getPoolSize() {
+            return poolSize;
+        }
+
+        public void setPoolSize(int poolSize) {
+            this.poolSize = poolSize;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        /**
+         * @return how many of the best routes of the MATRIX planning get their directions, at up to 2 Directions calls
+         * each; the directions of the other routes are fetched on demand
+         */
+        public int getMatrixDirectionsLimit() {
+            return matrixDirectionsLimit;
+        }
+
+        public void setMatrixDirectionsLimit(int matrixDirectionsLimit) {
+            this.matrixDirectionsLimit = matrixDirectionsLimit;
+        }
+    }
+
+    /**
+     * Settings of the in-memory cache in front of the geocoding of the origin and destination addresses.
+     */
+    public static class Geocoding {
+        private boolean cacheEnabled = true;
+        private long cacheMaxSize = 10_000;
+        private Duration cacheTtl = Duration.ofHours(24);
+        private Duration cacheNegativeTtl = Duration.ofHours(1);
+
+        public boolean isCacheEnabled() {
+            return cacheEnabled;
+        }
+
+        public void setCacheEnabled(boolean cacheEnabled) {
+            this.cacheEnabled = cacheEnabled;
+        }
+
+        public long getCacheMaxSize() {
+            return cacheMaxSize;
+        }
+
+        public void setCacheMaxSize(long cacheMaxSize) {
+            this.cacheMaxSize = cacheMaxSize;
+        }
+
+        public Duration getCacheTtl() {
+            return cacheTtl;
+        }
+
+        public void setCacheTtl(Duration cacheTtl) {
+            this.cacheTtl = cacheTtl;
+        }
+
+        public Duration getCacheNegativeTtl() {
+            return cacheNegativeTtl;
+        }
+
+        public void setCacheNegativeTtl(Duration cacheNegativeTtl) {
+            this.cacheNegativeTtl = cacheNegativeTtl;
+        }
+    }
+
+    /**
+     * Settings of the search of the parking lots around the destination.
+     */
+    public static class LotSearch {
+        private LotSearchSource source = LotSearchSource.PLACES;
+        private int radius = 500;
+        private int localRadius = 800;
+        private boolean placesFallback = true;
+
+        public LotSearchSource getSource() {
+            return source;
+        }
+
+        public void setSource(LotSearchSource source) {
+            this.source = source;
+        }
+
+        public int getRadius() {
+            return radius;
+        }
+
+        public void setRadius(int radius) {
+            this.radius = radius;
+        }
+
+        public int getLocalRadius() {
+            return localRadius;
+        }
+
+        public void setLocalRadius(int localRadius) {
+            this.localRadius = localRadius;
+        }
+
+        public boolean isPlacesFallback() {
+            return placesFallback;
+        }
+
+        public void setPlacesFallback(boolean placesFallback) {
+            this.placesFallback = placesFallback;
+        }
+    }
+
+    /**
+     * Settings of the cache of the walking paths from the parking lots to the destinations.
+     */
+    public static class WalkingCache {
+        private boolean enabled = false;
+        private long maxWeightBytes = 64L * 1024 * 1024;
+        private Duration ttl = Duration.ofDays(7);
+        private double cellSizeMeters = 25;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getMaxWeightBytes() {
+            return maxWeightBytes;
+        }
+
+        public void setMaxWeightBytes(long maxWeightBytes) {
+            this.maxWeightBytes = maxWeightBytes;
+        }
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        public double getCellSizeMeters() {
+            return cellSizeMeters;
+        }
+
+        public void setCellSizeMeters(double cellSizeMeters) {
+            this.cellSizeMeters = cellSizeMeters;
+        }
+    }
+
+    /**
+     * Settings of the traffic-aware cache of the driving paths to the parking lots.
+     */
+    public static class DrivingCache {
+        private boolean enabled = false;
+        private long maxSize = 10_000;
+        private double cellSizeMeters = 500;
+        private Duration initialTtl = Duration.ofMinutes(5);
+        private Duration minTtl = Duration.ofMinutes(2);
+        private Duration maxTtl = Duration.ofMinutes(15);
+        private double refreshAheadRatio = 0.8;
+        private double driftToleranceMinutes = 2;
+        private int refreshThreads = 2;
+        private int refreshQueueCapacity = 100;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(long maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public double getCellSizeMeters() {
+            return cellSizeMeters;
+        }
+
+        public void setCellSizeMeters(double cellSizeMeters) {
+            this.cellSizeMeters = cellSizeMeters;
+        }
+
+        public Duration getInitialTtl() {
+            return initialTtl;
+        }
+
+        public void setInitialTtl(Duration initialTtl) {
+            this.initialTtl = initialTtl;
+        }
+
+        public Duration getMinTtl() {
+            return minTtl;
+        }
+
+        public void setMinTtl(Duration minTtl) {
+            this.minTtl = minTtl;
+        }
+
+        public Duration getMaxTtl() {
+            return maxTtl;
+        }
+
+        public void setMaxTtl(Duration maxTtl) {
+            this.maxTtl = maxTtl;
+        }
+
+        public double getRefreshAheadRatio() {
+            return refreshAheadRatio;
+        }
+
+        public void setRefreshAheadRatio(double refreshAheadRatio) {
+            this.refreshAheadRatio = refreshAheadRatio;
+        }
+
+        public double getDriftToleranceMinutes() {
+            return driftToleranceMinutes;
+        }
+
+        public void setDriftToleranceMinutes(double driftToleranceMinutes) {
+            this.driftToleranceMinutes = driftToleranceMinutes;
+        }
+
+        public int getRefreshThreads() {
+            return refreshThreads;
+        }
+
+        public void setRefreshThreads(int refreshThreads) {
+            this.refreshThreads = refreshThreads;
+        }
+
+        public int getRefreshQueueCapacity() {
+            return refreshQueueCapacity;
+        }
+
+        public void setRefreshQueueCapacity(int refreshQueueCapacity) {
+            this.refreshQueueCapacity = refreshQueueCapacity;
+        }
+    }
+
+    /**
+     * Settings of the cache of the serialized route plans, with stale-while-revalidate.
+     */
+    public static class PlanCache {
+        private boolean enabled = false;
+        private long maxWeightBytes = 32L * 1024 * 1024;
+        private Duration ttl = Duration.ofMinutes(1);
+        private Duration staleWhileRevalidate = Duration.ofMinutes(5);
+        private int refreshThreads = 2;
+        private int refreshQueueCapacity = 100;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getMaxWeightBytes() {
+            return maxWeightBytes;
+        }
+
+        public void setMaxWeightBytes(long maxWeightBytes) {
+            this.maxWeightBytes = maxWeightBytes;
+        }
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        /**
+         * @return how long after its TTL a plan is still served while it is refreshed in the background
+         */
+        public Duration getStaleWhileRevalidate() {
+            return staleWhileRevalidate;
+        }
+
+        public void setStaleWhileRevalidate(Duration staleWhileRevalidate) {
+            this.staleWhileRevalidate = staleWhileRevalidate;
+        }
+
+        public int getRefreshThreads() {
+            return refreshThreads;
+        }
+
+        public void setRefreshThreads(int refreshThreads) {
+            this.refreshThreads = refreshThreads;
+        }
+
+        public int getRefreshQueueCapacity() {
+            return refreshQueueCapacity;
+        }
+
+        public void setRefreshQueueCapacity(int refreshQueueCapacity) {
+            this.refreshQueueCapacity = refreshQueueCapacity;
+        }
+    }
+
+    /**
+     * Settings of the ranking of the routes and of the pruning of the parking lots that cannot make the top routes.
+     */
+    public static class Ranking {
+        private int defaultLimit = 0;
+        private double maxDrivingSpeedKmh = 120;
+        private double maxWalkingSpeedKmh = 6;
+
+        public int getDefaultLimit() {
+            return defaultLimit;
+        }
+
+        public void setDefaultLimit(int defaultLimit) {
+            this.defaultLimit = defaultLimit;
+        }
+
+        public double getMaxDrivingSpeedKmh() {
+            return maxDrivingSpeedKmh;
+        }
+
+        public void setMaxDrivingSpeedKmh(double maxDrivingSpeedKmh) {
+            this.maxDrivingSpeedKmh = maxDrivingSpeedKmh;
+        }
+
+        public double getMaxWalkingSpeedKmh() {
+            return maxWalkingSpeedKmh;
+        }
+
+        public void setMaxWalkingSpeedKmh(double maxWalkingSpeedKmh) {
+            this.maxWalkingSpeedKmh = maxWalkingSpeedKmh;
+        }
+    }
+
+    /**
+     * Settings of the streaming of routes over Server-Sent Events.
+     */
+    public static class Streaming {
+        private int poolSize = 16;
+        private int queueCapacity = 64;
+        private Duration timeout = Duration.ofSeconds(60);
+
+        public int getPoolSize() {
+            return poolSize;
+        }
+
+        public void setPoolSize(int poolSize) {
+            this.poolSize = poolSize;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public Duration getTimeout() {
+            return timeout;
+        }
+
+        public void setTimeout(Duration timeout) {
+            this.timeout = timeout;
+        }
+    }
+
+    /**
+     * Settings of the batch route planning.
+     */
+    public static class Batch {
+        private int maxPairs = 100;
+        private int poolSize = 8;
+        private int queueCapacity = 100;
+
+        public int getMaxPairs() {
+            return maxPairs;
+        }
+
+        public void setMaxPairs(int maxPairs) {
+            this.maxPairs = maxPairs;
+        }
+
+        public int getPoolSize() {
+            return poolSize;
+        }
+
+        public void setPoolSize(int poolSize) {
+            this.poolSize = poolSize;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+    }
+
+    /**
+     * Settings of the compression of the HTTP responses.
+     */
+    public static class Compression {
+        private boolean enabled = false;
+        private DataSize minResponseSize = DataSize.ofKilobytes(2);
+        private List<String> mimeTypes = List.of("application/json", "text/plain");
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public DataSize getMinResponseSize() {
+            return minResponseSize;
+        }
+
+        public void setMinResponseSize(DataSize minResponseSize) {
+            this.minResponseSize = minResponseSize;
+        }
+
+        public List<String> getMimeTypes() {
+            return mimeTypes;
+        }
+
+        public void setMimeTypes(List<String> mimeTypes) {
+            this.mimeTypes = mimeTypes;
+        }
+    }
+
+    /**
+     * Settings of the coalescing of identical concurrent route requests and upstream calls.
+     */
+    public static class Coalescing {
+        private boolean enabled = false;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+    }
+
+    /**
+     * Settings of the provider of the driving and walking directions.
+     */
+    public static class Routing {
+        private RoutingProviderType provider = RoutingProviderType.GOOGLE;
+        private String osmFile;
+        private double walkingSpeedKmh = 5;
+        private double snapRadiusMeters = 300;
+
+        public RoutingProviderType getProvider() {
+            return provider;
+        }
+
+        public void setProvider(RoutingProviderType provider) {
+            this.provider = provider;
+        }
+
+        public String getOsmFile() {
+            return osmFile;
+        }
+
+        public void setOsmFile(String osmFile) {
+            this.osmFile = osmFile;
+        }
+
+        public double getWalkingSpeedKmh() {
+            return walkingSpeedKmh;
+        }
+
+        public void setWalkingSpeedKmh(double walkingSpeedKmh) {
+            this.walkingSpeedKmh = walkingSpeedKmh;
+        }
+
+        public double getSnapRadiusMeters() {
+            return snapRadiusMeters;
+        }
+
+        public void setSnapRadiusMeters(double snapRadiusMeters) {
+            this.snapRadiusMeters = snapRadiusMeters;
+        }
+    }
+
+    /**
+     * Settings of the precomputed walking times from the parking lots to the cells of Tel Aviv.
+     */
+    public static class WalkingMatrix {
+        private boolean enabled = false;
+        private String file;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getFile() {
+            return file;
+        }
+
+        public void setFile(String file) {
+            this.file = file;
+        }
+    }
+
+    /**
+     * Settings of the scheduling of the Google Maps API calls within their quotas.
+     */
+    public static class Scheduler {
+        private boolean enabled = false;
+        private int queueCapacity = 200;
+        private Duration maxWaitHigh = Duration.ofSeconds(2);
+        private Duration maxWaitNormal = Duration.ofSeconds(2);
+        private Duration maxWaitLow = Duration.ofMillis(500);
+        private final Quota geocoding = new Quota(50, 50);
+        private final Quota placesNearby = new Quota(100, 100);
+        private final Quota directions = new Quota(50, 50);
+        private final Quota distanceMatrix = new Quota(1000, 1000);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public Duration getMaxWaitHigh() {
+            return maxWaitHigh;
+        }
+
+        public void setMaxWaitHigh(Duration maxWaitHigh) {
+            this.maxWaitHigh = maxWaitHigh;
+        }
+
+        public Duration getMaxWaitNormal() {
+            return maxWaitNormal;
+        }
+
+        public void setMaxWaitNormal(Duration maxWaitNormal) {
+            this.maxWaitNormal = maxWaitNormal;
+        }
+
+        public Duration getMaxWaitLow() {
+            return maxWaitLow;
+        }
+
+        public void setMaxWaitLow(Duration maxWaitLow) {
+            this.maxWaitLow = maxWaitLow;
+        }
+
+        public Quota getGeocoding() {
+            return geocoding;
+        }
+
+        public Quota getPlacesNearby() {
+            return placesNearby;
+        }
+
+        public Quota getDirections() {
+            return directions;
+        }
+
+        public Quota getDistanceMatrix() {
+            return distanceMatrix;
+        }
+    }
+
+    /**
+     * The quota of a Google Maps API: the sustained rate of its calls (or Distance Matrix elements) and its burst.
+     */
+    public static class Quota {
+        private double ratePerSecond;
+        private int burst;
+
+        public Quota(double ratePerSecond, int burst) {
+            this.ratePerSecond = ratePerSecond;
+            this.burst = burst;
+        }
+
+        public double getRatePerSecond() {
+            return ratePerSecond;
+        }
+
+        public void setRatePerSecond(double ratePerSecond) {
+            this.ratePerSecond = ratePerSecond;
+        }
+
+        public int getBurst() {
+            return burst;
+        }
+
+        public void setBurst(int burst) {
+            this.burst = burst;
+        }
+    }
+
+    /**
+     * Settings of the parking lot occupancy snapshot, polled from the Achuzot Hachof scraper.
+     */
+    public static class Occupancy {
+        private boolean enabled = false;
+        private String scraperUrl = "http://localhost:3002";
+        private Duration pollInterval = Duration.ofMinutes(2);
+        private Duration timeout = Duration.ofSeconds(60);
+        private Duration maxAge = Duration.ofMinutes(10);
+        private FullLotPolicy fullLotPolicy = FullLotPolicy.DOWN_RANK;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getScraperUrl() {
+            return scraperUrl;
+        }
+
+        public void setScraperUrl(String scraperUrl) {
+            this.scraperUrl = scraperUrl;
+        }
+
+        public Duration getPollInterval() {
+            return pollInterval;
+        }
+
+        public void setPollInterval(Duration pollInterval) {
+            this.pollInterval = pollInterval;
+        }
+
+        public Duration getTimeout() {
+            return timeout;
+        }
+
+        public void setTimeout(Duration timeout) {
+            this.timeout = timeout;
+        }
+
+        public Duration getMaxAge() {
+            return maxAge;
+        }
+
+        public void setMaxAge(Duration maxAge) {
+            this.maxAge = maxAge;
+        }
+
+        public FullLotPolicy getFullLotPolicy() {
+            return fullLotPolicy;
+        }
+
+        public void setFullLotPolicy(FullLotPolicy fullLotPolicy) {
+            this.fullLotPolicy = fullLotPolicy;
+        }
+    }
+
+    /**
+     * Settings of the hot reload of the parking lots. The parking lots packed in the jar are used until the watched
+     * file, JSON like allParkingLotsLocations.json or compiled by ParkingLotDatasetCompiler, is read successfully.
+     */
+    public static class ParkingLots {
+        private String watchFile;
+        private Duration reloadDelay = Duration.ofMillis(500);
+
+        public String getWatchFile() {
+            return watchFile;
+        }
+
+        public void setWatchFile(String watchFile) {
+            this.watchFile = watchFile;
+        }
+
+        public Duration getReloadDelay() {
+            return reloadDelay;
+        }
+
+        public void setReloadDelay(Duration reloadDelay) {
+            this.reloadDelay = reloadDelay;
+        }
+    }
+
+    /**
+     * Settings of the threads the service fans out to.
+     */
+    public static class Threads {
+        private boolean virtual = false;
+        private Duration pinnedThreshold = Duration.ofMillis(20);
+
+        /**
+         * @return whether the legs of the CONCURRENT planning and the pairs of the batches run on virtual threads,
+         * a thread per task, instead of the bounded pools
+         */
+        public boolean isVirtual() {
+            return virtual;
+        }
+
+        public void setVirtual(boolean virtual) {
+            this.virtual = virtual;
+        }
+
+        /**
+         * @return how long a virtual thread has to stay pinned to its carrier thread to be reported
+         */
+        public Duration getPinnedThreshold() {
+            return pinnedThreshold;
+        }
+
+        public void setPinnedThreshold(Duration pinnedThreshold) {
+            this.pinnedThreshold = pinnedThreshold;
+        }
+    }
+}
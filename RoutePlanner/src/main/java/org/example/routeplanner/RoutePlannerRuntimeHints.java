@@ -0,0 +1,64 @@
+package org.example.routeplanner;
+
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.util.ClassUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Hints of the GraalVM native image (mvn -Pnative native:compile) for what the AOT processing cannot see:
+ * <ul>
+ *     <li>the parking lot dataset, read from the classpath;</li>
+ *     <li>the responses of the Google Maps APIs, which the Google Maps client reads with Gson by reflection;</li>
+ *     <li>the models, which the controller returns as {@code ResponseEntity<?>}, so Jackson needs their bindings.</li>
+ * </ul>
+ * The classes are found when the hints are registered, at build time, so new models need no change here.
+ */
+public class RoutePlannerRuntimeHints implements RuntimeHintsRegistrar {
+
+    private static final String[] GOOGLE_MAPS_RESPONSES = {
+            "com.google.maps.GeocodingApi$Response",
+            "com.google.maps.NearbySearchRequest$Response",
+            "com.google.maps.DirectionsApi$Response",
+            "com.google.maps.DistanceMatrixApi$Response"
+    };
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        hints.resources()
+                .registerPattern("parkingLots.bin")
+                .registerPattern("allParkingLotsLocations.json");
+
+        MemberCategory[] gsonMembers = {MemberCategory.DECLARED_FIELDS, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS};
+        for (String response : GOOGLE_MAPS_RESPONSES) {
+            hints.reflection().registerType(TypeReference.of(response), gsonMembers);
+        }
+        forEachClass("com/google/maps/model", classLoader,
+                className -> hints.reflection().registerType(TypeReference.of(className), gsonMembers));
+
+        BindingReflectionHintsRegistrar bindings = new BindingReflectionHintsRegistrar();
+        forEachClass("org/example/routeplanner/model", classLoader,
+                className -> bindings.registerReflectionHints(hints.reflection(), ClassUtils.resolveClassName(className, classLoader)));
+    }
+
+    private static void forEachClass(String packagePath, ClassLoader classLoader, Consumer<String> action) {
+        try {
+            Resource[] classFiles = new PathMatchingResourcePatternResolver(classLoader)
+                    .getResources("classpath*:" + packagePath + "/*.class");
+            for (Resource classFile : classFiles) {
+                String fileName = classFile.getFilename();
+                action.accept(packagePath.replace('/', '.') + "." + fileName.substring(0, fileName.length() - ".class".length()));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list the classes of " + packagePath, e);
+        }
+    }
+}
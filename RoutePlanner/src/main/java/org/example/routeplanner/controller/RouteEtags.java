@@ -0,0 +1,161 @@
+package org.example.routeplanner.controller;
+
+import com.google.maps.model.DirectionsLeg;
+import com.google.maps.model.DirectionsRoute;
+import com.google.maps.model.DirectionsStep;
+import com.google.maps.model.Distance;
+import com.google.maps.model.Duration;
+import com.google.maps.model.EncodedPolyline;
+import com.google.maps.model.LatLng;
+import org.example.routeplanner.model.Path;
+import org.example.routeplanner.model.Place;
+import org.example.routeplanner.model.Route;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Derives ETags from the content of routes, without serializing them, or from the serialized routes when they
+ * already are, as in the route plan cache.
+ * The content ETag hashes every field the JSON of the routes is made of that can differ between two searches:
+ * the places, the times, the occupancy of the parking lots, and the bounds, polylines, locations, addresses,
+ * instructions, travel modes and warnings of the directions. Distances and durations are hashed by their meters and
+ * seconds, since their human-readable text stays the same across small changes.
+ * A client that sends the ETag back in If-None-Match gets a 304 response when the routes did not change.
+ * <p>
+ * The ETags are weak: a strong ETag promises the exact bytes of the response, which differ between the
+ * gzip-encoded and the identity responses, so Tomcat does not compress responses that have one.
+ * If-None-Match uses the weak comparison anyway, so the conditional requests work the same.
+ */
+final class RouteEtags {
+
+    private RouteEtags() {
+    }
+
+    /**
+     * Derives the ETag of a response.
+     *
+     * @param routes         the routes of the response
+     * @param representation how the routes are represented in the response, e.g. full or compact at a zoom level
+     * @return the quoted weak ETag
+     */
+    static String of(List<Route> routes, String representation) {
+        MessageDigest digest = sha256();
+        update(digest, representation);
+        for (Route route : routes) {
+            update(digest, route.getOrigin());
+            update(digest, route.getDestination());
+            update(digest, route.getParkingLot());
+            update(digest, route.getDrivingPath());
+            update(digest, route.getWalkingPath());
+            update(digest, route.getTotalTime());
+            update(digest, route.getParkingLotStatus());
+        }
+        return etag(digest.digest());
+    }
+
+    /**
+     * Derives the ETag of a response from the bytes sent to the client.
+     *
+     * @param body the serialized routes of the response
+     * @return the quoted weak ETag
+     */
+    static String of(byte[] body) {
+        return etag(sha256().digest(body));
+    }
+
+    private static String etag(byte[] hash) {
+        // 128 bits are plenty to tell the versions of a response apart
+        return "W/\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(hash, 16)) + "\"";
+    }
+
+    private static void update(MessageDigest digest, Place place) {
+        if (place == null) {
+            update(digest, (Object) null);
+            return;
+        }
+        update(digest, place.getName());
+        update(digest, place.getAddress());
+        update(digest, place.getLocation());
+    }
+
+    private static void update(MessageDigest digest, Path path) {
+        if (path == null) {
+            update(digest, (Object) null);
+            return;
+        }
+        update(digest, path.getTotalTime());
+        DirectionsRoute directionsRoute = path.getDirectionsRoute();
+        if (directionsRoute == null) {
+            update(digest, (Object) null);
+            return;
+        }
+        update(digest, directionsRoute.summary);
+        update(digest, directionsRoute.overviewPolyline);
+        update(digest, directionsRoute.bounds == null ? null : directionsRoute.bounds.northeast);
+        update(digest, directionsRoute.bounds == null ? null : directionsRoute.bounds.southwest);
+        update(digest, directionsRoute.copyrights);
+        update(digest, Arrays.toString(directionsRoute.warnings));
+        update(digest, Arrays.toString(directionsRoute.waypointOrder));
+        for (DirectionsLeg leg : directionsRoute.legs == null ? new DirectionsLeg[0] : directionsRoute.legs) {
+            update(digest, leg.distance);
+            update(digest, leg.duration);
+            update(digest, leg.durationInTraffic);
+            update(digest, leg.startAddress);
+            update(digest, leg.endAddress);
+            update(digest, leg.startLocation);
+            update(digest, leg.endLocation);
+            update(digest, leg.steps);
+        }
+    }
+
+    private static void update(MessageDigest digest, DirectionsStep[] steps) {
+        for (DirectionsStep step : steps == null ? new DirectionsStep[0] : steps) {
+            update(digest, step.htmlInstructions);
+            update(digest, step.maneuver);
+            update(digest, step.distance);
+            update(digest, step.duration);
+            update(digest, step.startLocation);
+            update(digest, step.endLocation);
+            update(digest, step.polyline);
+            update(digest, step.travelMode);
+            update(digest, step.steps);
+        }
+    }
+
+    private static void update(MessageDigest digest, Distance distance) {
+        // Distance.toString() is its human-readable text only, which hides changes of a few meters
+        update(digest, distance == null ? null : distance.inMeters + " " + distance.humanReadable);
+    }
+
+    private static void update(MessageDigest digest, Duration duration) {
+        // Duration.toString() is its human-readable text only, which hides changes of a few seconds
+        update(digest, duration == null ? null : duration.inSeconds + " " + duration.humanReadable);
+    }
+
+    private static void update(MessageDigest digest, LatLng location) {
+        update(digest, location == null ? null : location.lat + "," + location.lng);
+    }
+
+    private static void update(MessageDigest digest, EncodedPolyline polyline) {
+        update(digest, polyline == null ? null : polyline.getEncodedPath());
+    }
+
+    private static void update(MessageDigest digest, Object value) {
+        // The separator keeps consecutive fields from running into each other
+        digest.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
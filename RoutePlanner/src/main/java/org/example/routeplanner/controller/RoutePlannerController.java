@@ -4,29 +4,53 @@
  */
 package org.example.routeplanner.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.maps.model.LatLng;
+import com.google.maps.model.TravelMode;
+import org.example.routeplanner.service.CompactRouteMapper;
+import org.example.routeplanner.service.PendingResults;
+import org.example.routeplanner.service.PolylineSimplifier;
+import org.example.routeplanner.service.RoutePlanCache;
 import org.example.routeplanner.service.RoutePlannerService;
+import org.example.routeplanner.service.UpstreamRejectedException;
+import org.example.routeplanner.model.Path;
 import org.example.routeplanner.model.Route;
+import org.example.routeplanner.model.RouteBatchResult;
+import org.example.routeplanner.model.RoutePair;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/routes")
 public class RoutePlannerController {
 
     private final RoutePlannerService routePlannerService;
+    private final ObjectMapper objectMapper;
 
     /**
      * Constructor for {@code RoutePlannerController}.
      *
      * @param routePlannerService The service responsible for route planning logic.
+     * @param objectMapper        Serializes the routes of the route plan cache.
      */
     @Autowired
-    public RoutePlannerController(RoutePlannerService routePlannerService) {
+    public RoutePlannerController(RoutePlannerService routePlannerService, ObjectMapper objectMapper) {
         this.routePlannerService = routePlannerService;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -34,17 +58,238 @@ public class RoutePlannerController {
      *
      * @param origin The starting point for route calculation.
      * @param destination     The destination point for route calculation.
-     * @return ResponseEntity containing either a list of Route objects or an error message.
+     * @param limit           The number of best routes to return, optional.
+     * @param compact         Whether to return compact routes, with simplified overview polylines instead of full directions.
+     * @param zoom            The zoom level of the map the compact routes are drawn on, 0 to 21.
+     * @return ResponseEntity containing either a list of Route or CompactRoute objects, ordered by their total time,
+     * with an ETag of their content, or an error message. With the route plan cache, the routes may have been planned
+     * by an earlier request for the same addresses, and the Age header tells how many seconds ago.
      */
     @GetMapping
-    public ResponseEntity<?> getRoutes(@RequestParam String origin, @RequestParam String destination) {
+    public ResponseEntity<?> getRoutes(@RequestParam String origin, @RequestParam String destination,
+                                       @RequestParam(required = false) Integer limit,
+                                       @RequestParam(defaultValue = "false") boolean compact,
+                                       @RequestParam(defaultValue = "15") int zoom) {
         try {
-            List<Route> routes = routePlannerService.findRoutes(origin, destination);
-            return ResponseEntity.ok(routes);
+            if (compact) {
+                PolylineSimplifier.validateZoom(zoom);
+            }
+            if (routePlannerService.isRoutePlanCacheEnabled()) {
+                return cachedRoutesResponse(origin, destination, limit, compact, zoom);
+            }
+            List<Route> routes = limit == null
+                    ? routePlannerService.findRoutes(origin, destination)
+                    : routePlannerService.findRoutes(origin, destination, limit);
+            return routesResponse(routes, compact, zoom);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
         } catch (ResourceAccessException e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
+        } catch (UpstreamRejectedException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+        }
+    }
+
+    /**
+     * GET endpoint to retrieve routes like {@link #getRoutes}, without holding a request thread while the routes
+     * are planned: the thread is released right away, and the response is sent once the Google Maps calls of the
+     * routes complete. The number of requests in flight is then bounded by the upstream quotas rather than by
+     * the request threads of the server.
+     *
+     * @param origin      The starting point for route calculation.
+     * @param destination The destination point for route calculation.
+     * @param limit       The number of best routes to return, optional.
+     * @param compact     Whether to return compact routes, with simplified overview polylines instead of full directions.
+     * @param zoom        The zoom level of the map the compact routes are drawn on, 0 to 21.
+     * @return the future of the ResponseEntity {@link #getRoutes} would return
+     */
+    @GetMapping("/async")
+    public CompletableFuture<ResponseEntity<?>> getRoutesAsync(@RequestParam String origin, @RequestParam String destination,
+                                                               @RequestParam(required = false) Integer limit,
+                                                               @RequestParam(defaultValue = "false") boolean compact,
+                                                               @RequestParam(defaultValue = "15") int zoom) {
+        CompletableFuture<List<Route>> routes;
+        try {
+            if (compact) {
+                PolylineSimplifier.validateZoom(zoom);
+            }
+            routes = limit == null
+                    ? routePlannerService.findRoutesAsync(origin, destination)
+                    : routePlannerService.findRoutesAsync(origin, destination, limit);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage()));
+        }
+        return routes.handle((found, e) -> {
+            if (e == null) {
+                return routesResponse(found, compact, zoom);
+            }
+            Throwable cause = PendingResults.unwrap(e);
+            if (cause instanceof IllegalArgumentException) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(cause.getMessage());
+            }
+            if (cause instanceof ResourceAccessException) {
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(cause.getMessage());
+            }
+            if (cause instanceof UpstreamRejectedException) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(cause.getMessage());
+            }
+            throw e instanceof CompletionException completionException ? completionException : new CompletionException(e);
+        });
+    }
+
+    private ResponseEntity<?> cachedRoutesResponse(String origin, String destination, Integer limit, boolean compact, int zoom) {
+        String representation = compact ? "compact-" + zoom : "full";
+        RoutePlanCache.CachedPlan cached = limit == null
+                ? routePlannerService.findRoutePlan(origin, destination, representation, routes -> serialize(routes, compact, zoom))
+                : routePlannerService.findRoutePlan(origin, destination, limit, representation, routes -> serialize(routes, compact, zoom));
+        // The body is sent as the bytes cached with the plan, without being serialized again
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(cached.plan().etag())
+                .header(HttpHeaders.AGE, String.valueOf(cached.age().toSeconds()))
+                .body(cached.plan().body());
+    }
+
+    private RoutePlanCache.Plan serialize(List<Route> routes, boolean compact, int zoom) {
+        try {
+            // The routes are serialized anyway, so the ETag hashes the very bytes the clients receive
+            byte[] body = compact
+                    ? objectMapper.writeValueAsBytes(CompactRouteMapper.toCompactRoutes(routes, zoom))
+                    : objectMapper.writeValueAsBytes(routes);
+            return new RoutePlanCache.Plan(body, RouteEtags.of(body));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException("Cannot serialize the routes", e);
+        }
+    }
+
+    private static ResponseEntity<?> routesResponse(List<Route> routes, boolean compact, int zoom) {
+        // When the ETag matches If-None-Match, a 304 response is sent and the routes are never serialized
+        if (compact) {
+            return ResponseEntity.ok()
+                    .eTag(RouteEtags.of(routes, "compact-" + zoom))
+                    .body(CompactRouteMapper.toCompactRoutes(routes, zoom));
+        }
+        return ResponseEntity.ok()
+                .eTag(RouteEtags.of(routes, "full"))
+                .body(routes);
+    }
+
+    /**
+     * GET endpoint to stream the routes between a given current location and destination as Server-Sent Events.
+     * Each route is sent as a "route" event as soon as it is found, and the stream ends with a "summary" event
+     * with the final ranking, or with an "error" event. When the client disconnects, the remaining upstream calls are cancelled.
+     *
+     * @param origin      The starting point for route calculation.
+     * @param destination The destination point for route calculation.
+     * @param limit       The number of best routes to find, optional.
+     * @return ResponseEntity containing the event stream, which has a single "error" event for an invalid request.
+     */
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamRoutes(@RequestParam String origin, @RequestParam String destination,
+                                                   @RequestParam(required = false) Integer limit) {
+        SseEmitter emitter = new SseEmitter(routePlannerService.getStreamingTimeoutMillis());
+        try {
+            SseRouteStreamListener listener = new SseRouteStreamListener(emitter);
+            Future<?> search = limit == null
+                    ? routePlannerService.streamRoutes(origin, destination, listener)
+                    : routePlannerService.streamRoutes(origin, destination, limit, listener);
+            emitter.onCompletion(() -> search.cancel(true));
+            emitter.onTimeout(() -> search.cancel(true));
+            emitter.onError(e -> search.cancel(true));
+            return ResponseEntity.ok(emitter);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(SseRouteStreamListener.errorStream(e.getMessage()));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(SseRouteStreamListener.errorStream("Too many streaming requests"));
+        }
+    }
+
+    /**
+     * POST endpoint to retrieve the routes of many origin/destination pairs at once. The pairs share their work,
+     * so an address, the parking lots of a destination and a leg are requested once for the whole batch.
+     * A pair that fails has the status and the message of its error, and does not fail the other pairs.
+     *
+     * @param pairs The origins and destinations, each with an optional limit of the number of best routes.
+     * @return ResponseEntity containing either a list of RouteBatchResult objects, in the order of the pairs, or an error message.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<?> getRoutesBatch(@RequestBody List<RoutePair> pairs) {
+        try {
+            List<RouteBatchResult> results = routePlannerService.findRoutesBatch(pairs);
+            return ResponseEntity.ok(results);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (ResourceAccessException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
+        }
+    }
+
+    /**
+     * POST endpoint to stream the routes of many origin/destination pairs as Server-Sent Events, like {@link #getRoutesBatch}.
+     * The result of each pair is sent as a "result" event as soon as it is ready, and the stream ends with a "summary"
+     * event of the batch, or with an "error" event. When the client disconnects, the pairs still being planned are cancelled.
+     *
+     * @param pairs The origins and destinations, each with an optional limit of the number of best routes.
+     * @return ResponseEntity containing the event stream, which has a single "error" event for an invalid batch.
+     */
+    @PostMapping(path = "/batch/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamRoutesBatch(@RequestBody List<RoutePair> pairs) {
+        SseEmitter emitter = new SseEmitter(routePlannerService.getStreamingTimeoutMillis());
+        try {
+            Future<?> batch = routePlannerService.streamRoutesBatch(pairs, new SseRouteBatchListener(emitter));
+            emitter.onCompletion(() -> batch.cancel(true));
+            emitter.onTimeout(() -> batch.cancel(true));
+            emitter.onError(e -> batch.cancel(true));
+            return ResponseEntity.ok(emitter);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(SseRouteStreamListener.errorStream(e.getMessage()));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(SseRouteStreamListener.errorStream("Too many streaming requests"));
+        }
+    }
+
+    /**
+     * GET endpoint to retrieve the full directions of a single path on demand,
+     * e.g. for a route that was returned without them. Only the legs of routes are served: a driving path
+     * from Israel to Tel Aviv, or a walking path within Tel Aviv from or to a known parking lot; any other
+     * path is rejected with 400.
+     *
+     * @param from The starting point of the path, as "lat,lng".
+     * @param to   The end point of the path, as "lat,lng".
+     * @param mode The mode of travel, driving or walking.
+     * @return ResponseEntity containing either a DrivingPath/WalkingPath object or an error message.
+     */
+    @GetMapping("/path")
+    public ResponseEntity<?> getPath(@RequestParam String from, @RequestParam String to, @RequestParam String mode) {
+        try {
+            Path path = routePlannerService.findPath(parseLatLng(from), parseLatLng(to), parseTravelMode(mode));
+            return ResponseEntity.ok(path);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (ResourceAccessException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
+        } catch (UpstreamRejectedException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+        }
+    }
+
+    private static LatLng parseLatLng(String location) throws IllegalArgumentException {
+        String[] coordinates = location.split(",");
+        if (coordinates.length != 2) {
+            throw new IllegalArgumentException("Location must be given as lat,lng");
+        }
+        try {
+            return new LatLng(Double.parseDouble(coordinates[0].trim()), Double.parseDouble(coordinates[1].trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Location must be given as lat,lng");
+        }
+    }
+
+    private static TravelMode parseTravelMode(String mode) throws IllegalArgumentException {
+        try {
+            return TravelMode.valueOf(mode.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Mode must be driving or walking");
         }
     }
 }
@@ -0,0 +1,58 @@
+package org.example.routeplanner.controller;
+
+import org.example.routeplanner.model.RouteBatchResult;
+import org.example.routeplanner.model.RouteBatchSummary;
+import org.example.routeplanner.service.RouteBatchStreamListener;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Writes a stream of batch results to a Server-Sent Events emitter: a "result" event per pair,
+ * and then a "summary" event or an "error" event with the message of the error.
+ */
+class SseRouteBatchListener implements RouteBatchStreamListener {
+
+    private final SseEmitter emitter;
+
+    SseRouteBatchListener(SseEmitter emitter) {
+        this.emitter = emitter;
+    }
+
+    /**
+     * Sends the result of a pair. If the client disconnected, the exception stops the batch.
+     *
+     * @param result the result of the pair
+     * @throws UncheckedIOException if the result could not be written to the client
+     */
+    @Override
+    public void onResult(RouteBatchResult result) {
+        try {
+            emitter.send(SseEmitter.event().name("result").data(result, MediaType.APPLICATION_JSON));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void onComplete(RouteBatchSummary summary) {
+        try {
+            emitter.send(SseEmitter.event().name("summary").data(summary, MediaType.APPLICATION_JSON));
+            emitter.complete();
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+        }
+    }
+
+    @Override
+    public void onError(RuntimeException e) {
+        try {
+            emitter.send(SseEmitter.event().name("error").data(e.getMessage()));
+            emitter.complete();
+        } catch (IOException ioException) {
+            emitter.completeWithError(ioException);
+        }
+    }
+}
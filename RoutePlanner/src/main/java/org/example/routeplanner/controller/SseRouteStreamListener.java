@@ -0,0 +1,70 @@
+package org.example.routeplanner.controller;
+
+import org.example.routeplanner.model.Route;
+import org.example.routeplanner.model.RouteStreamSummary;
+import org.example.routeplanner.service.RouteStreamListener;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Writes a stream of routes to a Server-Sent Events emitter: a "route" event per route,
+ * and then a "summary" event or an "error" event with the message of the error.
+ */
+class SseRouteStreamListener implements RouteStreamListener {
+
+    private final SseEmitter emitter;
+
+    SseRouteStreamListener(SseEmitter emitter) {
+        this.emitter = emitter;
+    }
+
+    /**
+     * Sends a route. If the client disconnected, the exception stops the search of the remaining routes.
+     *
+     * @param route the route that was found
+     * @throws UncheckedIOException if the route could not be written to the client
+     */
+    @Override
+    public void onRoute(Route route) {
+        try {
+            emitter.send(SseEmitter.event().name("route").data(route, MediaType.APPLICATION_JSON));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void onComplete(RouteStreamSummary summary) {
+        try {
+            emitter.send(SseEmitter.event().name("summary").data(summary, MediaType.APPLICATION_JSON));
+            emitter.complete();
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+        }
+    }
+
+    @Override
+    public void onError(RuntimeException e) {
+        try {
+            emitter.send(SseEmitter.event().name("error").data(e.getMessage()));
+            emitter.complete();
+        } catch (IOException ioException) {
+            emitter.completeWithError(ioException);
+        }
+    }
+
+    /**
+     * Creates a stream that has a single "error" event.
+     *
+     * @param message the message of the error
+     * @return the completed stream
+     */
+    static SseEmitter errorStream(String message) {
+        SseEmitter emitter = new SseEmitter();
+        new SseRouteStreamListener(emitter).onError(new IllegalArgumentException(message));
+        return emitter;
+    }
+}
@@ -0,0 +1,43 @@
+package org.example.routeplanner.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Represents a path without its directions: only the shape of the path, its duration and its length.
+ * The full directions of the path can be fetched on demand from the /routes/path endpoint.
+ */
+public class CompactPath {
+    private final String encodedPolyline;
+    private final double totalTime;
+    private final Long distanceMeters;
+
+    /**
+     * Constructs a CompactPath object.
+     *
+     * @param encodedPolyline The overview polyline of the path, simplified and encoded with Google's polyline encoding,
+     *                        or null if the path was planned without its directions.
+     * @param totalTime       The total time required for the path.
+     * @param distanceMeters  The length of the path, or null if the path was planned without its directions.
+     */
+    @JsonCreator
+    public CompactPath(@JsonProperty("encodedPolyline") String encodedPolyline,
+                       @JsonProperty("totalTime") double totalTime,
+                       @JsonProperty("distanceMeters") Long distanceMeters) {
+        this.encodedPolyline = encodedPolyline;
+        this.totalTime = totalTime;
+        this.distanceMeters = distanceMeters;
+    }
+
+    public String getEncodedPolyline() {
+        return encodedPolyline;
+    }
+
+    public double getTotalTime() {
+        return totalTime;
+    }
+
+    public Long getDistanceMeters() {
+        return distanceMeters;
+    }
+}
@@ -0,0 +1,72 @@
+package org.example.routeplanner.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class CompactRoute {
+    private final Place origin;
+    private final Place destination;
+    private final Place parkingLot;
+    private final CompactPath drivingPath;
+    private final CompactPath walkingPath;
+    private final double totalTime;
+    private final ParkingLotStatus parkingLotStatus;
+
+    /**
+     * Constructs the compact form of a route, with the shapes of its paths instead of their full directions.
+     *
+     * @param origin      Where the route starts at
+     * @param destination Where the route ends at
+     * @param parkingLot  The parking lot associated with the route.
+     * @param drivingPath The compact driving path for the route.
+     * @param walkingPath The compact walking path for the route.
+     * @param totalTime   The total time required for the entire route.
+     * @param parkingLotStatus The occupancy of the parking lot, or null if the occupancy is not tracked.
+     */
+    @JsonCreator
+    public CompactRoute(@JsonProperty("origin") Place origin,
+                        @JsonProperty("destination") Place destination,
+                        @JsonProperty("parkingLot") Place parkingLot,
+                        @JsonProperty("drivingPath") CompactPath drivingPath,
+                        @JsonProperty("walkingPath") CompactPath walkingPath,
+                        @JsonProperty("totalTime") double totalTime,
+                        @JsonProperty("parkingLotStatus") ParkingLotStatus parkingLotStatus) {
+        this.origin = origin;
+        this.destination = destination;
+        this.parkingLot = parkingLot;
+        this.drivingPath = drivingPath;
+        this.walkingPath = walkingPath;
+        this.totalTime = totalTime;
+        this.parkingLotStatus = parkingLotStatus;
+    }
+
+    public Place getOrigin() {
+        return origin;
+    }
+
+    public Place getDestination() {
+        return destination;
+    }
+
+    public Place getParkingLot() {
+        return parkingLot;
+    }
+
+    public CompactPath getDrivingPath() {
+        return drivingPath;
+    }
+
+    public CompactPath getWalkingPath() {
+        return walkingPath;
+    }
+
+    public double getTotalTime() {
+        return totalTime;
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public ParkingLotStatus getParkingLotStatus() {
+        return parkingLotStatus;
+    }
+}
@@ -0,0 +1,13 @@
+package org.example.routeplanner.model;
+
+/**
+ * The occupancy of a parking lot, as reported by the Achuzot Hachof scraper.
+ */
+public enum ParkingLotStatus {
+    ACTIVE,
+    AVAILABLE,
+    ALMOST_FULL,
+    FULL,
+    OPEN,
+    NO_INFORMATION
+}
@@ -1,6 +1,7 @@
 package org.example.routeplanner.model;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import org.example.routeplanner.model.DrivingPath;
 import org.example.routeplanner.model.WalkingPath;
@@ -14,6 +15,7 @@ public class Route {
     private DrivingPath drivingPath;
     private WalkingPath walkingPath;
     private double totalTime;
+    private ParkingLotStatus parkingLotStatus;
 
     /**
      * Constructs a new Route object which consists of walking path to a parking lot,
@@ -80,4 +82,14 @@ public class Route {
     public void setTotalTime(double totalTime) {
         this.totalTime = totalTime;
     }
+    /**
+     * @return the occupancy of the parking lot when the route was found, or null if the occupancy is not tracked
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public ParkingLotStatus getParkingLotStatus() {
+        return parkingLotStatus;
+    }
+    public void setParkingLotStatus(ParkingLotStatus parkingLotStatus) {
+        this.parkingLotStatus = parkingLotStatus;
+    }
 }
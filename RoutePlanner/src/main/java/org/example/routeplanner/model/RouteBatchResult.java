@@ -0,0 +1,81 @@
+package org.example.routeplanner.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class RouteBatchResult {
+
+    /**
+     * The outcome of a pair of a batch.
+     */
+    public enum Status {
+        /** The routes were found. */
+        OK,
+        /** The pair is invalid, e.g. its destination is not in Tel Aviv. */
+        INVALID_REQUEST,
+        /** Google Maps API failed. */
+        UPSTREAM_ERROR,
+        /** The quota of Google Maps API could not serve the pair in time. */
+        QUOTA_EXCEEDED
+    }
+
+    private final int index;
+    private final String origin;
+    private final String destination;
+    private final Status status;
+    private final List<Route> routes;
+    private final String error;
+
+    /**
+     * Constructs the result of a pair of a batch of route requests.
+     *
+     * @param index       The position of the pair in the batch.
+     * @param origin      The origin of the pair.
+     * @param destination The destination of the pair.
+     * @param status      The outcome of the pair.
+     * @param routes      The routes of the pair, ordered by their total time, or null if the pair failed.
+     * @param error       The message of the error, or null if the routes were found.
+     */
+    @JsonCreator
+    public RouteBatchResult(@JsonProperty("index") int index,
+                            @JsonProperty("origin") String origin,
+                            @JsonProperty("destination") String destination,
+                            @JsonProperty("status") Status status,
+                            @JsonProperty("routes") List<Route> routes,
+                            @JsonProperty("error") String error) {
+        this.index = index;
+        this.origin = origin;
+        this.destination = destination;
+        this.status = status;
+        this.routes = routes;
+        this.error = error;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public String getOrigin() {
+        return origin;
+    }
+
+    public String getDestination() {
+        return destination;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public List<Route> getRoutes() {
+        return routes;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
@@ -0,0 +1,54 @@
+package org.example.routeplanner.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class RouteBatchSummary {
+    private final int pairCount;
+    private final int failedCount;
+    private final int uniqueCallCount;
+    private final int sharedCallCount;
+    private final long elapsedMillis;
+
+    /**
+     * Constructs the summary that ends a stream of batch results.
+     *
+     * @param pairCount       The number of pairs in the batch.
+     * @param failedCount     The number of pairs that failed.
+     * @param uniqueCallCount The geocodes, lot searches, legs and route searches the batch needed.
+     * @param sharedCallCount The times one of them was reused by another pair instead of being repeated.
+     * @param elapsedMillis   The time it took to plan the whole batch.
+     */
+    @JsonCreator
+    public RouteBatchSummary(@JsonProperty("pairCount") int pairCount,
+                             @JsonProperty("failedCount") int failedCount,
+                             @JsonProperty("uniqueCallCount") int uniqueCallCount,
+                             @JsonProperty("sharedCallCount") int sharedCallCount,
+                             @JsonProperty("elapsedMillis") long elapsedMillis) {
+        this.pairCount = pairCount;
+        this.failedCount = failedCount;
+        this.uniqueCallCount = uniqueCallCount;
+        this.sharedCallCount = sharedCallCount;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public int getPairCount() {
+        return pairCount;
+    }
+
+    public int getFailedCount() {
+        return failedCount;
+    }
+
+    public int getUniqueCallCount() {
+        return uniqueCallCount;
+    }
+
+    public int getSharedCallCount() {
+        return sharedCallCount;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+}
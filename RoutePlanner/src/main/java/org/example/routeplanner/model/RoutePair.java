@@ -0,0 +1,38 @@
+package org.example.routeplanner.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class RoutePair {
+    private final String origin;
+    private final String destination;
+    private final Integer limit;
+
+    /**
+     * Constructs a pair of a batch of route requests.
+     *
+     * @param origin      The starting location as an address string.
+     * @param destination The destination location as an address string.
+     * @param limit       The number of best routes to return, or null for the default limit.
+     */
+    @JsonCreator
+    public RoutePair(@JsonProperty("origin") String origin,
+                     @JsonProperty("destination") String destination,
+                     @JsonProperty("limit") Integer limit) {
+        this.origin = origin;
+        this.destination = destination;
+        this.limit = limit;
+    }
+
+    public String getOrigin() {
+        return origin;
+    }
+
+    public String getDestination() {
+        return destination;
+    }
+
+    public Integer getLimit() {
+        return limit;
+    }
+}
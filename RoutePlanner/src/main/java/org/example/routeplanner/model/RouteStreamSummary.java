@@ -0,0 +1,40 @@
+package org.example.routeplanner.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+public class RouteStreamSummary {
+    private final int routeCount;
+    private final List<String> rankedParkingLots;
+    private final long elapsedMillis;
+
+    /**
+     * Constructs the summary that ends a stream of routes.
+     *
+     * @param routeCount        The number of routes in the final ranking.
+     * @param rankedParkingLots The names of the parking lots of the ranked routes, the shortest total time first.
+     * @param elapsedMillis     The time it took to find all the routes.
+     */
+    @JsonCreator
+    public RouteStreamSummary(@JsonProperty("routeCount") int routeCount,
+                              @JsonProperty("rankedParkingLots") List<String> rankedParkingLots,
+                              @JsonProperty("elapsedMillis") long elapsedMillis) {
+        this.routeCount = routeCount;
+        this.rankedParkingLots = rankedParkingLots;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public int getRouteCount() {
+        return routeCount;
+    }
+
+    public List<String> getRankedParkingLots() {
+        return rankedParkingLots;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+}
@@ -0,0 +1,270 @@
+package org.example.routeplanner.service;
+
+import com.google.maps.model.TravelMode;
+
+import java.util.Arrays;
+
+/**
+ * Finds shortest-time paths on a {@link RoadGraph} with A*, guided by the straight-line distance to the target
+ * covered at the fastest speed of the mode of travel, which never overestimates the remaining time.
+ * <p>
+ * The search state is kept in primitive arrays reused by the searches of each thread. They are reset lazily with
+ * a search number, so a search touches only the nodes it visits instead of clearing arrays the size of the graph.
+ */
+public class AStarRouter {
+
+    // Slightly underestimates the straight-line distance, against the rounding of the float projection
+    private static final double HEURISTIC_FACTOR = 0.995;
+
+    private final RoadGraph graph;
+    private final double walkingSpeedMetersPerSecond;
+    private final ThreadLocal<SearchState> searchStates;
+
+    /**
+     * Constructs a router.
+     *
+     * @param graph           the road graph
+     * @param walkingSpeedKmh the walking speed along every walkable edge
+     */
+    public AStarRouter(RoadGraph graph, double walkingSpeedKmh) {
+        this.graph = graph;
+        this.walkingSpeedMetersPerSecond = walkingSpeedKmh / 3.6;
+        this.searchStates = ThreadLocal.withInitial(() -> new SearchState(graph.getNodeCount()));
+    }
+
+    /**
+     * Finds the fastest path between two nodes.
+     *
+     * @param source the node the path starts at
+     * @param target the node the path ends at
+     * @param mode   DRIVING or WALKING
+     * @return the nodes of the path and the edges between them, or null if the target cannot be reached
+     * @throws IllegalArgumentException if the mode is neither driving nor walking
+     */
+    public PathResult route(int source, int target, TravelMode mode) throws IllegalArgumentException {
+        byte flag = RoadGraph.flagOf(mode);
+        boolean driving = flag == RoadGraph.DRIVABLE;
+        double heuristicSpeed = driving ? graph.getMaxDrivingSpeedMetersPerSecond() : walkingSpeedMetersPerSecond;
+        double heuristicScale = heuristicSpeed > 0 ? HEURISTIC_FACTOR / heuristicSpeed : 0;
+        float targetX = graph.getX(target);
+        float targetY = graph.getY(target);
+
+        SearchState state = searchStates.get();
+        state.start();
+        state.reach(source, 0, -1, -1);
+        state.heap.push(source, heuristic(source, targetX, targetY, heuristicScale));
+
+        while (!state.heap.isEmpty()) {
+            int node = state.heap.pop();
+            if (node == target) {
+                return state.pathTo(graph, source, target);
+            }
+            if (state.isSettled(node)) {
+                // A stale heap entry of a node that was reached again with a shorter time
+                continue;
+            }
+            state.settle(node);
+            double time = state.times[node];
+            for (int edge = graph.getFirstEdge(node); edge < graph.getEdgeEnd(node); edge++) {
+                if ((graph.getEdgeFlags(edge) & flag) == 0) {
+                    continue;
+                }
+                int next = graph.getEdgeTarget(edge);
+                double nextTime = time + edgeSeconds(edge, driving);
+                if (!state.isReached(next) || nextTime < state.times[next]) {
+                    state.reach(next, nextTime, node, edge);
+                    state.heap.push(next, nextTime + heuristic(next, targetX, targetY, heuristicScale));
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the fastest travel time from a node to every node of the graph, with Dijkstra's algorithm.
+     *
+     * @param source the node the paths start at
+     * @param mode   DRIVING or WALKING
+     * @return the travel time to each node, in seconds, or infinity for the nodes that cannot be reached
+     * @throws IllegalArgumentException if the mode is neither driving nor walking
+     */
+    public double[] secondsFrom(int source, TravelMode mode) throws IllegalArgumentException {
+        byte flag = RoadGraph.flagOf(mode);
+        boolean driving = flag == RoadGraph.DRIVABLE;
+        double[] seconds = new double[graph.getNodeCount()];
+        Arrays.fill(seconds, Double.POSITIVE_INFINITY);
+        boolean[] settled = new boolean[graph.getNodeCount()];
+        NodeHeap heap = new NodeHeap();
+        seconds[source] = 0;
+        heap.push(source, 0);
+
+        while (!heap.isEmpty()) {
+            int node = heap.pop();
+            if (settled[node]) {
+                continue;
+            }
+            settled[node] = true;
+            for (int edge = graph.getFirstEdge(node); edge < graph.getEdgeEnd(node); edge++) {
+                if ((graph.getEdgeFlags(edge) & flag) == 0) {
+                    continue;
+                }
+                int next = graph.getEdgeTarget(edge);
+                double nextSeconds = seconds[node] + edgeSeconds(edge, driving);
+                if (nextSeconds < seconds[next]) {
+                    seconds[next] = nextSeconds;
+                    heap.push(next, nextSeconds);
+                }
+            }
+        }
+        return seconds;
+    }
+
+    private double edgeSeconds(int edge, boolean driving) {
+        return driving ? graph.getEdgeDrivingSeconds(edge) : graph.getEdgeLengthMeters(edge) / walkingSpeedMetersPerSecond;
+    }
+
+    private double heuristic(int node, float targetX, float targetY, double heuristicScale) {
+        double dx = graph.getX(node) - targetX;
+        double dy = graph.getY(node) - targetY;
+        return Math.sqrt(dx * dx + dy * dy) * heuristicScale;
+    }
+
+    /**
+     * A path found on the road graph.
+     *
+     * @param nodes        the nodes along the path, from the source to the target
+     * @param edges        the edges along the path, one less than the nodes
+     * @param seconds      the travel time along the path
+     * @param lengthMeters the length of the path
+     */
+    public record PathResult(int[] nodes, int[] edges, double seconds, double lengthMeters) {
+    }
+
+    /**
+     * The search state of a thread, valid for the nodes stamped with the current search number.
+     */
+    private static final class SearchState {
+        private final double[] times;
+        private final int[] parentEdges;
+        private final int[] parentNodes;
+        private final int[] reachedIn;
+        private final int[] settledIn;
+        private final NodeHeap heap;
+        private int search;
+
+        private SearchState(int nodeCount) {
+            times = new double[nodeCount];
+            parentEdges = new int[nodeCount];
+            parentNodes = new int[nodeCount];
+            reachedIn = new int[nodeCount];
+            settledIn = new int[nodeCount];
+            heap = new NodeHeap();
+        }
+
+        void start() {
+            search++;
+            heap.clear();
+        }
+
+        boolean isReached(int node) {
+            return reachedIn[node] == search;
+        }
+
+        boolean isSettled(int node) {
+            return settledIn[node] == search;
+        }
+
+        void reach(int node, double time, int parentNode, int parentEdge) {
+            reachedIn[node] = search;
+            times[node] = time;
+            parentNodes[node] = parentNode;
+            parentEdges[node] = parentEdge;
+        }
+
+        void settle(int node) {
+            settledIn[node] = search;
+        }
+
+        PathResult pathTo(RoadGraph graph, int source, int target) {
+            int edgeCount = 0;
+            for (int node = target; node != source; node = parentNodes[node]) {
+                edgeCount++;
+            }
+            int[] nodes = new int[edgeCount + 1];
+            int[] edges = new int[edgeCount];
+            double lengthMeters = 0;
+            int node = target;
+            for (int i = edgeCount; i > 0; i--) {
+                nodes[i] = node;
+                edges[i - 1] = parentEdges[node];
+                lengthMeters += graph.getEdgeLengthMeters(parentEdges[node]);
+                node = parentNodes[node];
+            }
+            nodes[0] = source;
+            return new PathResult(nodes, edges, times[target], lengthMeters);
+        }
+    }
+
+    /**
+     * Binary min-heap of nodes by their estimated total time. A node whose time improves is pushed again,
+     * and its stale entries are skipped when they are popped.
+     */
+    private static final class NodeHeap {
+        private int size;
+        private int[] nodes = new int[256];
+        private double[] keys = new double[256];
+
+        void clear() {
+            size = 0;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void push(int node, double key) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                keys = Arrays.copyOf(keys, size * 2);
+            }
+            int position = size++;
+            while (position > 0) {
+                int parent = (position - 1) >>> 1;
+                if (keys[parent] <= key) {
+                    break;
+                }
+                nodes[position] = nodes[parent];
+                keys[position] = keys[parent];
+                position = parent;
+            }
+            nodes[position] = node;
+            keys[position] = key;
+        }
+
+        int pop() {
+            int top = nodes[0];
+            size--;
+            int lastNode = nodes[size];
+            double lastKey = keys[size];
+            int position = 0;
+            while (true) {
+                int child = 2 * position + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && keys[child + 1] < keys[child]) {
+                    child++;
+                }
+                if (keys[child] >= lastKey) {
+                    break;
+                }
+                nodes[position] = nodes[child];
+                keys[position] = keys[child];
+                position = child;
+            }
+            nodes[position] = lastNode;
+            keys[position] = lastKey;
+            return top;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package org.example.routeplanner.service;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Normalizes free-text addresses, so different spellings of the same address share a geocoding cache entry.
+ */
+public final class AddressNormalizer {
+
+    private static final String TEL_AVIV = "תל אביב";
+
+    // ת"א, ת״א and ת'א are common abbreviations of Tel Aviv
+    private static final Pattern TEL_AVIV_ABBREVIATION = Pattern.compile("ת[\"״'׳]א");
+    private static final Pattern PUNCTUATION = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern TEL_AVIV_VARIANTS = Pattern.compile(
+            "(?<= )(?:tel ?aviv(?: (?:yafo|yaffo|jaffa))?|תל ?אביב(?: יפו)?)(?= )");
+    private static final Pattern HOUSE_NUMBER_PREFIX = Pattern.compile("(?<= )(?:no|מס|מספר) (?=\\p{N})");
+    private static final Pattern HOUSE_NUMBER_LETTER = Pattern.compile("(?<=\\p{N}) (\\p{L})(?= )");
+    private static final Pattern WHITESPACE = Pattern.compile(" +");
+
+    private AddressNormalizer() {
+    }
+
+    /**
+     * Normalizes an address: case, whitespace and punctuation are unified, the Hebrew and English
+     * variants of "Tel Aviv" are replaced with a single spelling, and house numbers are written
+     * without prefixes and with their letter attached (e.g. "no. 12 a" becomes "12a").
+     *
+     * @param address the address as entered by the user
+     * @return the normalized address, or an empty string if the address has no letters or digits
+     */
+    public static String normalize(String address) {
+        if (address == null) {
+            return "";
+        }
+        String normalized = Normalizer.normalize(address, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        normalized = TEL_AVIV_ABBREVIATION.matcher(normalized).replaceAll(TEL_AVIV);
+        // The address is padded with spaces so the patterns below can rely on a space before and after each token
+        normalized = " " + PUNCTUATION.matcher(normalized).replaceAll(" ") + " ";
+        normalized = TEL_AVIV_VARIANTS.matcher(normalized).replaceAll(TEL_AVIV);
+        normalized = HOUSE_NUMBER_PREFIX.matcher(normalized).replaceAll("");
+        normalized = HOUSE_NUMBER_LETTER.matcher(normalized).replaceAll("$1");
+        return WHITESPACE.matcher(normalized).replaceAll(" ").trim();
+    }
+}
@@ -0,0 +1,87 @@
+package org.example.routeplanner.service;
+
+import com.google.maps.model.DirectionsLeg;
+import com.google.maps.model.DirectionsRoute;
+import com.google.maps.model.EncodedPolyline;
+import org.example.routeplanner.model.CompactPath;
+import org.example.routeplanner.model.CompactRoute;
+import org.example.routeplanner.model.Path;
+import org.example.routeplanner.model.Route;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Converts routes to their compact form for clients that only draw the routes on a map, e.g. mobile clients.
+ * A compact path keeps only the overview polyline of its directions, simplified to the zoom level of the map,
+ * with its duration and length; the steps, instructions, bounds and warnings are left out.
+ */
+public final class CompactRouteMapper {
+
+    private CompactRouteMapper() {
+    }
+
+    /**
+     * Converts routes to their compact form.
+     *
+     * @param routes the routes, with or without their directions
+     * @param zoom   the zoom level of the map the routes are drawn on
+     * @return the compact routes, in the order of the routes
+     * @throws IllegalArgumentException if the zoom level is out of range
+     */
+    public static List<CompactRoute> toCompactRoutes(List<Route> routes, int zoom) throws IllegalArgumentException {
+        PolylineSimplifier.validateZoom(zoom);
+        List<CompactRoute> compactRoutes = new ArrayList<>(routes.size());
+        for (Route route : routes) {
+            compactRoutes.add(toCompactRoute(route, zoom));
+        }
+        return compactRoutes;
+    }
+
+    /**
+     * Converts a route to its compact form.
+     *
+     * @param route the route, with or without its directions
+     * @param zoom  the zoom level of the map the route is drawn on
+     * @return the compact route
+     * @throws IllegalArgumentException if the zoom level is out of range
+     */
+    public static CompactRoute toCompactRoute(Route route, int zoom) throws IllegalArgumentException {
+        PolylineSimplifier.validateZoom(zoom);
+        return new CompactRoute(
+                route.getOrigin(),
+                route.getDestination(),
+                route.getParkingLot(),
+                toCompactPath(route.getDrivingPath(), zoom),
+                toCompactPath(route.getWalkingPath(), zoom),
+                route.getTotalTime(),
+                route.getParkingLotStatus());
+    }
+
+    private static CompactPath toCompactPath(Path path, int zoom) {
+        if (path == null) {
+            return null;
+        }
+        DirectionsRoute directionsRoute = path.getDirectionsRoute();
+        String encodedPolyline = null;
+        if (directionsRoute != null && directionsRoute.overviewPolyline != null && directionsRoute.overviewPolyline.getEncodedPath() != null) {
+            encodedPolyline = new EncodedPolyline(
+                    PolylineSimplifier.simplify(directionsRoute.overviewPolyline.decodePath(), zoom)).getEncodedPath();
+        }
+        return new CompactPath(encodedPolyline, path.getTotalTime(), distanceMeters(directionsRoute));
+    }
+
+    private static Long distanceMeters(DirectionsRoute directionsRoute) {
+        if (directionsRoute == null || directionsRoute.legs == null) {
+            return null;
+        }
+        long distanceMeters = 0;
+        for (DirectionsLeg leg : directionsRoute.legs) {
+            if (leg.distance == null) {
+                return null;
+            }
+            distanceMeters += leg.distance.inMeters;
+        }
+        return distanceMeters;
+    }
+}
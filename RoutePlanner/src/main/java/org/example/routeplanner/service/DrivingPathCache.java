@@ -0,0 +1,298 @@
+package org.example.routeplanner.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.maps.errors.ApiException;
+import com.google.maps.model.LatLng;
+import org.example.routeplanner.model.DrivingPath;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Traffic-aware cache of the driving paths to the parking lots. Driving times depend on traffic, so an entry
+ * is shared only by origins in the same grid cell driving to the same parking lot in the same weekday and
+ * 15-minute time bucket, and it is kept for a short TTL. Only the driving time of an entry is shared: its directions
+ * start at the address of the origin they were requested for, so they are returned to that exact origin only,
+ * and the other origins of the cell get a driving path without directions, which can be fetched on demand.
+ * <p>
+ * An entry that is about to expire is refreshed in the background while it is still served. Each refresh
+ * records how far the cached driving time drifted from the fresh one and adapts the TTL of the entry:
+ * it doubles while the drift stays within the tolerance and halves when it does not. An entry never outlives
+ * its time bucket, so the TTL is capped at the bucket length, and the first load of a leg in a new bucket
+ * adapts the TTL of the leg in the previous bucket instead of starting over.
+ */
+public class DrivingPathCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(DrivingPathCache.class);
+    private static final ZoneId TEL_AVIV_ZONE = ZoneId.of("Asia/Jerusalem");
+    private static final int BUCKET_MINUTES = 15;
+    private static final Duration BUCKET_LENGTH = Duration.ofMinutes(BUCKET_MINUTES);
+
+    private final Cache<DrivingLegKey, Entry> cache;
+    private final double cellSizeMeters;
+    private final Duration initialTtl;
+    private final Duration minTtl;
+    private final Duration maxTtl;
+    private final double refreshAheadRatio;
+    private final double driftToleranceMinutes;
+    private final Executor refreshExecutor;
+    private final Clock clock;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder driftSamples = new LongAdder();
+    private final DoubleAdder driftMinutesSum = new DoubleAdder();
+    private final AtomicLong maxDriftMinutes = new AtomicLong();
+
+    /**
+     * Constructs a driving path cache.
+     *
+     * @param maximumSize           the maximal number of cached driving paths
+     * @param cellSizeMeters        the side of the grid cells the origins are snapped to
+     * @param initialTtl            the TTL of a new entry
+     * @param minTtl                the shortest TTL an entry can adapt to
+     * @param maxTtl                the longest TTL an entry can adapt to, at most the 15-minute length of a time bucket
+     * @param refreshAheadRatio     the part of the TTL after which a served entry is refreshed in the background
+     * @param driftToleranceMinutes the drift of the driving time under which the TTL of an entry grows
+     * @param refreshExecutor       runs the background refreshes
+     * @param clock                 the clock of the TTLs and the time buckets
+     */
+    public DrivingPathCache(long maximumSize, double cellSizeMeters, Duration initialTtl, Duration minTtl, Duration maxTtl,
+                            double refreshAheadRatio, double driftToleranceMinutes, Executor refreshExecutor, Clock clock) {
+        this.cellSizeMeters = cellSizeMeters;
+        this.initialTtl = initialTtl;
+        this.minTtl = minTtl;
+        this.maxTtl = maxTtl.compareTo(BUCKET_LENGTH) < 0 ? maxTtl : BUCKET_LENGTH;
+        this.refreshAheadRatio = refreshAheadRatio;
+        this.driftToleranceMinutes = driftToleranceMinutes;
+        this.refreshExecutor = refreshExecutor;
+        this.clock = clock;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                // An entry is kept for a whole bucket after it expires, to carry its TTL into the next bucket
+                .expireAfterWrite(this.maxTtl.plus(BUCKET_LENGTH))
+                .build();
+    }
+
+    /**
+     * Returns the driving path from an origin to a parking lot, from the cache when a fresh entry exists.
+     *
+     * @param origin         coordinates of the origin
+     * @param parkingLotName the normalized name of the parking lot
+     * @param loader         requests the driving path from the origin to the parking lot
+     * @return a copy of the cached or loaded driving path, without its directions when they were requested for
+     * another origin of the cell
+     * @throws ApiException         if the Google Maps API request fails
+     * @throws InterruptedException if the thread executing the task is interrupted
+     * @throws IOException          if an I/O error occurs
+     */
+    public DrivingPath get(LatLng origin, String parkingLotName, UpstreamCall<DrivingPath> loader) throws ApiException, InterruptedException, IOException {
+        long now = clock.millis();
+        DrivingLegKey key = new DrivingLegKey(GeoGrid.cellOf(origin, cellSizeMeters), parkingLotName, timeBucket(now));
+        Entry entry = cache.getIfPresent(key);
+
+        if (entry != null && now - entry.fetchedAt < entry.ttlMillis) {
+            hits.increment();
+            if (now - entry.fetchedAt >= entry.ttlMillis * refreshAheadRatio && entry.refreshing.compareAndSet(false, true)) {
+                refreshInBackground(key, origin, entry, loader);
+            }
+            return copy(entry, origin);
+        }
+
+        misses.increment();
+        Entry previous = entry != null ? entry : previousBucketEntry(key, now);
+        DrivingPath drivingPath = loader.call();
+        long ttlMillis = previous == null ? initialTtl.toMillis() : adaptTtl(previous, drivingPath);
+        cache.put(key, new Entry(drivingPath, origin, now, ttlMillis));
+        return copy(drivingPath);
+    }
+
+    /**
+     * Returns the driving path from an origin to a parking lot like {@link #get}, loading it asynchronously on a miss.
+     * An entry that is about to expire is refreshed by an asynchronous load too, rather than on the refresh executor.
+     *
+     * @param origin         coordinates of the origin
+     * @param parkingLotName the normalized name of the parking lot
+     * @param loader         starts requesting the driving path from the origin to the parking lot
+     * @return the future of a copy of the cached or loaded driving path, without its directions when they were
+     * requested for another origin of the cell
+     */
+    public CompletableFuture<DrivingPath> getAsync(LatLng origin, String parkingLotName, Supplier<CompletableFuture<DrivingPath>> loader) {
+        long now = clock.millis();
+        DrivingLegKey key = new DrivingLegKey(GeoGrid.cellOf(origin, cellSizeMeters), parkingLotName, timeBucket(now));
+        Entry entry = cache.getIfPresent(key);
+
+        if (entry != null && now - entry.fetchedAt < entry.ttlMillis) {
+            hits.increment();
+            if (now - entry.fetchedAt >= entry.ttlMillis * refreshAheadRatio && entry.refreshing.compareAndSet(false, true)) {
+                loader.get().whenComplete((drivingPath, e) -> {
+                    if (e != null) {
+                        logger.debug("Refresh of the driving path to {} failed", key.parkingLotName(), e);
+                        entry.refreshing.set(false);
+                        return;
+                    }
+                    refreshes.increment();
+                    putRefreshed(key, origin, entry, drivingPath);
+                });
+            }
+            return CompletableFuture.completedFuture(copy(entry, origin));
+        }
+
+        misses.increment();
+        Entry previous = entry != null ? entry : previousBucketEntry(key, now);
+        return loader.get().thenApply(drivingPath -> {
+            long ttlMillis = previous == null ? initialTtl.toMillis() : adaptTtl(previous, drivingPath);
+            cache.put(key, new Entry(drivingPath, origin, now, ttlMillis));
+            return copy(drivingPath);
+        });
+    }
+
+    private void refreshInBackground(DrivingLegKey key, LatLng origin, Entry entry, UpstreamCall<DrivingPath> loader) {
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    DrivingPath drivingPath = loader.call();
+                    refreshes.increment();
+                    putRefreshed(key, origin, entry, drivingPath);
+                } catch (ApiException | IOException | RuntimeException e) {
+                    // The entry is still served until it expires, and a later request retries the refresh
+                    logger.debug("Refresh of the driving path to {} failed", key.parkingLotName(), e);
+                    entry.refreshing.set(false);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    entry.refreshing.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            entry.refreshing.set(false);
+        }
+    }
+
+    /**
+     * Caches a refreshed driving path in the time bucket it was fetched in, which is the next bucket of the
+     * refreshed entry when the refresh completes after the bucket rolled over. The refreshed directions start at the
+     * origin of the request that triggered the refresh.
+     */
+    private void putRefreshed(DrivingLegKey key, LatLng origin, Entry entry, DrivingPath drivingPath) {
+        long fetchedAt = clock.millis();
+        cache.put(key.inBucket(timeBucket(fetchedAt)), new Entry(drivingPath, origin, fetchedAt, adaptTtl(entry, drivingPath)));
+    }
+
+    private Entry previousBucketEntry(DrivingLegKey key, long now) {
+        return cache.getIfPresent(key.inBucket(timeBucket(now - BUCKET_LENGTH.toMillis())));
+    }
+
+    /**
+     * Records the drift between the cached and the fresh driving time, and computes the TTL of the fresh entry.
+     */
+    private long adaptTtl(Entry entry, DrivingPath freshDrivingPath) {
+        double drift = Math.abs(freshDrivingPath.getTotalTime() - entry.drivingPath.getTotalTime());
+        driftSamples.increment();
+        driftMinutesSum.add(drift);
+        maxDriftMinutes.accumulateAndGet(Math.round(drift), Math::max);
+
+        long ttlMillis = drift <= driftToleranceMinutes ? entry.ttlMillis * 2 : entry.ttlMillis / 2;
+        return Math.max(minTtl.toMillis(), Math.min(maxTtl.toMillis(), ttlMillis));
+    }
+
+    private static int timeBucket(long epochMillis) {
+        ZonedDateTime time = ZonedDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), TEL_AVIV_ZONE);
+        int bucketsPerDay = 24 * 60 / BUCKET_MINUTES;
+        return time.getDayOfWeek().getValue() * bucketsPerDay + (time.getHour() * 60 + time.getMinute()) / BUCKET_MINUTES;
+    }
+
+    /**
+     * Copies a cached driving path for an origin. The directions carry the start address and location of the origin
+     * they were requested for, and their polyline starts there, so the other origins of the cell get the driving time only.
+     */
+    private static DrivingPath copy(Entry entry, LatLng origin) {
+        if (entry.origin.lat == origin.lat && entry.origin.lng == origin.lng) {
+            return copy(entry.drivingPath);
+        }
+        return new DrivingPath(null, entry.drivingPath.getTotalTime());
+    }
+
+    private static DrivingPath copy(DrivingPath drivingPath) {
+        // Routes may fill in or replace the directions of their paths, so each route gets its own copy
+        return new DrivingPath(drivingPath.getDirectionsRoute(), drivingPath.getTotalTime());
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getRefreshCount() {
+        return refreshes.sum();
+    }
+
+    public long getDriftSampleCount() {
+        return driftSamples.sum();
+    }
+
+    /**
+     * @return the mean absolute difference, in minutes, between cached and fresh driving times
+     */
+    public double getMeanDriftMinutes() {
+        long samples = driftSamples.sum();
+        return samples == 0 ? 0 : driftMinutesSum.sum() / samples;
+    }
+
+    /**
+     * @return the largest absolute difference, in whole minutes, between a cached and a fresh driving time
+     */
+    public long getMaxDriftMinutes() {
+        return maxDriftMinutes.get();
+    }
+
+    /**
+     * Drops every entry, e.g. once the parking lots they lead to were reloaded.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public long getSize() {
+        return cache.estimatedSize();
+    }
+
+    private record DrivingLegKey(long originCell, String parkingLotName, int timeBucket) {
+        private DrivingLegKey inBucket(int otherTimeBucket) {
+            return new DrivingLegKey(originCell, parkingLotName, otherTimeBucket);
+        }
+    }
+
+    private static final class Entry {
+        private final DrivingPath drivingPath;
+        private final LatLng origin;
+        private final long fetchedAt;
+        private final long ttlMillis;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        private Entry(DrivingPath drivingPath, LatLng origin, long fetchedAt, long ttlMillis) {
+            this.drivingPath = drivingPath;
+            this.origin = origin;
+            this.fetchedAt = fetchedAt;
+            this.ttlMillis = ttlMillis;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package org.example.routeplanner.service;
+
+/**
+ * Defines how {@link RoutePlannerService} treats the parking lots the occupancy snapshot reports as full.
+ */
+public enum FullLotPolicy {
+    /**
+     * Full parking lots are not routed, unless every candidate parking lot is full.
+     */
+    DROP,
+    /**
+     * Full parking lots are routed only when the other parking lots do not fill the ranking,
+     * and their routes are ranked after the routes of the other parking lots.
+     */
+    DOWN_RANK
+}
@@ -0,0 +1,44 @@
+package org.example.routeplanner.service;
+
+import com.google.maps.model.LatLng;
+
+/**
+ * Snaps locations to the cells of a square grid, so nearby locations can share cached results.
+ * The grid uses an equirectangular projection around the latitude of Tel Aviv, which keeps the cells
+ * square to within a fraction of a percent across the country.
+ */
+public final class GeoGrid {
+
+    private static final double METERS_PER_DEGREE_OF_LONGITUDE = ParkingLotMatcher.METERS_PER_DEGREE_OF_LATITUDE * Math.cos(Math.toRadians(32.08));
+
+    private GeoGrid() {
+    }
+
+    /**
+     * Finds the cell of a location.
+     *
+     * @param location       the location to snap
+     * @param cellSizeMeters the side of each grid cell
+     * @return the row of the cell in the high 32 bits and its column in the low 32 bits
+     */
+    public static long cellOf(LatLng location, double cellSizeMeters) {
+        long row = (long) Math.floor(location.lat * ParkingLotMatcher.METERS_PER_DEGREE_OF_LATITUDE / cellSizeMeters);
+        long column = (long) Math.floor(location.lng * METERS_PER_DEGREE_OF_LONGITUDE / cellSizeMeters);
+        return (row << 32) | (column & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Finds the center of a cell.
+     *
+     * @param cell           the cell, as returned by {@link #cellOf}
+     * @param cellSizeMeters the side of each grid cell
+     * @return the location of the center of the cell
+     */
+    public static LatLng centerOf(long cell, double cellSizeMeters) {
+        long row = cell >> 32;
+        long column = (int) cell;
+        return new LatLng(
+                (row + 0.5) * cellSizeMeters / ParkingLotMatcher.METERS_PER_DEGREE_OF_LATITUDE,
+                (column + 0.5) * cellSizeMeters / METERS_PER_DEGREE_OF_LONGITUDE);
+    }
+}
@@ -0,0 +1,136 @@
+package org.example.routeplanner.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.google.maps.model.LatLng;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Bounded in-memory cache of geocoding results, keyed by the normalized address.
+ * Addresses that do not exist are cached as well (as an empty result) with their own, shorter, TTL.
+ */
+public class GeocodingCache {
+
+    private final Cache<String, Optional<LatLng>> cache;
+    private final ConcurrentHashMap<String, CompletableFuture<Optional<LatLng>>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a geocoding cache.
+     *
+     * @param maximumSize the maximal number of cached addresses
+     * @param ttl         how long a found address is kept
+     * @param negativeTtl how long an address that does not exist is kept
+     */
+    public GeocodingCache(long maximumSize, Duration ttl, Duration negativeTtl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new Expiry<String, Optional<LatLng>>() {
+                    @Override
+                    public long expireAfterCreate(String address, Optional<LatLng> location, long currentTime) {
+                        return (location.isPresent() ? ttl : negativeTtl).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String address, Optional<LatLng> location, long currentTime, long currentDuration) {
+                        return expireAfterCreate(address, location, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String address, Optional<LatLng> location, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the cached location of an address, geocoding it on a miss.
+     * Concurrent misses of the same address wait for a single geocoding call.
+     *
+     * @param address  the address as entered by the user
+     * @param geocoder geocodes the address, returning an empty result if the address does not exist
+     * @return the location of the address, or an empty result if the address does not exist
+     */
+    public Optional<LatLng> get(String address, Function<String, Optional<LatLng>> geocoder) {
+        String key = AddressNormalizer.normalize(address);
+        if (key.isEmpty()) {
+            return geocoder.apply(address);
+        }
+        Optional<LatLng> location = cache.getIfPresent(key);
+        if (location != null) {
+            return location;
+        }
+        // The misses wait for the geocoding in flight rather than in a loading get of the cache, which would run
+        // the call inside a synchronized block of the map and pin a virtual thread to its carrier for its duration
+        CompletableFuture<Optional<LatLng>> geocoding = new CompletableFuture<>();
+        CompletableFuture<Optional<LatLng>> existingGeocoding = inFlight.putIfAbsent(key, geocoding);
+        if (existingGeocoding != null) {
+            return join(existingGeocoding);
+        }
+        try {
+            Optional<LatLng> geocodedLocation = geocoder.apply(address);
+            cache.put(key, geocodedLocation);
+            geocoding.complete(geocodedLocation);
+            return geocodedLocation;
+        } catch (RuntimeException e) {
+            geocoding.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, geocoding);
+        }
+    }
+
+    /**
+     * Returns the cached location of an address, geocoding it asynchronously on a miss. Unlike {@link #get},
+     * concurrent misses of the same address are not coalesced, as that would need a thread to wait.
+     *
+     * @param address  the address as entered by the user
+     * @param geocoder starts geocoding the address, returning an empty result if the address does not exist
+     * @return the future of the location of the address, or of an empty result if the address does not exist
+     */
+    public CompletableFuture<Optional<LatLng>> getAsync(String address, Function<String, CompletableFuture<Optional<LatLng>>> geocoder) {
+        String key = AddressNormalizer.normalize(address);
+        if (key.isEmpty()) {
+            return geocoder.apply(address);
+        }
+        Optional<LatLng> location = cache.getIfPresent(key);
+        if (location != null) {
+            return CompletableFuture.completedFuture(location);
+        }
+        return geocoder.apply(address).thenApply(geocodedLocation -> {
+            cache.put(key, geocodedLocation);
+            return geocodedLocation;
+        });
+    }
+
+    private static Optional<LatLng> join(CompletableFuture<Optional<LatLng>> geocoding) {
+        try {
+            return geocoding.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    public long getHitCount() {
+        return cache.stats().hitCount();
+    }
+
+    public long getMissCount() {
+        return cache.stats().missCount();
+    }
+
+    public long getSize() {
+        return cache.estimatedSize();
+    }
+}
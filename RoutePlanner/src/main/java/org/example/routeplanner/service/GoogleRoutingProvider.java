@@ -0,0 +1,42 @@
+package org.example.routeplanner.service;
+
+import com.google.maps.DirectionsApi;
+import com.google.maps.DirectionsApiRequest;
+import com.google.maps.GeoApiContext;
+import com.google.maps.errors.ApiException;
+import com.google.maps.model.DirectionsResult;
+import com.google.maps.model.LatLng;
+import com.google.maps.model.TravelMode;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Requests the directions from Google Maps Directions API.
+ */
+public class GoogleRoutingProvider implements RoutingProvider {
+
+    private final GeoApiContext context;
+
+    public GoogleRoutingProvider(GeoApiContext context) {
+        this.context = context;
+    }
+
+    @Override
+    public DirectionsResult getDirections(LatLng origin, LatLng destination, TravelMode mode) throws ApiException, InterruptedException, IOException {
+        return newRequest(origin, destination, mode).await();
+    }
+
+    @Override
+    public CompletableFuture<DirectionsResult> getDirectionsAsync(LatLng origin, LatLng destination, TravelMode mode) {
+        return PendingResults.toFuture(newRequest(origin, destination, mode));
+    }
+
+    private DirectionsApiRequest newRequest(LatLng origin, LatLng destination, TravelMode mode) {
+        return DirectionsApi.newRequest(context)
+                .origin(origin)
+                .destination(destination)
+                .mode(mode)
+                .language("he");
+    }
+}
@@ -0,0 +1,209 @@
+package org.example.routeplanner.service;
+
+import com.google.maps.errors.ZeroResultsException;
+import com.google.maps.model.Bounds;
+import com.google.maps.model.DirectionsLeg;
+import com.google.maps.model.DirectionsResult;
+import com.google.maps.model.DirectionsRoute;
+import com.google.maps.model.DirectionsStep;
+import com.google.maps.model.Distance;
+import com.google.maps.model.Duration;
+import com.google.maps.model.EncodedPolyline;
+import com.google.maps.model.GeocodedWaypoint;
+import com.google.maps.model.LatLng;
+import com.google.maps.model.TravelMode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Answers the directions requests on a road graph loaded from a local OpenStreetMap extract, without any network call.
+ * The directions have the shape of the Google Maps directions: a single route of a single leg, with a step per
+ * street along the path. The driving times come from the speeds of the roads, so they do not include traffic.
+ */
+public class LocalRoutingProvider implements RoutingProvider {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalRoutingProvider.class);
+    private static final String COPYRIGHTS = "© OpenStreetMap contributors";
+
+    private final RoadGraph graph;
+    private final AStarRouter router;
+    private final double walkingSpeedMetersPerSecond;
+    private final double snapRadiusMeters;
+
+    /**
+     * Constructs a provider on a loaded road graph.
+     *
+     * @param graph            the road graph
+     * @param walkingSpeedKmh  the walking speed along every walkable road
+     * @param snapRadiusMeters the maximal distance between a requested location and the road it starts or ends at
+     */
+    public LocalRoutingProvider(RoadGraph graph, double walkingSpeedKmh, double snapRadiusMeters) {
+        this.graph = graph;
+        this.router = new AStarRouter(graph, walkingSpeedKmh);
+        this.walkingSpeedMetersPerSecond = walkingSpeedKmh / 3.6;
+        this.snapRadiusMeters = snapRadiusMeters;
+    }
+
+    /**
+     * Loads the road graph of an OpenStreetMap extract and logs its loading time and memory footprint.
+     *
+     * @param osmFile          the extract, gzip-compressed if its name ends with .gz
+     * @param walkingSpeedKmh  the walking speed along every walkable road
+     * @param snapRadiusMeters the maximal distance between a requested location and the road it starts or ends at
+     * @return the provider
+     * @throws IOException if the extract cannot be read
+     */
+    public static LocalRoutingProvider load(Path osmFile, double walkingSpeedKmh, double snapRadiusMeters) throws IOException {
+        long start = System.nanoTime();
+        RoadGraph graph = OsmRoadGraphLoader.load(osmFile);
+        logger.info("Loaded the road graph of {} in {} ms: {} nodes, {} edges, about {} KB",
+                osmFile, (System.nanoTime() - start) / 1_000_000, graph.getNodeCount(), graph.getEdgeCount(),
+                graph.getEstimatedBytes() / 1024);
+        return new LocalRoutingProvider(graph, walkingSpeedKmh, snapRadiusMeters);
+    }
+
+    /**
+     * Finds the fastest path between the roads closest to the origin and the destination.
+     *
+     * @throws ZeroResultsException     if no road is close enough to the origin or the destination,
+     *                                  or the destination cannot be reached from the origin
+     * @throws IllegalArgumentException if the mode is neither driving nor walking
+     */
+    @Override
+    public DirectionsResult getDirections(LatLng origin, LatLng destination, TravelMode mode) throws ZeroResultsException {
+        int source = graph.snap(origin.lat, origin.lng, mode, snapRadiusMeters);
+        int target = graph.snap(destination.lat, destination.lng, mode, snapRadiusMeters);
+        if (source < 0 || target < 0) {
+            throw new ZeroResultsException("No road within " + snapRadiusMeters + " meters");
+        }
+        AStarRouter.PathResult path = router.route(source, target, mode);
+        if (path == null) {
+            throw new ZeroResultsException("No " + mode + " path between the roads");
+        }
+        return toDirectionsResult(path, mode);
+    }
+
+    public RoadGraph getGraph() {
+        return graph;
+    }
+
+    private DirectionsResult toDirectionsResult(AStarRouter.PathResult path, TravelMode mode) {
+        List<LatLng> points = new ArrayList<>(path.nodes().length);
+        for (int node : path.nodes()) {
+            points.add(location(node));
+        }
+
+        DirectionsLeg leg = new DirectionsLeg();
+        leg.steps = toSteps(path, mode);
+        leg.duration = duration(path.seconds());
+        leg.distance = distance(path.lengthMeters());
+        leg.startLocation = points.get(0);
+        leg.endLocation = points.get(points.size() - 1);
+        leg.startAddress = leg.steps.length > 0 ? leg.steps[0].htmlInstructions : "";
+        leg.endAddress = leg.steps.length > 0 ? leg.steps[leg.steps.length - 1].htmlInstructions : "";
+
+        DirectionsRoute route = new DirectionsRoute();
+        route.summary = longestStreet(leg.steps);
+        route.legs = new DirectionsLeg[]{leg};
+        route.waypointOrder = new int[0];
+        route.overviewPolyline = new EncodedPolyline(points);
+        route.bounds = bounds(points);
+        route.copyrights = COPYRIGHTS;
+        route.warnings = new String[0];
+
+        DirectionsResult result = new DirectionsResult();
+        result.geocodedWaypoints = new GeocodedWaypoint[0];
+        result.routes = new DirectionsRoute[]{route};
+        return result;
+    }
+
+    /**
+     * Splits the path into a step per street, merging the consecutive edges with the same name.
+     */
+    private DirectionsStep[] toSteps(AStarRouter.PathResult path, TravelMode mode) {
+        List<DirectionsStep> steps = new ArrayList<>();
+        int[] edges = path.edges();
+        int stepStart = 0;
+        for (int i = 1; i <= edges.length; i++) {
+            if (i < edges.length && graph.getEdgeName(edges[i]).equals(graph.getEdgeName(edges[stepStart]))) {
+                continue;
+            }
+            double seconds = 0;
+            double meters = 0;
+            List<LatLng> points = new ArrayList<>(i - stepStart + 1);
+            points.add(location(path.nodes()[stepStart]));
+            for (int j = stepStart; j < i; j++) {
+                seconds += mode == TravelMode.DRIVING
+                        ? graph.getEdgeDrivingSeconds(edges[j])
+                        : graph.getEdgeLengthMeters(edges[j]) / walkingSpeedMetersPerSecond;
+                meters += graph.getEdgeLengthMeters(edges[j]);
+                points.add(location(path.nodes()[j + 1]));
+            }
+
+            DirectionsStep step = new DirectionsStep();
+            step.htmlInstructions = graph.getEdgeName(edges[stepStart]);
+            step.duration = duration(seconds);
+            step.distance = distance(meters);
+            step.startLocation = points.get(0);
+            step.endLocation = points.get(points.size() - 1);
+            step.polyline = new EncodedPolyline(points);
+            step.travelMode = mode;
+            steps.add(step);
+            stepStart = i;
+        }
+        return steps.toArray(DirectionsStep[]::new);
+    }
+
+    private static String longestStreet(DirectionsStep[] steps) {
+        DirectionsStep longest = null;
+        for (DirectionsStep step : steps) {
+            if (!step.htmlInstructions.isEmpty() && (longest == null || step.distance.inMeters > longest.distance.inMeters)) {
+                longest = step;
+            }
+        }
+        return longest == null ? "" : longest.htmlInstructions;
+    }
+
+    private LatLng location(int node) {
+        return new LatLng(graph.getLatitude(node), graph.getLongitude(node));
+    }
+
+    private static Duration duration(double seconds) {
+        Duration duration = new Duration();
+        duration.inSeconds = Math.round(seconds);
+        duration.humanReadable = Math.max(1, Math.round(seconds / 60)) + " min";
+        return duration;
+    }
+
+    private static Distance distance(double meters) {
+        Distance distance = new Distance();
+        distance.inMeters = Math.round(meters);
+        distance.humanReadable = meters < 1000
+                ? Math.round(meters) + " m"
+                : String.format(Locale.ROOT, "%.1f km", meters / 1000);
+        return distance;
+    }
+
+    private static Bounds bounds(List<LatLng> points) {
+        double minLat = Double.MAX_VALUE;
+        double minLng = Double.MAX_VALUE;
+        double maxLat = -Double.MAX_VALUE;
+        double maxLng = -Double.MAX_VALUE;
+        for (LatLng point : points) {
+            minLat = Math.min(minLat, point.lat);
+            minLng = Math.min(minLng, point.lng);
+            maxLat = Math.max(maxLat, point.lat);
+            maxLng = Math.max(maxLng, point.lng);
+        }
+        Bounds bounds = new Bounds();
+        bounds.northeast = new LatLng(maxLat, maxLng);
+        bounds.southwest = new LatLng(minLat, minLng);
+        return bounds;
+    }
+}
@@ -0,0 +1,15 @@
+package org.example.routeplanner.service;
+
+/**
+ * Defines where {@link RoutePlannerService} searches the parking lots around the destination.
+ */
+public enum LotSearchSource {
+    /**
+     * Google Places nearby search, matched to the parking lots of allParkingLotsLocations.json.
+     */
+    PLACES,
+    /**
+     * The local index of the parking lots of allParkingLotsLocations.json, without any network call.
+     */
+    LOCAL
+}
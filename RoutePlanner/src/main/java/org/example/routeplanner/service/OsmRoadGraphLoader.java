@@ -0,0 +1,271 @@
+package org.example.routeplanner.service;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Loads a road graph from an OpenStreetMap XML extract ({@code .osm}, or {@code .osm.gz}), e.g. the extract
+ * of the Tel Aviv area cut from the Geofabrik Israel extract with osmium.
+ * <p>
+ * Every way tagged as a highway becomes edges between its consecutive nodes. Driving follows the one-way
+ * restrictions and the access tags, with a speed from the maxspeed tag or from the type of the road;
+ * walking is allowed on every road but motorways and trunk roads, in both directions.
+ * The extract is streamed, so only the coordinates of its nodes are held in memory while it is loaded.
+ */
+public final class OsmRoadGraphLoader {
+
+    private static final Map<String, Double> DRIVING_SPEEDS_KMH = Map.ofEntries(
+            Map.entry("motorway", 90.0),
+            Map.entry("motorway_link", 50.0),
+            Map.entry("trunk", 70.0),
+            Map.entry("trunk_link", 40.0),
+            Map.entry("primary", 45.0),
+            Map.entry("primary_link", 30.0),
+            Map.entry("secondary", 40.0),
+            Map.entry("secondary_link", 30.0),
+            Map.entry("tertiary", 35.0),
+            Map.entry("tertiary_link", 25.0),
+            Map.entry("unclassified", 30.0),
+            Map.entry("residential", 25.0),
+            Map.entry("road", 25.0),
+            Map.entry("living_street", 10.0),
+            Map.entry("service", 15.0));
+    private static final Set<String> WALKING_ONLY = Set.of(
+            "footway", "pedestrian", "path", "steps", "cycleway", "track", "bridleway", "corridor");
+    private static final Set<String> NOT_WALKABLE = Set.of("motorway", "motorway_link", "trunk", "trunk_link");
+    private static final Set<String> NO_ACCESS = Set.of("no", "private");
+    // Speed limits are rarely reached in the city, because of traffic lights and junctions
+    private static final double MAXSPEED_FACTOR = 0.7;
+
+    private OsmRoadGraphLoader() {
+    }
+
+    /**
+     * Loads a road graph from an OpenStreetMap XML file.
+     *
+     * @param file the extract, gzip-compressed if its name ends with .gz
+     * @return the road graph
+     * @throws IOException if the file cannot be read or is not valid OpenStreetMap XML
+     */
+    public static RoadGraph load(Path file) throws IOException {
+        try (InputStream input = new BufferedInputStream(Files.newInputStream(file))) {
+            return load(file.toString().endsWith(".gz") ? new GZIPInputStream(input) : input);
+        }
+    }
+
+    /**
+     * Loads a road graph from OpenStreetMap XML. The nodes are expected before the ways, as in every extract.
+     *
+     * @param input the OpenStreetMap XML
+     * @return the road graph
+     * @throws IOException if the input cannot be read or is not valid OpenStreetMap XML
+     */
+    public static RoadGraph load(InputStream input) throws IOException {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        try {
+            XMLStreamReader reader = factory.createXMLStreamReader(input);
+            try {
+                return read(reader);
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException | NumberFormatException e) {
+            throw new IOException("Invalid OpenStreetMap extract", e);
+        }
+    }
+
+    private static RoadGraph read(XMLStreamReader reader) throws XMLStreamException {
+        OsmNodes osmNodes = new OsmNodes();
+        RoadGraph.Builder builder = new RoadGraph.Builder();
+        int[] graphNodes = null;
+
+        long[] wayNodes = new long[64];
+        int wayNodeCount = 0;
+        Map<String, String> tags = new HashMap<>();
+        boolean inWay = false;
+
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                switch (reader.getLocalName()) {
+                    case "node" -> osmNodes.add(Long.parseLong(reader.getAttributeValue(null, "id")),
+                            Double.parseDouble(reader.getAttributeValue(null, "lat")),
+                            Double.parseDouble(reader.getAttributeValue(null, "lon")));
+                    case "way" -> {
+                        inWay = true;
+                        wayNodeCount = 0;
+                        tags.clear();
+                    }
+                    case "nd" -> {
+                        if (inWay) {
+                            if (wayNodeCount == wayNodes.length) {
+                                wayNodes = Arrays.copyOf(wayNodes, wayNodeCount * 2);
+                            }
+                            wayNodes[wayNodeCount++] = Long.parseLong(reader.getAttributeValue(null, "ref"));
+                        }
+                    }
+                    case "tag" -> {
+                        if (inWay) {
+                            tags.put(reader.getAttributeValue(null, "k"), reader.getAttributeValue(null, "v"));
+                        }
+                    }
+                    default -> {
+                    }
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals("way")) {
+                inWay = false;
+                if (graphNodes == null) {
+                    osmNodes.sort();
+                    graphNodes = new int[osmNodes.size()];
+                    Arrays.fill(graphNodes, -1);
+                }
+                addWay(builder, osmNodes, graphNodes, wayNodes, wayNodeCount, tags);
+            }
+        }
+        return builder.build();
+    }
+
+    private static void addWay(RoadGraph.Builder builder, OsmNodes osmNodes, int[] graphNodes,
+                               long[] wayNodes, int wayNodeCount, Map<String, String> tags) {
+        String highway = tags.get("highway");
+        if (highway == null) {
+            return;
+        }
+        boolean walkingOnly = WALKING_ONLY.contains(highway);
+        Double defaultSpeed = DRIVING_SPEEDS_KMH.get(highway);
+        if (defaultSpeed == null && !walkingOnly) {
+            // Roads under construction, proposed roads, bus guideways, etc.
+            return;
+        }
+
+        boolean drivable = defaultSpeed != null
+                && !NO_ACCESS.contains(tags.getOrDefault("motor_vehicle", tags.getOrDefault("access", "yes")));
+        boolean walkable = !NOT_WALKABLE.contains(highway) || "yes".equals(tags.get("foot"));
+        if ("no".equals(tags.get("foot")) || NO_ACCESS.contains(tags.getOrDefault("access", "yes")) && !"yes".equals(tags.get("foot"))) {
+            walkable = false;
+        }
+        if (!drivable && !walkable) {
+            return;
+        }
+
+        String oneway = tags.getOrDefault("oneway",
+                highway.equals("motorway") || "roundabout".equals(tags.get("junction")) ? "yes" : "no");
+        boolean forward = !oneway.equals("-1");
+        boolean backward = !(oneway.equals("yes") || oneway.equals("true") || oneway.equals("1"));
+        double speed = drivable ? drivingSpeed(tags.get("maxspeed"), defaultSpeed) : 0;
+        String name = tags.getOrDefault("name:he", tags.get("name"));
+
+        int previous = -1;
+        for (int i = 0; i < wayNodeCount; i++) {
+            int osmNode = osmNodes.indexOf(wayNodes[i]);
+            if (osmNode < 0) {
+                // The way leaves the extract
+                previous = -1;
+                continue;
+            }
+            if (graphNodes[osmNode] < 0) {
+                graphNodes[osmNode] = builder.addNode(osmNodes.getLatitude(osmNode), osmNodes.getLongitude(osmNode));
+            }
+            int current = graphNodes[osmNode];
+            if (previous >= 0 && previous != current) {
+                builder.addEdge(previous, current, speed, drivable && forward, walkable, name);
+                builder.addEdge(current, previous, speed, drivable && backward, walkable, name);
+            }
+            previous = current;
+        }
+    }
+
+    private static double drivingSpeed(String maxspeed, double defaultSpeed) {
+        if (maxspeed == null) {
+            return defaultSpeed;
+        }
+        try {
+            return Math.max(5, Double.parseDouble(maxspeed.trim()) * MAXSPEED_FACTOR);
+        } catch (NumberFormatException e) {
+            // e.g. "IL:urban" or "50 mph"
+            return defaultSpeed;
+        }
+    }
+
+    /**
+     * The coordinates of the nodes of the extract, searchable by their OpenStreetMap id.
+     */
+    private static final class OsmNodes {
+        private int size;
+        private long[] ids = new long[1024];
+        private double[] latitudes = new double[1024];
+        private double[] longitudes = new double[1024];
+
+        void add(long id, double latitude, double longitude) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                latitudes = Arrays.copyOf(latitudes, size * 2);
+                longitudes = Arrays.copyOf(longitudes, size * 2);
+            }
+            ids[size] = id;
+            latitudes[size] = latitude;
+            longitudes[size] = longitude;
+            size++;
+        }
+
+        /**
+         * Sorts the nodes by their id, unless they are sorted already as in most extracts.
+         */
+        void sort() {
+            boolean sorted = true;
+            for (int i = 1; i < size && sorted; i++) {
+                sorted = ids[i - 1] < ids[i];
+            }
+            if (sorted) {
+                return;
+            }
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Long.compare(ids[a], ids[b]));
+            long[] sortedIds = new long[size];
+            double[] sortedLatitudes = new double[size];
+            double[] sortedLongitudes = new double[size];
+            for (int i = 0; i < size; i++) {
+                sortedIds[i] = ids[order[i]];
+                sortedLatitudes[i] = latitudes[order[i]];
+                sortedLongitudes[i] = longitudes[order[i]];
+            }
+            ids = sortedIds;
+            latitudes = sortedLatitudes;
+            longitudes = sortedLongitudes;
+        }
+
+        int indexOf(long id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            return index < 0 ? -1 : index;
+        }
+
+        int size() {
+            return size;
+        }
+
+        double getLatitude(int index) {
+            return latitudes[index];
+        }
+
+        double getLongitude(int index) {
+            return longitudes[index];
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package org.example.routeplanner.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.maps.model.LatLng;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * An immutable version of the Achuzot Hachof parking lots, with the spatial index and the matcher built over them.
+ * The route planner reads the current dataset once per lookup, and a new version is swapped in as a whole,
+ * so a lookup never sees a mix of two versions.
+ * <p>
+ * The dataset is read from {@value #CLASSPATH_BINARY}, compiled at build time from allParkingLotsLocations.json by
+ * {@link ParkingLotDatasetCompiler}, so the coordinates are not parsed from strings on every start. File layout, big-endian:
+ * <pre>
+ * int    magic ("PLD1")
+ * int    parkingLotCount
+ * per parking lot, by name: unsigned short nameLength, nameLength bytes of UTF-8 name, double latitude, double longitude
+ * </pre>
+ */
+public final class ParkingLotDataset {
+
+    static final int MAGIC = 0x504C4431;
+    static final String CLASSPATH_BINARY = "parkingLots.bin";
+    static final String CLASSPATH_JSON = "allParkingLotsLocations.json";
+
+    private final Map<String, LatLng> parkingLotsLocations;
+    private final ParkingLotIndex index;
+    private final ParkingLotMatcher matcher;
+
+    /**
+     * Builds a dataset and its index and matcher.
+     *
+     * @param parkingLotsLocations the location of each parking lot, by its name
+     * @throws IllegalArgumentException if there is no parking lot, or a parking lot has no location
+     */
+    public ParkingLotDataset(Map<String, LatLng> parkingLotsLocations) throws IllegalArgumentException {
+        if (parkingLotsLocations.isEmpty()) {
+            throw new IllegalArgumentException("The parking lot dataset is empty");
+        }
+        Map<String, LatLng> sorted = new TreeMap<>();
+        for (Map.Entry<String, LatLng> parkingLot : parkingLotsLocations.entrySet()) {
+            LatLng location = parkingLot.getValue();
+            if (parkingLot.getKey() == null || location == null || Double.isNaN(location.lat) || Double.isNaN(location.lng)) {
+                throw new IllegalArgumentException("The parking lot " + parkingLot.getKey() + " has no location");
+            }
+            sorted.put(parkingLot.getKey(), location);
+        }
+        this.parkingLotsLocations = Collections.unmodifiableMap(new LinkedHashMap<>(sorted));
+        this.index = new ParkingLotIndex(this.parkingLotsLocations);
+        this.matcher = new ParkingLotMatcher(this.parkingLotsLocations);
+    }
+
+    /**
+     * Loads the dataset compiled at build time, or parses allParkingLotsLocations.json from the classpath
+     * when the build did not compile it, e.g. when the classes were compiled by an IDE.
+     *
+     * @return the dataset
+     * @throws IOException if neither resource can be read
+     */
+    public static ParkingLotDataset loadFromClasspath() throws IOException {
+        ClassLoader classLoader = ParkingLotDataset.class.getClassLoader();
+        try (InputStream binary = classLoader.getResourceAsStream(CLASSPATH_BINARY)) {
+            if (binary != null) {
+                return readBinary(binary);
+            }
+        }
+        try (InputStream json = classLoader.getResourceAsStream(CLASSPATH_JSON)) {
+            if (json == null) {
+                throw new IOException("Neither " + CLASSPATH_BINARY + " nor " + CLASSPATH_JSON + " is on the classpath");
+            }
+            return readJson(json);
+        }
+    }
+
+    /**
+     * Reads a dataset file: a compiled dataset, or a JSON object of the locations by name like allParkingLotsLocations.json.
+     *
+     * @param file the file to read
+     * @return the dataset
+     * @throws IOException if the file cannot be read or is not a valid dataset
+     */
+    public static ParkingLotDataset read(Path file) throws IOException {
+        try (InputStream input = Files.newInputStream(file)) {
+            return file.getFileName().toString().endsWith(".json") ? readJson(input) : readBinary(input);
+        }
+    }
+
+    static ParkingLotDataset readJson(InputStream input) throws IOException {
+        try {
+            return new ParkingLotDataset(new ObjectMapper().readValue(input, new TypeReference<Map<String, LatLng>>() {}));
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    static ParkingLotDataset readBinary(InputStream input) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(input));
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a parking lot dataset file");
+        }
+        int size = data.readInt();
+        Map<String, LatLng> parkingLotsLocations = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            byte[] name = new byte[data.readUnsignedShort()];
+            data.readFully(name);
+            parkingLotsLocations.put(new String(name, StandardCharsets.UTF_8), new LatLng(data.readDouble(), data.readDouble()));
+        }
+        try {
+            return new ParkingLotDataset(parkingLotsLocations);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Writes the dataset file, replacing the existing file atomically.
+     *
+     * @param file the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path file) throws IOException {
+        Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(parkingLotsLocations.size());
+            for (Map.Entry<String, LatLng> parkingLot : parkingLotsLocations.entrySet()) {
+                byte[] name = parkingLot.getKey().getBytes(StandardCharsets.UTF_8);
+                output.writeShort(name.length);
+                output.write(name);
+                output.writeDouble(parkingLot.getValue().lat);
+                output.writeDouble(parkingLot.getValue().lng);
+            }
+        }
+        Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return the location of each parking lot, by name, in the order of the names
+     */
+    public Map<String, LatLng> getParkingLotsLocations() {
+        return parkingLotsLocations;
+    }
+
+    public Set<String> getNames() {
+        return parkingLotsLocations.keySet();
+    }
+
+    public ParkingLotIndex getIndex() {
+        return index;
+    }
+
+    public ParkingLotMatcher getMatcher() {
+        return matcher;
+    }
+
+    public int size() {
+        return parkingLotsLocations.size();
+    }
+}
@@ -0,0 +1,37 @@
+package org.example.routeplanner.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Compiles allParkingLotsLocations.json into the binary {@link ParkingLotDataset} read from the classpath.
+ * Runs in the process-classes phase of the build, writing {@code target/classes/parkingLots.bin}, so the jar
+ * carries the compiled dataset next to the JSON it was compiled from.
+ */
+public final class ParkingLotDatasetCompiler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParkingLotDatasetCompiler.class);
+
+    private ParkingLotDatasetCompiler() {
+    }
+
+    /**
+     * @param args the JSON file of the parking lots and the dataset file to write
+     * @throws IOException              if the JSON file is not a valid dataset or the dataset file cannot be written
+     * @throws IllegalArgumentException if the arguments are not the two files
+     */
+    public static void main(String[] args) throws IOException, IllegalArgumentException {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("Usage: ParkingLotDatasetCompiler <parking-lots-json> <output-file>");
+        }
+        Path output = Path.of(args[1]);
+        ParkingLotDataset dataset = ParkingLotDataset.read(Path.of(args[0]));
+        Files.createDirectories(output.toAbsolutePath().getParent());
+        dataset.write(output);
+        logger.info("Compiled {} parking lots into {}", dataset.size(), output);
+    }
+}
@@ -0,0 +1,147 @@
+package org.example.routeplanner.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Watches a parking lot dataset file, e.g. the allParkingLotsLocations.json mounted by docker-compose, and rebuilds
+ * the {@link ParkingLotDataset} on a thread of its own whenever the file changes. The new dataset is handed over
+ * only once it is complete and valid, so the requests in flight keep the dataset they started with, and a file
+ * that is broken or half written is skipped until it is written again.
+ * <p>
+ * The directory of the file is watched rather than the file itself, so the file may be replaced by a rename,
+ * like editors and {@code kubectl cp} do. Changes are debounced: the file is read once it has not changed for
+ * the reload delay.
+ */
+public class ParkingLotFileWatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParkingLotFileWatcher.class);
+
+    private final Path file;
+    private final Duration reloadDelay;
+    private final Consumer<ParkingLotDataset> onReload;
+    private final RoutePlannerMetrics metrics;
+    private WatchService watchService;
+    private Thread watchThread;
+
+    /**
+     * Creates a watcher of a dataset file. The watcher does not watch before it is started.
+     *
+     * @param file        the dataset file, JSON or compiled
+     * @param reloadDelay how long the file must stay unchanged before it is read
+     * @param onReload    receives each new dataset
+     * @param metrics     counts the reloads
+     */
+    public ParkingLotFileWatcher(Path file, Duration reloadDelay, Consumer<ParkingLotDataset> onReload, RoutePlannerMetrics metrics) {
+        this.file = file.toAbsolutePath().normalize();
+        this.reloadDelay = reloadDelay;
+        this.onReload = onReload;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Starts watching the file, and loads it once in the background, as it may have changed since the build.
+     *
+     * @throws IOException if the directory of the file cannot be watched
+     */
+    public synchronized void start() throws IOException {
+        if (watchService != null) {
+            return;
+        }
+        watchService = FileSystems.getDefault().newWatchService();
+        try {
+            file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException e) {
+            watchService.close();
+            watchService = null;
+            throw e;
+        }
+        WatchService service = watchService;
+        watchThread = new Thread(() -> watch(service), "parking-lot-file-watch");
+        watchThread.setDaemon(true);
+        watchThread.start();
+    }
+
+    public synchronized void shutdown() {
+        if (watchService == null) {
+            return;
+        }
+        watchThread.interrupt();
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            logger.warn("Closing the watch of {} failed: {}", file, e.toString());
+        }
+    }
+
+    /**
+     * Reads the file and hands the new dataset over, unless the file is missing or invalid.
+     *
+     * @return whether a new dataset was handed over
+     */
+    public boolean reload() {
+        if (!Files.isRegularFile(file)) {
+            return false;
+        }
+        try {
+            ParkingLotDataset dataset = ParkingLotDataset.read(file);
+            onReload.accept(dataset);
+            metrics.countParkingLotReload("success");
+            logger.info("Reloaded {} parking lots from {}", dataset.size(), file);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            metrics.countParkingLotReload("error");
+            logger.warn("Reloading the parking lots from {} failed, keeping the current ones: {}", file, e.toString());
+            return false;
+        }
+    }
+
+    private void watch(WatchService service) {
+        reload();
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = service.take();
+                boolean changed = drain(key);
+                // Waits until the file stops changing, as it may be written in several steps
+                while (true) {
+                    WatchKey next = service.poll(reloadDelay.toMillis(), TimeUnit.MILLISECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    changed |= drain(next);
+                }
+                if (changed) {
+                    reload();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // The watcher was shut down
+        }
+    }
+
+    private boolean drain(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                    || file.getFileName().equals(event.context())) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+}
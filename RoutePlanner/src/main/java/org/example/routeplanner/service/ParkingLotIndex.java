@@ -0,0 +1,158 @@
+package org.example.routeplanner.service;
+
+import com.google.maps.model.LatLng;
+import org.example.routeplanner.model.Place;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Local spatial index of the Achuzot Hachof parking lots, answering radius queries without any network call.
+ * The parking lots are bucketed into a uniform grid of square cells, stored in primitive arrays:
+ * the parking lots of cell {@code c} are {@code cellParkingLots[cellStart[c] .. cellStart[c + 1] - 1]}.
+ */
+public class ParkingLotIndex {
+
+    private static final double DEFAULT_CELL_SIZE_METERS = 250;
+
+    private final String[] names;
+    private final double[] latitudes;
+    private final double[] longitudes;
+
+    private final double minLatitude;
+    private final double minLongitude;
+    private final double cellHeightDegrees;
+    private final double cellWidthDegrees;
+    private final int rows;
+    private final int columns;
+    private final int[] cellStart;
+    private final int[] cellParkingLots;
+
+    /**
+     * Constructs an index with cells of 250 meters.
+     *
+     * @param parkingLotsLocations the location of each parking lot, by its name
+     */
+    public ParkingLotIndex(Map<String, LatLng> parkingLotsLocations) {
+        this(parkingLotsLocations, DEFAULT_CELL_SIZE_METERS);
+    }
+
+    /**
+     * Constructs an index.
+     *
+     * @param parkingLotsLocations the location of each parking lot, by its name
+     * @param cellSizeMeters       the side of each grid cell
+     */
+    public ParkingLotIndex(Map<String, LatLng> parkingLotsLocations, double cellSizeMeters) {
+        int size = parkingLotsLocations.size();
+        names = new String[size];
+        latitudes = new double[size];
+        longitudes = new double[size];
+        int i = 0;
+        for (Map.Entry<String, LatLng> parkingLot : parkingLotsLocations.entrySet()) {
+            names[i] = parkingLot.getKey();
+            latitudes[i] = parkingLot.getValue().lat;
+            longitudes[i] = parkingLot.getValue().lng;
+            i++;
+        }
+
+        minLatitude = size == 0 ? 0 : Arrays.stream(latitudes).min().getAsDouble();
+        minLongitude = size == 0 ? 0 : Arrays.stream(longitudes).min().getAsDouble();
+        double maxLatitude = size == 0 ? 0 : Arrays.stream(latitudes).max().getAsDouble();
+        double maxLongitude = size == 0 ? 0 : Arrays.stream(longitudes).max().getAsDouble();
+        cellHeightDegrees = cellSizeMeters / ParkingLotMatcher.METERS_PER_DEGREE_OF_LATITUDE;
+        cellWidthDegrees = cellSizeMeters
+                / (ParkingLotMatcher.METERS_PER_DEGREE_OF_LATITUDE * Math.cos(Math.toRadians((minLatitude + maxLatitude) / 2)));
+        rows = (int) ((maxLatitude - minLatitude) / cellHeightDegrees) + 1;
+        columns = (int) ((maxLongitude - minLongitude) / cellWidthDegrees) + 1;
+
+        // Counting sort of the parking lots by their cell
+        int[] cellOfParkingLot = new int[size];
+        cellStart = new int[rows * columns + 1];
+        for (int parkingLot = 0; parkingLot < size; parkingLot++) {
+            cellOfParkingLot[parkingLot] = row(latitudes[parkingLot]) * columns + column(longitudes[parkingLot]);
+            cellStart[cellOfParkingLot[parkingLot] + 1]++;
+        }
+        for (int cell = 0; cell < rows * columns; cell++) {
+            cellStart[cell + 1] += cellStart[cell];
+        }
+        cellParkingLots = new int[size];
+        int[] nextInCell = Arrays.copyOf(cellStart, rows * columns);
+        for (int parkingLot = 0; parkingLot < size; parkingLot++) {
+            cellParkingLots[nextInCell[cellOfParkingLot[parkingLot]]++] = parkingLot;
+        }
+    }
+
+    /**
+     * Finds the parking lots within a radius around a location.
+     *
+     * @param center       the location to search around
+     * @param radiusMeters the radius in meters to search within
+     * @return the parking lots within the radius, closest first, as places without an address
+     */
+    public List<Place> findWithinRadius(LatLng center, double radiusMeters) {
+        double latitudeMargin = radiusMeters / ParkingLotMatcher.METERS_PER_DEGREE_OF_LATITUDE;
+        double longitudeMargin = radiusMeters / (ParkingLotMatcher.METERS_PER_DEGREE_OF_LATITUDE * Math.cos(Math.toRadians(center.lat)));
+        int fromRow = Math.max(0, row(center.lat - latitudeMargin));
+        int toRow = Math.min(rows - 1, row(center.lat + latitudeMargin));
+        int fromColumn = Math.max(0, column(center.lng - longitudeMargin));
+        int toColumn = Math.min(columns - 1, column(center.lng + longitudeMargin));
+
+        int found = 0;
+        int[] foundParkingLots = new int[8];
+        double[] foundDistances = new double[8];
+        for (int row = fromRow; row <= toRow; row++) {
+            for (int column = fromColumn; column <= toColumn; column++) {
+                int cell = row * columns + column;
+                for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+                    int parkingLot = cellParkingLots[i];
+                    double distance = ParkingLotMatcher.distance(center.lat, center.lng, latitudes[parkingLot], longitudes[parkingLot]);
+                    if (distance > radiusMeters) {
+                        continue;
+                    }
+                    if (found == foundParkingLots.length) {
+                        foundParkingLots = Arrays.copyOf(foundParkingLots, found * 2);
+                        foundDistances = Arrays.copyOf(foundDistances, found * 2);
+                    }
+                    foundParkingLots[found] = parkingLot;
+                    foundDistances[found] = distance;
+                    found++;
+                }
+            }
+        }
+
+        // Insertion sort by distance, as only a handful of parking lots are found
+        for (int i = 1; i < found; i++) {
+            int parkingLot = foundParkingLots[i];
+            double distance = foundDistances[i];
+            int j = i - 1;
+            for (; j >= 0 && foundDistances[j] > distance; j--) {
+                foundParkingLots[j + 1] = foundParkingLots[j];
+                foundDistances[j + 1] = foundDistances[j];
+            }
+            foundParkingLots[j + 1] = parkingLot;
+            foundDistances[j + 1] = distance;
+        }
+
+        List<Place> parkingLots = new ArrayList<>(found);
+        for (int i = 0; i < found; i++) {
+            int parkingLot = foundParkingLots[i];
+            parkingLots.add(new Place(names[parkingLot], null, new LatLng(latitudes[parkingLot], longitudes[parkingLot])));
+        }
+        return parkingLots;
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    private int row(double latitude) {
+        return (int) Math.floor((latitude - minLatitude) / cellHeightDegrees);
+    }
+
+    private int column(double longitude) {
+        return (int) Math.floor((longitude - minLongitude) / cellWidthDegrees);
+    }
+}
@@ -0,0 +1,133 @@
+package org.example.routeplanner.service;
+
+import com.google.maps.model.LatLng;
+
+import java.util.Map;
+
+/**
+ * Matches a location to the closest known parking lot within {@link #MATCH_DISTANCE_METERS}.
+ * The coordinates of the parking lots are kept in parallel primitive arrays, already converted to radians
+ * with the cosine of their latitude, and most of them are rejected with a cheap equirectangular
+ * bounding check before the exact haversine distance is computed. A lookup makes no allocations.
+ * <p>
+ * The class also holds the distance math shared by the route planner.
+ */
+public class ParkingLotMatcher {
+
+    /**
+     * The maximal distance between a location and the parking lot it is matched to.
+     */
+    public static final double MATCH_DISTANCE_METERS = 150;
+
+    static final double EARTH_RADIUS = 6371e3;
+
+    /**
+     * The length of a degree of latitude, in meters, for the equirectangular projections of the service.
+     */
+    static final double METERS_PER_DEGREE_OF_LATITUDE = Math.PI * EARTH_RADIUS / 180;
+    private static final double MATCH_DISTANCE_RADIANS = MATCH_DISTANCE_METERS / EARTH_RADIUS;
+
+    private final String[] names;
+    private final double[] latitudesRadians;
+    private final double[] longitudesRadians;
+    private final double[] cosLatitudes;
+
+    /**
+     * Constructs a matcher over the given parking lots.
+     *
+     * @param parkingLotsLocations the location of each parking lot, by its name
+     */
+    public ParkingLotMatcher(Map<String, LatLng> parkingLotsLocations) {
+        int size = parkingLotsLocations.size();
+        names = new String[size];
+        latitudesRadians = new double[size];
+        longitudesRadians = new double[size];
+        cosLatitudes = new double[size];
+        int i = 0;
+        for (Map.Entry<String, LatLng> parkingLot : parkingLotsLocations.entrySet()) {
+            names[i] = parkingLot.getKey();
+            latitudesRadians[i] = Math.toRadians(parkingLot.getValue().lat);
+            longitudesRadians[i] = Math.toRadians(parkingLot.getValue().lng);
+            cosLatitudes[i] = Math.cos(latitudesRadians[i]);
+            i++;
+        }
+    }
+
+    /**
+     * Finds the name of the closest parking lot within {@link #MATCH_DISTANCE_METERS} of a location.
+     *
+     * @param location the location to match
+     * @return the name of the closest parking lot, or null if no parking lot is close enough
+     */
+    public String findBestMatch(LatLng location) {
+        int parkingLot = findBestMatchIndex(location.lat, location.lng);
+        return parkingLot < 0 ? null : names[parkingLot];
+    }
+
+    /**
+     * Finds the index of the closest parking lot within {@link #MATCH_DISTANCE_METERS} of a location.
+     *
+     * @param latitude  latitude of the location, in degrees
+     * @param longitude longitude of the location, in degrees
+     * @return the index of the closest parking lot, or -1 if no parking lot is close enough
+     */
+    public int findBestMatchIndex(double latitude, double longitude) {
+        double latitudeRadians = Math.toRadians(latitude);
+        double longitudeRadians = Math.toRadians(longitude);
+        double cosLatitude = Math.cos(latitudeRadians);
+        // The equirectangular distance is never shorter than the haversine distance by more than a fraction
+        // of a percent at the scale of a city, so the margin keeps every candidate the exact check would accept
+        double boundingDistanceRadians = MATCH_DISTANCE_RADIANS * 1.01;
+
+        int closest = -1;
+        double closestDistance = Double.MAX_VALUE;
+        for (int i = 0; i < names.length; i++) {
+            double dLat = latitudesRadians[i] - latitudeRadians;
+            if (dLat > boundingDistanceRadians || dLat < -boundingDistanceRadians) {
+                continue;
+            }
+            double dLon = (longitudesRadians[i] - longitudeRadians) * cosLatitude;
+            if (dLon > boundingDistanceRadians || dLon < -boundingDistanceRadians) {
+                continue;
+            }
+            double distance = haversine(latitudeRadians, longitudeRadians, cosLatitude,
+                    latitudesRadians[i], longitudesRadians[i], cosLatitudes[i]);
+            if (distance <= MATCH_DISTANCE_METERS && distance < closestDistance) {
+                closest = i;
+                closestDistance = distance;
+            }
+        }
+        return closest;
+    }
+
+    public String getName(int parkingLot) {
+        return names[parkingLot];
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Calculates the great-circle distance between two locations with the haversine formula.
+     *
+     * @param lat1 latitude of the first location, in degrees
+     * @param lon1 longitude of the first location, in degrees
+     * @param lat2 latitude of the second location, in degrees
+     * @param lon2 longitude of the second location, in degrees
+     * @return the distance in meters
+     */
+    public static double distance(double lat1, double lon1, double lat2, double lon2) {
+        double lat1Radians = Math.toRadians(lat1);
+        double lat2Radians = Math.toRadians(lat2);
+        return haversine(lat1Radians, Math.toRadians(lon1), Math.cos(lat1Radians),
+                lat2Radians, Math.toRadians(lon2), Math.cos(lat2Radians));
+    }
+
+    private static double haversine(double lat1, double lon1, double cosLat1, double lat2, double lon2, double cosLat2) {
+        double sinHalfDLat = Math.sin((lat2 - lat1) / 2);
+        double sinHalfDLon = Math.sin((lon2 - lon1) / 2);
+        double a = sinHalfDLat * sinHalfDLat + cosLat1 * cosLat2 * sinHalfDLon * sinHalfDLon;
+        return 2 * EARTH_RADIUS * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+}
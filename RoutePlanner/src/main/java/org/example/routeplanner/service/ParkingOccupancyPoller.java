@@ -0,0 +1,188 @@
+package org.example.routeplanner.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.routeplanner.RoutePlannerProperties;
+import org.example.routeplanner.model.ParkingLotStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Keeps an in-memory snapshot of the occupancy of all the parking lots, polled in the background from the
+ * {@code /api/parking-lot} endpoint of the Achuzot Hachof scraper. A single request per poll asks for every
+ * parking lot, and all the route requests read the same snapshot, so the occupancy costs nothing per request.
+ * <p>
+ * A failed poll keeps the previous snapshot. A snapshot older than the max age is stale and is not used:
+ * every parking lot then has no information, rather than a status that may no longer be true.
+ */
+public class ParkingOccupancyPoller {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParkingOccupancyPoller.class);
+    private static final String PARKING_LOT_PREFIX = "חניון";
+
+    private final Supplier<? extends Collection<String>> parkingLotNames;
+    private final String scraperUrl;
+    private final Duration timeout;
+    private final Duration maxAge;
+    private final RoutePlannerMetrics metrics;
+    private final Clock clock;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private ScheduledExecutorService pollExecutor;
+    private volatile Snapshot snapshot;
+
+    /**
+     * Creates a poller of the occupancy of the given parking lots. The poller does not poll before it is started.
+     *
+     * @param occupancy       the scraper URL, the timeout of a poll and the max age of a snapshot
+     * @param parkingLotNames the names of the current parking lots, as in allParkingLotsLocations.json, read on every poll
+     * @param metrics         records the polls and the age of the snapshot
+     * @param clock           the clock of the age of the snapshot
+     */
+    public ParkingOccupancyPoller(RoutePlannerProperties.Occupancy occupancy, Supplier<? extends Collection<String>> parkingLotNames,
+                                  RoutePlannerMetrics metrics, Clock clock) {
+        this.parkingLotNames = parkingLotNames;
+        this.scraperUrl = occupancy.getScraperUrl().replaceAll("/+$", "");
+        this.timeout = occupancy.getTimeout();
+        this.maxAge = occupancy.getMaxAge();
+        this.metrics = metrics;
+        this.clock = clock;
+        this.httpClient = HttpClient.newBuilder().connectTimeout(timeout).build();
+        metrics.bindOccupancyAge(this, ParkingOccupancyPoller::getAgeSeconds);
+    }
+
+    /**
+     * Polls the scraper now and then every poll interval, on a daemon thread of its own.
+     *
+     * @param pollInterval the time between the end of a poll and the start of the next one
+     */
+    public synchronized void start(Duration pollInterval) {
+        if (pollExecutor != null) {
+            return;
+        }
+        pollExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "parking-occupancy-poll");
+            thread.setDaemon(true);
+            return thread;
+        });
+        pollExecutor.scheduleWithFixedDelay(this::poll, 0, pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void shutdown() {
+        if (pollExecutor != null) {
+            pollExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Polls the occupancy of all the parking lots once, replacing the snapshot when the poll succeeds.
+     *
+     * @return whether the poll succeeded
+     */
+    public boolean poll() {
+        List<String> names = List.copyOf(parkingLotNames.get());
+        URI pollUri = URI.create(scraperUrl + "/api/parking-lot?names="
+                + URLEncoder.encode(String.join(",", names), StandardCharsets.UTF_8).replace("+", "%20"));
+        try {
+            HttpResponse<String> response = httpClient.send(HttpRequest.newBuilder(pollUri).timeout(timeout).GET().build(),
+                    HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+            if (response.statusCode() != 200) {
+                throw new IOException("The scraper responded with status " + response.statusCode());
+            }
+            snapshot = new Snapshot(parseStatuses(objectMapper.readTree(response.body()), names), clock.instant());
+            metrics.countOccupancyPoll("success");
+            return true;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Polling the parking lot occupancy from {} failed: {}", pollUri.getHost(), e.toString());
+            metrics.countOccupancyPoll("error");
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * @return the statuses of the fresh snapshot by parking lot name, or an empty map if there is no fresh snapshot
+     */
+    public Map<String, ParkingLotStatus> getStatuses() {
+        Snapshot current = snapshot;
+        if (current == null || Duration.between(current.polledAt(), clock.instant()).compareTo(maxAge) > 0) {
+            return Map.of();
+        }
+        return current.statuses();
+    }
+
+    /**
+     * @return the last successful snapshot, fresh or stale, or null if no poll succeeded yet
+     */
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    private double getAgeSeconds() {
+        Snapshot current = snapshot;
+        return current == null ? Double.NaN : Duration.between(current.polledAt(), clock.instant()).toMillis() / 1000.0;
+    }
+
+    /**
+     * Matches the parking lots of the scraper, named after the titles of their pages, e.g. "חניון בית הדר",
+     * to the longest name of a parking lot the title contains.
+     */
+    private static Map<String, ParkingLotStatus> parseStatuses(JsonNode parkingLots, List<String> parkingLotNames) throws IOException {
+        if (!parkingLots.isArray()) {
+            throw new IOException("The scraper responded with no list of parking lots");
+        }
+        Map<String, ParkingLotStatus> statuses = new HashMap<>();
+        for (JsonNode parkingLot : parkingLots) {
+            String title = parkingLot.path("name").asText("").trim();
+            if (title.startsWith(PARKING_LOT_PREFIX)) {
+                title = title.substring(PARKING_LOT_PREFIX.length()).trim();
+            }
+            String name = null;
+            for (String parkingLotName : parkingLotNames) {
+                if (title.contains(parkingLotName) && (name == null || parkingLotName.length() > name.length())) {
+                    name = parkingLotName;
+                }
+            }
+            if (name != null) {
+                statuses.put(name, parseStatus(parkingLot.path("parkingLotStatus").asText("")));
+            }
+        }
+        return Map.copyOf(statuses);
+    }
+
+    private static ParkingLotStatus parseStatus(String status) {
+        try {
+            return ParkingLotStatus.valueOf(status.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return ParkingLotStatus.NO_INFORMATION;
+        }
+    }
+
+    /**
+     * The statuses of the parking lots by name, and when they were polled.
+     */
+    public record Snapshot(Map<String, ParkingLotStatus> statuses, Instant polledAt) {
+    }
+}
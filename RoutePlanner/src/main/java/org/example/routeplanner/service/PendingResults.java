@@ -0,0 +1,51 @@
+package org.example.routeplanner.service;
+
+import com.google.maps.PendingResult;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Bridges the callbacks of the Google Maps client to {@link CompletableFuture}s, so the calls of a route request
+ * can be composed without a thread waiting on {@link PendingResult#await()}.
+ */
+public final class PendingResults {
+
+    private PendingResults() {
+    }
+
+    /**
+     * Sends a request and returns the future of its result. The future completes on a thread of the HTTP client,
+     * so its dependent stages should not block. Cancelling the future cancels the request.
+     *
+     * @param request the request, not sent yet
+     * @return the future of the result of the request, failed with the ApiException or IOException of the request
+     */
+    public static <T> CompletableFuture<T> toFuture(PendingResult<T> request) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        request.setCallback(new PendingResult.Callback<>() {
+            @Override
+            public void onResult(T response) {
+                result.complete(response);
+            }
+
+            @Override
+            public void onFailure(Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        result.whenComplete((response, e) -> {
+            if (result.isCancelled()) {
+                request.cancel();
+            }
+        });
+        return result;
+    }
+
+    /**
+     * @return the exception a future failed with, without the CompletionException the dependent stages wrap it in
+     */
+    public static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+}
@@ -0,0 +1,20 @@
+package org.example.routeplanner.service;
+
+/**
+ * Defines how {@link RoutePlannerService} computes the driving and walking legs of the candidate parking lots.
+ */
+public enum PlanningMode {
+    /**
+     * Legs are requested one after the other on the calling thread.
+     */
+    SERIAL,
+    /**
+     * Legs are requested in parallel on a bounded executor, with a cap on the in-flight calls of each request.
+     */
+    CONCURRENT,
+    /**
+     * The times of all the legs are taken from two Distance Matrix calls, and only the best routes get their
+     * full directions, none by default.
+     */
+    MATRIX
+}
@@ -0,0 +1,105 @@
+package org.example.routeplanner.service;
+
+import com.google.maps.model.LatLng;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Simplifies polylines with the Douglas-Peucker algorithm to the detail a map can show at a zoom level.
+ * A point is dropped when it is less than a pixel away from the simplified line, so the simplified
+ * polyline looks the same as the original one on a map at that zoom level.
+ */
+public final class PolylineSimplifier {
+
+    public static final int MIN_ZOOM = 0;
+    public static final int MAX_ZOOM = 21;
+
+    // The ground resolution of a 256-pixel Web Mercator tile at zoom level 0 on the equator
+    private static final double EQUATOR_METERS_PER_PIXEL = 156543.03392;
+    private static final double TOLERANCE_PIXELS = 1;
+
+    private PolylineSimplifier() {
+    }
+
+    /**
+     * Simplifies a polyline to the detail of a zoom level.
+     *
+     * @param points the points of the polyline
+     * @param zoom   the zoom level of the map, between {@link #MIN_ZOOM} and {@link #MAX_ZOOM}
+     * @return the simplified polyline, which keeps the first and the last points
+     * @throws IllegalArgumentException if the zoom level is out of range
+     */
+    public static List<LatLng> simplify(List<LatLng> points, int zoom) throws IllegalArgumentException {
+        validateZoom(zoom);
+        if (points.size() <= 2) {
+            return new ArrayList<>(points);
+        }
+
+        // Projects the points to meters around the first point, which is accurate enough at the scale of a route
+        LatLng reference = points.get(0);
+        double metersPerDegreeOfLongitude = ParkingLotMatcher.METERS_PER_DEGREE_OF_LATITUDE * Math.cos(Math.toRadians(reference.lat));
+        double[] x = new double[points.size()];
+        double[] y = new double[points.size()];
+        for (int i = 0; i < points.size(); i++) {
+            x[i] = (points.get(i).lng - reference.lng) * metersPerDegreeOfLongitude;
+            y[i] = (points.get(i).lat - reference.lat) * ParkingLotMatcher.METERS_PER_DEGREE_OF_LATITUDE;
+        }
+        double tolerance = TOLERANCE_PIXELS * EQUATOR_METERS_PER_PIXEL * Math.cos(Math.toRadians(reference.lat)) / (1 << zoom);
+
+        boolean[] kept = new boolean[points.size()];
+        kept[0] = true;
+        kept[points.size() - 1] = true;
+        Deque<int[]> ranges = new ArrayDeque<>();
+        ranges.push(new int[]{0, points.size() - 1});
+        while (!ranges.isEmpty()) {
+            int[] range = ranges.pop();
+            int first = range[0];
+            int last = range[1];
+            int farthest = -1;
+            double farthestDistance = tolerance;
+            for (int i = first + 1; i < last; i++) {
+                double distance = distanceToSegment(x[i], y[i], x[first], y[first], x[last], y[last]);
+                if (distance > farthestDistance) {
+                    farthest = i;
+                    farthestDistance = distance;
+                }
+            }
+            if (farthest >= 0) {
+                kept[farthest] = true;
+                ranges.push(new int[]{first, farthest});
+                ranges.push(new int[]{farthest, last});
+            }
+        }
+
+        List<LatLng> simplified = new ArrayList<>();
+        for (int i = 0; i < points.size(); i++) {
+            if (kept[i]) {
+                simplified.add(points.get(i));
+            }
+        }
+        return simplified;
+    }
+
+    /**
+     * Checks that a zoom level is in range.
+     *
+     * @param zoom the zoom level of the map
+     * @throws IllegalArgumentException if the zoom level is out of range
+     */
+    public static void validateZoom(int zoom) throws IllegalArgumentException {
+        if (zoom < MIN_ZOOM || zoom > MAX_ZOOM) {
+            throw new IllegalArgumentException("Zoom must be between " + MIN_ZOOM + " and " + MAX_ZOOM);
+        }
+    }
+
+    private static double distanceToSegment(double px, double py, double ax, double ay, double bx, double by) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double lengthSquared = dx * dx + dy * dy;
+        double t = lengthSquared == 0 ? 0 : Math.max(0, Math.min(1, ((px - ax) * dx + (py - ay) * dy) / lengthSquared));
+        return Math.hypot(px - (ax + t * dx), py - (ay + t * dy));
+    }
+}
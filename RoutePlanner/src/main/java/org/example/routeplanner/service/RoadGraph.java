@@ -0,0 +1,320 @@
+package org.example.routeplanner.service;
+
+import com.google.maps.model.TravelMode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable road network for local routing, stored in compressed sparse row form: the edges leaving node
+ * {@code n} are {@code firstEdge[n] .. firstEdge[n + 1] - 1}. Every edge is directed, so a two-way road is
+ * two edges, and a one-way road is a drivable edge in its direction and a walk-only edge in the other one.
+ * <p>
+ * Nodes are also bucketed into a uniform grid, to snap locations to the closest node usable in a mode of travel.
+ */
+public class RoadGraph {
+
+    static final byte DRIVABLE = 1;
+    static final byte WALKABLE = 2;
+
+    private static final double SNAP_CELL_SIZE_METERS = 200;
+
+    private final double[] latitudes;
+    private final double[] longitudes;
+    // Equirectangular projection of the nodes in meters, for the A* heuristic
+    private final float[] x;
+    private final float[] y;
+    private final byte[] nodeFlags;
+
+    private final int[] firstEdge;
+    private final int[] edgeTargets;
+    private final float[] edgeLengthsMeters;
+    private final float[] edgeDrivingSeconds;
+    private final byte[] edgeFlags;
+    private final int[] edgeNames;
+    private final String[] names;
+    private final double maxDrivingSpeedMetersPerSecond;
+
+    private final double minLatitude;
+    private final double minLongitude;
+    private final double cellHeightDegrees;
+    private final double cellWidthDegrees;
+    private final int rows;
+    private final int columns;
+    private final int[] cellStart;
+    private final int[] cellNodes;
+
+    private RoadGraph(Builder builder) {
+        int nodes = builder.nodeCount;
+        int edges = builder.edgeCount;
+        latitudes = Arrays.copyOf(builder.latitudes, nodes);
+        longitudes = Arrays.copyOf(builder.longitudes, nodes);
+        names = builder.names.toArray(String[]::new);
+
+        // Counting sort of the edges by their source node
+        firstEdge = new int[nodes + 1];
+        for (int edge = 0; edge < edges; edge++) {
+            firstEdge[builder.edgeSources[edge] + 1]++;
+        }
+        for (int node = 0; node < nodes; node++) {
+            firstEdge[node + 1] += firstEdge[node];
+        }
+        edgeTargets = new int[edges];
+        edgeLengthsMeters = new float[edges];
+        edgeDrivingSeconds = new float[edges];
+        edgeFlags = new byte[edges];
+        edgeNames = new int[edges];
+        nodeFlags = new byte[nodes];
+        int[] nextEdge = Arrays.copyOf(firstEdge, nodes);
+        double maxSpeed = 0;
+        for (int edge = 0; edge < edges; edge++) {
+            int source = builder.edgeSources[edge];
+            int position = nextEdge[source]++;
+            edgeTargets[position] = builder.edgeTargets[edge];
+            edgeLengthsMeters[position] = builder.edgeLengthsMeters[edge];
+            edgeDrivingSeconds[position] = builder.edgeDrivingSeconds[edge];
+            edgeFlags[position] = builder.edgeFlags[edge];
+            edgeNames[position] = builder.edgeNames[edge];
+            nodeFlags[source] |= builder.edgeFlags[edge];
+            nodeFlags[builder.edgeTargets[edge]] |= builder.edgeFlags[edge];
+            if ((builder.edgeFlags[edge] & DRIVABLE) != 0 && builder.edgeDrivingSeconds[edge] > 0) {
+                maxSpeed = Math.max(maxSpeed, builder.edgeLengthsMeters[edge] / builder.edgeDrivingSeconds[edge]);
+            }
+        }
+        maxDrivingSpeedMetersPerSecond = maxSpeed;
+
+        minLatitude = nodes == 0 ? 0 : Arrays.stream(latitudes).min().getAsDouble();
+        minLongitude = nodes == 0 ? 0 : Arrays.stream(longitudes).min().getAsDouble();
+        double maxLatitude = nodes == 0 ? 0 : Arrays.stream(latitudes).max().getAsDouble();
+        double maxLongitude = nodes == 0 ? 0 : Arrays.stream(longitudes).max().getAsDouble();
+        double metersPerDegreeOfLongitude = ParkingLotMatcher.METERS_PER_DEGREE_OF_LATITUDE
+                * Math.cos(Math.toRadians((minLatitude + maxLatitude) / 2));
+        x = new float[nodes];
+        y = new float[nodes];
+        for (int node = 0; node < nodes; node++) {
+            x[node] = (float) ((longitudes[node] - minLongitude) * metersPerDegreeOfLongitude);
+            y[node] = (float) ((latitudes[node] - minLatitude) * ParkingLotMatcher.METERS_PER_DEGREE_OF_LATITUDE);
+        }
+
+        cellHeightDegrees = SNAP_CELL_SIZE_METERS / ParkingLotMatcher.METERS_PER_DEGREE_OF_LATITUDE;
+        cellWidthDegrees = SNAP_CELL_SIZE_METERS / metersPerDegreeOfLongitude;
+        rows = (int) ((maxLatitude - minLatitude) / cellHeightDegrees) + 1;
+        columns = (int) ((maxLongitude - minLongitude) / cellWidthDegrees) + 1;
+        int[] cellOfNode = new int[nodes];
+        cellStart = new int[rows * columns + 1];
+        for (int node = 0; node < nodes; node++) {
+            cellOfNode[node] = row(latitudes[node]) * columns + column(longitudes[node]);
+            cellStart[cellOfNode[node] + 1]++;
+        }
+        for (int cell = 0; cell < rows * columns; cell++) {
+            cellStart[cell + 1] += cellStart[cell];
+        }
+        cellNodes = new int[nodes];
+        int[] nextInCell = Arrays.copyOf(cellStart, rows * columns);
+        for (int node = 0; node < nodes; node++) {
+            cellNodes[nextInCell[cellOfNode[node]]++] = node;
+        }
+    }
+
+    /**
+     * Finds the closest node to a location that has a road usable in a mode of travel.
+     *
+     * @param latitude     latitude of the location, in degrees
+     * @param longitude    longitude of the location, in degrees
+     * @param mode         DRIVING or WALKING
+     * @param radiusMeters the maximal distance between the location and the node
+     * @return the closest node, or -1 if there is none within the radius
+     */
+    public int snap(double latitude, double longitude, TravelMode mode, double radiusMeters) {
+        byte flag = flagOf(mode);
+        double latitudeMargin = radiusMeters / ParkingLotMatcher.METERS_PER_DEGREE_OF_LATITUDE;
+        double longitudeMargin = radiusMeters / (ParkingLotMatcher.METERS_PER_DEGREE_OF_LATITUDE * Math.cos(Math.toRadians(latitude)));
+        int fromRow = Math.max(0, row(latitude - latitudeMargin));
+        int toRow = Math.min(rows - 1, row(latitude + latitudeMargin));
+        int fromColumn = Math.max(0, column(longitude - longitudeMargin));
+        int toColumn = Math.min(columns - 1, column(longitude + longitudeMargin));
+
+        int closest = -1;
+        double closestDistance = radiusMeters;
+        for (int row = fromRow; row <= toRow; row++) {
+            for (int column = fromColumn; column <= toColumn; column++) {
+                int cell = row * columns + column;
+                for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+                    int node = cellNodes[i];
+                    if ((nodeFlags[node] & flag) == 0) {
+                        continue;
+                    }
+                    double distance = ParkingLotMatcher.distance(latitude, longitude, latitudes[node], longitudes[node]);
+                    if (distance <= closestDistance) {
+                        closest = node;
+                        closestDistance = distance;
+                    }
+                }
+            }
+        }
+        return closest;
+    }
+
+    static byte flagOf(TravelMode mode) {
+        return switch (mode) {
+            case DRIVING -> DRIVABLE;
+            case WALKING -> WALKABLE;
+            default -> throw new IllegalArgumentException("Mode must be driving or walking");
+        };
+    }
+
+    public int getNodeCount() {
+        return latitudes.length;
+    }
+
+    public int getEdgeCount() {
+        return edgeTargets.length;
+    }
+
+    /**
+     * @return the memory held by the arrays of the graph, in bytes
+     */
+    public long getEstimatedBytes() {
+        long nodes = latitudes.length;
+        long edges = edgeTargets.length;
+        long namesBytes = 0;
+        for (String name : names) {
+            namesBytes += 40 + 2L * name.length();
+        }
+        return nodes * (8 + 8 + 4 + 4 + 1 + 4 + 4) + edges * (4 + 4 + 4 + 1 + 4) + 4L * cellStart.length + namesBytes;
+    }
+
+    double getLatitude(int node) {
+        return latitudes[node];
+    }
+
+    double getLongitude(int node) {
+        return longitudes[node];
+    }
+
+    float getX(int node) {
+        return x[node];
+    }
+
+    float getY(int node) {
+        return y[node];
+    }
+
+    int getFirstEdge(int node) {
+        return firstEdge[node];
+    }
+
+    int getEdgeEnd(int node) {
+        return firstEdge[node + 1];
+    }
+
+    int getEdgeTarget(int edge) {
+        return edgeTargets[edge];
+    }
+
+    float getEdgeLengthMeters(int edge) {
+        return edgeLengthsMeters[edge];
+    }
+
+    float getEdgeDrivingSeconds(int edge) {
+        return edgeDrivingSeconds[edge];
+    }
+
+    byte getEdgeFlags(int edge) {
+        return edgeFlags[edge];
+    }
+
+    String getEdgeName(int edge) {
+        return names[edgeNames[edge]];
+    }
+
+    double getMaxDrivingSpeedMetersPerSecond() {
+        return maxDrivingSpeedMetersPerSecond;
+    }
+
+    private int row(double latitude) {
+        return (int) Math.floor((latitude - minLatitude) / cellHeightDegrees);
+    }
+
+    private int column(double longitude) {
+        return (int) Math.floor((longitude - minLongitude) / cellWidthDegrees);
+    }
+
+    /**
+     * Collects the nodes and edges of a road graph into growable primitive arrays.
+     */
+    public static class Builder {
+        private int nodeCount;
+        private double[] latitudes = new double[1024];
+        private double[] longitudes = new double[1024];
+
+        private int edgeCount;
+        private int[] edgeSources = new int[1024];
+        private int[] edgeTargets = new int[1024];
+        private float[] edgeLengthsMeters = new float[1024];
+        private float[] edgeDrivingSeconds = new float[1024];
+        private byte[] edgeFlags = new byte[1024];
+        private int[] edgeNames = new int[1024];
+
+        private final List<String> names = new ArrayList<>(List.of(""));
+        private final Map<String, Integer> nameIndexes = new HashMap<>(Map.of("", 0));
+
+        /**
+         * Adds a node.
+         *
+         * @return the index of the node
+         */
+        public int addNode(double latitude, double longitude) {
+            if (nodeCount == latitudes.length) {
+                latitudes = Arrays.copyOf(latitudes, nodeCount * 2);
+                longitudes = Arrays.copyOf(longitudes, nodeCount * 2);
+            }
+            latitudes[nodeCount] = latitude;
+            longitudes[nodeCount] = longitude;
+            return nodeCount++;
+        }
+
+        /**
+         * Adds a directed edge, with the length of the straight line between its nodes.
+         *
+         * @param source          the node the edge leaves
+         * @param target          the node the edge enters
+         * @param drivingSpeedKmh the driving speed along the edge, ignored unless the edge is drivable
+         * @param drivable        whether cars can drive along the edge
+         * @param walkable        whether pedestrians can walk along the edge
+         * @param name            the name of the road, or null
+         */
+        public void addEdge(int source, int target, double drivingSpeedKmh, boolean drivable, boolean walkable, String name) {
+            if (!drivable && !walkable) {
+                return;
+            }
+            if (edgeCount == edgeSources.length) {
+                int capacity = edgeCount * 2;
+                edgeSources = Arrays.copyOf(edgeSources, capacity);
+                edgeTargets = Arrays.copyOf(edgeTargets, capacity);
+                edgeLengthsMeters = Arrays.copyOf(edgeLengthsMeters, capacity);
+                edgeDrivingSeconds = Arrays.copyOf(edgeDrivingSeconds, capacity);
+                edgeFlags = Arrays.copyOf(edgeFlags, capacity);
+                edgeNames = Arrays.copyOf(edgeNames, capacity);
+            }
+            double length = ParkingLotMatcher.distance(latitudes[source], longitudes[source], latitudes[target], longitudes[target]);
+            edgeSources[edgeCount] = source;
+            edgeTargets[edgeCount] = target;
+            edgeLengthsMeters[edgeCount] = (float) length;
+            edgeDrivingSeconds[edgeCount] = drivable ? (float) (length / (drivingSpeedKmh / 3.6)) : Float.POSITIVE_INFINITY;
+            edgeFlags[edgeCount] = (byte) ((drivable ? DRIVABLE : 0) | (walkable ? WALKABLE : 0));
+            edgeNames[edgeCount] = nameIndexes.computeIfAbsent(name == null ? "" : name, newName -> {
+                names.add(newName);
+                return names.size() - 1;
+            });
+            edgeCount++;
+        }
+
+        public RoadGraph build() {
+            return new RoadGraph(this);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package org.example.routeplanner.service;
+
+import com.google.maps.errors.ApiException;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The work shared by the pairs of a batch of route requests: each geocode, lot search, leg and route search is keyed
+ * by its inputs and done once for the whole batch, and the pairs that need it again, while it runs or after it is done,
+ * reuse its result or its error. Unlike the caches, the plan lives only as long as its batch.
+ */
+final class RouteBatchPlan {
+
+    private final ConcurrentHashMap<Object, CompletableFuture<Object>> work = new ConcurrentHashMap<>();
+    private final AtomicInteger sharedCallCount = new AtomicInteger();
+
+    /**
+     * Returns the result of the work of a key, doing the work if no pair of the batch did it yet.
+     * When the pair doing the work was interrupted, one of the pairs waiting for it does the work again.
+     *
+     * @param key  the inputs of the work, e.g. a record of the origin and the parking lot of a driving leg
+     * @param call the work
+     * @return the result of the work
+     */
+    @SuppressWarnings("unchecked")
+    <T> T share(Object key, UpstreamCall<T> call) throws ApiException, InterruptedException, IOException {
+        CompletableFuture<Object> created = new CompletableFuture<>();
+        CompletableFuture<Object> existing;
+        while ((existing = work.putIfAbsent(key, created)) != null) {
+            if (!SingleFlight.ownerInterrupted(existing)) {
+                sharedCallCount.incrementAndGet();
+                return (T) await(existing);
+            }
+            // The pair that did the work was interrupted, not this one, so the first pair to get here does it again
+            work.remove(key, existing);
+        }
+        try {
+            T result = call.call();
+            created.complete(result);
+            return result;
+        } catch (InterruptedException e) {
+            // Only this pair was interrupted, so the pairs that need the work later do it again
+            work.remove(key, created);
+            created.completeExceptionally(e);
+            throw e;
+        } catch (Throwable e) {
+            // Whatever the failure, the pairs waiting for the work must not wait forever
+            created.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private static Object await(CompletableFuture<Object> shared) throws ApiException, InterruptedException, IOException {
+        try {
+            return shared.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ApiException apiException) {
+                throw apiException;
+            }
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * @return the number of different pieces of work done for the batch
+     */
+    int getUniqueCallCount() {
+        return work.size();
+    }
+
+    /**
+     * @return the number of times a piece of work was reused instead of being done again
+     */
+    int getSharedCallCount() {
+        return sharedCallCount.get();
+    }
+}
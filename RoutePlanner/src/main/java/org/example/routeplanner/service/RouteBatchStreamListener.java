@@ -0,0 +1,20 @@
+package org.example.routeplanner.service;
+
+import org.example.routeplanner.model.RouteBatchResult;
+import org.example.routeplanner.model.RouteBatchSummary;
+
+/**
+ * Receives a stream of batch results planned in the background: the result of each pair as soon as it is ready,
+ * and then either the summary of the batch or the error that ended the stream.
+ */
+public interface RouteBatchStreamListener {
+
+    void onResult(RouteBatchResult result);
+
+    void onComplete(RouteBatchSummary summary);
+
+    /**
+     * @param e a ResourceAccessException if the batch was interrupted
+     */
+    void onError(RuntimeException e);
+}
@@ -0,0 +1,12 @@
+package org.example.routeplanner.service;
+
+import org.example.routeplanner.model.Route;
+
+/**
+ * Receives each route as soon as its driving and walking paths are ready, before all the routes are found.
+ * The route planner calls it from the thread that called {@code findRoutes}, one route at a time.
+ */
+@FunctionalInterface
+public interface RouteListener {
+    void onRoute(Route route);
+}
@@ -0,0 +1,192 @@
+package org.example.routeplanner.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Cache of whole route plans, as the serialized responses ready to be sent. A plan is shared by the requests
+ * with the same normalized origin and destination addresses, limit and representation, so a popular trip is planned
+ * once per TTL instead of once per request. The plan carries the addresses and the driving path of its origin,
+ * so it is never shared by requests from other addresses, however close.
+ * <p>
+ * A plan is fresh for a short TTL. After it, the plan is still served for the stale-while-revalidate window
+ * while a single background refresh plans it again; a plan older than both is planned again by the request.
+ * Entries are evicted by least recent use once the size of their responses exceeds the budget.
+ */
+public class RoutePlanCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(RoutePlanCache.class);
+    private static final int ENTRY_OVERHEAD_BYTES = 128;
+
+    private final Cache<RoutePlanKey, Entry> cache;
+    private final long ttlMillis;
+    private final long expiryMillis;
+    private final Executor refreshExecutor;
+    private final Clock clock;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+
+    /**
+     * Constructs a route plan cache.
+     *
+     * @param maximumWeightBytes        the memory budget of the cache, in bytes of the cached responses
+     * @param ttl                       how long a plan is served without being refreshed
+     * @param staleWhileRevalidate      how long after its TTL a plan is still served while it is refreshed
+     * @param refreshExecutor           runs the background refreshes
+     * @param clock                     the clock the age of the plans is measured with
+     */
+    public RoutePlanCache(long maximumWeightBytes, Duration ttl, Duration staleWhileRevalidate,
+                          Executor refreshExecutor, Clock clock) {
+        this.ttlMillis = ttl.toMillis();
+        this.expiryMillis = ttl.plus(staleWhileRevalidate).toMillis();
+        this.refreshExecutor = refreshExecutor;
+        this.clock = clock;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximumWeightBytes)
+                .weigher((RoutePlanKey key, Entry entry) -> estimateWeight(key, entry.plan))
+                .expireAfterWrite(ttl.plus(staleWhileRevalidate))
+                .build();
+    }
+
+    /**
+     * Returns the plan of a route request, from the cache when a fresh or stale entry exists. A stale entry is
+     * refreshed in the background with the loader, unless a refresh of it is already running.
+     *
+     * @param origin         the origin address, as the request gave it
+     * @param destination    the destination address, as the request gave it
+     * @param limit          the number of routes of the plan
+     * @param representation the representation the routes are serialized in, e.g. "full" or "compact-15"
+     * @param loader         plans and serializes the routes; its exceptions are thrown as is and nothing is cached
+     * @return the cached or loaded plan, with its age
+     */
+    public CachedPlan get(String origin, String destination, int limit, String representation, Supplier<Plan> loader) {
+        long now = clock.millis();
+        RoutePlanKey key = new RoutePlanKey(addressKey(origin), addressKey(destination), limit, representation);
+        Entry entry = cache.getIfPresent(key);
+        long ageMillis = entry == null ? 0 : Math.max(0, now - entry.plannedAt);
+
+        if (entry != null && ageMillis < expiryMillis) {
+            hits.increment();
+            if (ageMillis >= ttlMillis) {
+                staleHits.increment();
+                if (entry.refreshing.compareAndSet(false, true)) {
+                    refreshInBackground(key, entry, loader);
+                }
+            }
+            return new CachedPlan(entry.plan, Duration.ofMillis(ageMillis));
+        }
+
+        misses.increment();
+        Plan plan = loader.get();
+        cache.put(key, new Entry(plan, clock.millis()));
+        return new CachedPlan(plan, Duration.ZERO);
+    }
+
+    private void refreshInBackground(RoutePlanKey key, Entry entry, Supplier<Plan> loader) {
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    Plan plan = loader.get();
+                    refreshes.increment();
+                    cache.put(key, new Entry(plan, clock.millis()));
+                } catch (RuntimeException e) {
+                    // The stale plan is still served until it expires, and a later request retries the refresh
+                    logger.debug("Refresh of the route plan {} failed", key, e);
+                    entry.refreshing.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            entry.refreshing.set(false);
+        }
+    }
+
+    private static int estimateWeight(RoutePlanKey key, Plan plan) {
+        long weight = ENTRY_OVERHEAD_BYTES + plan.body().length
+                + 2L * (key.origin().length() + key.destination().length() + key.representation().length()
+                + (plan.etag() == null ? 0 : plan.etag().length()));
+        return (int) Math.min(Integer.MAX_VALUE, weight);
+    }
+
+    /**
+     * Addresses that normalize to nothing, e.g. punctuation only, are keyed as they are.
+     */
+    private static String addressKey(String address) {
+        String normalized = AddressNormalizer.normalize(address);
+        return normalized.isEmpty() ? address : normalized;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of hits served from a plan older than the TTL, while it was refreshed
+     */
+    public long getStaleHitCount() {
+        return staleHits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getRefreshCount() {
+        return refreshes.sum();
+    }
+
+    /**
+     * Drops every entry, e.g. once the parking lots they lead to were reloaded.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public long getSize() {
+        return cache.estimatedSize();
+    }
+
+    /**
+     * A serialized route plan.
+     *
+     * @param body the serialized routes, as sent in the response
+     * @param etag the ETag of the routes in their representation
+     */
+    public record Plan(byte[] body, String etag) {
+    }
+
+    /**
+     * A route plan and how long ago it was planned.
+     *
+     * @param plan the serialized route plan
+     * @param age  the time since the plan was planned, zero for a plan planned by the request itself
+     */
+    public record CachedPlan(Plan plan, Duration age) {
+    }
+
+    private record RoutePlanKey(String origin, String destination, int limit, String representation) {
+    }
+
+    private static final class Entry {
+        private final Plan plan;
+        private final long plannedAt;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        private Entry(Plan plan, long plannedAt) {
+            this.plan = plan;
+            this.plannedAt = plannedAt;
+        }
+    }
+}
@@ -0,0 +1,381 @@
+package org.example.routeplanner.service;
+
+import com.google.maps.errors.ApiException;
+import com.google.maps.model.TravelMode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * The Micrometer meters of route planning:
+ * <ul>
+ *     <li>{@code routeplanner.stage}: a timer of each stage of a route request, tagged by {@code stage}</li>
+ *     <li>{@code routeplanner.upstream}: a timer of each Google Maps API call, tagged by {@code api}, {@code mode}
+ *     and {@code outcome}</li>
+ *     <li>{@code routeplanner.upstream.errors}: the failed Google Maps API calls, tagged by {@code api} and
+ *     the {@code type} of the error, e.g. OverQueryLimitException or SocketTimeoutException</li>
+ *     <li>{@code routeplanner.candidate.lots}: the number of candidate parking lots of each route request</li>
+ *     <li>{@code routeplanner.cache.hits}, {@code routeplanner.cache.misses} and {@code routeplanner.cache.hit.ratio}
+ *     of each enabled cache, tagged by {@code cache}</li>
+ *     <li>{@code routeplanner.cache.drift.samples}, {@code routeplanner.cache.drift.mean} and
+ *     {@code routeplanner.cache.drift.max}: how far the cached driving times drifted from the refreshed ones,
+ *     in minutes, tagged by {@code cache}</li>
+ *     <li>{@code routeplanner.coalescing.calls}, {@code routeplanner.coalescing.waiters} and
+ *     {@code routeplanner.coalescing.in.flight} of each {@link SingleFlight}, tagged by {@code flight}</li>
+ *     <li>{@code routeplanner.scheduler.queue.depth}, {@code routeplanner.scheduler.wait} and
+ *     {@code routeplanner.scheduler.rejections} of the {@link UpstreamScheduler}, tagged by {@code api} and,
+ *     for the wait and the rejections, {@code priority}</li>
+ *     <li>{@code routeplanner.occupancy.polls}, tagged by {@code outcome}, {@code routeplanner.occupancy.age} of the
+ *     occupancy snapshot and {@code routeplanner.occupancy.skipped.lots}, the full parking lots that were not routed</li>
+ *     <li>{@code routeplanner.virtual.threads.pinned}: a timer of the virtual threads pinned to their carrier thread,
+ *     tagged by the {@code site} of the pinning, when virtual threads are enabled</li>
+ * </ul>
+ * The timers publish percentile histograms, so the latency percentiles can be aggregated across instances.
+ */
+@Component
+public class RoutePlannerMetrics {
+
+    public static final String STAGE_GEOCODING = "geocoding";
+    public static final String STAGE_LOT_SEARCH = "lot_search";
+    public static final String STAGE_LOT_MATCHING = "lot_matching";
+    public static final String STAGE_DRIVING = "driving";
+    public static final String STAGE_WALKING = "walking";
+    public static final String STAGE_PLANNING = "planning";
+    public static final String STAGE_SERIALIZATION = "serialization";
+
+    public static final String API_GEOCODING = "geocoding";
+    public static final String API_PLACES_NEARBY = "places_nearby";
+    public static final String API_DIRECTIONS = "directions";
+    public static final String API_DISTANCE_MATRIX = "distance_matrix";
+
+    private static final Duration MIN_EXPECTED_DURATION = Duration.ofMillis(1);
+    private static final Duration MAX_EXPECTED_DURATION = Duration.ofSeconds(30);
+
+    private final MeterRegistry registry;
+    private final DistributionSummary candidateLots;
+
+    /**
+     * Creates the meters in a registry of their own, e.g. for a service created outside of Spring.
+     */
+    public RoutePlannerMetrics() {
+        this(new SimpleMeterRegistry());
+    }
+
+    @Autowired
+    public RoutePlannerMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.candidateLots = DistributionSummary.builder("routeplanner.candidate.lots")
+                .description("Candidate parking lots of each route request")
+                .publishPercentileHistogram()
+                .maximumExpectedValue(100.0)
+                .register(registry);
+    }
+
+    /**
+     * Runs a stage of a route request and records its duration, whether it succeeds or fails.
+     *
+     * @param stage one of the STAGE_ constants
+     * @param call  the stage
+     * @return the result of the stage
+     */
+    public <T> T timeStage(String stage, UpstreamCall<T> call) throws ApiException, InterruptedException, IOException {
+        long start = System.nanoTime();
+        try {
+            return call.call();
+        } finally {
+            recordStage(stage, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Runs a stage that completes asynchronously and records its duration once it completes, whether it succeeds or fails.
+     *
+     * @param stage one of the STAGE_ constants
+     * @param call  starts the stage
+     * @return the future of the result of the stage
+     */
+    public <T> CompletableFuture<T> timeStageAsync(String stage, Supplier<CompletableFuture<T>> call) {
+        long start = System.nanoTime();
+        return call.get().whenComplete((result, e) -> recordStage(stage, System.nanoTime() - start));
+    }
+
+    /**
+     * Records the duration of a stage that was timed by the caller.
+     *
+     * @param stage       one of the STAGE_ constants
+     * @param nanoseconds the duration of the stage
+     */
+    public void recordStage(String stage, long nanoseconds) {
+        Timer.builder("routeplanner.stage")
+                .description("Stages of the route requests")
+                .tag("stage", stage)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(MIN_EXPECTED_DURATION)
+                .maximumExpectedValue(MAX_EXPECTED_DURATION)
+                .register(registry)
+                .record(nanoseconds, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Calls a Google Maps API and records the duration and the outcome of the call, and the type of its error.
+     *
+     * @param api  one of the API_ constants
+     * @param mode the travel mode of the call, or null if the API has none
+     * @param call the call
+     * @return the result of the call
+     */
+    public <T> T timeUpstream(String api, TravelMode mode, UpstreamCall<T> call) throws ApiException, InterruptedException, IOException {
+        long start = System.nanoTime();
+        Throwable error = null;
+        try {
+            return call.call();
+        } catch (ApiException | InterruptedException | IOException | RuntimeException e) {
+            error = e;
+            throw e;
+        } finally {
+            recordUpstream(api, mode, System.nanoTime() - start, error);
+        }
+    }
+
+    /**
+     * Starts an asynchronous call to a Google Maps API and records the duration and the outcome of the call
+     * once it completes, and the type of its error.
+     *
+     * @param api  one of the API_ constants
+     * @param mode the travel mode of the call, or null if the API has none
+     * @param call starts the call
+     * @return the future of the result of the call
+     */
+    public <T> CompletableFuture<T> timeUpstreamAsync(String api, TravelMode mode, Supplier<CompletableFuture<T>> call) {
+        long start = System.nanoTime();
+        return call.get().whenComplete((result, e) ->
+                recordUpstream(api, mode, System.nanoTime() - start, e == null ? null : PendingResults.unwrap(e)));
+    }
+
+    private void recordUpstream(String api, TravelMode mode, long nanoseconds, Throwable error) {
+        if (error != null) {
+            Counter.builder("routeplanner.upstream.errors")
+                    .description("Failed Google Maps API calls")
+                    .tag("api", api)
+                    .tag("type", error.getClass().getSimpleName())
+                    .register(registry)
+                    .increment();
+        }
+        Timer.builder("routeplanner.upstream")
+                .description("Google Maps API calls")
+                .tag("api", api)
+                .tag("mode", mode == null ? "none" : mode.name().toLowerCase(Locale.ROOT))
+                .tag("outcome", error == null ? "success" : "error")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(MIN_EXPECTED_DURATION)
+                .maximumExpectedValue(MAX_EXPECTED_DURATION)
+                .register(registry)
+                .record(nanoseconds, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records the number of candidate parking lots of a route request.
+     */
+    public void recordCandidateLots(int count) {
+        candidateLots.record(count);
+    }
+
+    /**
+     * Exposes the hits, misses and hit ratio of a cache.
+     *
+     * @param cache the value of the {@code cache} tag
+     * @param state the cache
+     * @param hits  the hit count of the cache
+     * @param misses the miss count of the cache
+     */
+    public <C> void bindCache(String cache, C state, ToLongFunction<C> hits, ToLongFunction<C> misses) {
+        FunctionCounter.builder("routeplanner.cache.hits", state, value -> hits.applyAsLong(value))
+                .tag("cache", cache)
+                .register(registry);
+        FunctionCounter.builder("routeplanner.cache.misses", state, value -> misses.applyAsLong(value))
+                .tag("cache", cache)
+                .register(registry);
+        Gauge.builder("routeplanner.cache.hit.ratio", state, value -> {
+                    long hitCount = hits.applyAsLong(value);
+                    long requestCount = hitCount + misses.applyAsLong(value);
+                    return requestCount == 0 ? Double.NaN : (double) hitCount / requestCount;
+                })
+                .tag("cache", cache)
+                .register(registry);
+    }
+
+    /**
+     * Exposes how far the cached values of a cache drifted from the fresh ones, to tune its TTLs.
+     *
+     * @param cache   the value of the {@code cache} tag
+     * @param state   the cache
+     * @param samples the number of cached values compared with fresh ones
+     * @param mean    the mean drift, in minutes
+     * @param max     the largest drift, in minutes
+     */
+    public <C> void bindCacheDrift(String cache, C state, ToLongFunction<C> samples, ToDoubleFunction<C> mean,
+                                   ToDoubleFunction<C> max) {
+        FunctionCounter.builder("routeplanner.cache.drift.samples", state, value -> samples.applyAsLong(value))
+                .description("Cached values compared with the refreshed ones")
+                .tag("cache", cache)
+                .register(registry);
+        Gauge.builder("routeplanner.cache.drift.mean", state, mean)
+                .description("Mean drift of the cached values from the refreshed ones")
+                .baseUnit("minutes")
+                .tag("cache", cache)
+                .register(registry);
+        Gauge.builder("routeplanner.cache.drift.max", state, max)
+                .description("Largest drift of a cached value from the refreshed one")
+                .baseUnit("minutes")
+                .tag("cache", cache)
+                .register(registry);
+    }
+
+    /**
+     * Exposes the calls made by a single flight, the callers that waited for an identical call instead,
+     * and the calls in flight.
+     *
+     * @param flight       the value of the {@code flight} tag
+     * @param singleFlight the single flight
+     */
+    public void bindSingleFlight(String flight, SingleFlight<?, ?> singleFlight) {
+        FunctionCounter.builder("routeplanner.coalescing.calls", singleFlight, SingleFlight::getCallCount)
+                .description("Calls made, not coalesced with an identical call in flight")
+                .tag("flight", flight)
+                .register(registry);
+        FunctionCounter.builder("routeplanner.coalescing.waiters", singleFlight, SingleFlight::getWaiterCount)
+                .description("Callers that waited for an identical call in flight instead of making it")
+                .tag("flight", flight)
+                .register(registry);
+        Gauge.builder("routeplanner.coalescing.in.flight", singleFlight, SingleFlight::getInFlightCount)
+                .description("Coalesced calls in flight")
+                .tag("flight", flight)
+                .register(registry);
+    }
+
+    /**
+     * Exposes the number of calls waiting for the quota of an API.
+     */
+    public <Q> void bindSchedulerQueue(String api, Q queue, ToIntFunction<Q> depth) {
+        Gauge.builder("routeplanner.scheduler.queue.depth", queue, value -> depth.applyAsInt(value))
+                .description("Calls waiting for the quota of a Google Maps API")
+                .tag("api", api)
+                .register(registry);
+    }
+
+    /**
+     * Records how long a call waited for the quota of its API.
+     */
+    public void recordSchedulerWait(String api, UpstreamScheduler.Priority priority, long nanoseconds) {
+        Timer.builder("routeplanner.scheduler.wait")
+                .description("Wait for the quota of a Google Maps API")
+                .tag("api", api)
+                .tag("priority", priority.name().toLowerCase(Locale.ROOT))
+                .publishPercentileHistogram()
+                .minimumExpectedValue(MIN_EXPECTED_DURATION)
+                .maximumExpectedValue(MAX_EXPECTED_DURATION)
+                .register(registry)
+                .record(nanoseconds, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Counts a call rejected by the scheduler.
+     */
+    public void countSchedulerRejection(String api, UpstreamScheduler.Priority priority) {
+        Counter.builder("routeplanner.scheduler.rejections")
+                .description("Calls rejected because the quota of a Google Maps API could not serve them in time")
+                .tag("api", api)
+                .tag("priority", priority.name().toLowerCase(Locale.ROOT))
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Exposes the age of the parking lot occupancy snapshot, in seconds.
+     */
+    public <P> void bindOccupancyAge(P poller, ToDoubleFunction<P> ageSeconds) {
+        Gauge.builder("routeplanner.occupancy.age", poller, ageSeconds)
+                .description("Age of the parking lot occupancy snapshot")
+                .baseUnit("seconds")
+                .register(registry);
+    }
+
+    /**
+     * Counts a poll of the parking lot occupancy.
+     *
+     * @param outcome success or error
+     */
+    public void countOccupancyPoll(String outcome) {
+        Counter.builder("routeplanner.occupancy.polls")
+                .description("Polls of the parking lot occupancy")
+                .tag("outcome", outcome)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Exposes the number of parking lots the routes are planned through.
+     */
+    public void bindParkingLotCount(Supplier<Number> count) {
+        Gauge.builder("routeplanner.parking.lots", count)
+                .description("Parking lots of the current dataset")
+                .register(registry);
+    }
+
+    /**
+     * Counts a reload of the parking lots from the watched file.
+     *
+     * @param outcome success or error
+     */
+    public void countParkingLotReload(String outcome) {
+        Counter.builder("routeplanner.parking.lots.reloads")
+                .description("Reloads of the parking lots from the watched file")
+                .tag("outcome", outcome)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Records a virtual thread that stayed pinned to its carrier thread, e.g. while blocking in a synchronized block.
+     *
+     * @param site     the class the thread was pinned in
+     * @param duration how long the thread was pinned
+     */
+    public void recordVirtualThreadPinned(String site, Duration duration) {
+        Timer.builder("routeplanner.virtual.threads.pinned")
+                .description("Virtual threads pinned to their carrier thread")
+                .tag("site", site)
+                .register(registry)
+                .record(duration);
+    }
+
+    /**
+     * Counts the full parking lots that were not routed.
+     */
+    public void countSkippedFullLots(int count) {
+        Counter.builder("routeplanner.occupancy.skipped.lots")
+                .description("Full parking lots that were not routed")
+                .register(registry)
+                .increment(count);
+    }
+
+    public MeterRegistry getRegistry() {
+        return registry;
+    }
+}
@@ -1,19 +1,29 @@
 package org.example.routeplanner.service;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.maps.*;
 import com.google.maps.errors.ApiException;
 import com.google.maps.model.*;
 import io.micrometer.common.util.StringUtils;
+import jakarta.annotation.PreDestroy;
+import okhttp3.HttpUrl;
+import org.example.routeplanner.RoutePlannerProperties;
 import org.example.routeplanner.model.*;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.ResourceAccessException;
 import info.debatty.java.stringsimilarity.Cosine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.io.File;
 import java.io.IOException;
+import java.time.Clock;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Service class responsible for route planning using Google Maps APIs.
@@ -21,96 +31,1310 @@ import java.util.*;
 @Service
 public class RoutePlannerService {
 
+    private static final Logger logger = LoggerFactory.getLogger(RoutePlannerService.class);
+
     // Constants defining geographical boundaries for Israel and Tel Aviv
     private static final double ISRAEL_MIN_LAT = 29.0;
     private static final double ISRAEL_MAX_LAT = 33.5;
     private static final double ISRAEL_MIN_LON = 34.25;
     private static final double ISRAEL_MAX_LON = 35.9;
-    private static final double TEL_AVIV_MIN_LAT = 32.0;
-    private static final double TEL_AVIV_MAX_LAT = 32.13;
-    private static final double TEL_AVIV_MIN_LON = 34.75;
-    private static final double TEL_AVIV_MAX_LON = 34.84;
-    private static final double EARTH_RADIUS = 6371e3;
+    static final double TEL_AVIV_MIN_LAT = 32.0;
+    static final double TEL_AVIV_MAX_LAT = 32.13;
+    static final double TEL_AVIV_MIN_LON = 34.75;
+    static final double TEL_AVIV_MAX_LON = 34.84;
+    private static final int MAX_DISTANCE_MATRIX_POINTS = 25;
+
+    // Replaced as a whole when the watched dataset file changes; each lookup reads it once
+    private static volatile ParkingLotDataset parkingLotDataset;
+
+    static {
+        try {
+            parkingLotDataset = ParkingLotDataset.loadFromClasspath();
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot load the parking lots", e);
+        }
+    }
+
+    private final GeoApiContext context;
+
+    private final RoutePlannerProperties properties;
+    private final ExecutorService directionsExecutor;
+    private final GeocodingCache geocodingCache;
+    private final WalkingPathCache walkingPathCache;
+    private final ExecutorService cacheRefreshExecutor;
+    private final DrivingPathCache drivingPathCache;
+    private final ExecutorService planRefreshExecutor;
+    private final RoutePlanCache routePlanCache;
+    private final ThreadPoolExecutor streamingExecutor;
+    private final ExecutorService batchExecutor;
+    private final SingleFlight<RouteRequestKey, List<Route>> routeRequestFlight;
+    private final SingleFlight<DirectionsKey, DirectionsResult> directionsFlight;
+    private final SingleFlight<NearbySearchKey, PlacesSearchResult[]> nearbySearchFlight;
+    private final RoutingProvider routingProvider;
+    private final WalkingTimeMatrix walkingTimeMatrix;
+    private final RoutePlannerMetrics metrics;
+    private final UpstreamScheduler upstreamScheduler;
+    private final ParkingOccupancyPoller occupancyPoller;
+    private final ParkingLotFileWatcher parkingLotFileWatcher;
+
+    public RoutePlannerService() {
+        this(new RoutePlannerProperties());
+    }
+
+    /**
+     * Constructs the service with the given configuration, recording its metrics in a registry of their own.
+     *
+     * @param properties the route planner configuration
+     */
+    public RoutePlannerService(RoutePlannerProperties properties) {
+        this(properties, new RoutePlannerMetrics());
+    }
+
+    /**
+     * Constructs the service with the given configuration.
+     *
+     * @param properties the route planner configuration
+     * @param metrics    the meters of the stages, the upstream calls and the caches
+     */
+    @Autowired
+    public RoutePlannerService(RoutePlannerProperties properties, RoutePlannerMetrics metrics) {
+        this.properties = properties;
+        this.metrics = metrics;
+        this.context = createGeoApiContext(properties.getGoogle());
+        this.directionsExecutor = properties.getPlanning().getMode() == PlanningMode.CONCURRENT
+                ? createDirectionsExecutor(properties.getPlanning(), properties.getThreads())
+                : null;
+        RoutePlannerProperties.Geocoding geocoding = properties.getGeocoding();
+        this.geocodingCache = geocoding.isCacheEnabled()
+                ? new GeocodingCache(geocoding.getCacheMaxSize(), geocoding.getCacheTtl(), geocoding.getCacheNegativeTtl())
+                : null;
+        RoutePlannerProperties.WalkingCache walkingCache = properties.getWalkingCache();
+        this.walkingPathCache = walkingCache.isEnabled()
+                ? new WalkingPathCache(walkingCache.getMaxWeightBytes(), walkingCache.getTtl(), walkingCache.getCellSizeMeters())
+                : null;
+        RoutePlannerProperties.DrivingCache drivingCache = properties.getDrivingCache();
+        if (drivingCache.isEnabled()) {
+            // Refreshes are best effort: when the queue is full they are dropped and retried by a later request
+            this.cacheRefreshExecutor = new ThreadPoolExecutor(drivingCache.getRefreshThreads(), drivingCache.getRefreshThreads(),
+                    60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(drivingCache.getRefreshQueueCapacity()),
+                    daemonThreadFactory("driving-cache-refresh-"),
+                    new ThreadPoolExecutor.AbortPolicy());
+            this.drivingPathCache = new DrivingPathCache(drivingCache.getMaxSize(), drivingCache.getCellSizeMeters(),
+                    drivingCache.getInitialTtl(), drivingCache.getMinTtl(), drivingCache.getMaxTtl(),
+                    drivingCache.getRefreshAheadRatio(), drivingCache.getDriftToleranceMinutes(),
+                    cacheRefreshExecutor, Clock.systemUTC());
+        } else {
+            this.cacheRefreshExecutor = null;
+            this.drivingPathCache = null;
+        }
+        RoutePlannerProperties.PlanCache planCache = properties.getPlanCache();
+        if (planCache.isEnabled()) {
+            // Like the driving path refreshes, a plan refresh that does not fit in the queue is retried by a later request
+            this.planRefreshExecutor = new ThreadPoolExecutor(planCache.getRefreshThreads(), planCache.getRefreshThreads(),
+                    60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(planCache.getRefreshQueueCapacity()),
+                    daemonThreadFactory("plan-cache-refresh-"),
+                    new ThreadPoolExecutor.AbortPolicy());
+            this.routePlanCache = new RoutePlanCache(planCache.getMaxWeightBytes(), planCache.getTtl(),
+                    planCache.getStaleWhileRevalidate(), planRefreshExecutor, Clock.systemUTC());
+        } else {
+            this.planRefreshExecutor = null;
+            this.routePlanCache = null;
+        }
+        RoutePlannerProperties.Streaming streaming = properties.getStreaming();
+        this.streamingExecutor = new ThreadPoolExecutor(streaming.getPoolSize(), streaming.getPoolSize(),
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(streaming.getQueueCapacity()),
+                daemonThreadFactory("route-stream-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.streamingExecutor.allowCoreThreadTimeOut(true);
+        this.batchExecutor = createBatchExecutor(properties.getBatch(), properties.getThreads());
+        boolean coalescing = properties.getCoalescing().isEnabled();
+        this.routeRequestFlight = coalescing ? new SingleFlight<>() : null;
+        this.directionsFlight = coalescing ? new SingleFlight<>() : null;
+        this.nearbySearchFlight = coalescing ? new SingleFlight<>() : null;
+        this.routingProvider = createRoutingProvider(properties.getRouting());
+        this.walkingTimeMatrix = loadWalkingTimeMatrix(properties.getWalkingMatrix());
+        this.upstreamScheduler = properties.getScheduler().isEnabled()
+                ? new UpstreamScheduler(properties.getScheduler(), metrics)
+                : null;
+        RoutePlannerProperties.Occupancy occupancy = properties.getOccupancy();
+        if (occupancy.isEnabled()) {
+            this.occupancyPoller = new ParkingOccupancyPoller(occupancy, () -> parkingLotDataset.getNames(), metrics, Clock.systemUTC());
+            this.occupancyPoller.start(occupancy.getPollInterval());
+        } else {
+            this.occupancyPoller = null;
+        }
+        this.parkingLotFileWatcher = startParkingLotFileWatcher(properties.getParkingLots(), this::reloadParkingLotDataset, metrics);
+        metrics.bindParkingLotCount(() -> parkingLotDataset.size());
+        if (geocodingCache != null) {
+            metrics.bindCache("geocoding", geocodingCache, GeocodingCache::getHitCount, GeocodingCache::getMissCount);
+        }
+        if (walkingPathCache != null) {
+            metrics.bindCache("walking", walkingPathCache, WalkingPathCache::getHitCount, WalkingPathCache::getMissCount);
+        }
+        if (drivingPathCache != null) {
+            metrics.bindCache("driving", drivingPathCache, DrivingPathCache::getHitCount, DrivingPathCache::getMissCount);
+            metrics.bindCacheDrift("driving", drivingPathCache, DrivingPathCache::getDriftSampleCount,
+                    DrivingPathCache::getMeanDriftMinutes, DrivingPathCache::getMaxDriftMinutes);
+        }
+        if (routePlanCache != null) {
+            metrics.bindCache("plan", routePlanCache, RoutePlanCache::getHitCount, RoutePlanCache::getMissCount);
+        }
+        if (coalescing) {
+            metrics.bindSingleFlight("route_request", routeRequestFlight);
+            metrics.bindSingleFlight("directions", directionsFlight);
+            metrics.bindSingleFlight("nearby_search", nearbySearchFlight);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (directionsExecutor != null) {
+            directionsExecutor.shutdownNow();
+        }
+        if (cacheRefreshExecutor != null) {
+            cacheRefreshExecutor.shutdownNow();
+        }
+        if (planRefreshExecutor != null) {
+            planRefreshExecutor.shutdownNow();
+        }
+        streamingExecutor.shutdownNow();
+        batchExecutor.shutdownNow();
+        if (occupancyPoller != null) {
+            occupancyPoller.shutdown();
+        }
+        if (parkingLotFileWatcher != null) {
+            parkingLotFileWatcher.shutdown();
+        }
+        context.shutdown();
+    }
+
+    /**
+     * Finds routes from a specified current location to a destination, which consists of
+     * the driving path to the parking lot and the walking path from the parking lot to the destination.
+     * At most {@code routeplanner.ranking.default-limit} routes are returned, or all of them when it is 0.
+     *
+     * @param origin the starting location as an address string
+     * @param destination     the destination location as an address string
+     * @return a list of Route objects representing different routes, ordered by their total time
+     * @throws ResourceAccessException if there is an issue accessing Google Maps API
+     * @throws IllegalArgumentException if input location is not in Israel/Tel Aviv
+     */
+    public List<Route> findRoutes(String origin, String destination) throws IllegalArgumentException, ResourceAccessException {
+        return findRoutes(origin, destination, properties.getRanking().getDefaultLimit());
+    }
+
+    /**
+     * Finds the best routes from a specified current location to a destination, which consists of
+     * the driving path to the parking lot and the walking path from the parking lot to the destination.
+     * The directions of parking lots that cannot make the best routes are not requested.
+     *
+     * @param origin      the starting location as an address string
+     * @param destination the destination location as an address string
+     * @param limit       the number of routes to return, or 0 to return all of them
+     * @return a list of Route objects representing the best routes, ordered by their total time
+     * @throws ResourceAccessException  if there is an issue accessing Google Maps API
+     * @throws IllegalArgumentException if input location is not in Israel/Tel Aviv or the limit is negative
+     */
+    public List<Route> findRoutes(String origin, String destination, int limit) throws IllegalArgumentException, ResourceAccessException {
+        if (routeRequestFlight == null) {
+            return findRoutes(origin, destination, limit, route -> {});
+        }
+        // Identical requests in flight share a single search, and each caller gets its own list of the routes
+        try {
+            return new ArrayList<>(routeRequestFlight.execute(new RouteRequestKey(origin, destination, limit),
+                    () -> findRoutes(origin, destination, limit, route -> {})));
+        } catch (ApiException | InterruptedException | IOException e) {
+            throw new ResourceAccessException("Google Maps API error");
+        }
+    }
+
+    /**
+     * @return whether the serialized route plans are cached, see {@link #findRoutePlan}
+     */
+    public boolean isRoutePlanCacheEnabled() {
+        return routePlanCache != null;
+    }
+
+    /**
+     * Finds the routes like {@link #findRoutes(String, String)} and returns them serialized, see
+     * {@link #findRoutePlan(String, String, int, String, Function)}.
+     *
+     * @param origin         the starting location as an address string
+     * @param destination    the destination location as an address string
+     * @param representation the representation the serializer produces, e.g. "full" or "compact-15"
+     * @param serializer     serializes the routes, with their ETag, when they are planned
+     * @return the serialized plan, with its age
+     * @throws ResourceAccessException  if there is an issue accessing Google Maps API
+     * @throws IllegalArgumentException if input location is not in Israel/Tel Aviv
+     */
+    public RoutePlanCache.CachedPlan findRoutePlan(String origin, String destination, String representation,
+                                                   Function<List<Route>, RoutePlanCache.Plan> serializer) throws IllegalArgumentException, ResourceAccessException {
+        return findRoutePlan(origin, destination, properties.getRanking().getDefaultLimit(), representation, serializer);
+    }
+
+    /**
+     * Finds the best routes like {@link #findRoutes(String, String, int)} and returns them serialized, from the route
+     * plan cache when the same origin and destination addresses were planned recently with the same limit and
+     * representation. A cache hit needs no geocoding and no Google Maps call at all.
+     *
+     * @param origin         the starting location as an address string
+     * @param destination    the destination location as an address string
+     * @param limit          the number of routes to return, or 0 to return all of them
+     * @param representation the representation the serializer produces, e.g. "full" or "compact-15"
+     * @param serializer     serializes the routes, with their ETag, when they are planned
+     * @return the serialized plan, with its age
+     * @throws ResourceAccessException   if there is an issue accessing Google Maps API
+     * @throws IllegalArgumentException  if input location is not in Israel/Tel Aviv or the limit is negative
+     * @throws UpstreamRejectedException if the upstream scheduler rejects the planning of an uncached trip
+     * @throws IllegalStateException     if the route plan cache is disabled
+     */
+    public RoutePlanCache.CachedPlan findRoutePlan(String origin, String destination, int limit, String representation,
+                                                   Function<List<Route>, RoutePlanCache.Plan> serializer) throws IllegalArgumentException, ResourceAccessException {
+        if (routePlanCache == null) {
+            throw new IllegalStateException("The route plan cache is disabled");
+        }
+        validateRequest(origin, destination, limit);
+        return routePlanCache.get(origin, destination, limit, representation,
+                () -> serializer.apply(findRoutes(origin, destination, limit)));
+    }
+
+    /**
+     * Finds the best routes from a specified current location to a destination, like {@link #findRoutes(String, String, int)},
+     * and passes each route to a listener as soon as its driving and walking paths are ready.
+     * The listener gets the routes in the order they are found, which is not necessarily the order of the ranking,
+     * and may get routes that are later pushed out of the ranking by better routes.
+     *
+     * @param origin      the starting location as an address string
+     * @param destination the destination location as an address string
+     * @param limit       the number of routes to return, or 0 to return all of them
+     * @param listener    receives each route as soon as it is found
+     * @return a list of Route objects representing the best routes, ordered by their total time
+     * @throws ResourceAccessException   if there is an issue accessing Google Maps API, or the thread was interrupted
+     * @throws IllegalArgumentException  if input location is not in Israel/Tel Aviv or the limit is negative
+     * @throws UpstreamRejectedException if the upstream scheduler rejects the geocoding, the lot search or the
+     *                                   Distance Matrix, or the legs of every parking lot
+     */
+    public List<Route> findRoutes(String origin, String destination, int limit, RouteListener listener) throws IllegalArgumentException, ResourceAccessException {
+        return findRoutes(origin, destination, limit, listener, null);
+    }
+
+    /**
+     * Finds routes like {@link #findRoutes(String, String)} without blocking, see {@link #findRoutesAsync(String, String, int)}.
+     *
+     * @param origin      the starting location as an address string
+     * @param destination the destination location as an address string
+     * @return the future of the best routes, ordered by their total time
+     * @throws IllegalArgumentException if the origin or destination are empty
+     */
+    public CompletableFuture<List<Route>> findRoutesAsync(String origin, String destination) throws IllegalArgumentException {
+        return findRoutesAsync(origin, destination, properties.getRanking().getDefaultLimit());
+    }
+
+    /**
+     * Finds the best routes like {@link #findRoutes(String, String, int)}, without a thread waiting on any
+     * Google Maps call: the geocoding, the lot search and the legs are composed from the callbacks of the Google Maps
+     * client, and calls short of quota wait in the upstream scheduler without holding a thread either. The routes
+     * are then completed on the threads of the HTTP client.
+     * <p>
+     * The parking lots are routed in waves in the order of their lower bounds, like the CONCURRENT planning mode,
+     * whatever the configured mode. All the legs of a wave are in flight at once: they are bounded by the quotas
+     * of the upstream scheduler rather than by {@code routeplanner.planning.max-in-flight-per-request}.
+     *
+     * @param origin      the starting location as an address string
+     * @param destination the destination location as an address string
+     * @param limit       the number of routes to return, or 0 to return all of them
+     * @return the future of the best routes, ordered by their total time. It fails with a ResourceAccessException
+     * if there is an issue accessing Google Maps API, an IllegalArgumentException if a location is not in Israel/Tel Aviv,
+     * or an UpstreamRejectedException if the scheduler rejects the geocoding, the lot search or the legs of every parking lot
+     * @throws IllegalArgumentException if the origin or destination are empty, or the limit is negative
+     */
+    public CompletableFuture<List<Route>> findRoutesAsync(String origin, String destination, int limit) throws IllegalArgumentException {
+        validateRequest(origin, destination, limit);
+        if (routeRequestFlight == null) {
+            return planRoutesAsync(origin, destination, limit);
+        }
+        // Shares the search with the identical requests in flight, blocking or not, and each caller gets its own list
+        return routeRequestFlight.executeAsync(new RouteRequestKey(origin, destination, limit),
+                () -> planRoutesAsync(origin, destination, limit)).thenApply(ArrayList::new);
+    }
+
+    private CompletableFuture<List<Route>> planRoutesAsync(String origin, String destination, int limit) {
+        RouteSearch search = new RouteSearch(null, occupancyPoller == null ? null : occupancyPoller.getStatuses());
+        CompletableFuture<LatLng> originLatLng = metrics.timeStageAsync(RoutePlannerMetrics.STAGE_GEOCODING,
+                () -> getLocationFromAddressAsync(origin));
+        CompletableFuture<LatLng> destinationLatLng = metrics.timeStageAsync(RoutePlannerMetrics.STAGE_GEOCODING,
+                () -> getLocationFromAddressAsync(destination));
+
+        return originLatLng.thenCombine(destinationLatLng, (originLocation, destinationLocation) -> {
+                    if (!isInIsrael(originLocation)) {
+                        throw new IllegalArgumentException("Current location is not in Israel");
+                    }
+                    if (!isInTelAviv(destinationLocation)) {
+                        throw new IllegalArgumentException("Destination is not in Tel Aviv");
+                    }
+                    return new Endpoints(new Place(origin, null, originLocation), new Place(destination, null, destinationLocation));
+                })
+                .thenCompose(endpoints -> metrics.timeStageAsync(RoutePlannerMetrics.STAGE_LOT_SEARCH,
+                                () -> findParkingLotsAsync(endpoints.destination().getLocation()))
+                        .thenCompose(parkingLots -> rankRoutesAsync(endpoints.origin(), endpoints.destination(), parkingLots, limit, search)))
+                .handle((routes, e) -> {
+                    if (e != null) {
+                        throw toRouteRequestException(e);
+                    }
+                    return routes;
+                });
+    }
+
+    private CompletableFuture<List<Route>> rankRoutesAsync(Place origin, Place destination, List<Place> parkingLots, int limit,
+                                                           RouteSearch search) {
+        metrics.recordCandidateLots(parkingLots.size());
+        RoutePlannerProperties.Ranking ranking = properties.getRanking();
+        RouteRanker ranker = new RouteRanker(limit, ranking.getMaxDrivingSpeedKmh(), ranking.getMaxWalkingSpeedKmh());
+        ParkingLotPartition partition = partitionFullParkingLots(parkingLots, search);
+
+        long planningStart = System.nanoTime();
+        return planWavesAsync(origin, destination, partition.others(), ranker, search)
+                .thenCompose(ignored -> {
+                    List<Route> routes = ranker.getRankedRoutes();
+                    boolean rankingFilled = limit > 0 && routes.size() >= limit;
+                    if (!partition.full().isEmpty() && !rankingFilled
+                            && properties.getOccupancy().getFullLotPolicy() == FullLotPolicy.DOWN_RANK) {
+                        RouteRanker fullRanker = new RouteRanker(limit > 0 ? limit - routes.size() : 0,
+                                ranking.getMaxDrivingSpeedKmh(), ranking.getMaxWalkingSpeedKmh());
+                        return planWavesAsync(origin, destination, partition.full(), fullRanker, search).thenApply(alsoIgnored -> {
+                            List<Route> allRoutes = new ArrayList<>(routes);
+                            allRoutes.addAll(fullRanker.getRankedRoutes());
+                            return allRoutes;
+                        });
+                    }
+                    if (!partition.full().isEmpty()) {
+                        metrics.countSkippedFullLots(partition.full().size());
+                    }
+                    return CompletableFuture.completedFuture(routes);
+                })
+                .whenComplete((routes, e) -> metrics.recordStage(RoutePlannerMetrics.STAGE_PLANNING, System.nanoTime() - planningStart))
+                .thenApply(routes -> {
+                    if (routes.isEmpty() && search.rejection.get() != null) {
+                        throw search.rejection.get();
+                    }
+                    return routes;
+                });
+    }
+
+    private List<Route> findRoutes(String origin, String destination, int limit, RouteListener listener,
+                                   RouteBatchPlan plan) throws IllegalArgumentException, ResourceAccessException {
+        validateRequest(origin, destination, limit);
+
+        try {
+            RouteSearch search = new RouteSearch(plan, occupancyPoller == null ? null : occupancyPoller.getStatuses());
+            LatLng originLatLng = metrics.timeStage(RoutePlannerMetrics.STAGE_GEOCODING,
+                    () -> search.share(new GeocodeKey(geocodeKey(origin)), () -> getLocationFromAddress(origin)));
+            LatLng destinationLatLng = metrics.timeStage(RoutePlannerMetrics.STAGE_GEOCODING,
+                    () -> search.share(new GeocodeKey(geocodeKey(destination)), () -> getLocationFromAddress(destination)));
+
+            if (!isInIsrael(originLatLng)) {
+                throw new IllegalArgumentException("Current location is not in Israel");
+            }
+            if (!isInTelAviv(destinationLatLng)) {
+                throw new IllegalArgumentException("Destination is not in Tel Aviv");
+            }
+
+            List<Place> parkingLots = metrics.timeStage(RoutePlannerMetrics.STAGE_LOT_SEARCH,
+                    () -> search.share(new LotSearchKey(destinationLatLng), () -> findParkingLots(destinationLatLng)));
+            metrics.recordCandidateLots(parkingLots.size());
+            Place originObject = new Place(origin, null, originLatLng);
+            Place destinationObject = new Place(destination, null, destinationLatLng);
+            RoutePlannerProperties.Ranking ranking = properties.getRanking();
+            RouteRanker ranker = new RouteRanker(limit, ranking.getMaxDrivingSpeedKmh(), ranking.getMaxWalkingSpeedKmh());
+
+            // Full parking lots are set aside before any of their legs is requested
+            ParkingLotPartition partition = partitionFullParkingLots(parkingLots, search);
+            List<Place> fullParkingLots = partition.full();
+            List<Place> otherParkingLots = partition.others();
+
+            List<Route> routes;
+            long planningStart = System.nanoTime();
+            try {
+                planRoutes(originObject, destinationObject, otherParkingLots, ranker, listener, search);
+                routes = ranker.getRankedRoutes();
+                boolean rankingFilled = limit > 0 && routes.size() >= limit;
+                if (!fullParkingLots.isEmpty() && !rankingFilled
+                        && properties.getOccupancy().getFullLotPolicy() == FullLotPolicy.DOWN_RANK) {
+                    // The routes of the full parking lots only fill the rest of the ranking, after the others
+                    RouteRanker fullRanker = new RouteRanker(limit > 0 ? limit - routes.size() : 0,
+                            ranking.getMaxDrivingSpeedKmh(), ranking.getMaxWalkingSpeedKmh());
+                    planRoutes(originObject, destinationObject, fullParkingLots, fullRanker, listener, search);
+                    routes = new ArrayList<>(routes);
+                    routes.addAll(fullRanker.getRankedRoutes());
+                } else if (!fullParkingLots.isEmpty()) {
+                    metrics.countSkippedFullLots(fullParkingLots.size());
+                }
+            } finally {
+                metrics.recordStage(RoutePlannerMetrics.STAGE_PLANNING, System.nanoTime() - planningStart);
+            }
+
+            // The routes whose legs were rejected by the scheduler are left out, unless no route is left at all
+            if (routes.isEmpty() && search.rejection.get() != null) {
+                throw search.rejection.get();
+            }
+            return routes;
+        } catch (InterruptedException e) {
+            // Keeps the interrupt visible to the caller, e.g. to a stream that was cancelled
+            Thread.currentThread().interrupt();
+            throw new ResourceAccessException("Google Maps API error");
+        } catch (ApiException | IOException e) {
+            throw new ResourceAccessException("Google Maps API error");
+        }
+    }
+
+    /**
+     * Streams routes like {@link #streamRoutes(String, String, int, RouteStreamListener)}, at most
+     * {@code routeplanner.ranking.default-limit} of them, or all of them when it is 0.
+     *
+     * @param origin      the starting location as an address string
+     * @param destination the destination location as an address string
+     * @param listener    receives the routes and then the summary or the error
+     * @return the future of the background search
+     * @throws IllegalArgumentException   if the origin or destination are empty
+     * @throws RejectedExecutionException if too many streams are already running
+     */
+    public Future<?> streamRoutes(String origin, String destination, RouteStreamListener listener) throws IllegalArgumentException, RejectedExecutionException {
+        return streamRoutes(origin, destination, properties.getRanking().getDefaultLimit(), listener);
+    }
+
+    /**
+     * Finds the best routes in the background and streams them to a listener: each route as soon as it is found,
+     * and then the summary of the final ranking or the error that ended the search.
+     * Cancelling the returned future interrupts the search, which cancels the upstream calls still in flight
+     * and skips the ones not made yet. The listener is not called after the search is interrupted.
+     *
+     * @param origin      the starting location as an address string
+     * @param destination the destination location as an address string
+     * @param limit       the number of routes to find, or 0 to find all of them
+     * @param listener    receives the routes and then the summary or the error
+     * @return the future of the background search
+     * @throws IllegalArgumentException   if the origin or destination are empty, or the limit is negative
+     * @throws RejectedExecutionException if too many streams are already running
+     */
+    public Future<?> streamRoutes(String origin, String destination, int limit, RouteStreamListener listener) throws IllegalArgumentException, RejectedExecutionException {
+        validateRequest(origin, destination, limit);
+
+        return streamingExecutor.submit(() -> {
+            long start = System.nanoTime();
+            try {
+                List<Route> routes = findRoutes(origin, destination, limit, listener);
+                listener.onComplete(new RouteStreamSummary(routes.size(),
+                        routes.stream().map(route -> route.getParkingLot().getName()).toList(),
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+            } catch (IllegalArgumentException | ResourceAccessException | UpstreamRejectedException e) {
+                if (!Thread.currentThread().isInterrupted()) {
+                    listener.onError(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * @return how long a stream of routes may run before it is closed, in milliseconds
+     */
+    public long getStreamingTimeoutMillis() {
+        return properties.getStreaming().getTimeout().toMillis();
+    }
+
+    private void planRoutes(Place origin, Place destination, List<Place> parkingLots, RouteRanker ranker, RouteListener listener,
+                            RouteSearch search) throws ApiException, InterruptedException, IOException {
+        switch (properties.getPlanning().getMode()) {
+            case CONCURRENT -> planRoutesConcurrently(origin, destination, parkingLots, ranker, listener, search);
+            case MATRIX -> planRoutesWithDistanceMatrix(origin, destination, parkingLots, ranker, listener, search);
+            default -> planRoutesSerially(origin, destination, parkingLots, ranker, listener, search);
+        }
+    }
+
+    /**
+     * Finds the best routes of every pair of a batch, sharing the work of the pairs: each address is geocoded once,
+     * the parking lots of each destination are searched once, and each driving and walking leg is requested once
+     * for the whole batch, so the upstream calls grow with the distinct addresses and legs rather than with the pairs.
+     * The pairs are planned in parallel, and a pair that fails does not fail the others.
+     *
+     * @param pairs the origins and destinations, each with its own limit or the default limit
+     * @return the result of each pair, in the order of the pairs
+     * @throws IllegalArgumentException if the batch is empty, has an empty pair or has more than
+     *                                  {@code routeplanner.batch.max-pairs} pairs
+     * @throws ResourceAccessException  if the thread was interrupted
+     */
+    public List<RouteBatchResult> findRoutesBatch(List<RoutePair> pairs) throws IllegalArgumentException, ResourceAccessException {
+        validateBatch(pairs);
+
+        RouteBatchResult[] results = new RouteBatchResult[pairs.size()];
+        planBatch(pairs, result -> results[result.getIndex()] = result);
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Finds the best routes of every pair of a batch in the background, like {@link #findRoutesBatch}, and streams
+     * the result of each pair to a listener as soon as it is ready, and then the summary of the batch.
+     * Cancelling the returned future interrupts the pairs still being planned.
+     *
+     * @param pairs    the origins and destinations, each with its own limit or the default limit
+     * @param listener receives the result of each pair, in the order they are ready, and then the summary or the error
+     * @return the future of the background batch
+     * @throws IllegalArgumentException   if the batch is empty, has an empty pair or has more than
+     *                                    {@code routeplanner.batch.max-pairs} pairs
+     * @throws RejectedExecutionException if too many streams are already running
+     */
+    public Future<?> streamRoutesBatch(List<RoutePair> pairs, RouteBatchStreamListener listener) throws IllegalArgumentException, RejectedExecutionException {
+        validateBatch(pairs);
+
+        return streamingExecutor.submit(() -> {
+            try {
+                listener.onComplete(planBatch(pairs, listener::onResult));
+            } catch (ResourceAccessException e) {
+                if (!Thread.currentThread().isInterrupted()) {
+                    listener.onError(e);
+                }
+            }
+        });
+    }
+
+    private RouteBatchSummary planBatch(List<RoutePair> pairs, Consumer<RouteBatchResult> onResult) throws ResourceAccessException {
+        long start = System.nanoTime();
+        RouteBatchPlan plan = new RouteBatchPlan();
+        CompletionService<RouteBatchResult> completion = new ExecutorCompletionService<>(batchExecutor);
+        List<Future<RouteBatchResult>> running = new ArrayList<>();
+        int failedCount = 0;
+        try {
+            for (int i = 0; i < pairs.size(); i++) {
+                int index = i;
+                running.add(completion.submit(() -> planPair(index, pairs.get(index), plan)));
+            }
+            for (int completed = 0; completed < pairs.size(); completed++) {
+                RouteBatchResult result = completion.take().get();
+                if (result.getStatus() != RouteBatchResult.Status.OK) {
+                    failedCount++;
+                }
+                onResult.accept(result);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResourceAccessException("Google Maps API error");
+        } catch (ExecutionException e) {
+            // planPair turns every failure of a pair into its result
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            running.forEach(pair -> pair.cancel(true));
+        }
+        return new RouteBatchSummary(pairs.size(), failedCount, plan.getUniqueCallCount(), plan.getSharedCallCount(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private RouteBatchResult planPair(int index, RoutePair pair, RouteBatchPlan plan) {
+        String origin = pair.getOrigin();
+        String destination = pair.getDestination();
+        int limit = pair.getLimit() == null ? properties.getRanking().getDefaultLimit() : pair.getLimit();
+        try {
+            // Identical pairs share a single search
+            List<Route> routes = plan.share(new RouteRequestKey(origin, destination, limit),
+                    () -> findRoutes(origin, destination, limit, route -> {}, plan));
+            return new RouteBatchResult(index, origin, destination, RouteBatchResult.Status.OK, routes, null);
+        } catch (IllegalArgumentException e) {
+            return new RouteBatchResult(index, origin, destination, RouteBatchResult.Status.INVALID_REQUEST, null, e.getMessage());
+        } catch (UpstreamRejectedException e) {
+            return new RouteBatchResult(index, origin, destination, RouteBatchResult.Status.QUOTA_EXCEEDED, null, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new RouteBatchResult(index, origin, destination, RouteBatchResult.Status.UPSTREAM_ERROR, null, "Google Maps API error");
+        } catch (ResourceAccessException | ApiException | IOException e) {
+            return new RouteBatchResult(index, origin, destination, RouteBatchResult.Status.UPSTREAM_ERROR, null, "Google Maps API error");
+        }
+    }
+
+    private void validateBatch(List<RoutePair> pairs) throws IllegalArgumentException {
+        if (pairs == null || pairs.isEmpty()) {
+            throw new IllegalArgumentException("Batch has no pairs");
+        }
+        int maxPairs = properties.getBatch().getMaxPairs();
+        if (pairs.size() > maxPairs) {
+            throw new IllegalArgumentException("Batch has more than " + maxPairs + " pairs");
+        }
+        if (pairs.stream().anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("Batch has an empty pair");
+        }
+    }
+
+    private static void validateRequest(String origin, String destination, int limit) throws IllegalArgumentException {
+        if (StringUtils.isEmpty(origin) || StringUtils.isEmpty(destination)) {
+            throw new IllegalArgumentException("Current location or destination are empty");
+        }
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit must not be negative");
+        }
+    }
+
+    /**
+     * Finds the Achuzot Hachof parking lots around the destination, keeping one Place per known parking lot.
+     * Depending on {@code routeplanner.lot-search.source}, the parking lots are searched in the local
+     * parking lot index or with Google Places nearby search. When the local index has no parking lot
+     * around the destination, Places can be used as a fallback.
+     *
+     * @param destinationLatLng coordinates of the destination
+     * @return the parking lots, named after their entry in allParkingLotsLocations.json
+     * @throws IOException          if an I/O error occurs
+     * @throws InterruptedException if the thread executing the task is interrupted
+     * @throws ApiException         if the Google Maps API request fails
+     */
+    private List<Place> findParkingLots(LatLng destinationLatLng) throws IOException, InterruptedException, ApiException {
+        RoutePlannerProperties.LotSearch lotSearch = properties.getLotSearch();
+        if (lotSearch.getSource() == LotSearchSource.LOCAL) {
+            List<Place> parkingLots = findLocalParkingLots(destinationLatLng, lotSearch);
+            if (!parkingLots.isEmpty() || !lotSearch.isPlacesFallback()) {
+                return parkingLots;
+            }
+        }
+        return findNearbyParkingLots(destinationLatLng, lotSearch.getRadius());
+    }
+
+    /**
+     * Finds the parking lots around the destination like {@link #findParkingLots}, without blocking on the Places fallback.
+     *
+     * @param destinationLatLng coordinates of the destination
+     * @return the future of the parking lots, named after their entry in allParkingLotsLocations.json
+     */
+    private CompletableFuture<List<Place>> findParkingLotsAsync(LatLng destinationLatLng) {
+        RoutePlannerProperties.LotSearch lotSearch = properties.getLotSearch();
+        if (lotSearch.getSource() == LotSearchSource.LOCAL) {
+            List<Place> parkingLots = findLocalParkingLots(destinationLatLng, lotSearch);
+            if (!parkingLots.isEmpty() || !lotSearch.isPlacesFallback()) {
+                return CompletableFuture.completedFuture(parkingLots);
+            }
+        }
+        int radiusFromDestination = lotSearch.getRadius();
+        Supplier<CompletableFuture<PlacesSearchResult[]>> nearbySearch = () -> scheduleAsync(RoutePlannerMetrics.API_PLACES_NEARBY,
+                UpstreamScheduler.Priority.HIGH, 1, () -> getNearbyParkingLotsAsync(destinationLatLng, radiusFromDestination));
+        CompletableFuture<PlacesSearchResult[]> parkingLotResults = nearbySearchFlight == null
+                ? nearbySearch.get()
+                : nearbySearchFlight.executeAsync(new NearbySearchKey(destinationLatLng, radiusFromDestination), nearbySearch);
+        return parkingLotResults.thenApply(this::matchParkingLots);
+    }
+
+    private List<Place> findLocalParkingLots(LatLng destinationLatLng, RoutePlannerProperties.LotSearch lotSearch) {
+        long matchingStart = System.nanoTime();
+        List<Place> parkingLots = parkingLotDataset.getIndex().findWithinRadius(destinationLatLng, lotSearch.getLocalRadius());
+        metrics.recordStage(RoutePlannerMetrics.STAGE_LOT_MATCHING, System.nanoTime() - matchingStart);
+        return parkingLots;
+    }
+
+    /**
+     * Finds the Achuzot Hachof parking lots around the destination with Google Places nearby search,
+     * matching each result to its parking lot in allParkingLotsLocations.json.
+     *
+     * @param destinationLatLng     coordinates of the destination
+     * @param radiusFromDestination the radius in meters to search within
+     * @return the parking lots, named after their entry in allParkingLotsLocations.json
+     * @throws IOException          if an I/O error occurs
+     * @throws InterruptedException if the thread executing the task is interrupted
+     * @throws ApiException         if the Google Maps API request fails
+     */
+    private List<Place> findNearbyParkingLots(LatLng destinationLatLng, int radiusFromDestination) throws IOException, InterruptedException, ApiException {
+        UpstreamCall<PlacesSearchResult[]> nearbySearch = () -> schedule(RoutePlannerMetrics.API_PLACES_NEARBY,
+                UpstreamScheduler.Priority.HIGH, 1, () -> getNearbyParkingLots(destinationLatLng, radiusFromDestination));
+        PlacesSearchResult[] parkingLotResults = nearbySearchFlight == null
+                ? nearbySearch.call()
+                : nearbySearchFlight.execute(new NearbySearchKey(destinationLatLng, radiusFromDestination), nearbySearch);
+        return matchParkingLots(parkingLotResults);
+    }
+
+    /**
+     * Matches the results of a Places nearby search to the parking lots of allParkingLotsLocations.json,
+     * leaving out the closed parking lots, the unknown ones and the duplicates.
+     */
+    private List<Place> matchParkingLots(PlacesSearchResult[] parkingLotResults) {
+        List<Place> parkingLots = new ArrayList<>();
+        HashSet<String> addedParkingLots = new HashSet<>();
+        long matchingStart = System.nanoTime();
+        ParkingLotMatcher matcher = parkingLotDataset.getMatcher();
+        for (PlacesSearchResult parkingLotResult : parkingLotResults) {
+            if (parkingLotResult.permanentlyClosed) {
+                continue;
+            }
+            String normalizedParkingLotName = matcher.findBestMatch(parkingLotResult.geometry.location);
+            if (normalizedParkingLotName == null
+                || addedParkingLots.contains(normalizedParkingLotName)){
+                continue;
+            }
+            parkingLots.add(new Place(normalizedParkingLotName, parkingLotResult.vicinity, parkingLotResult.geometry.location));
+            addedParkingLots.add(normalizedParkingLotName);
+        }
+        metrics.recordStage(RoutePlannerMetrics.STAGE_LOT_MATCHING, System.nanoTime() - matchingStart);
+
+        return parkingLots;
+    }
+
+    /**
+     * Ranks the routes through the given parking lots, requesting the legs one after the other.
+     * The parking lots are routed in the order of their lower bounds, and the routing stops at the first
+     * parking lot that cannot make the ranking, as none of the following ones can.
+     *
+     * @param origin      where the routes start at
+     * @param destination where the routes end at
+     * @param parkingLots the parking lots to route through
+     * @param ranker      the ranking the routes are offered to
+     * @param listener    receives each route as soon as it is found
+     * @param search      the state of the route request
+     * @throws ApiException         if the Google Maps API request fails
+     * @throws InterruptedException if the thread executing the task is interrupted
+     * @throws IOException          if an I/O error occurs
+     */
+    private void planRoutesSerially(Place origin, Place destination, List<Place> parkingLots, RouteRanker ranker, RouteListener listener,
+                                    RouteSearch search) throws ApiException, InterruptedException, IOException {
+        for (RouteRanker.Candidate candidate : ranker.orderByLowerBound(origin.getLocation(), destination.getLocation(), parkingLots)) {
+            if (!ranker.canEnterRanking(candidate.lowerBoundMinutes())) {
+                break;
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedException();
+            }
+            Place parkingLot = candidate.parkingLot();
+            Route route;
+            try {
+                route = createRoute(origin, destination, parkingLot,
+                        getDrivingPath(parkingLot, origin.getLocation(), search), getWalkingPath(parkingLot, destination.getLocation(), search), search);
+            } catch (UpstreamRejectedException e) {
+                search.rejection.set(e);
+                continue;
+            }
+            listener.onRoute(route);
+            ranker.offer(route);
+        }
+    }
+
+    /**
+     * Ranks the routes through the given parking lots, requesting the driving and walking legs in parallel.
+     * At most {@code routeplanner.planning.max-in-flight-per-request} legs of a single request run at once.
+     * <p>
+     * Without a limit, all the parking lots are routed at once. With a limit, the parking lots are routed in waves,
+     * in the order of their lower bounds, and the parking lots that cannot make the ranking after a wave are skipped.
+     * The listener gets the routes of a wave in the order their legs complete.
+     *
+     * @param origin      where the routes start at
+     * @param destination where the routes end at
+     * @param parkingLots the parking lots to route through
+     * @param ranker      the ranking the routes are offered to
+     * @param listener    receives each route as soon as it is found
+     * @param search      the state of the route request
+     * @throws ApiException         if the Google Maps API request fails
+     * @throws InterruptedException if the thread executing the task is interrupted
+     * @throws IOException          if an I/O error occurs
+     */
+    private void planRoutesConcurrently(Place origin, Place destination, List<Place> parkingLots, RouteRanker ranker, RouteListener listener,
+                                        RouteSearch search) throws ApiException, InterruptedException, IOException {
+        int maxInFlight = Math.max(1, properties.getPlanning().getMaxInFlightPerRequest());
+        List<RouteRanker.Candidate> candidates = ranker.orderByLowerBound(origin.getLocation(), destination.getLocation(), parkingLots);
+        // Each parking lot has two legs, and the first wave has to fill the ranking anyway
+        int waveSize = ranker.getLimit() > 0 ? Math.max(ranker.getLimit(), maxInFlight / 2) : Math.max(1, candidates.size());
+
+        for (int from = 0; from < candidates.size(); from += waveSize) {
+            List<Place> wave = new ArrayList<>();
+            for (RouteRanker.Candidate candidate : candidates.subList(from, Math.min(from + waveSize, candidates.size()))) {
+                if (!ranker.canEnterRanking(candidate.lowerBoundMinutes())) {
+                    break;
+                }
+                wave.add(candidate.parkingLot());
+            }
+            if (wave.isEmpty()) {
+                return;
+            }
+            // The routes of a wave are ranked in the order of their lower bounds, whatever order their legs complete in
+            for (Route route : planWaveConcurrently(origin, destination, wave, maxInFlight, listener, search)) {
+                ranker.offer(route);
+            }
+        }
+    }
+
+    private List<Route> planWaveConcurrently(Place origin, Place destination, List<Place> parkingLots, int maxInFlight, RouteListener listener,
+                                             RouteSearch search) throws ApiException, InterruptedException, IOException {
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        List<Future<DrivingPath>> drivingPaths = new ArrayList<>();
+        List<Future<WalkingPath>> walkingPaths = new ArrayList<>();
+        BlockingQueue<Integer> completedParkingLots = new LinkedBlockingQueue<>();
+
+        try {
+            for (int i = 0; i < parkingLots.size(); i++) {
+                Place parkingLot = parkingLots.get(i);
+                int parkingLotIndex = i;
+                AtomicInteger pendingLegs = new AtomicInteger(2);
+                Runnable onLegDone = () -> {
+                    if (pendingLegs.decrementAndGet() == 0) {
+                        completedParkingLots.add(parkingLotIndex);
+                    }
+                };
+                drivingPaths.add(submitLeg(inFlight, () -> getDrivingPath(parkingLot, origin.getLocation(), search), onLegDone));
+                walkingPaths.add(submitLeg(inFlight, () -> getWalkingPath(parkingLot, destination.getLocation(), search), onLegDone));
+            }
+
+            Route[] routes = new Route[parkingLots.size()];
+            for (int completed = 0; completed < parkingLots.size(); completed++) {
+                int i = completedParkingLots.take();
+                try {
+                    routes[i] = createRoute(origin, destination, parkingLots.get(i),
+                            awaitLeg(drivingPaths.get(i)), awaitLeg(walkingPaths.get(i)), search);
+                } catch (UpstreamRejectedException e) {
+                    search.rejection.set(e);
+                    continue;
+                }
+                listener.onRoute(routes[i]);
+            }
+            return Arrays.stream(routes).filter(Objects::nonNull).toList();
+        } finally {
+            drivingPaths.forEach(leg -> leg.cancel(true));
+            walkingPaths.forEach(leg -> leg.cancel(true));
+        }
+    }
+
+    /**
+     * Creates the routes through the given parking lots from two Distance Matrix calls: one for the driving
+     * times from the origin to all the parking lots and one for the walking times from all the parking lots
+     * to the destination. The matrices cost the same whatever the ranking, so all the parking lots are ranked,
+     * and only the best {@code routeplanner.planning.matrix-directions-limit} ranked routes get their full directions,
+     * at up to 2 Directions calls each; the paths of the other routes have no DirectionsRoute and can be fetched
+     * on demand with {@link #findPath}. With the default limit of 0, a request takes 2 Distance Matrix calls
+     * per 25 parking lots and no Directions call. Walking times found in the precomputed walking matrix are not
+     * requested at all.
+     *
+     * @param origin      where the routes start at
+     * @param destination where the routes end at
+     * @param parkingLots the parking lots to route through
+     * @param ranker      the ranking the routes are offered to
+     * @param listener    receives each ranked route once its directions are known, the best routes first
+     * @param search      the state of the route request
+     * @throws ApiException         if the Google Maps API request fails
+     * @throws InterruptedException if the thread executing the task is interrupted
+     * @throws IOException          if an I/O error occurs
+     */
+    private void planRoutesWithDistanceMatrix(Place origin, Place destination, List<Place> parkingLots, RouteRanker ranker, RouteListener listener,
+                                              RouteSearch search) throws ApiException, InterruptedException, IOException {
+        if (parkingLots.isEmpty()) {
+            return;
+        }
+        LatLng[] parkingLotLocations = parkingLots.stream().map(Place::getLocation).toArray(LatLng[]::new);
+        DistanceMatrixElement[] drivingElements = getDistanceMatrixElements(origin.getLocation(), parkingLotLocations, TravelMode.DRIVING);
+        // The parking lots of a destination are the same for every pair of a batch, and so are their walking times
+        WalkingPath[] walkingPaths = search.share(new WalkingTimesKey(destination.getLocation()),
+                () -> getMatrixWalkingPaths(destination.getLocation(), parkingLots, parkingLotLocations));
+
+        for (int i = 0; i < parkingLots.size(); i++) {
+            if (!isFound(drivingElements[i]) || walkingPaths[i] == null) {
+                continue;
+            }
+            DrivingPath drivingPath = new DrivingPath(null, drivingElements[i].duration.inSeconds / 60);
+            ranker.offer(createRoute(origin, destination, parkingLots.get(i), drivingPath, walkingPaths[i], search));
+        }
+
+        List<Route> routes = ranker.getRankedRoutes();
+        int routesWithDirections = Math.min(routes.size(), properties.getPlanning().getMatrixDirectionsLimit());
+        for (Route route : routes.subList(0, routesWithDirections)) {
+            try {
+                DirectionsRoute drivingDirections = getDrivingPath(route.getParkingLot(), origin.getLocation(), search).getDirectionsRoute();
+                if (drivingDirections == null) {
+                    // The driving path cache shares the driving time of another origin of the cell, not its directions
+                    drivingDirections = createDrivingPath(route.getParkingLot().getLocation(), origin.getLocation(),
+                            UpstreamScheduler.Priority.LOW).getDirectionsRoute();
+                }
+                route.getDrivingPath().setDirectionsRoute(drivingDirections);
+                if (route.getWalkingPath().getDirectionsRoute() == null) {
+                    route.getWalkingPath().setDirectionsRoute(
+                            getWalkingPath(route.getParkingLot(), destination.getLocation(), search).getDirectionsRoute());
+                }
+            } catch (UpstreamRejectedException e) {
+                // The route keeps its times, and its directions can still be fetched on demand
+            }
+            listener.onRoute(route);
+        }
+        routes.subList(routesWithDirections, routes.size()).forEach(listener::onRoute);
+    }
+
+    /**
+     * Retrieves the walking times from the parking lots to the destination for the Distance Matrix planning.
+     * Walking paths found in the walking path cache or the precomputed walking times are left out of the walking matrix.
+     *
+     * @param destinationLatLng   coordinates of the destination
+     * @param parkingLots         the parking lots to walk from
+     * @param parkingLotLocations coordinates of the parking lots
+     * @return the walking path of each parking lot, in the order of the parking lots, or null if it was not found
+     * @throws ApiException         if the Google Maps API request fails
+     * @throws InterruptedException if the thread executing the task is interrupted
+     * @throws IOException          if an I/O error occurs
+     */
+    private WalkingPath[] getMatrixWalkingPaths(LatLng destinationLatLng, List<Place> parkingLots, LatLng[] parkingLotLocations) throws ApiException, InterruptedException, IOException {
+        WalkingPath[] walkingPaths = new WalkingPath[parkingLots.size()];
+        List<Integer> uncachedParkingLots = new ArrayList<>();
+        for (int i = 0; i < parkingLots.size(); i++) {
+            walkingPaths[i] = walkingPathCache != null
+                    ? walkingPathCache.get(parkingLots.get(i).getName(), destinationLatLng)
+                    : null;
+            int precomputedSeconds = walkingPaths[i] == null && walkingTimeMatrix != null
+                    ? walkingTimeMatrix.walkingSeconds(parkingLots.get(i).getName(), destinationLatLng)
+                    : -1;
+            if (precomputedSeconds >= 0) {
+                walkingPaths[i] = new WalkingPath(null, precomputedSeconds / 60);
+            }
+            if (walkingPaths[i] == null) {
+                uncachedParkingLots.add(i);
+            }
+        }
+        if (!uncachedParkingLots.isEmpty()) {
+            LatLng[] uncachedLocations = uncachedParkingLots.stream().map(i -> parkingLotLocations[i]).toArray(LatLng[]::new);
+            DistanceMatrixElement[] walkingElements = getDistanceMatrixElements(destinationLatLng, uncachedLocations, TravelMode.WALKING);
+            for (int i = 0; i < walkingElements.length; i++) {
+                if (isFound(walkingElements[i])) {
+                    walkingPaths[uncachedParkingLots.get(i)] = new WalkingPath(null, walkingElements[i].duration.inSeconds / 60);
+                }
+            }
+        }
+        return walkingPaths;
+    }
+
+    /**
+     * Retrieves the Distance Matrix elements between a single point and many parking lots.
+     * Driving is requested from the point to the parking lots, walking from the parking lots to the point.
+     *
+     * @param point               the origin when driving, the destination when walking
+     * @param parkingLotLocations coordinates of the parking lots
+     * @param mode                mode of travel, driving or walking
+     * @return the element of each parking lot, in the order of the parking lots
+     * @throws ApiException         if the Google Maps API request fails
+     * @throws InterruptedException if the thread executing the task is interrupted
+     * @throws IOException          if an I/O error occurs
+     */
+    private DistanceMatrixElement[] getDistanceMatrixElements(LatLng point, LatLng[] parkingLotLocations, TravelMode mode) throws ApiException, InterruptedException, IOException {
+        DistanceMatrixElement[] elements = new DistanceMatrixElement[parkingLotLocations.length];
+        // Distance Matrix API accepts up to 25 origins or destinations per request
+        for (int from = 0; from < parkingLotLocations.length; from += MAX_DISTANCE_MATRIX_POINTS) {
+            LatLng[] chunk = Arrays.copyOfRange(parkingLotLocations, from, Math.min(from + MAX_DISTANCE_MATRIX_POINTS, parkingLotLocations.length));
+            if (mode == TravelMode.DRIVING) {
+                DistanceMatrix matrix = schedule(RoutePlannerMetrics.API_DISTANCE_MATRIX, UpstreamScheduler.Priority.NORMAL, chunk.length,
+                        () -> getDistanceMatrix(new LatLng[]{point}, chunk, mode));
+                System.arraycopy(matrix.rows[0].elements, 0, elements, from, chunk.length);
+            } else {
+                DistanceMatrix matrix = schedule(RoutePlannerMetrics.API_DISTANCE_MATRIX, UpstreamScheduler.Priority.NORMAL, chunk.length,
+                        () -> getDistanceMatrix(chunk, new LatLng[]{point}, mode));
+                for (int i = 0; i < chunk.length; i++) {
+                    elements[from + i] = matrix.rows[i].elements[0];
+                }
+            }
+        }
+        return elements;
+    }
+
+    /**
+     * Returns the driving path from the origin to a parking lot, from the driving path cache when possible.
+     *
+     * @param parkingLot   the parking lot, with its normalized name
+     * @param originLatLng coordinates of the origin
+     * @param search       the state of the route request
+     * @return DrivingPath object representing the driving route
+     * @throws ApiException         if the Google Maps API request fails
+     * @throws InterruptedException if the thread executing the task is interrupted
+     * @throws IOException          if an I/O error occurs
+     */
+    private DrivingPath getDrivingPath(Place parkingLot, LatLng originLatLng, RouteSearch search) throws ApiException, InterruptedException, IOException {
+        return metrics.timeStage(RoutePlannerMetrics.STAGE_DRIVING, () -> search.share(new DrivingLegKey(originLatLng, parkingLot.getName()), () -> {
+            if (drivingPathCache == null) {
+                return createDrivingPath(parkingLot.getLocation(), originLatLng, UpstreamScheduler.Priority.LOW);
+            }
+            return drivingPathCache.get(originLatLng, parkingLot.getName(),
+                    () -> createDrivingPath(parkingLot.getLocation(), originLatLng, UpstreamScheduler.Priority.LOW));
+        }));
+    }
+
+    /**
+     * Returns the walking path from a parking lot to the destination, from the walking path cache when possible.
+     *
+     * @param parkingLot        the parking lot, with its normalized name
+     * @param destinationLatLng coordinates of the destination
+     * @param search            the state of the route request
+     * @return WalkingPath object representing the walking route
+     * @throws ApiException         if the Google Maps API request fails
+     * @throws InterruptedException if the thread executing the task is interrupted
+     * @throws IOException          if an I/O error occurs
+     */
+    private WalkingPath getWalkingPath(Place parkingLot, LatLng destinationLatLng, RouteSearch search) throws ApiException, InterruptedException, IOException {
+        return metrics.timeStage(RoutePlannerMetrics.STAGE_WALKING, () -> search.share(new WalkingLegKey(parkingLot.getName(), destinationLatLng), () -> {
+            if (walkingPathCache == null) {
+                return createWalkingPath(parkingLot.getLocation(), destinationLatLng, UpstreamScheduler.Priority.LOW);
+            }
+            WalkingPath walkingPath = walkingPathCache.get(parkingLot.getName(), destinationLatLng);
+            if (walkingPath == null) {
+                walkingPath = createWalkingPath(parkingLot.getLocation(), destinationLatLng, UpstreamScheduler.Priority.LOW);
+                walkingPathCache.put(parkingLot.getName(), destinationLatLng, walkingPath);
+            }
+            return walkingPath;
+        }));
+    }
 
-    private static final HashMap<String, LatLng>  allParkingLotsLocations;
+    private CompletableFuture<DrivingPath> getDrivingPathAsync(Place parkingLot, LatLng originLatLng) {
+        return metrics.timeStageAsync(RoutePlannerMetrics.STAGE_DRIVING, () -> {
+            if (drivingPathCache == null) {
+                return createDrivingPathAsync(parkingLot.getLocation(), originLatLng);
+            }
+            return drivingPathCache.getAsync(originLatLng, parkingLot.getName(),
+                    () -> createDrivingPathAsync(parkingLot.getLocation(), originLatLng));
+        });
+    }
 
-    static {
-        try {
-             allParkingLotsLocations = new ObjectMapper().readValue(new File("src/main/resources/allParkingLotsLocations.json"), new TypeReference<HashMap<String, LatLng>>() {});
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+    private CompletableFuture<WalkingPath> getWalkingPathAsync(Place parkingLot, LatLng destinationLatLng) {
+        return metrics.timeStageAsync(RoutePlannerMetrics.STAGE_WALKING, () -> {
+            WalkingPath cachedWalkingPath = walkingPathCache == null ? null : walkingPathCache.get(parkingLot.getName(), destinationLatLng);
+            if (cachedWalkingPath != null) {
+                return CompletableFuture.completedFuture(cachedWalkingPath);
+            }
+            return createWalkingPathAsync(parkingLot.getLocation(), destinationLatLng).thenApply(walkingPath -> {
+                if (walkingPathCache != null) {
+                    walkingPathCache.put(parkingLot.getName(), destinationLatLng, walkingPath);
+                }
+                return walkingPath;
+            });
+        });
     }
 
-    private final GeoApiContext context = new GeoApiContext.Builder()
-            .apiKey("INSERT_KEY_HERE")
-            .build();
+    /**
+     * Ranks the routes through the given parking lots without blocking, in waves in the order of their lower bounds.
+     * The legs of a wave are all requested at once, and the next wave starts once the routes of the wave are ranked,
+     * with the parking lots that can still enter the ranking.
+     *
+     * @return the future completed once the parking lots that can enter the ranking are routed
+     */
+    private CompletableFuture<Void> planWavesAsync(Place origin, Place destination, List<Place> parkingLots, RouteRanker ranker,
+                                                   RouteSearch search) {
+        List<RouteRanker.Candidate> candidates = ranker.orderByLowerBound(origin.getLocation(), destination.getLocation(), parkingLots);
+        // The first wave has to fill the ranking anyway, and without a limit every parking lot is routed
+        int waveSize = ranker.getLimit() > 0 ? ranker.getLimit() : Math.max(1, candidates.size());
+        return planWaveAsync(origin, destination, candidates, 0, waveSize, ranker, search);
+    }
 
-    public RoutePlannerService() throws IOException {
+    private CompletableFuture<Void> planWaveAsync(Place origin, Place destination, List<RouteRanker.Candidate> candidates, int from,
+                                                  int waveSize, RouteRanker ranker, RouteSearch search) {
+        List<CompletableFuture<Route>> wave = new ArrayList<>();
+        for (RouteRanker.Candidate candidate : candidates.subList(from, Math.min(from + waveSize, candidates.size()))) {
+            if (!ranker.canEnterRanking(candidate.lowerBoundMinutes())) {
+                break;
+            }
+            Place parkingLot = candidate.parkingLot();
+            wave.add(getDrivingPathAsync(parkingLot, origin.getLocation())
+                    .thenCombine(getWalkingPathAsync(parkingLot, destination.getLocation()),
+                            (drivingPath, walkingPath) -> createRoute(origin, destination, parkingLot, drivingPath, walkingPath, search))
+                    .exceptionally(e -> {
+                        // A rejected parking lot is skipped, like in the blocking planning
+                        if (PendingResults.unwrap(e) instanceof UpstreamRejectedException rejection) {
+                            search.rejection.set(rejection);
+                            return null;
+                        }
+                        throw e instanceof CompletionException completionException ? completionException : new CompletionException(e);
+                    }));
+        }
+        if (wave.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.allOf(wave.toArray(CompletableFuture[]::new)).thenCompose(ignored -> {
+            // The routes are offered in the order of their lower bounds, whatever order their legs completed in
+            for (CompletableFuture<Route> route : wave) {
+                if (route.join() != null) {
+                    ranker.offer(route.join());
+                }
+            }
+            return planWaveAsync(origin, destination, candidates, from + waveSize, waveSize, ranker, search);
+        });
     }
 
     /**
-     * Finds routes from a specified current location to a destination, which consists of
-     * the driving path to the parking lot and the walking path from the parking lot to the destination
-     *
-     * @param origin the starting location as an address string
-     * @param destination     the destination location as an address string
-     * @return a list of Route objects representing different routes
-     * @throws ResourceAccessException if there is an issue accessing Google Maps API
-     * @throws IllegalArgumentException if input location is not in Israel/Tel Aviv
+     * Sets the full parking lots aside, unless every parking lot is full.
      */
-    public List<Route> findRoutes(String origin, String destination) throws IllegalArgumentException, ResourceAccessException {
-        if (StringUtils.isEmpty(origin) || StringUtils.isEmpty(destination)) {
-            throw new IllegalArgumentException("Current location or destination are empty");
+    private static ParkingLotPartition partitionFullParkingLots(List<Place> parkingLots, RouteSearch search) {
+        List<Place> fullParkingLots = new ArrayList<>();
+        List<Place> otherParkingLots = new ArrayList<>();
+        for (Place parkingLot : parkingLots) {
+            (search.statusOf(parkingLot) == ParkingLotStatus.FULL ? fullParkingLots : otherParkingLots).add(parkingLot);
+        }
+        if (otherParkingLots.isEmpty()) {
+            return new ParkingLotPartition(List.of(), fullParkingLots);
+        }
+        return new ParkingLotPartition(fullParkingLots, otherParkingLots);
+    }
+
+    /**
+     * @return the exception a route request fails with, with the Google Maps errors as a ResourceAccessException
+     */
+    private static RuntimeException toRouteRequestException(Throwable e) {
+        Throwable cause = PendingResults.unwrap(e);
+        if (cause instanceof RuntimeException runtimeException) {
+            return runtimeException;
         }
+        return new ResourceAccessException("Google Maps API error");
+    }
+
+    private static boolean isFound(DistanceMatrixElement element) {
+        return element != null && element.status == DistanceMatrixElementStatus.OK && element.duration != null;
+    }
 
+    private <T> Future<T> submitLeg(Semaphore inFlight, Callable<T> leg, Runnable onDone) throws InterruptedException {
+        inFlight.acquire();
         try {
-            LatLng originLatLng = getLocationFromAddress(origin);
-            LatLng destinationLatLng = getLocationFromAddress(destination);
+            return directionsExecutor.submit(() -> {
+                try {
+                    return leg.call();
+                } finally {
+                    inFlight.release();
+                    onDone.run();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.release();
+            throw e;
+        }
+    }
 
-            if (!isInIsrael(originLatLng)) {
-                throw new IllegalArgumentException("Current location is not in Israel");
+    static <T> T awaitLeg(Future<T> leg) throws ApiException, InterruptedException, IOException {
+        try {
+            return leg.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ApiException apiException) {
+                throw apiException;
             }
-            if (!isInTelAviv(destinationLatLng)) {
-                throw new IllegalArgumentException("Destination is not in Tel Aviv");
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof InterruptedException interruptedException) {
+                throw interruptedException;
             }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
 
-            List<Route> routes = new ArrayList<>();
-            PlacesSearchResult[] parkingLots = getNearbyParkingLots(destinationLatLng, 500);
-            HashSet<String> addedParkingLots = new HashSet<>();
+    private static Route createRoute(Place origin, Place destination, Place parkingLot, DrivingPath drivingPath, WalkingPath walkingPath,
+                                     RouteSearch search) {
+        Route route = new Route(
+                origin,
+                destination,
+                parkingLot,
+                drivingPath,
+                walkingPath,
+                drivingPath.getTotalTime() + walkingPath.getTotalTime());
+        route.setParkingLotStatus(search.statusOf(parkingLot));
+        return route;
+    }
 
-            for (PlacesSearchResult parkingLotResult : parkingLots) {
-                if (parkingLotResult.permanentlyClosed) {
-                    continue;
-                }
-                String normalizedParkingLotName = findBestMatch(parkingLotResult.geometry.location);
-                if (normalizedParkingLotName == null
-                    || addedParkingLots.contains(normalizedParkingLotName)){
-                    continue;
-                }
+    private static ThreadFactory daemonThreadFactory(String namePrefix) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
 
-                LatLng parkingLotLocation = parkingLotResult.geometry.location;
-                Place originObject = new Place(origin, null, originLatLng);
-                Place destinationObject = new Place(destination, null, destinationLatLng);
-                Place parkingLotObject = new Place(normalizedParkingLotName, parkingLotResult.vicinity, parkingLotLocation);
-                DrivingPath drivingPath = createDrivingPath(parkingLotLocation, originLatLng);
-                WalkingPath walkingPath = createWalkingPath(parkingLotLocation, destinationLatLng);
-                routes.add(new Route(
-                        originObject,
-                        destinationObject,
-                        parkingLotObject,
-                        drivingPath,
-                        walkingPath,
-                        drivingPath.getTotalTime() + walkingPath.getTotalTime()));
-                addedParkingLots.add(normalizedParkingLotName);
-            }
+    private static GeoApiContext createGeoApiContext(RoutePlannerProperties.Google google) {
+        OkHttpRequestHandler.Builder requestHandler = new OkHttpRequestHandler.Builder();
+        if (StringUtils.isNotBlank(google.getBaseUrl())) {
+            // The client always builds https://maps.googleapis.com URLs, so they are redirected to the base URL on the way out
+            HttpUrl baseUrl = HttpUrl.get(google.getBaseUrl());
+            requestHandler.okHttpClientBuilder().addInterceptor(chain -> chain.proceed(chain.request().newBuilder()
+                    .url(chain.request().url().newBuilder()
+                            .scheme(baseUrl.scheme())
+                            .host(baseUrl.host())
+                            .port(baseUrl.port())
+                            .build())
+                    .build()));
+        }
+        GeoApiContext.Builder builder = new GeoApiContext.Builder(requestHandler).apiKey(google.getApiKey());
+        if (google.getMaxRetries() != null) {
+            builder.maxRetries(google.getMaxRetries());
+        }
+        if (google.getQueriesPerSecond() != null) {
+            builder.queryRateLimit(google.getQueriesPerSecond());
+        }
+        return builder.build();
+    }
 
-            return routes;
-        } catch (ApiException | InterruptedException | IOException e) {
-            throw new ResourceAccessException("Google Maps API error");
+    private RoutingProvider createRoutingProvider(RoutePlannerProperties.Routing routing) {
+        if (routing.getProvider() != RoutingProviderType.LOCAL) {
+            return new GoogleRoutingProvider(context);
+        }
+        if (StringUtils.isBlank(routing.getOsmFile())) {
+            throw new IllegalStateException("routeplanner.routing.osm-file is required by the LOCAL routing provider");
+        }
+        try {
+            return LocalRoutingProvider.load(java.nio.file.Path.of(routing.getOsmFile()),
+                    routing.getWalkingSpeedKmh(), routing.getSnapRadiusMeters());
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot load the road graph of " + routing.getOsmFile(), e);
+        }
+    }
+
+    private static WalkingTimeMatrix loadWalkingTimeMatrix(RoutePlannerProperties.WalkingMatrix walkingMatrix) {
+        if (!walkingMatrix.isEnabled()) {
+            return null;
+        }
+        if (StringUtils.isBlank(walkingMatrix.getFile())) {
+            throw new IllegalStateException("routeplanner.walking-matrix.file is required when the walking matrix is enabled");
+        }
+        try {
+            return WalkingTimeMatrix.load(java.nio.file.Path.of(walkingMatrix.getFile()));
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot load the walking matrix " + walkingMatrix.getFile(), e);
+        }
+    }
+
+    private static ParkingLotFileWatcher startParkingLotFileWatcher(RoutePlannerProperties.ParkingLots parkingLots,
+                                                                    Consumer<ParkingLotDataset> onReload, RoutePlannerMetrics metrics) {
+        if (StringUtils.isBlank(parkingLots.getWatchFile())) {
+            return null;
+        }
+        ParkingLotFileWatcher watcher = new ParkingLotFileWatcher(java.nio.file.Path.of(parkingLots.getWatchFile()),
+                parkingLots.getReloadDelay(), onReload, metrics);
+        try {
+            watcher.start();
+            return watcher;
+        } catch (IOException e) {
+            // A missing mount keeps the parking lots packed in the jar, as if nothing was watched
+            logger.warn("Cannot watch the parking lots file {}: {}", parkingLots.getWatchFile(), e.toString());
+            return null;
         }
     }
 
+    private static ExecutorService createDirectionsExecutor(RoutePlannerProperties.Planning planning, RoutePlannerProperties.Threads threads) {
+        if (threads.isVirtual()) {
+            // A leg blocked in await() only holds a virtual thread, so the legs are bounded by the in-flight limit
+            // of each request and by the upstream scheduler rather than by a pool
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("directions-", 1).factory());
+        }
+        // When the queue is full the request thread runs the leg itself, which slows down the callers instead of failing them
+        return new ThreadPoolExecutor(planning.getPoolSize(), planning.getPoolSize(),
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(planning.getQueueCapacity()),
+                daemonThreadFactory("directions-"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    private static ExecutorService createBatchExecutor(RoutePlannerProperties.Batch batch, RoutePlannerProperties.Threads threads) {
+        if (threads.isVirtual()) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("route-batch-", 1).factory());
+        }
+        // When the queue is full, the thread planning the batch plans the pair itself instead of failing it
+        ThreadPoolExecutor batchExecutor = new ThreadPoolExecutor(batch.getPoolSize(), batch.getPoolSize(),
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(batch.getQueueCapacity()),
+                daemonThreadFactory("route-batch-"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        batchExecutor.allowCoreThreadTimeOut(true);
+        return batchExecutor;
+    }
+
     /**
      * Retrieves geographical coordinates (LatLng) from a given address string.
      *
@@ -120,18 +1344,108 @@ public class RoutePlannerService {
      * @throws IllegalArgumentException if address does not exist
      */
     public LatLng getLocationFromAddress(String address) throws IllegalArgumentException, ResourceAccessException {
+        Optional<LatLng> location = geocodingCache != null
+                ? geocodingCache.get(address, this::geocode)
+                : geocode(address);
+
+        return location.orElseThrow(() -> new IllegalArgumentException("Address does not exist"));
+    }
+
+    /**
+     * Retrieves the coordinates of an address like {@link #getLocationFromAddress(String)}, without blocking.
+     *
+     * @param address the address to geocode
+     * @return the future of the coordinates of the address, failed with an IllegalArgumentException if the address does not exist
+     */
+    public CompletableFuture<LatLng> getLocationFromAddressAsync(String address) {
+        CompletableFuture<Optional<LatLng>> location = geocodingCache != null
+                ? geocodingCache.getAsync(address, this::geocodeAsync)
+                : geocodeAsync(address);
+
+        return location.thenApply(found -> found.orElseThrow(() -> new IllegalArgumentException("Address does not exist")));
+    }
+
+    /**
+     * Geocodes an address with Google Maps API, bypassing the geocoding cache.
+     *
+     * @param address the address to geocode
+     * @return the coordinates of the address, or an empty result if the address does not exist
+     * @throws ResourceAccessException if there is an issue accessing Google Maps API
+     */
+    private Optional<LatLng> geocode(String address) throws ResourceAccessException {
         try {
-            GeocodingApiRequest geocodeRequest = GeocodingApi.geocode(context, address);
-            GeocodingResult[] results = geocodeRequest.await();
+            GeocodingResult[] results = schedule(RoutePlannerMetrics.API_GEOCODING, UpstreamScheduler.Priority.HIGH, 1,
+                    () -> metrics.timeUpstream(RoutePlannerMetrics.API_GEOCODING, null, () -> GeocodingApi.geocode(context, address).await()));
 
             if (results.length == 0) {
-                throw new IllegalArgumentException("Address does not exist");
+                return Optional.empty();
             }
-            return results[0].geometry.location;
+            return Optional.of(results[0].geometry.location);
         } catch (ApiException | InterruptedException | IOException e) {
             throw new ResourceAccessException("Google Maps API error");
         }
+    }
+
+    private CompletableFuture<Optional<LatLng>> geocodeAsync(String address) {
+        return scheduleAsync(RoutePlannerMetrics.API_GEOCODING, UpstreamScheduler.Priority.HIGH, 1,
+                () -> metrics.timeUpstreamAsync(RoutePlannerMetrics.API_GEOCODING, null, () -> PendingResults.toFuture(GeocodingApi.geocode(context, address))))
+                .thenApply(results -> results.length == 0 ? Optional.<LatLng>empty() : Optional.of(results[0].geometry.location));
+    }
+
+    /**
+     * @return the meters of the stages, the upstream calls and the caches
+     */
+    public RoutePlannerMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return the geocoding cache, or null if the cache is disabled
+     */
+    public GeocodingCache getGeocodingCache() {
+        return geocodingCache;
+    }
+
+    /**
+     * @return the driving path cache, or null if the cache is disabled
+     */
+    public DrivingPathCache getDrivingPathCache() {
+        return drivingPathCache;
+    }
+
+    /**
+     * @return the walking path cache, or null if the cache is disabled
+     */
+    public WalkingPathCache getWalkingPathCache() {
+        return walkingPathCache;
+    }
+
+    /**
+     * @return the coalescing of identical route requests, or null if coalescing is disabled
+     */
+    public SingleFlight<?, ?> getRouteRequestFlight() {
+        return routeRequestFlight;
+    }
+
+    /**
+     * @return the coalescing of identical Directions API requests, or null if coalescing is disabled
+     */
+    public SingleFlight<?, ?> getDirectionsFlight() {
+        return directionsFlight;
+    }
 
+    /**
+     * @return the coalescing of identical Places nearby searches, or null if coalescing is disabled
+     */
+    public SingleFlight<?, ?> getNearbySearchFlight() {
+        return nearbySearchFlight;
+    }
+
+    /**
+     * @return the poller of the parking lot occupancy, or null if the occupancy is not tracked
+     */
+    public ParkingOccupancyPoller getOccupancyPoller() {
+        return occupancyPoller;
     }
 
     /**
@@ -145,36 +1459,117 @@ public class RoutePlannerService {
      * @throws ApiException         if the Google Maps API request fails
      */
     public PlacesSearchResult[] getNearbyParkingLots(LatLng destination, int radiusFromDestination) throws IOException, InterruptedException, ApiException {
-        NearbySearchRequest nearbySearchRequest = PlacesApi.nearbySearchQuery(context, destination)
-                .radius(radiusFromDestination)
-                .keyword("אחוזות החוף")
-                .language("he");
-        PlacesSearchResponse response = nearbySearchRequest.await();
+        NearbySearchRequest nearbySearchRequest = nearbySearchQuery(destination, radiusFromDestination);
+        PlacesSearchResponse response = metrics.timeUpstream(RoutePlannerMetrics.API_PLACES_NEARBY, null, nearbySearchRequest::await);
 
         PlacesSearchResult[] parkingLots = response.results;
         return parkingLots;
     }
 
     /**
-     * Retrieves directions (route) information from an origin to a destination.
+     * Retrieves nearby parking lots like {@link #getNearbyParkingLots(LatLng, int)}, without blocking.
+     *
+     * @param destination           the central location to search around
+     * @param radiusFromDestination the radius in meters to search within
+     * @return the future of the nearby parking lots, failed with the ApiException or IOException of the request
+     */
+    public CompletableFuture<PlacesSearchResult[]> getNearbyParkingLotsAsync(LatLng destination, int radiusFromDestination) {
+        NearbySearchRequest nearbySearchRequest = nearbySearchQuery(destination, radiusFromDestination);
+        return metrics.timeUpstreamAsync(RoutePlannerMetrics.API_PLACES_NEARBY, null, () -> PendingResults.toFuture(nearbySearchRequest))
+                .thenApply(response -> response.results);
+    }
+
+    private NearbySearchRequest nearbySearchQuery(LatLng destination, int radiusFromDestination) {
+        return PlacesApi.nearbySearchQuery(context, destination)
+                .radius(radiusFromDestination)
+                .keyword("אחוזות החוף")
+                .language("he");
+    }
+
+    /**
+     * Retrieves directions (route) information from an origin to a destination, from the configured routing provider.
      *
      * @param origin      starting point of the route
      * @param destination destination point of the route
      * @param mode        mode of travel (e.g., driving, walking)
      * @return DirectionsResult object containing the route information
-     * @throws ApiException         if the Google Maps API request fails
+     * @throws ApiException         if the directions cannot be found
      * @throws InterruptedException if the thread executing the task is interrupted
      * @throws IOException          if an I/O error occurs
      */
     public DirectionsResult getDirections(LatLng origin, LatLng destination, TravelMode mode) throws ApiException, InterruptedException, IOException {
-        DirectionsApiRequest directionApiRequest = DirectionsApi.newRequest(context)
-                .origin(origin)
-                .destination(destination)
+        return metrics.timeUpstream(RoutePlannerMetrics.API_DIRECTIONS, mode,
+                () -> routingProvider.getDirections(origin, destination, mode));
+    }
+
+    /**
+     * Retrieves directions like {@link #getDirections(LatLng, LatLng, TravelMode)}, without blocking.
+     *
+     * @param origin      starting point of the route
+     * @param destination destination point of the route
+     * @param mode        mode of travel (e.g., driving, walking)
+     * @return the future of the route information, failed with the ApiException or IOException of the request
+     */
+    public CompletableFuture<DirectionsResult> getDirectionsAsync(LatLng origin, LatLng destination, TravelMode mode) {
+        return metrics.timeUpstreamAsync(RoutePlannerMetrics.API_DIRECTIONS, mode,
+                () -> routingProvider.getDirectionsAsync(origin, destination, mode));
+    }
+
+    /**
+     * Retrieves the travel durations and distances between every origin and every destination.
+     *
+     * @param origins      starting points, up to 25
+     * @param destinations destination points, up to 25
+     * @param mode         mode of travel (e.g., driving, walking)
+     * @return DistanceMatrix object with a row per origin and an element per destination in each row
+     * @throws ApiException         if the Google Maps API request fails
+     * @throws InterruptedException if the thread executing the task is interrupted
+     * @throws IOException          if an I/O error occurs
+     */
+    public DistanceMatrix getDistanceMatrix(LatLng[] origins, LatLng[] destinations, TravelMode mode) throws ApiException, InterruptedException, IOException {
+        DistanceMatrixApiRequest distanceMatrixRequest = DistanceMatrixApi.newRequest(context)
+                .origins(origins)
+                .destinations(destinations)
                 .mode(mode)
                 .language("he");
 
-        DirectionsResult result = directionApiRequest.await();
-        return result;
+        return metrics.timeUpstream(RoutePlannerMetrics.API_DISTANCE_MATRIX, mode, distanceMatrixRequest::await);
+    }
+
+    /**
+     * Creates the path between two points on demand, e.g. for a route planned without its full directions.
+     * Only the legs of the routes are served: a driving path from Israel to Tel Aviv, or a walking path within
+     * Tel Aviv from or to a known parking lot.
+     *
+     * @param from starting point of the path
+     * @param to   end point of the path
+     * @param mode DRIVING for a driving path or WALKING for a walking path
+     * @return DrivingPath or WalkingPath object with the full directions
+     * @throws ResourceAccessException  if there is an issue accessing Google Maps API
+     * @throws IllegalArgumentException if the mode is neither driving nor walking, or the path is not a leg of a route
+     */
+    public Path findPath(LatLng from, LatLng to, TravelMode mode) throws IllegalArgumentException, ResourceAccessException {
+        if (mode == TravelMode.DRIVING && !isInIsrael(from)) {
+            throw new IllegalArgumentException("Start of the path is not in Israel");
+        }
+        if (mode == TravelMode.WALKING && !isInTelAviv(from)) {
+            throw new IllegalArgumentException("Start of the path is not in Tel Aviv");
+        }
+        if (!isInTelAviv(to)) {
+            throw new IllegalArgumentException("End of the path is not in Tel Aviv");
+        }
+        if (mode == TravelMode.WALKING && findBestMatch(from) == null && findBestMatch(to) == null) {
+            throw new IllegalArgumentException("A walking path must start or end at a parking lot");
+        }
+        try {
+            return switch (mode) {
+                case DRIVING -> createDrivingPath(to, from);
+                case WALKING -> createWalkingPath(from, to);
+                default -> throw new IllegalArgumentException("Mode must be driving or walking");
+            };
+        } catch (ApiException | InterruptedException | IOException e) {
+            throw new ResourceAccessException("Google Maps API error");
+        }
     }
 
     /**
@@ -188,11 +1583,20 @@ public class RoutePlannerService {
      * @throws IOException          if an I/O error occurs
      */
     public DrivingPath createDrivingPath(LatLng parkingLotLocationLatLng, LatLng originLatLng) throws ApiException, InterruptedException, IOException {
-        DirectionsResult driveToParkingLotDirections = getDirections(originLatLng, parkingLotLocationLatLng, TravelMode.DRIVING);
+        return createDrivingPath(parkingLotLocationLatLng, originLatLng, UpstreamScheduler.Priority.NORMAL);
+    }
+
+    private DrivingPath createDrivingPath(LatLng parkingLotLocationLatLng, LatLng originLatLng, UpstreamScheduler.Priority priority) throws ApiException, InterruptedException, IOException {
+        DirectionsResult driveToParkingLotDirections = requestDirections(originLatLng, parkingLotLocationLatLng, TravelMode.DRIVING, priority);
         long drivingTime = driveToParkingLotDirections.routes[0].legs[0].duration.inSeconds / 60;
         return new DrivingPath(driveToParkingLotDirections.routes[0], drivingTime);
     }
 
+    private CompletableFuture<DrivingPath> createDrivingPathAsync(LatLng parkingLotLocationLatLng, LatLng originLatLng) {
+        return requestDirectionsAsync(originLatLng, parkingLotLocationLatLng, TravelMode.DRIVING, UpstreamScheduler.Priority.LOW)
+                .thenApply(directions -> new DrivingPath(directions.routes[0], directions.routes[0].legs[0].duration.inSeconds / 60));
+    }
+
     /**
      * Creates a walking path (route) from a parking lot to a destination.
      *
@@ -204,11 +1608,62 @@ public class RoutePlannerService {
      * @throws IOException          if an I/O error occurs
      */
     public WalkingPath createWalkingPath(LatLng parkingLotLocationLatLng, LatLng destinationLatLng) throws ApiException, InterruptedException, IOException {
-        DirectionsResult walkToDestinationDirections = getDirections(parkingLotLocationLatLng, destinationLatLng, TravelMode.WALKING);
+        return createWalkingPath(parkingLotLocationLatLng, destinationLatLng, UpstreamScheduler.Priority.NORMAL);
+    }
+
+    private WalkingPath createWalkingPath(LatLng parkingLotLocationLatLng, LatLng destinationLatLng, UpstreamScheduler.Priority priority) throws ApiException, InterruptedException, IOException {
+        DirectionsResult walkToDestinationDirections = requestDirections(parkingLotLocationLatLng, destinationLatLng, TravelMode.WALKING, priority);
         long walkingTime = walkToDestinationDirections.routes[0].legs[0].duration.inSeconds / 60;
         return new WalkingPath(walkToDestinationDirections.routes[0], walkingTime);
     }
 
+    private CompletableFuture<WalkingPath> createWalkingPathAsync(LatLng parkingLotLocationLatLng, LatLng destinationLatLng) {
+        return requestDirectionsAsync(parkingLotLocationLatLng, destinationLatLng, TravelMode.WALKING, UpstreamScheduler.Priority.LOW)
+                .thenApply(directions -> new WalkingPath(directions.routes[0], directions.routes[0].legs[0].duration.inSeconds / 60));
+    }
+
+    /**
+     * Requests directions within the Directions quota, sharing the identical request in flight when there is one.
+     */
+    private DirectionsResult requestDirections(LatLng origin, LatLng destination, TravelMode mode, UpstreamScheduler.Priority priority) throws ApiException, InterruptedException, IOException {
+        UpstreamCall<DirectionsResult> directions = () -> schedule(RoutePlannerMetrics.API_DIRECTIONS, priority, 1,
+                () -> getDirections(origin, destination, mode));
+        if (directionsFlight == null) {
+            return directions.call();
+        }
+        return directionsFlight.execute(new DirectionsKey(origin, destination, mode), directions);
+    }
+
+    private CompletableFuture<DirectionsResult> requestDirectionsAsync(LatLng origin, LatLng destination, TravelMode mode,
+                                                                       UpstreamScheduler.Priority priority) {
+        Supplier<CompletableFuture<DirectionsResult>> directions = () -> scheduleAsync(RoutePlannerMetrics.API_DIRECTIONS, priority, 1,
+                () -> getDirectionsAsync(origin, destination, mode));
+        if (directionsFlight == null) {
+            return directions.get();
+        }
+        return directionsFlight.executeAsync(new DirectionsKey(origin, destination, mode), directions);
+    }
+
+    /**
+     * Runs a Google Maps API call through the upstream scheduler, or right away when the scheduler is disabled.
+     *
+     * @throws UpstreamRejectedException if the quota of the API cannot serve the call in time
+     */
+    private <T> T schedule(String api, UpstreamScheduler.Priority priority, int cost, UpstreamCall<T> call) throws ApiException, InterruptedException, IOException {
+        if (upstreamScheduler == null) {
+            return call.call();
+        }
+        return upstreamScheduler.call(api, priority, cost, call);
+    }
+
+    private <T> CompletableFuture<T> scheduleAsync(String api, UpstreamScheduler.Priority priority, int cost,
+                                                   Supplier<CompletableFuture<T>> call) {
+        if (upstreamScheduler == null) {
+            return call.get();
+        }
+        return upstreamScheduler.callAsync(api, priority, cost, call);
+    }
+
     /**
      * Checks if the given latitude and longitude are within the boundaries of Israel.
      *
@@ -237,37 +1692,122 @@ public class RoutePlannerService {
                 longitude >= TEL_AVIV_MIN_LON && longitude <= TEL_AVIV_MAX_LON;
     }
 
+    /**
+     * Finds the name of the known parking lot closest to a location, within 150 meters.
+     *
+     * @param inputParkingLotLocation the location of a parking lot, e.g. as found by Google Places
+     * @return the name of the parking lot in allParkingLotsLocations.json, or null if no parking lot is close enough
+     */
     public static String findBestMatch(LatLng inputParkingLotLocation) {
-        String closestName = null;
-        double closestDistance = Double.MAX_VALUE;
+        return parkingLotDataset.getMatcher().findBestMatch(inputParkingLotLocation);
+    }
+
+    /**
+     * @return the parking lots the routes are currently planned through
+     */
+    public static ParkingLotDataset getParkingLotDataset() {
+        return parkingLotDataset;
+    }
 
-        for (String name : allParkingLotsLocations.keySet()) {
-            LatLng parkingLotLocation = allParkingLotsLocations.get(name);
-            double distance = distance(inputParkingLotLocation, parkingLotLocation);
+    /**
+     * Replaces the parking lots the routes are planned through. Requests in flight finish with the parking lots
+     * they started with.
+     *
+     * @param dataset the new parking lots
+     */
+    static void setParkingLotDataset(ParkingLotDataset dataset) {
+        parkingLotDataset = Objects.requireNonNull(dataset);
+    }
 
-            if (distance <= 150 && distance < closestDistance) {
-                closestName = name;
-                closestDistance = distance;
-            }
+    /**
+     * Applies a reloaded dataset of parking lots. The cached walking paths, driving paths and route plans lead to
+     * the parking lots by name, so they are dropped: a moved or renamed parking lot is never served from them.
+     *
+     * @param dataset the reloaded parking lots
+     */
+    private void reloadParkingLotDataset(ParkingLotDataset dataset) {
+        setParkingLotDataset(dataset);
+        if (walkingPathCache != null) {
+            walkingPathCache.invalidateAll();
+        }
+        if (drivingPathCache != null) {
+            drivingPathCache.invalidateAll();
+        }
+        if (routePlanCache != null) {
+            routePlanCache.invalidateAll();
         }
-
-        return closestName;
     }
 
+    /**
+     * Calculates the great-circle distance between two locations.
+     *
+     * @param inputParkingLotLocation the first location
+     * @param parkingLotLocation      the second location
+     * @return the distance in meters
+     */
     public static double distance(LatLng inputParkingLotLocation, LatLng parkingLotLocation) {
-        double lat1 = inputParkingLotLocation.lat;
-        double lon1 = inputParkingLotLocation.lng;
-        double lat2 = parkingLotLocation.lat;
-        double lon2 = parkingLotLocation.lng;
-        double dLat = Math.toRadians(lat2 - lat1);
-        double dLon = Math.toRadians(lon2 - lon1);
+        return ParkingLotMatcher.distance(inputParkingLotLocation.lat, inputParkingLotLocation.lng,
+                parkingLotLocation.lat, parkingLotLocation.lng);
+    }
+
+    /**
+     * Addresses that normalize to nothing, e.g. punctuation only, are keyed as they are.
+     */
+    private static String geocodeKey(String address) {
+        String normalized = AddressNormalizer.normalize(address);
+        return normalized.isEmpty() ? address : normalized;
+    }
+
+    /**
+     * The state of a single route request: the rejection of its skipped legs, the plan of its batch, if any,
+     * and the occupancy snapshot it started with, if the occupancy is tracked.
+     */
+    private static final class RouteSearch {
+        private final RouteBatchPlan plan;
+        private final Map<String, ParkingLotStatus> statuses;
+        private final AtomicReference<UpstreamRejectedException> rejection = new AtomicReference<>();
+
+        RouteSearch(RouteBatchPlan plan, Map<String, ParkingLotStatus> statuses) {
+            this.plan = plan;
+            this.statuses = statuses;
+        }
+
+        ParkingLotStatus statusOf(Place parkingLot) {
+            return statuses == null ? null : statuses.getOrDefault(parkingLot.getName(), ParkingLotStatus.NO_INFORMATION);
+        }
+
+        <T> T share(Object key, UpstreamCall<T> call) throws ApiException, InterruptedException, IOException {
+            return plan == null ? call.call() : plan.share(key, call);
+        }
+    }
 
-        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
-                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
-                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+    private record RouteRequestKey(String origin, String destination, int limit) {
+    }
+
+    private record Endpoints(Place origin, Place destination) {
+    }
+
+    private record ParkingLotPartition(List<Place> full, List<Place> others) {
+    }
+
+    private record GeocodeKey(String normalizedAddress) {
+    }
+
+    private record LotSearchKey(LatLng destination) {
+    }
+
+    private record DrivingLegKey(LatLng origin, String parkingLot) {
+    }
+
+    private record WalkingLegKey(String parkingLot, LatLng destination) {
+    }
+
+    private record WalkingTimesKey(LatLng destination) {
+    }
 
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    private record DirectionsKey(LatLng origin, LatLng destination, TravelMode mode) {
+    }
 
-        return EARTH_RADIUS * c;
+    private record NearbySearchKey(LatLng location, int radius) {
     }
 }
@@ -0,0 +1,119 @@
+package org.example.routeplanner.service;
+
+import com.google.maps.model.LatLng;
+import org.example.routeplanner.model.Place;
+import org.example.routeplanner.model.Route;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Keeps the best routes of a single request, ordered by their total time, and decides which parking lots are
+ * still worth routing through.
+ * <p>
+ * The total time of a route through a parking lot can be no shorter than the straight-line distances of its legs
+ * covered at the maximal driving and walking speeds. Once the ranking holds {@code limit} routes, a parking lot
+ * whose lower bound is not shorter than the worst of them cannot make the ranking, so its directions are not requested.
+ */
+public class RouteRanker {
+
+    private final int limit;
+    private final double maxDrivingSpeedMetersPerMinute;
+    private final double maxWalkingSpeedMetersPerMinute;
+    private final List<Route> rankedRoutes = new ArrayList<>();
+
+    /**
+     * Constructs a ranker.
+     *
+     * @param limit              the number of routes to keep, or 0 to keep all of them
+     * @param maxDrivingSpeedKmh the speed no driving leg is faster than, along the straight line
+     * @param maxWalkingSpeedKmh the speed no walking leg is faster than, along the straight line
+     */
+    public RouteRanker(int limit, double maxDrivingSpeedKmh, double maxWalkingSpeedKmh) {
+        this.limit = limit;
+        this.maxDrivingSpeedMetersPerMinute = maxDrivingSpeedKmh * 1000 / 60;
+        this.maxWalkingSpeedMetersPerMinute = maxWalkingSpeedKmh * 1000 / 60;
+    }
+
+    /**
+     * Orders the parking lots by the lower bound of the total time of their routes, so the most promising
+     * parking lots are routed first and the ranking fills up with good routes early.
+     *
+     * @param origin      coordinates of the origin
+     * @param destination coordinates of the destination
+     * @param parkingLots the parking lots to route through
+     * @return the parking lots with their lower bounds, the smallest lower bound first
+     */
+    public List<Candidate> orderByLowerBound(LatLng origin, LatLng destination, List<Place> parkingLots) {
+        List<Candidate> candidates = new ArrayList<>(parkingLots.size());
+        for (Place parkingLot : parkingLots) {
+            candidates.add(new Candidate(parkingLot, lowerBoundMinutes(origin, parkingLot.getLocation(), destination)));
+        }
+        candidates.sort(Comparator.comparingDouble(Candidate::lowerBoundMinutes));
+        return candidates;
+    }
+
+    /**
+     * Calculates a lower bound of the total time of a route. Each leg is rounded down to whole minutes,
+     * like the times of the legs requested from Google Maps API.
+     *
+     * @param origin      coordinates of the origin
+     * @param parkingLot  coordinates of the parking lot
+     * @param destination coordinates of the destination
+     * @return the lower bound, in minutes
+     */
+    public double lowerBoundMinutes(LatLng origin, LatLng parkingLot, LatLng destination) {
+        double drivingMeters = ParkingLotMatcher.distance(origin.lat, origin.lng, parkingLot.lat, parkingLot.lng);
+        double walkingMeters = ParkingLotMatcher.distance(parkingLot.lat, parkingLot.lng, destination.lat, destination.lng);
+        return Math.floor(drivingMeters / maxDrivingSpeedMetersPerMinute) + Math.floor(walkingMeters / maxWalkingSpeedMetersPerMinute);
+    }
+
+    /**
+     * Checks if a route with the given lower bound can still make the ranking.
+     *
+     * @param lowerBoundMinutes the lower bound of the total time of the route
+     * @return false if the ranking is full and its worst route is not slower than the lower bound
+     */
+    public boolean canEnterRanking(double lowerBoundMinutes) {
+        return limit <= 0 || rankedRoutes.size() < limit
+                || lowerBoundMinutes < rankedRoutes.get(rankedRoutes.size() - 1).getTotalTime();
+    }
+
+    /**
+     * Adds a route to the ranking, dropping the worst route when the ranking is over its limit.
+     * Routes with the same total time keep the order they were offered in.
+     *
+     * @param route the route to rank
+     */
+    public void offer(Route route) {
+        int position = rankedRoutes.size();
+        while (position > 0 && rankedRoutes.get(position - 1).getTotalTime() > route.getTotalTime()) {
+            position--;
+        }
+        rankedRoutes.add(position, route);
+        if (limit > 0 && rankedRoutes.size() > limit) {
+            rankedRoutes.remove(rankedRoutes.size() - 1);
+        }
+    }
+
+    /**
+     * @return the number of routes to keep, or 0 if all of them are kept
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return the ranked routes, the shortest total time first
+     */
+    public List<Route> getRankedRoutes() {
+        return new ArrayList<>(rankedRoutes);
+    }
+
+    /**
+     * A parking lot to route through, with the lower bound of the total time of its route.
+     */
+    public record Candidate(Place parkingLot, double lowerBoundMinutes) {
+    }
+}
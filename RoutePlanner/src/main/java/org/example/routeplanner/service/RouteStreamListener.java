@@ -0,0 +1,18 @@
+package org.example.routeplanner.service;
+
+import org.example.routeplanner.model.RouteStreamSummary;
+
+/**
+ * Receives a stream of routes found in the background: each route as soon as it is ready,
+ * and then either the summary of the final ranking or the error that ended the stream.
+ */
+public interface RouteStreamListener extends RouteListener {
+
+    void onComplete(RouteStreamSummary summary);
+
+    /**
+     * @param e an IllegalArgumentException for an invalid request, or a ResourceAccessException
+     *          if there is an issue accessing Google Maps API
+     */
+    void onError(RuntimeException e);
+}
@@ -0,0 +1,45 @@
+package org.example.routeplanner.service;
+
+import com.google.maps.errors.ApiException;
+import com.google.maps.model.DirectionsResult;
+import com.google.maps.model.LatLng;
+import com.google.maps.model.TravelMode;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Answers the directions requests behind the driving and walking paths of the routes.
+ */
+public interface RoutingProvider {
+
+    /**
+     * Retrieves directions (route) information from an origin to a destination.
+     *
+     * @param origin      starting point of the route
+     * @param destination destination point of the route
+     * @param mode        mode of travel (e.g., driving, walking)
+     * @return DirectionsResult object with at least one route of a single leg
+     * @throws ApiException         if the directions cannot be found
+     * @throws InterruptedException if the thread executing the task is interrupted
+     * @throws IOException          if an I/O error occurs
+     */
+    DirectionsResult getDirections(LatLng origin, LatLng destination, TravelMode mode) throws ApiException, InterruptedException, IOException;
+
+    /**
+     * Retrieves directions like {@link #getDirections}, without blocking the calling thread on a remote call.
+     * Providers that answer locally compute the directions on the calling thread.
+     *
+     * @param origin      starting point of the route
+     * @param destination destination point of the route
+     * @param mode        mode of travel (e.g., driving, walking)
+     * @return the future of the DirectionsResult, failed with the exception {@link #getDirections} would throw
+     */
+    default CompletableFuture<DirectionsResult> getDirectionsAsync(LatLng origin, LatLng destination, TravelMode mode) {
+        try {
+            return CompletableFuture.completedFuture(getDirections(origin, destination, mode));
+        } catch (ApiException | InterruptedException | IOException | RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
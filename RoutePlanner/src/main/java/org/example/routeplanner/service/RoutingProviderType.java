@@ -0,0 +1,15 @@
+package org.example.routeplanner.service;
+
+/**
+ * Defines which {@link RoutingProvider} answers the directions requests of {@link RoutePlannerService}.
+ */
+public enum RoutingProviderType {
+    /**
+     * Google Maps Directions API, with live traffic.
+     */
+    GOOGLE,
+    /**
+     * A* on a road graph loaded from a local OpenStreetMap extract, without any network call.
+     */
+    LOCAL
+}
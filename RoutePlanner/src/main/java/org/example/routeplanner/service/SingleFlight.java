@@ -0,0 +1,156 @@
+package org.example.routeplanner.service;
+
+import com.google.maps.errors.ApiException;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces identical concurrent calls: the first caller of a key runs the call, and the callers of the same key
+ * that arrive while it is in flight wait for its result instead of making the call again.
+ * Nothing is cached: once the call completes, the next caller of the key makes a new call.
+ *
+ * @param <K> the type of the keys identifying identical calls
+ * @param <V> the type of the results
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder waiters = new LongAdder();
+
+    /**
+     * Runs a call, or waits for the identical call in flight.
+     * The waiters get the same result as the caller that ran the call, or the same exception. When the caller that ran
+     * the call was interrupted, one waiter runs the call again instead, and the others wait for it.
+     *
+     * @param key  identifies identical calls
+     * @param call the call to run when no identical call is in flight
+     * @return the result of the call
+     * @throws ApiException         if the Google Maps API request fails
+     * @throws InterruptedException if the thread executing the task is interrupted
+     * @throws IOException          if an I/O error occurs
+     */
+    public V execute(K key, UpstreamCall<V> call) throws ApiException, InterruptedException, IOException {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existingFlight;
+        while ((existingFlight = inFlight.putIfAbsent(key, flight)) != null) {
+            waiters.increment();
+            if (!ownerInterrupted(existingFlight)) {
+                return await(existingFlight);
+            }
+            // The caller that ran the call was interrupted, not this one, so the first waiter to get here runs the
+            // call again and the others wait for it
+            inFlight.remove(key, existingFlight);
+        }
+
+        calls.increment();
+        try {
+            V result = call.call();
+            flight.complete(result);
+            return result;
+        } catch (ApiException | InterruptedException | IOException | RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    /**
+     * Starts a call that completes asynchronously, or joins the identical call in flight, without blocking.
+     * Cancelling the returned future does not cancel the call, which other callers may be waiting for.
+     *
+     * @param key  identifies identical calls
+     * @param call starts the call when no identical call is in flight
+     * @return the future of the result of the call
+     */
+    public CompletableFuture<V> executeAsync(K key, Supplier<CompletableFuture<V>> call) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existingFlight = inFlight.putIfAbsent(key, flight);
+        if (existingFlight != null) {
+            waiters.increment();
+            return existingFlight.copy();
+        }
+
+        calls.increment();
+        CompletableFuture<V> started;
+        try {
+            started = call.get();
+        } catch (RuntimeException | Error e) {
+            // The call failed before it was started, so the waiters that joined it fail with it
+            inFlight.remove(key, flight);
+            flight.completeExceptionally(e);
+            return flight.copy();
+        }
+        started.whenComplete((result, e) -> {
+            inFlight.remove(key, flight);
+            if (e != null) {
+                flight.completeExceptionally(PendingResults.unwrap(e));
+            } else {
+                flight.complete(result);
+            }
+        });
+        return flight.copy();
+    }
+
+    /**
+     * Waits for a call in flight to complete.
+     *
+     * @return whether the call failed because the caller that ran it was interrupted
+     */
+    static boolean ownerInterrupted(CompletableFuture<?> flight) throws InterruptedException {
+        try {
+            flight.get();
+            return false;
+        } catch (ExecutionException e) {
+            return e.getCause() instanceof InterruptedException;
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> flight) throws ApiException, InterruptedException, IOException {
+        try {
+            return flight.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ApiException apiException) {
+                throw apiException;
+            }
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * @return the number of calls that were made
+     */
+    public long getCallCount() {
+        return calls.sum();
+    }
+
+    /**
+     * @return the number of callers that waited for an identical call in flight instead of making it
+     */
+    public long getWaiterCount() {
+        return waiters.sum();
+    }
+
+    /**
+     * @return the number of calls in flight right now
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+}
@@ -0,0 +1,15 @@
+package org.example.routeplanner.service;
+
+import com.google.maps.errors.ApiException;
+
+import java.io.IOException;
+
+/**
+ * A call to Google Maps API, throwing the same exceptions as {@code PendingResult.await()}.
+ *
+ * @param <T> the type of the result
+ */
+@FunctionalInterface
+public interface UpstreamCall<T> {
+    T call() throws ApiException, InterruptedException, IOException;
+}
@@ -0,0 +1,13 @@
+package org.example.routeplanner.service;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Thrown when the {@link UpstreamScheduler} rejects a call to Google Maps API because its quota cannot serve it in time.
+ */
+public class UpstreamRejectedException extends RejectedExecutionException {
+
+    public UpstreamRejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,336 @@
+package org.example.routeplanner.service;
+
+import com.google.maps.errors.ApiException;
+import org.example.routeplanner.RoutePlannerProperties;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Schedules the calls to Google Maps APIs within their quotas. Each API has a token bucket that refills at the rate
+ * of its quota, and a call takes as many tokens as it costs (one per request, or one per element of a Distance Matrix).
+ * <p>
+ * When the bucket is empty, calls wait in a bounded queue ordered by their {@link Priority}, so the geocoding and the
+ * lot search of a new request overtake the optional legs of the requests already running. A call is rejected with an
+ * {@link UpstreamRejectedException} as soon as the queue is full of calls of the same or a higher priority, or when the
+ * tokens of the calls ahead of it cannot refill before the maximal wait of its priority; it is never left to wait for a
+ * slot it cannot get. A call that finds the queue full of lower priority calls takes the place of the last of them,
+ * which is rejected instead.
+ * <p>
+ * Asynchronous calls do not wait in the queue, which would hold a thread: they take their tokens in advance,
+ * leaving the bucket in debt, and start once the debt would have refilled. The calls behind them wait for the debt
+ * like for any other tokens, so the rate of the API holds whichever way its calls are made.
+ */
+public class UpstreamScheduler {
+
+    /**
+     * The priority of a call: calls of a higher priority are scheduled first and may wait longer.
+     */
+    public enum Priority {
+        /** Calls every route request needs first: geocoding and the lot search. */
+        HIGH,
+        /** Calls a route request needs to return anything: the Distance Matrix and the paths requested on demand. */
+        NORMAL,
+        /** Calls of a single route, which is left out or returned without its directions when the call is rejected. */
+        LOW
+    }
+
+    private final Map<String, Lane> lanes = new HashMap<>();
+    private final Map<Priority, Long> maxWaitNanos = new HashMap<>();
+    private final RoutePlannerMetrics metrics;
+
+    /**
+     * Creates the scheduler of the configured quotas.
+     *
+     * @param scheduler the quotas, queue capacity and maximal waits
+     * @param metrics   records the queue depth, the wait times and the rejections
+     */
+    public UpstreamScheduler(RoutePlannerProperties.Scheduler scheduler, RoutePlannerMetrics metrics) {
+        this.metrics = metrics;
+        addLane(RoutePlannerMetrics.API_GEOCODING, scheduler.getGeocoding(), scheduler.getQueueCapacity());
+        addLane(RoutePlannerMetrics.API_PLACES_NEARBY, scheduler.getPlacesNearby(), scheduler.getQueueCapacity());
+        addLane(RoutePlannerMetrics.API_DIRECTIONS, scheduler.getDirections(), scheduler.getQueueCapacity());
+        addLane(RoutePlannerMetrics.API_DISTANCE_MATRIX, scheduler.getDistanceMatrix(), scheduler.getQueueCapacity());
+        maxWaitNanos.put(Priority.HIGH, scheduler.getMaxWaitHigh().toNanos());
+        maxWaitNanos.put(Priority.NORMAL, scheduler.getMaxWaitNormal().toNanos());
+        maxWaitNanos.put(Priority.LOW, scheduler.getMaxWaitLow().toNanos());
+    }
+
+    private void addLane(String api, RoutePlannerProperties.Quota quota, int queueCapacity) {
+        if (quota.getRatePerSecond() <= 0 || quota.getBurst() < 1) {
+            throw new IllegalStateException("The quota of " + api + " needs a positive rate and a burst of at least 1");
+        }
+        Lane lane = new Lane(api, quota.getRatePerSecond(), quota.getBurst(), queueCapacity);
+        lanes.put(api, lane);
+        metrics.bindSchedulerQueue(api, lane, Lane::getQueueDepth);
+    }
+
+    /**
+     * Runs a call once its API has a token for it.
+     *
+     * @param api      one of the API_ constants of {@link RoutePlannerMetrics}
+     * @param priority the priority of the call
+     * @param call     the call
+     * @return the result of the call
+     * @throws UpstreamRejectedException if the call cannot get a token within the maximal wait of its priority
+     */
+    public <T> T call(String api, Priority priority, UpstreamCall<T> call) throws ApiException, InterruptedException, IOException {
+        return call(api, priority, 1, call);
+    }
+
+    /**
+     * Runs a call once its API has the tokens it costs.
+     *
+     * @param api      one of the API_ constants of {@link RoutePlannerMetrics}
+     * @param priority the priority of the call
+     * @param cost     the tokens the call takes, e.g. the elements of a Distance Matrix
+     * @param call     the call
+     * @return the result of the call
+     * @throws UpstreamRejectedException if the call cannot get its tokens within the maximal wait of its priority
+     */
+    public <T> T call(String api, Priority priority, int cost, UpstreamCall<T> call) throws ApiException, InterruptedException, IOException {
+        Lane lane = lanes.get(api);
+        if (lane == null) {
+            throw new IllegalArgumentException("Unknown API " + api);
+        }
+        long waitedNanos = lane.acquire(priority, cost, maxWaitNanos.get(priority));
+        metrics.recordSchedulerWait(api, priority, waitedNanos);
+        return call.call();
+    }
+
+    /**
+     * Starts an asynchronous call once its API has the tokens it costs, without blocking the calling thread.
+     *
+     * @param api      one of the API_ constants of {@link RoutePlannerMetrics}
+     * @param priority the priority of the call
+     * @param cost     the tokens the call takes, e.g. the elements of a Distance Matrix
+     * @param call     starts the call
+     * @return the future of the result of the call, failed with an {@link UpstreamRejectedException} if the call
+     * cannot get its tokens within the maximal wait of its priority
+     */
+    public <T> CompletableFuture<T> callAsync(String api, Priority priority, int cost, Supplier<CompletableFuture<T>> call) {
+        Lane lane = lanes.get(api);
+        if (lane == null) {
+            throw new IllegalArgumentException("Unknown API " + api);
+        }
+        long delayNanos;
+        try {
+            delayNanos = lane.reserve(priority, cost, maxWaitNanos.get(priority));
+        } catch (UpstreamRejectedException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        metrics.recordSchedulerWait(api, priority, delayNanos);
+        if (delayNanos == 0) {
+            return call.get();
+        }
+        Executor delayed = CompletableFuture.delayedExecutor(delayNanos, TimeUnit.NANOSECONDS);
+        return CompletableFuture.runAsync(() -> {}, delayed).thenCompose(ignored -> call.get());
+    }
+
+    /**
+     * @return the calls waiting for a token of an API
+     */
+    public int getQueueDepth(String api) {
+        return lanes.get(api).getQueueDepth();
+    }
+
+    /**
+     * A token bucket and the queue of the calls waiting for its tokens.
+     */
+    private final class Lane {
+        private final String api;
+        private final double tokensPerNano;
+        private final double burst;
+        private final int queueCapacity;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition changed = lock.newCondition();
+        private final PriorityQueue<Waiter> queue = new PriorityQueue<>(
+                Comparator.comparing(Waiter::priority).thenComparingLong(Waiter::sequence));
+        private double tokens;
+        private long refilledAt;
+        private long sequence;
+
+        Lane(String api, double ratePerSecond, int burst, int queueCapacity) {
+            this.api = api;
+            this.tokensPerNano = ratePerSecond / TimeUnit.SECONDS.toNanos(1);
+            this.burst = burst;
+            this.queueCapacity = queueCapacity;
+            this.tokens = burst;
+            this.refilledAt = System.nanoTime();
+        }
+
+        /**
+         * Takes the tokens of a call, waiting for them behind the calls of the same or a higher priority.
+         *
+         * @return how long the call waited, in nanoseconds
+         */
+        long acquire(Priority priority, int cost, long maxWaitNanos) throws InterruptedException {
+            // A call can never cost more than a full bucket
+            double tokensNeeded = Math.min(cost, burst);
+            lock.lock();
+            try {
+                long start = System.nanoTime();
+                refill(start);
+                if (queue.isEmpty() && tokens >= tokensNeeded) {
+                    tokens -= tokensNeeded;
+                    return 0;
+                }
+                double tokensAhead = tokensNeeded;
+                for (Waiter waiter : queue) {
+                    if (waiter.priority().compareTo(priority) <= 0) {
+                        tokensAhead += waiter.tokens();
+                    }
+                }
+                if ((tokensAhead - tokens) / tokensPerNano > maxWaitNanos) {
+                    throw reject(priority, "quota cannot serve it in time");
+                }
+                makeRoom(priority);
+
+                Waiter self = new Waiter(priority, sequence++, tokensNeeded);
+                queue.add(self);
+                try {
+                    long deadline = start + maxWaitNanos;
+                    while (true) {
+                        long now = System.nanoTime();
+                        refill(now);
+                        if (self.evicted) {
+                            throw reject(priority, "queue is full");
+                        }
+                        if (queue.peek() == self && tokens >= tokensNeeded) {
+                            queue.poll();
+                            tokens -= tokensNeeded;
+                            changed.signalAll();
+                            return now - start;
+                        }
+                        if (now >= deadline) {
+                            queue.remove(self);
+                            changed.signalAll();
+                            throw reject(priority, "quota cannot serve it in time");
+                        }
+                        long waitNanos = deadline - now;
+                        if (queue.peek() == self) {
+                            waitNanos = Math.min(waitNanos, (long) Math.ceil((tokensNeeded - tokens) / tokensPerNano));
+                        }
+                        changed.awaitNanos(Math.max(1, waitNanos));
+                    }
+                } catch (InterruptedException e) {
+                    queue.remove(self);
+                    changed.signalAll();
+                    throw e;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Takes the tokens of a call right away, running into debt when the bucket is short of them.
+         *
+         * @return how long the call has to wait before it starts, in nanoseconds
+         */
+        long reserve(Priority priority, int cost, long maxWaitNanos) {
+            double tokensNeeded = Math.min(cost, burst);
+            lock.lock();
+            try {
+                refill(System.nanoTime());
+                if (queue.isEmpty() && tokens >= tokensNeeded) {
+                    tokens -= tokensNeeded;
+                    return 0;
+                }
+                double tokensAhead = tokensNeeded;
+                for (Waiter waiter : queue) {
+                    if (waiter.priority().compareTo(priority) <= 0) {
+                        tokensAhead += waiter.tokens();
+                    }
+                }
+                long waitNanos = (long) Math.ceil((tokensAhead - tokens) / tokensPerNano);
+                if (waitNanos > maxWaitNanos) {
+                    throw reject(priority, "quota cannot serve it in time");
+                }
+                makeRoom(priority);
+                tokens -= tokensNeeded;
+                return waitNanos;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Makes room in a full queue for a call by rejecting the last waiter of a lower priority, so a burst of
+         * low priority calls never locks the calls of a higher priority out of the queue.
+         *
+         * @throws UpstreamRejectedException if the queue is full of calls of the same or a higher priority
+         */
+        private void makeRoom(Priority priority) {
+            if (queue.size() < queueCapacity) {
+                return;
+            }
+            Waiter last = null;
+            for (Waiter waiter : queue) {
+                if (last == null || queue.comparator().compare(waiter, last) > 0) {
+                    last = waiter;
+                }
+            }
+            if (last == null || last.priority().compareTo(priority) <= 0) {
+                throw reject(priority, "queue is full");
+            }
+            queue.remove(last);
+            last.evicted = true;
+            changed.signalAll();
+        }
+
+        private void refill(long now) {
+            tokens = Math.min(burst, tokens + (now - refilledAt) * tokensPerNano);
+            refilledAt = now;
+        }
+
+        private UpstreamRejectedException reject(Priority priority, String reason) {
+            metrics.countSchedulerRejection(api, priority);
+            return new UpstreamRejectedException("Google Maps API quota exceeded: the " + api + " " + reason);
+        }
+
+        int getQueueDepth() {
+            lock.lock();
+            try {
+                return queue.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static final class Waiter {
+        private final Priority priority;
+        private final long sequence;
+        private final double tokens;
+        /** Set, under the lock of the lane, when a call of a higher priority took the place of the waiter. */
+        private boolean evicted;
+
+        private Waiter(Priority priority, long sequence, double tokens) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.tokens = tokens;
+        }
+
+        Priority priority() {
+            return priority;
+        }
+
+        long sequence() {
+            return sequence;
+        }
+
+        double tokens() {
+            return tokens;
+        }
+    }
+}
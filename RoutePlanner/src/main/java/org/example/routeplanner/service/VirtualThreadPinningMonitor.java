@@ -0,0 +1,107 @@
+package org.example.routeplanner.service;
+
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.example.routeplanner.RoutePlannerProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reports the virtual threads that stay pinned to their carrier thread, e.g. while a request blocks inside the
+ * synchronized code of the Google Maps client or of OkHttp. A pinned virtual thread holds its carrier, one of
+ * the few platform threads all the virtual threads share, so a pinning site on the hot path caps the throughput
+ * like a pool of platform threads would.
+ * <p>
+ * The pinnings are read from the {@code jdk.VirtualThreadPinned} JFR events, in-process, and recorded in
+ * {@code routeplanner.virtual.threads.pinned} by site: the first class on the stack outside of the JDK.
+ * The first pinning of each site is logged with its stack trace.
+ */
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadPinningMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final List<String> JDK_PACKAGES = List.of("java.", "javax.", "jdk.", "sun.");
+
+    private final RoutePlannerMetrics metrics;
+    private final Set<String> loggedSites = ConcurrentHashMap.newKeySet();
+    private RecordingStream recording;
+
+    /**
+     * Starts monitoring the pinnings that last longer than {@code routeplanner.threads.pinned-threshold}.
+     *
+     * @param properties the route planner configuration
+     * @param metrics    records the pinnings
+     */
+    @Autowired
+    public VirtualThreadPinningMonitor(RoutePlannerProperties properties, RoutePlannerMetrics metrics) {
+        this.metrics = metrics;
+        try {
+            recording = new RecordingStream();
+            recording.enable(PINNED_EVENT).withThreshold(properties.getThreads().getPinnedThreshold()).withStackTrace();
+            recording.onEvent(PINNED_EVENT, this::onPinned);
+            recording.startAsync();
+        } catch (RuntimeException e) {
+            // JFR is not available in every runtime, e.g. a native image built without it
+            logger.warn("Cannot monitor the pinning of virtual threads: {}", e.toString());
+            recording = null;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (recording != null) {
+            recording.close();
+        }
+    }
+
+    private void onPinned(RecordedEvent event) {
+        String site = siteOf(event.getStackTrace());
+        metrics.recordVirtualThreadPinned(site, event.getDuration());
+        if (loggedSites.add(site)) {
+            logger.warn("A virtual thread was pinned to its carrier thread for {} ms in {}:{}",
+                    event.getDuration().toMillis(), site, format(event.getStackTrace()));
+        }
+    }
+
+    /**
+     * @return the first class on the stack outside of the JDK, which blocked while pinned
+     */
+    static String siteOf(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return "unknown";
+        }
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            String className = frame.getMethod().getType().getName();
+            if (JDK_PACKAGES.stream().noneMatch(className::startsWith)) {
+                return className;
+            }
+        }
+        return "jdk";
+    }
+
+    private static String format(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return " no stack trace";
+        }
+        StringBuilder frames = new StringBuilder();
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            frames.append(System.lineSeparator()).append("\tat ")
+                    .append(frame.getMethod().getType().getName()).append('.').append(frame.getMethod().getName())
+                    .append(':').append(frame.getLineNumber());
+        }
+        return frames.toString();
+    }
+}
@@ -0,0 +1,113 @@
+package org.example.routeplanner.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.maps.model.DirectionsLeg;
+import com.google.maps.model.DirectionsRoute;
+import com.google.maps.model.DirectionsStep;
+import com.google.maps.model.LatLng;
+import org.example.routeplanner.model.WalkingPath;
+
+import java.time.Duration;
+
+/**
+ * Cache of the walking paths from the parking lots to the destinations. The walking path from a parking lot
+ * barely changes over time, so it is kept for a long TTL and shared by all the destinations in the same
+ * grid cell. Entries are evicted by least recent use once their estimated memory weight exceeds the budget.
+ */
+public class WalkingPathCache {
+
+    private final Cache<WalkingLegKey, WalkingPath> cache;
+    private final double cellSizeMeters;
+
+    /**
+     * Constructs a walking path cache.
+     *
+     * @param maximumWeightBytes the memory budget of the cache, in estimated bytes
+     * @param ttl                how long a walking path is kept
+     * @param cellSizeMeters     the side of the grid cells the destinations are snapped to
+     */
+    public WalkingPathCache(long maximumWeightBytes, Duration ttl, double cellSizeMeters) {
+        this.cellSizeMeters = cellSizeMeters;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximumWeightBytes)
+                .weigher((WalkingLegKey key, WalkingPath walkingPath) -> estimateWeight(walkingPath))
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the cached walking path from a parking lot to the cell of a destination.
+     *
+     * @param parkingLotName the normalized name of the parking lot
+     * @param destination    coordinates of the destination
+     * @return a copy of the cached walking path, or null if there is none
+     */
+    public WalkingPath get(String parkingLotName, LatLng destination) {
+        WalkingPath walkingPath = cache.getIfPresent(new WalkingLegKey(parkingLotName, GeoGrid.cellOf(destination, cellSizeMeters)));
+        // Routes may fill in or replace the directions of their paths, so each route gets its own copy
+        return walkingPath == null ? null : new WalkingPath(walkingPath.getDirectionsRoute(), walkingPath.getTotalTime());
+    }
+
+    /**
+     * Caches the walking path from a parking lot to the cell of a destination.
+     *
+     * @param parkingLotName the normalized name of the parking lot
+     * @param destination    coordinates of the destination
+     * @param walkingPath    the walking path, with its directions
+     */
+    public void put(String parkingLotName, LatLng destination, WalkingPath walkingPath) {
+        cache.put(new WalkingLegKey(parkingLotName, GeoGrid.cellOf(destination, cellSizeMeters)),
+                new WalkingPath(walkingPath.getDirectionsRoute(), walkingPath.getTotalTime()));
+    }
+
+    public long getHitCount() {
+        return cache.stats().hitCount();
+    }
+
+    public long getMissCount() {
+        return cache.stats().missCount();
+    }
+
+    /**
+     * Drops every entry, e.g. once the parking lots they lead to were reloaded.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public long getSize() {
+        return cache.estimatedSize();
+    }
+
+    /**
+     * Estimates the memory held by a walking path from the sizes of its strings and steps.
+     */
+    private static int estimateWeight(WalkingPath walkingPath) {
+        long weight = 256;
+        DirectionsRoute route = walkingPath.getDirectionsRoute();
+        if (route != null) {
+            weight += 512;
+            if (route.overviewPolyline != null) {
+                weight += 2L * route.overviewPolyline.getEncodedPath().length();
+            }
+            for (DirectionsLeg leg : route.legs == null ? new DirectionsLeg[0] : route.legs) {
+                weight += 512;
+                for (DirectionsStep step : leg.steps == null ? new DirectionsStep[0] : leg.steps) {
+                    weight += 384;
+                    if (step.htmlInstructions != null) {
+                        weight += 2L * step.htmlInstructions.length();
+                    }
+                    if (step.polyline != null) {
+                        weight += 2L * step.polyline.getEncodedPath().length();
+                    }
+                }
+            }
+        }
+        return (int) Math.min(weight, Integer.MAX_VALUE);
+    }
+
+    private record WalkingLegKey(String parkingLotName, long destinationCell) {
+    }
+}
@@ -0,0 +1,180 @@
+package org.example.routeplanner.service;
+
+import com.google.maps.model.LatLng;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Precomputed walking times from every parking lot to every cell of a grid over Tel Aviv, read from a
+ * memory-mapped file, so a walking time is a single array read instead of a Google Maps API request.
+ * The file is produced offline by {@link WalkingTimeMatrixGenerator}; the operating system pages it in on demand
+ * and shares it between the processes that map it, so it takes no heap.
+ * <p>
+ * File layout, big-endian:
+ * <pre>
+ * int    magic ("WTM1")
+ * double minLatitude, minLongitude, maxLatitude, maxLongitude, cellSizeMeters
+ * int    rows, columns, parkingLotCount
+ * per parking lot: unsigned short nameLength, nameLength bytes of UTF-8 name
+ * per parking lot, per row, per column: unsigned short walking seconds, 65535 if unknown
+ * </pre>
+ */
+public class WalkingTimeMatrix {
+
+    static final int MAGIC = 0x57544D31;
+    static final int UNKNOWN = 0xFFFF;
+
+
+    private final ByteBuffer matrix;
+    private final Map<String, Integer> parkingLots;
+    private final double minLatitude;
+    private final double minLongitude;
+    private final double cellHeightDegrees;
+    private final double cellWidthDegrees;
+    private final int rows;
+    private final int columns;
+
+    private WalkingTimeMatrix(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < 4 + 5 * 8 + 3 * 4 || buffer.getInt() != MAGIC) {
+            throw new IOException("Not a walking time matrix file");
+        }
+        minLatitude = buffer.getDouble();
+        minLongitude = buffer.getDouble();
+        double maxLatitude = buffer.getDouble();
+        buffer.getDouble();
+        double cellSizeMeters = buffer.getDouble();
+        rows = buffer.getInt();
+        columns = buffer.getInt();
+        int parkingLotCount = buffer.getInt();
+        cellHeightDegrees = cellSizeMeters / ParkingLotMatcher.METERS_PER_DEGREE_OF_LATITUDE;
+        cellWidthDegrees = cellSizeMeters / metersPerDegreeOfLongitude(minLatitude, maxLatitude);
+
+        parkingLots = new HashMap<>(parkingLotCount * 2);
+        for (int i = 0; i < parkingLotCount; i++) {
+            byte[] name = new byte[Short.toUnsignedInt(buffer.getShort())];
+            buffer.get(name);
+            parkingLots.put(new String(name, StandardCharsets.UTF_8), i);
+        }
+        if (buffer.remaining() != 2L * parkingLotCount * rows * columns) {
+            throw new IOException("Truncated walking time matrix file");
+        }
+        matrix = buffer.slice();
+    }
+
+    /**
+     * Maps a walking time matrix file into memory.
+     *
+     * @param file the file written by {@link #write}
+     * @return the walking time matrix
+     * @throws IOException if the file cannot be read or is not a walking time matrix
+     */
+    public static WalkingTimeMatrix load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            return new WalkingTimeMatrix(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.BIG_ENDIAN));
+        }
+    }
+
+    /**
+     * Looks up the walking time from a parking lot to the cell of a destination.
+     *
+     * @param parkingLotName the normalized name of the parking lot
+     * @param destination    coordinates of the destination
+     * @return the walking time in seconds, or -1 if the parking lot is not in the matrix, the destination is
+     * outside of its grid or no walking path was found
+     */
+    public int walkingSeconds(String parkingLotName, LatLng destination) {
+        Integer parkingLot = parkingLots.get(parkingLotName);
+        int row = (int) Math.floor((destination.lat - minLatitude) / cellHeightDegrees);
+        int column = (int) Math.floor((destination.lng - minLongitude) / cellWidthDegrees);
+        if (parkingLot == null || row < 0 || row >= rows || column < 0 || column >= columns) {
+            return -1;
+        }
+        int seconds = matrix.getChar((int) (2 * (((long) parkingLot * rows + row) * columns + column)));
+        return seconds == UNKNOWN ? -1 : seconds;
+    }
+
+    public int getParkingLotCount() {
+        return parkingLots.size();
+    }
+
+    public int getCellCount() {
+        return rows * columns;
+    }
+
+    /**
+     * Writes a walking time matrix file, replacing the existing file atomically.
+     *
+     * @param file            the file to write
+     * @param grid            the grid of the destinations
+     * @param parkingLotNames the normalized names of the parking lots
+     * @param walkingSeconds  the walking seconds of each parking lot to each cell of the grid, row by row,
+     *                        {@link #UNKNOWN} if unknown, in the order of the parking lots
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Path file, Grid grid, List<String> parkingLotNames, List<char[]> walkingSeconds) throws IOException {
+        Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile), 1 << 16))) {
+            output.writeInt(MAGIC);
+            output.writeDouble(grid.minLatitude());
+            output.writeDouble(grid.minLongitude());
+            output.writeDouble(grid.maxLatitude());
+            output.writeDouble(grid.maxLongitude());
+            output.writeDouble(grid.cellSizeMeters());
+            output.writeInt(grid.rows());
+            output.writeInt(grid.columns());
+            output.writeInt(parkingLotNames.size());
+            for (String name : parkingLotNames) {
+                byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+                output.writeShort(bytes.length);
+                output.write(bytes);
+            }
+            for (char[] parkingLotSeconds : walkingSeconds) {
+                for (char seconds : parkingLotSeconds) {
+                    output.writeChar(seconds);
+                }
+            }
+        }
+        Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static double metersPerDegreeOfLongitude(double minLatitude, double maxLatitude) {
+        return ParkingLotMatcher.METERS_PER_DEGREE_OF_LATITUDE * Math.cos(Math.toRadians((minLatitude + maxLatitude) / 2));
+    }
+
+    /**
+     * A grid of square cells over a bounding box, the cells of each row west to east and the rows south to north.
+     */
+    public record Grid(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude, double cellSizeMeters) {
+
+        public int rows() {
+            return (int) Math.ceil((maxLatitude - minLatitude) * ParkingLotMatcher.METERS_PER_DEGREE_OF_LATITUDE / cellSizeMeters);
+        }
+
+        public int columns() {
+            return (int) Math.ceil((maxLongitude - minLongitude) * metersPerDegreeOfLongitude(minLatitude, maxLatitude) / cellSizeMeters);
+        }
+
+        /**
+         * @return the location of the center of a cell
+         */
+        public LatLng centerOf(int row, int column) {
+            return new LatLng(
+                    minLatitude + (row + 0.5) * cellSizeMeters / ParkingLotMatcher.METERS_PER_DEGREE_OF_LATITUDE,
+                    minLongitude + (column + 0.5) * cellSizeMeters / metersPerDegreeOfLongitude(minLatitude, maxLatitude));
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package org.example.routeplanner.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.maps.model.LatLng;
+import com.google.maps.model.TravelMode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Generates the {@link WalkingTimeMatrix} of the parking lots on the road graph of a local OpenStreetMap extract.
+ * Each parking lot runs a single one-to-all walking search, and the walking time to a cell is the time to the
+ * walkable node closest to its center plus the straight walk from that node to the center.
+ * <p>
+ * Run it offline whenever the parking lots or the extract change, e.g.:
+ * <pre>
+ * mvn compile exec:java -Dexec.mainClass=org.example.routeplanner.service.WalkingTimeMatrixGenerator \
+ *     -Dexec.args="data/tel-aviv.osm.gz data/walking-times.bin"
+ * </pre>
+ */
+public final class WalkingTimeMatrixGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(WalkingTimeMatrixGenerator.class);
+    private static final double DEFAULT_CELL_SIZE_METERS = 50;
+    private static final double DEFAULT_WALKING_SPEED_KMH = 5;
+    // Cells farther than this from any walkable road (e.g. in the sea) get no walking time
+    private static final double DEFAULT_SNAP_RADIUS_METERS = 150;
+
+    private WalkingTimeMatrixGenerator() {
+    }
+
+    /**
+     * Generates the walking time matrix of allParkingLotsLocations.json over the Tel Aviv bounding box.
+     *
+     * @param args the OpenStreetMap extract, the output file and, optionally, the cell size in meters
+     * @throws IOException if the extract cannot be read or the matrix cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: WalkingTimeMatrixGenerator <osm-file> <output-file> [cell-size-meters]");
+            System.exit(1);
+        }
+        double cellSizeMeters = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_CELL_SIZE_METERS;
+        Map<String, LatLng> parkingLotsLocations = new ObjectMapper().readValue(
+                new File("src/main/resources/allParkingLotsLocations.json"), new TypeReference<TreeMap<String, LatLng>>() {});
+        WalkingTimeMatrix.Grid grid = new WalkingTimeMatrix.Grid(
+                RoutePlannerService.TEL_AVIV_MIN_LAT, RoutePlannerService.TEL_AVIV_MIN_LON,
+                RoutePlannerService.TEL_AVIV_MAX_LAT, RoutePlannerService.TEL_AVIV_MAX_LON, cellSizeMeters);
+
+        RoadGraph graph = OsmRoadGraphLoader.load(Path.of(args[0]));
+        generate(graph, parkingLotsLocations, grid, DEFAULT_WALKING_SPEED_KMH, DEFAULT_SNAP_RADIUS_METERS, Path.of(args[1]));
+    }
+
+    /**
+     * Generates a walking time matrix file.
+     *
+     * @param graph                the road graph
+     * @param parkingLotsLocations the location of each parking lot, by its normalized name
+     * @param grid                 the grid of the destinations
+     * @param walkingSpeedKmh      the walking speed along every walkable road
+     * @param snapRadiusMeters     the maximal distance between a parking lot or a cell center and its walkable node
+     * @param output               the file to write
+     * @throws IOException if the matrix cannot be written
+     */
+    public static void generate(RoadGraph graph, Map<String, LatLng> parkingLotsLocations, WalkingTimeMatrix.Grid grid,
+                                double walkingSpeedKmh, double snapRadiusMeters, Path output) throws IOException {
+        long start = System.nanoTime();
+        double walkingSpeedMetersPerSecond = walkingSpeedKmh / 3.6;
+        int rows = grid.rows();
+        int columns = grid.columns();
+
+        // The walkable node of each cell and the seconds of the straight walk between them, shared by all the parking lots
+        int[] cellNodes = new int[rows * columns];
+        double[] cellOffsetSeconds = new double[rows * columns];
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                int cell = row * columns + column;
+                LatLng center = grid.centerOf(row, column);
+                cellNodes[cell] = graph.snap(center.lat, center.lng, TravelMode.WALKING, snapRadiusMeters);
+                if (cellNodes[cell] >= 0) {
+                    cellOffsetSeconds[cell] = ParkingLotMatcher.distance(center.lat, center.lng,
+                            graph.getLatitude(cellNodes[cell]), graph.getLongitude(cellNodes[cell])) / walkingSpeedMetersPerSecond;
+                }
+            }
+        }
+
+        AStarRouter router = new AStarRouter(graph, walkingSpeedKmh);
+        List<String> parkingLotNames = new ArrayList<>(parkingLotsLocations.keySet());
+        List<char[]> walkingSeconds = new ArrayList<>(parkingLotNames.size());
+        for (String parkingLotName : parkingLotNames) {
+            char[] parkingLotSeconds = new char[rows * columns];
+            Arrays.fill(parkingLotSeconds, (char) WalkingTimeMatrix.UNKNOWN);
+            LatLng location = parkingLotsLocations.get(parkingLotName);
+            int source = graph.snap(location.lat, location.lng, TravelMode.WALKING, snapRadiusMeters);
+            if (source < 0) {
+                logger.warn("No walkable road within {} meters of the parking lot {}", snapRadiusMeters, parkingLotName);
+            } else {
+                double sourceOffsetSeconds = ParkingLotMatcher.distance(location.lat, location.lng,
+                        graph.getLatitude(source), graph.getLongitude(source)) / walkingSpeedMetersPerSecond;
+                double[] nodeSeconds = router.secondsFrom(source, TravelMode.WALKING);
+                for (int cell = 0; cell < cellNodes.length; cell++) {
+                    if (cellNodes[cell] >= 0) {
+                        long seconds = Math.round(sourceOffsetSeconds + nodeSeconds[cellNodes[cell]] + cellOffsetSeconds[cell]);
+                        if (seconds < WalkingTimeMatrix.UNKNOWN) {
+                            parkingLotSeconds[cell] = (char) seconds;
+                        }
+                    }
+                }
+            }
+            walkingSeconds.add(parkingLotSeconds);
+        }
+
+        WalkingTimeMatrix.write(output, grid, parkingLotNames, walkingSeconds);
+        logger.info("Generated the walking times of {} parking lots to {} cells in {} ms, {} KB",
+                parkingLotNames.size(), rows * columns, (System.nanoTime() - start) / 1_000_000,
+                2L * parkingLotNames.size() * rows * columns / 1024);
+    }
+}
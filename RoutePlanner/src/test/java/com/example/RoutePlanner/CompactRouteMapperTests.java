@@ -0,0 +1,110 @@
+package com.example.RoutePlanner;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.maps.model.EncodedPolyline;
+import com.google.maps.model.LatLng;
+import org.example.routeplanner.model.CompactRoute;
+import org.example.routeplanner.model.DrivingPath;
+import org.example.routeplanner.model.Route;
+import org.example.routeplanner.model.WalkingPath;
+import org.example.routeplanner.service.CompactRouteMapper;
+import org.example.routeplanner.service.PolylineSimplifier;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompactRouteMapperTests {
+
+    private List<Route> routes;
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        objectMapper = new ObjectMapper();
+        objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        File validOutput = new File("src/test/java/com/example/RoutePlanner/testData/validOutput.json");
+        routes = objectMapper.readValue(validOutput, new TypeReference<>() {});
+        // EncodedPolyline has no setter, so its encoded path is restored from the JSON tree
+        JsonNode routesJson = objectMapper.readTree(validOutput);
+        for (int i = 0; i < routes.size(); i++) {
+            routes.get(i).getDrivingPath().getDirectionsRoute().overviewPolyline = new EncodedPolyline(
+                    routesJson.get(i).at("/drivingPath/directionsRoute/overviewPolyline/encodedPath").asText());
+            routes.get(i).getWalkingPath().getDirectionsRoute().overviewPolyline = new EncodedPolyline(
+                    routesJson.get(i).at("/walkingPath/directionsRoute/overviewPolyline/encodedPath").asText());
+        }
+    }
+
+    @Test
+    public void toCompactRoutes_IsMuchSmallerThanFullRoutes() throws Exception {
+        // Act
+        List<CompactRoute> compactRoutes = CompactRouteMapper.toCompactRoutes(routes, 15);
+        int fullPayloadSize = objectMapper.writeValueAsBytes(routes).length;
+        int compactPayloadSize = objectMapper.writeValueAsBytes(compactRoutes).length;
+
+        // Assert
+        assertEquals(routes.size(), compactRoutes.size());
+        assertTrue(compactPayloadSize * 5 < fullPayloadSize,
+                "compact payload of " + compactPayloadSize + " bytes, full payload of " + fullPayloadSize + " bytes");
+    }
+
+    @Test
+    public void toCompactRoutes_KeepsTimesDistancesAndEndpoints() {
+        // Act
+        CompactRoute compactRoute = CompactRouteMapper.toCompactRoute(routes.get(0), 15);
+
+        // Assert
+        Route route = routes.get(0);
+        assertEquals(route.getTotalTime(), compactRoute.getTotalTime());
+        assertEquals(route.getParkingLot().getName(), compactRoute.getParkingLot().getName());
+        assertEquals(route.getDrivingPath().getTotalTime(), compactRoute.getDrivingPath().getTotalTime());
+        assertEquals(route.getDrivingPath().getDirectionsRoute().legs[0].distance.inMeters, compactRoute.getDrivingPath().getDistanceMeters());
+        List<LatLng> original = route.getDrivingPath().getDirectionsRoute().overviewPolyline.decodePath();
+        List<LatLng> simplified = new EncodedPolyline(compactRoute.getDrivingPath().getEncodedPolyline()).decodePath();
+        assertEquals(original.get(0).lat, simplified.get(0).lat, 1e-5);
+        assertEquals(original.get(original.size() - 1).lng, simplified.get(simplified.size() - 1).lng, 1e-5);
+    }
+
+    @Test
+    public void toCompactRoute_LeavesOutMissingDirections() {
+        // Arrange
+        Route route = new Route(null, null, routes.get(0).getParkingLot(), new DrivingPath(null, 25), new WalkingPath(null, 12), 37);
+
+        // Act
+        CompactRoute compactRoute = CompactRouteMapper.toCompactRoute(route, 15);
+
+        // Assert
+        assertNull(compactRoute.getDrivingPath().getEncodedPolyline());
+        assertNull(compactRoute.getWalkingPath().getDistanceMeters());
+        assertEquals(12, compactRoute.getWalkingPath().getTotalTime());
+    }
+
+    @Test
+    public void simplify_KeepsFewerPointsAtLowerZoom() {
+        // Arrange
+        List<LatLng> points = routes.get(0).getDrivingPath().getDirectionsRoute().overviewPolyline.decodePath();
+
+        // Act
+        List<LatLng> streetLevel = PolylineSimplifier.simplify(points, 17);
+        List<LatLng> cityLevel = PolylineSimplifier.simplify(points, 12);
+
+        // Assert
+        assertTrue(streetLevel.size() <= points.size());
+        assertTrue(cityLevel.size() < streetLevel.size());
+        assertEquals(points.get(0), cityLevel.get(0));
+        assertEquals(points.get(points.size() - 1), cityLevel.get(cityLevel.size() - 1));
+    }
+
+    @Test
+    public void simplify_IsThrowingExceptionIfZoomIsOutOfRange() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> PolylineSimplifier.simplify(List.of(), 22));
+        assertThrows(IllegalArgumentException.class, () -> CompactRouteMapper.toCompactRoutes(routes, -1));
+    }
+}
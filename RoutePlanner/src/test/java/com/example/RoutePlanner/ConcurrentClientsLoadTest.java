@@ -0,0 +1,195 @@
+package com.example.RoutePlanner;
+
+import org.example.routeplanner.RoutePlannerApplication;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Load test of the ways the server can wait for Google Maps with many concurrent clients, against the fake Google Maps
+ * server: the blocking /routes on platform threads, the blocking /routes on virtual threads, and the non-blocking
+ * /routes/async. Each client sends requests back to back for a fixed duration, and the test reports the throughput,
+ * the latency percentiles, and the peak platform threads and heap of the JVM, which also runs the clients and the
+ * fake server, so only the differences between the scenarios are meaningful. The quotas of the upstream scheduler
+ * are raised so the threads of the server, rather than the quotas, bound the blocking endpoint.
+ * <p>
+ * Excluded from the default build; run it with {@code mvn test -Pload-test -Dtest=ConcurrentClientsLoadTest}, and add
+ * {@code -DargLine=-Djdk.tracePinnedThreads=short} to print the pinnings of the virtual threads as well. The scenario
+ * is tuned with system properties: {@code load.clients} (default 1000), {@code load.duration} (seconds, default 20),
+ * {@code load.warmup} (seconds, default 5), {@code load.upstreamMedianMillis} (default 80),
+ * {@code load.upstreamP99Millis} (default 400) and {@code load.upstreamErrorRate} (default 0.005).
+ */
+@Tag("load")
+public class ConcurrentClientsLoadTest {
+
+    private static final List<String> ORIGINS = List.of(
+            "כפר סבא", "רעננה", "הרצליה", "רמת גן", "חולון", "בת ים", "פתח תקווה", "ראשון לציון");
+    private static final List<String> DESTINATIONS = List.of(
+            "כיכר רבין, תל אביב", "דיזנגוף סנטר", "שוק הכרמל", "נמל תל אביב", "עזריאלי", "הבימה",
+            "שרונה", "יפו העתיקה", "אוניברסיטת תל אביב", "רוטשילד 1");
+
+    private static final int CLIENTS = Integer.getInteger("load.clients", 1000);
+    private static final Duration DURATION = Duration.ofSeconds(Integer.getInteger("load.duration", 20));
+    private static final Duration WARMUP = Duration.ofSeconds(Integer.getInteger("load.warmup", 5));
+    private static final int UPSTREAM_RATE = 10000;
+
+    private static FakeGoogleMapsServer fakeGoogleMaps;
+    private static final List<String> reports = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeAll
+    public static void startFakeGoogleMaps() throws Exception {
+        fakeGoogleMaps = new FakeGoogleMapsServer(0, new FakeGoogleMapsServer.Behavior(
+                Duration.ofMillis(Integer.getInteger("load.upstreamMedianMillis", 80)),
+                Duration.ofMillis(Integer.getInteger("load.upstreamP99Millis", 400)),
+                Double.parseDouble(System.getProperty("load.upstreamErrorRate", "0.005"))));
+    }
+
+    @AfterAll
+    public static void printReports() {
+        fakeGoogleMaps.close();
+        System.out.printf("%nConcurrent clients load test: %d clients, %ds after %ds of warmup%n", CLIENTS, DURATION.toSeconds(), WARMUP.toSeconds());
+        System.out.println("scenario                 requests    RPS  errors   p50 ms   p95 ms   p99 ms | threads  heap MB");
+        reports.forEach(System.out::println);
+    }
+
+    @ParameterizedTest
+    @CsvSource({"/routes, false", "/routes, true", "/routes/async, false"})
+    public void getRoutes_UnderLoadOfConcurrentClients(String endpoint, boolean virtualThreads) throws Exception {
+        // Command line arguments, since they take precedence over application.properties
+        ConfigurableApplicationContext application = new SpringApplicationBuilder(RoutePlannerApplication.class).run(
+                "--server.port=0",
+                "--spring.threads.virtual.enabled=" + virtualThreads,
+                "--routeplanner.planning.mode=CONCURRENT",
+                "--routeplanner.google.base-url=" + fakeGoogleMaps.getBaseUrl(),
+                "--routeplanner.google.api-key=" + FakeGoogleMapsServer.API_KEY,
+                "--routeplanner.google.max-retries=1",
+                "--routeplanner.google.queries-per-second=" + UPSTREAM_RATE,
+                "--routeplanner.scheduler.geocoding.rate-per-second=" + UPSTREAM_RATE,
+                "--routeplanner.scheduler.geocoding.burst=" + UPSTREAM_RATE,
+                "--routeplanner.scheduler.places-nearby.rate-per-second=" + UPSTREAM_RATE,
+                "--routeplanner.scheduler.places-nearby.burst=" + UPSTREAM_RATE,
+                "--routeplanner.scheduler.directions.rate-per-second=" + UPSTREAM_RATE,
+                "--routeplanner.scheduler.directions.burst=" + UPSTREAM_RATE);
+        try {
+            int port = ((ServletWebServerApplicationContext) application).getWebServer().getPort();
+            HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+            runClients(httpClient, port, endpoint, WARMUP, null);
+            List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+            AtomicLong errors = new AtomicLong();
+            MemorySampler memory = new MemorySampler();
+            long start = System.nanoTime();
+            try {
+                runClients(httpClient, port, endpoint, DURATION, new Recorder(latencies, errors));
+            } finally {
+                memory.stop();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            List<Long> sorted = new ArrayList<>(latencies);
+            Collections.sort(sorted);
+            int requests = sorted.size();
+            assertTrue(requests > 0);
+            reports.add(String.format("%-23s %9d %6.1f %7d %8.1f %8.1f %8.1f | %7d %8.1f",
+                    endpoint + (virtualThreads ? " (virtual)" : " (platform)"), requests, requests / seconds, errors.get(),
+                    percentile(sorted, 50), percentile(sorted, 95), percentile(sorted, 99),
+                    memory.peakThreads, memory.peakHeapBytes / 1e6));
+        } finally {
+            application.close();
+        }
+    }
+
+    /**
+     * Runs the clients without a thread each: every client sends its next request once the response to the
+     * previous one arrives.
+     */
+    private static void runClients(HttpClient httpClient, int port, String endpoint, Duration duration, Recorder recorder) throws Exception {
+        long deadline = System.nanoTime() + duration.toNanos();
+        List<CompletableFuture<Void>> clients = new ArrayList<>();
+        for (int client = 0; client < CLIENTS; client++) {
+            clients.add(runClient(httpClient, port, endpoint, deadline, recorder));
+        }
+        CompletableFuture.allOf(clients.toArray(CompletableFuture[]::new)).get();
+    }
+
+    private static CompletableFuture<Void> runClient(HttpClient httpClient, int port, String endpoint, long deadline, Recorder recorder) {
+        if (System.nanoTime() >= deadline) {
+            return CompletableFuture.completedFuture(null);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        URI uri = URI.create("http://localhost:" + port + endpoint + "?origin="
+                + URLEncoder.encode(ORIGINS.get(random.nextInt(ORIGINS.size())), StandardCharsets.UTF_8)
+                + "&destination=" + URLEncoder.encode(DESTINATIONS.get(random.nextInt(DESTINATIONS.size())), StandardCharsets.UTF_8));
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(60)).GET().build();
+        long requestStart = System.nanoTime();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .handle((response, e) -> {
+                    if (recorder != null) {
+                        recorder.latencies.add(System.nanoTime() - requestStart);
+                        if (e != null || response.statusCode() != 200) {
+                            recorder.errors.incrementAndGet();
+                        }
+                    }
+                    return null;
+                })
+                .thenCompose(ignored -> runClient(httpClient, port, endpoint, deadline, recorder));
+    }
+
+    private static double percentile(List<Long> sortedNanos, int percentile) {
+        int index = Math.min(sortedNanos.size() - 1, (int) Math.ceil(percentile / 100.0 * sortedNanos.size()) - 1);
+        return sortedNanos.get(Math.max(0, index)) / 1e6;
+    }
+
+    private record Recorder(List<Long> latencies, AtomicLong errors) {
+    }
+
+    /**
+     * Samples the platform threads and the used heap of the JVM every 100 ms, keeping their peaks.
+     */
+    private static final class MemorySampler {
+        private final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        private volatile int peakThreads;
+        private volatile long peakHeapBytes;
+
+        MemorySampler() {
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+            threads.resetPeakThreadCount();
+            sampler.scheduleAtFixedRate(() -> {
+                peakThreads = Math.max(peakThreads, threads.getPeakThreadCount());
+                peakHeapBytes = Math.max(peakHeapBytes, memory.getHeapMemoryUsage().getUsed());
+            }, 0, 100, TimeUnit.MILLISECONDS);
+        }
+
+        void stop() {
+            sampler.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.RoutePlanner;
+
+import com.google.maps.model.DirectionsRoute;
+import com.google.maps.model.LatLng;
+import org.example.routeplanner.model.DrivingPath;
+import org.example.routeplanner.service.DrivingPathCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DrivingPathCacheTests {
+
+    private static final LatLng KFAR_SABA = new LatLng(32.178195, 34.90761);
+
+    private MutableClock clock;
+    private DrivingPathCache drivingPathCache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    public void setup() {
+        // Sunday 08:00 in Tel Aviv
+        clock = new MutableClock(Instant.parse("2024-08-18T05:00:00Z"));
+        drivingPathCache = new DrivingPathCache(100, 500, Duration.ofMinutes(5), Duration.ofMinutes(2), Duration.ofMinutes(20),
+                0.8, 2, Runnable::run, clock);
+        loads = new AtomicInteger();
+    }
+
+    private DrivingPath get(LatLng origin, double drivingTime) throws Exception {
+        return drivingPathCache.get(origin, "גולדה", () -> {
+            loads.incrementAndGet();
+            return new DrivingPath(null, drivingTime);
+        });
+    }
+
+    @Test
+    public void get_ServesSameCellWithinTtl() throws Exception {
+        // Act
+        get(KFAR_SABA, 25);
+        clock.advance(Duration.ofMinutes(1));
+        DrivingPath drivingPath = get(new LatLng(KFAR_SABA.lat + 0.0005, KFAR_SABA.lng), 30);
+
+        // Assert
+        assertEquals(25, drivingPath.getTotalTime());
+        assertEquals(1, loads.get());
+        assertEquals(1, drivingPathCache.getHitCount());
+    }
+
+    @Test
+    public void get_SharesOnlyDrivingTimeWithOtherOriginsOfCell() throws Exception {
+        // Arrange
+        DirectionsRoute directionsRoute = new DirectionsRoute();
+        drivingPathCache.get(KFAR_SABA, "גולדה", () -> new DrivingPath(directionsRoute, 25));
+        LatLng neighbor = new LatLng(KFAR_SABA.lat + 0.0005, KFAR_SABA.lng);
+
+        // Act
+        DrivingPath sameOrigin = get(KFAR_SABA, 30);
+        DrivingPath otherOrigin = get(neighbor, 30);
+
+        // Assert
+        assertSame(directionsRoute, sameOrigin.getDirectionsRoute());
+        assertNull(otherOrigin.getDirectionsRoute());
+        assertEquals(25, otherOrigin.getTotalTime());
+        assertEquals(0, loads.get());
+    }
+
+    @Test
+    public void get_ReloadsExpiredEntries() throws Exception {
+        // Act
+        get(KFAR_SABA, 25);
+        clock.advance(Duration.ofMinutes(5));
+        DrivingPath drivingPath = get(KFAR_SABA, 30);
+
+        // Assert
+        assertEquals(30, drivingPath.getTotalTime());
+        assertEquals(2, loads.get());
+        assertEquals(1, drivingPathCache.getDriftSampleCount());
+        assertEquals(5, drivingPathCache.getMaxDriftMinutes());
+    }
+
+    @Test
+    public void get_RefreshesEntriesAboutToExpireAndAdaptsTtl() throws Exception {
+        // Act
+        get(KFAR_SABA, 25);
+        clock.advance(Duration.ofMinutes(4));
+        DrivingPath servedWhileRefreshing = get(KFAR_SABA, 26);
+        clock.advance(Duration.ofMinutes(7));
+        DrivingPath afterRefresh = get(KFAR_SABA, 40);
+
+        // Assert
+        assertEquals(25, servedWhileRefreshing.getTotalTime());
+        // The drift of one minute is within the tolerance, so the refreshed entry lives for 10 minutes
+        assertEquals(26, afterRefresh.getTotalTime());
+        assertEquals(2, loads.get());
+        assertEquals(1, drivingPathCache.getRefreshCount());
+        assertEquals(1.0, drivingPathCache.getMeanDriftMinutes(), 0.001);
+    }
+
+    @Test
+    public void get_SeparatesTimeBuckets() throws Exception {
+        // Act
+        get(KFAR_SABA, 25);
+        clock.advance(Duration.ofMinutes(15));
+        clock.advance(Duration.ofDays(7).minusMinutes(15));
+        get(KFAR_SABA, 25);
+        clock.advance(Duration.ofMinutes(15));
+        get(KFAR_SABA, 25);
+
+        // Assert
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    public void get_CarriesAdaptedTtlIntoNextTimeBucket() throws Exception {
+        // Arrange
+        get(KFAR_SABA, 25);
+        clock.advance(Duration.ofMinutes(4));
+        get(KFAR_SABA, 26);
+
+        // Act
+        clock.advance(Duration.ofMinutes(11));
+        DrivingPath nextBucket = get(KFAR_SABA, 26);
+        clock.advance(Duration.ofMinutes(10));
+        DrivingPath afterInitialTtl = get(KFAR_SABA, 40);
+
+        // Assert
+        // The refreshed TTL of 10 minutes grows to the 15 minutes of a bucket, rather than starting over at 5 minutes
+        assertEquals(26, nextBucket.getTotalTime());
+        assertEquals(26, afterInitialTtl.getTotalTime());
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    public void get_CachesRefreshCompletedAfterRolloverInTheNewTimeBucket() throws Exception {
+        // Arrange
+        List<Runnable> refreshes = new ArrayList<>();
+        drivingPathCache = new DrivingPathCache(100, 500, Duration.ofMinutes(5), Duration.ofMinutes(2), Duration.ofMinutes(20),
+                0.8, 2, refreshes::add, clock);
+        clock.advance(Duration.ofMinutes(10));
+        get(KFAR_SABA, 25);
+        clock.advance(Duration.ofMinutes(4));
+        get(KFAR_SABA, 27);
+
+        // Act
+        clock.advance(Duration.ofMinutes(2));
+        refreshes.forEach(Runnable::run);
+        DrivingPath nextBucket = get(KFAR_SABA, 40);
+
+        // Assert
+        assertEquals(27, nextBucket.getTotalTime());
+        assertEquals(2, loads.get());
+        assertEquals(2, drivingPathCache.getHitCount());
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant instant;
+
+        private MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        private void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.RoutePlanner;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.routeplanner.RoutePlannerApplication;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs /routes end to end, from the HTTP request through the Google Maps client to the fake Google Maps server.
+ */
+@AutoConfigureObservability
+@SpringBootTest(classes = RoutePlannerApplication.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class FakeGoogleMapsEndToEndTests {
+
+    private static final FakeGoogleMapsServer fakeGoogleMaps = startFakeGoogleMaps();
+
+    @LocalServerPort
+    private int port;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    @DynamicPropertySource
+    static void pointAtFakeGoogleMaps(DynamicPropertyRegistry registry) {
+        registry.add("routeplanner.google.base-url", fakeGoogleMaps::getBaseUrl);
+        registry.add("routeplanner.google.api-key", () -> FakeGoogleMapsServer.API_KEY);
+        registry.add("routeplanner.google.max-retries", () -> 0);
+        registry.add("routeplanner.planning.mode", () -> "SERIAL");
+        // Every request reaches the fake server
+        registry.add("routeplanner.walking-cache.enabled", () -> false);
+        registry.add("routeplanner.driving-cache.enabled", () -> false);
+    }
+
+    @AfterAll
+    public static void stopFakeGoogleMaps() {
+        fakeGoogleMaps.close();
+    }
+
+    @BeforeEach
+    public void setup() {
+        fakeGoogleMaps.setBehavior(FakeGoogleMapsServer.DIRECTIONS, FakeGoogleMapsServer.Behavior.instant());
+        fakeGoogleMaps.resetCallCounts();
+    }
+
+    @Test
+    public void getRoutes_ThroughFakeGoogleMaps_ReturnsRankedRoutes() throws Exception {
+        // Act
+        HttpResponse<String> response = getRoutes("Dizengoff Center", "Habima Square");
+
+        // Assert
+        assertEquals(200, response.statusCode());
+        JsonNode routes = new ObjectMapper().readTree(response.body());
+        assertTrue(routes.size() > 0);
+        for (int i = 1; i < routes.size(); i++) {
+            assertTrue(routes.get(i - 1).get("totalTime").asDouble() <= routes.get(i).get("totalTime").asDouble());
+        }
+        assertEquals(2, fakeGoogleMaps.getCallCount(FakeGoogleMapsServer.GEOCODING));
+        assertEquals(2L * routes.size(), fakeGoogleMaps.getCallCount(FakeGoogleMapsServer.DIRECTIONS));
+    }
+
+    @Test
+    public void prometheus_AfterRoutes_ExposesStageAndUpstreamMetrics() throws Exception {
+        // Arrange
+        getRoutes("Azrieli Center", "Sarona Market");
+
+        // Act
+        HttpResponse<String> response = httpClient.send(HttpRequest.newBuilder(
+                URI.create("http://localhost:" + port + "/actuator/prometheus")).GET().build(), HttpResponse.BodyHandlers.ofString());
+
+        // Assert
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body().contains("routeplanner_stage_seconds_bucket{application=\"RoutePlanner\",stage=\"geocoding\""));
+        assertTrue(response.body().contains("routeplanner_stage_seconds_count{application=\"RoutePlanner\",stage=\"serialization\"}"));
+        assertTrue(response.body().contains("routeplanner_upstream_seconds_count{api=\"directions\",application=\"RoutePlanner\",mode=\"walking\",outcome=\"success\"}"));
+        assertTrue(response.body().contains("routeplanner_candidate_lots_count"));
+        assertTrue(response.body().contains("routeplanner_cache_hit_ratio{application=\"RoutePlanner\",cache=\"geocoding\"}"));
+    }
+
+    @Test
+    public void getRoutes_FakeDirectionsFail_ReturnsInternalServerError() throws Exception {
+        // Arrange
+        fakeGoogleMaps.setBehavior(FakeGoogleMapsServer.DIRECTIONS,
+                new FakeGoogleMapsServer.Behavior(Duration.ZERO, Duration.ZERO, 1));
+
+        // Act
+        HttpResponse<String> response = getRoutes("Tel Aviv University", "Carmel Market");
+
+        // Assert
+        assertEquals(500, response.statusCode());
+    }
+
+    private HttpResponse<String> getRoutes(String origin, String destination) throws Exception {
+        URI uri = URI.create("http://localhost:" + port + "/routes?origin=" + URLEncoder.encode(origin, StandardCharsets.UTF_8)
+                + "&destination=" + URLEncoder.encode(destination, StandardCharsets.UTF_8));
+        return httpClient.send(HttpRequest.newBuilder(uri).GET().build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static FakeGoogleMapsServer startFakeGoogleMaps() {
+        try {
+            return new FakeGoogleMapsServer(0, FakeGoogleMapsServer.Behavior.instant());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
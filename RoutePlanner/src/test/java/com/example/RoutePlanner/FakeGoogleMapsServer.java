@@ -0,0 +1,315 @@
+package com.example.RoutePlanner;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.maps.internal.PolylineEncoding;
+import com.google.maps.model.LatLng;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local stand-in for the Google Maps APIs used by the route planner: Geocoding, Places nearby search, Directions
+ * and Distance Matrix. Its answers have the JSON format of the real APIs, with deterministic content:
+ * <ul>
+ *     <li>every address geocodes to a fixed point in central Tel Aviv, picked by the hash of the address;</li>
+ *     <li>the nearby search returns the parking lots of allParkingLotsLocations.json within the radius;</li>
+ *     <li>travel times follow the straight-line distance, at 25 km/h driving and 5 km/h walking.</li>
+ * </ul>
+ * Each API answers after a delay drawn from a log-normal distribution with the configured median and p99,
+ * and fails with UNKNOWN_ERROR at the configured rate. The server counts the calls of each API.
+ * <p>
+ * Run {@link #main} to serve on a fixed port and point the application at it with
+ * {@code routeplanner.google.base-url=http://localhost:8089}.
+ */
+public class FakeGoogleMapsServer implements AutoCloseable {
+
+    public static final String GEOCODING = "geocode";
+    public static final String NEARBY_SEARCH = "place/nearbysearch";
+    public static final String DIRECTIONS = "directions";
+    public static final String DISTANCE_MATRIX = "distancematrix";
+    /**
+     * An API key the Google Maps client accepts, which the fake server does not check.
+     */
+    public static final String API_KEY = "AIzaFakeKeyOfTheFakeGoogleMapsServer";
+
+    private static final double DRIVING_METERS_PER_SECOND = 25 / 3.6;
+    private static final double WALKING_METERS_PER_SECOND = 5 / 3.6;
+    // Roads are longer than the straight line between their ends
+    private static final double DETOUR_FACTOR = 1.3;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, LatLng> parkingLots;
+    private final Map<String, Behavior> behaviors = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> calls = new ConcurrentHashMap<>();
+
+    /**
+     * Starts a fake server.
+     *
+     * @param port     the port to listen on, or 0 for any free port
+     * @param behavior the latency and error rate of every API, until changed with {@link #setBehavior}
+     * @throws IOException if the server cannot be started
+     */
+    public FakeGoogleMapsServer(int port, Behavior behavior) throws IOException {
+        this.parkingLots = new ObjectMapper().readValue(new File("src/main/resources/allParkingLotsLocations.json"),
+                new TypeReference<HashMap<String, LatLng>>() {});
+        for (String api : List.of(GEOCODING, NEARBY_SEARCH, DIRECTIONS, DISTANCE_MATRIX)) {
+            behaviors.put(api, behavior);
+            calls.put(api, new LongAdder());
+        }
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 1024);
+        // Every request sleeps through its latency, so each one gets its own thread
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "fake-google-maps");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/maps/api/", this::handle);
+        server.start();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8089;
+        new FakeGoogleMapsServer(port, new Behavior(Duration.ofMillis(80), Duration.ofMillis(400), 0.01));
+        System.out.println("Fake Google Maps APIs listening on http://localhost:" + port);
+    }
+
+    /**
+     * @return the base URL to configure as {@code routeplanner.google.base-url}
+     */
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public void setBehavior(String api, Behavior behavior) {
+        behaviors.put(api, behavior);
+    }
+
+    /**
+     * @return the number of calls made to an API, including the failed ones
+     */
+    public long getCallCount(String api) {
+        return calls.get(api).sum();
+    }
+
+    public void resetCallCounts() {
+        calls.values().forEach(LongAdder::reset);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath();
+            String api = path.substring("/maps/api/".length(), path.lastIndexOf('/'));
+            Behavior behavior = behaviors.get(api);
+            if (behavior == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            calls.get(api).increment();
+            Map<String, String> parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+
+            Thread.sleep(behavior.sampleLatencyMillis());
+            ObjectNode response;
+            if (ThreadLocalRandom.current().nextDouble() < behavior.errorRate()) {
+                response = objectMapper.createObjectNode().put("status", "UNKNOWN_ERROR")
+                        .put("error_message", "Injected error of the fake server");
+            } else {
+                response = switch (api) {
+                    case GEOCODING -> geocode(parameters.get("address"));
+                    case NEARBY_SEARCH -> nearbySearch(parseLatLng(parameters.get("location")), Double.parseDouble(parameters.get("radius")));
+                    case DIRECTIONS -> directions(parseLatLng(parameters.get("origin")), parseLatLng(parameters.get("destination")), parameters.get("mode"));
+                    default -> distanceMatrix(parameters.get("origins").split("\\|"), parameters.get("destinations").split("\\|"), parameters.get("mode"));
+                };
+            }
+
+            byte[] body = objectMapper.writeValueAsBytes(response);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            exchange.sendResponseHeaders(400, -1);
+        }
+    }
+
+    private ObjectNode geocode(String address) {
+        // Central Tel Aviv, where the parking lots are
+        int hash = address.hashCode();
+        LatLng location = new LatLng(32.060 + Math.floorMod(hash, 400) / 10000.0, 34.770 + Math.floorMod(hash / 400, 250) / 10000.0);
+        ObjectNode response = objectMapper.createObjectNode().put("status", "OK");
+        ObjectNode result = response.putArray("results").addObject()
+                .put("formatted_address", address)
+                .put("place_id", "fake-" + Integer.toHexString(hash));
+        result.putArray("types").add("street_address");
+        ObjectNode geometry = result.putObject("geometry").put("location_type", "ROOFTOP");
+        putLatLng(geometry, "location", location);
+        return response;
+    }
+
+    private ObjectNode nearbySearch(LatLng location, double radius) {
+        ObjectNode response = objectMapper.createObjectNode().put("status", "OK");
+        response.putArray("html_attributions");
+        ArrayNode results = response.putArray("results");
+        parkingLots.forEach((name, parkingLot) -> {
+            if (distanceMeters(location, parkingLot) <= radius) {
+                ObjectNode result = results.addObject()
+                        .put("name", "אחוזות החוף " + name)
+                        .put("place_id", "fake-lot-" + Integer.toHexString(name.hashCode()))
+                        .put("vicinity", name + ", Tel Aviv-Yafo")
+                        .put("permanently_closed", false)
+                        .put("business_status", "OPERATIONAL");
+                result.putArray("types").add("parking");
+                putLatLng(result.putObject("geometry"), "location", parkingLot);
+            }
+        });
+        return response;
+    }
+
+    private ObjectNode directions(LatLng origin, LatLng destination, String mode) {
+        double meters = distanceMeters(origin, destination) * DETOUR_FACTOR;
+        long seconds = Math.round(meters / speed(mode));
+        String polyline = PolylineEncoding.encode(List.of(origin, destination));
+
+        ObjectNode response = objectMapper.createObjectNode().put("status", "OK");
+        response.putArray("geocoded_waypoints");
+        ObjectNode route = response.putArray("routes").addObject()
+                .put("summary", "Fake route")
+                .put("copyrights", "Fake data");
+        route.putArray("warnings");
+        route.putArray("waypoint_order");
+        route.putObject("overview_polyline").put("points", polyline);
+        ObjectNode bounds = route.putObject("bounds");
+        putLatLng(bounds, "northeast", new LatLng(Math.max(origin.lat, destination.lat), Math.max(origin.lng, destination.lng)));
+        putLatLng(bounds, "southwest", new LatLng(Math.min(origin.lat, destination.lat), Math.min(origin.lng, destination.lng)));
+
+        ObjectNode leg = route.putArray("legs").addObject()
+                .put("start_address", origin.toUrlValue())
+                .put("end_address", destination.toUrlValue());
+        putDurationAndDistance(leg, seconds, meters);
+        putLatLng(leg, "start_location", origin);
+        putLatLng(leg, "end_location", destination);
+        ObjectNode step = leg.putArray("steps").addObject()
+                .put("html_instructions", "Head to <b>" + destination.toUrlValue() + "</b>")
+                .put("travel_mode", mode == null ? "DRIVING" : mode.toUpperCase());
+        putDurationAndDistance(step, seconds, meters);
+        putLatLng(step, "start_location", origin);
+        putLatLng(step, "end_location", destination);
+        step.putObject("polyline").put("points", polyline);
+        return response;
+    }
+
+    private ObjectNode distanceMatrix(String[] origins, String[] destinations, String mode) {
+        ObjectNode response = objectMapper.createObjectNode().put("status", "OK");
+        ArrayNode originAddresses = response.putArray("origin_addresses");
+        ArrayNode destinationAddresses = response.putArray("destination_addresses");
+        for (String destination : destinations) {
+            destinationAddresses.add(destination);
+        }
+        ArrayNode rows = response.putArray("rows");
+        for (String origin : origins) {
+            originAddresses.add(origin);
+            ArrayNode elements = rows.addObject().putArray("elements");
+            for (String destination : destinations) {
+                double meters = distanceMeters(parseLatLng(origin), parseLatLng(destination)) * DETOUR_FACTOR;
+                putDurationAndDistance(elements.addObject().put("status", "OK"), Math.round(meters / speed(mode)), meters);
+            }
+        }
+        return response;
+    }
+
+    private static double speed(String mode) {
+        return "walking".equals(mode) ? WALKING_METERS_PER_SECOND : DRIVING_METERS_PER_SECOND;
+    }
+
+    private static void putDurationAndDistance(ObjectNode node, long seconds, double meters) {
+        node.putObject("duration").put("value", seconds).put("text", Math.max(1, seconds / 60) + " mins");
+        node.putObject("distance").put("value", Math.round(meters)).put("text", Math.round(meters) + " m");
+    }
+
+    private static void putLatLng(ObjectNode node, String field, LatLng location) {
+        node.putObject(field).put("lat", location.lat).put("lng", location.lng);
+    }
+
+    private static LatLng parseLatLng(String value) {
+        String[] parts = value.split(",");
+        return new LatLng(Double.parseDouble(parts[0]), Double.parseDouble(parts[1]));
+    }
+
+    private static double distanceMeters(LatLng from, LatLng to) {
+        double latitudeDistance = Math.toRadians(to.lat - from.lat);
+        double longitudeDistance = Math.toRadians(to.lng - from.lng);
+        double a = Math.sin(latitudeDistance / 2) * Math.sin(latitudeDistance / 2)
+                + Math.cos(Math.toRadians(from.lat)) * Math.cos(Math.toRadians(to.lat))
+                * Math.sin(longitudeDistance / 2) * Math.sin(longitudeDistance / 2);
+        return 6371e3 * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> parameters = new HashMap<>();
+        if (query == null) {
+            return parameters;
+        }
+        for (String parameter : query.split("&")) {
+            int separator = parameter.indexOf('=');
+            if (separator > 0) {
+                parameters.put(URLDecoder.decode(parameter.substring(0, separator), StandardCharsets.UTF_8),
+                        URLDecoder.decode(parameter.substring(separator + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return parameters;
+    }
+
+    /**
+     * The latency and the error rate of an API.
+     *
+     * @param medianLatency the median delay of the answers
+     * @param p99Latency    the 99th percentile of the delay of the answers, at least the median
+     * @param errorRate     the probability of an answer to be an UNKNOWN_ERROR
+     */
+    public record Behavior(Duration medianLatency, Duration p99Latency, double errorRate) {
+
+        private static final double Z_99 = 2.326;
+
+        public static Behavior instant() {
+            return new Behavior(Duration.ZERO, Duration.ZERO, 0);
+        }
+
+        long sampleLatencyMillis() {
+            double median = medianLatency.toNanos() / 1e6;
+            if (median <= 0) {
+                return 0;
+            }
+            double sigma = Math.log(Math.max(p99Latency.toNanos() / 1e6, median) / median) / Z_99;
+            return Math.round(median * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian()));
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.RoutePlanner;
+
+import com.google.maps.model.LatLng;
+import org.example.routeplanner.service.AddressNormalizer;
+import org.example.routeplanner.service.GeocodingCache;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GeocodingCacheTests {
+
+    @Test
+    public void normalize_UnifiesTelAvivVariants() {
+        String expected = AddressNormalizer.normalize("דיזנגוף 50, תל אביב");
+
+        assertEquals("דיזנגוף 50 תל אביב", expected);
+        assertEquals(expected, AddressNormalizer.normalize("דיזנגוף 50 תל-אביב-יפו"));
+        assertEquals(expected, AddressNormalizer.normalize("  דיזנגוף   50,  ת\"א "));
+        assertEquals(expected, AddressNormalizer.normalize("דיזנגוף 50, Tel Aviv"));
+        assertEquals(expected, AddressNormalizer.normalize("דיזנגוף 50 TEL-AVIV YAFO"));
+    }
+
+    @Test
+    public void normalize_UnifiesHouseNumbers() {
+        assertEquals(AddressNormalizer.normalize("אבן גבירול 12א"), AddressNormalizer.normalize("אבן גבירול 12 א"));
+        assertEquals(AddressNormalizer.normalize("Ibn Gabirol 12"), AddressNormalizer.normalize("Ibn Gabirol No. 12"));
+        assertEquals(AddressNormalizer.normalize("אבן גבירול 12"), AddressNormalizer.normalize("אבן גבירול מס' 12"));
+    }
+
+    @Test
+    public void normalize_KeepsDifferentAddressesApart() {
+        assertNotEquals(AddressNormalizer.normalize("אבן גבירול 12"), AddressNormalizer.normalize("אבן גבירול 120"));
+        assertEquals("", AddressNormalizer.normalize(" ,. "));
+        assertEquals("", AddressNormalizer.normalize(null));
+    }
+
+    @Test
+    public void get_GeocodesEachNormalizedAddressOnce() {
+        // Arrange
+        GeocodingCache geocodingCache = new GeocodingCache(100, Duration.ofHours(1), Duration.ofMinutes(1));
+        AtomicInteger geocodingCalls = new AtomicInteger();
+        LatLng rabinSquare = new LatLng(32.0804846, 34.7806198);
+
+        // Act
+        Optional<LatLng> first = geocodingCache.get("כיכר רבין, תל אביב", address -> {
+            geocodingCalls.incrementAndGet();
+            return Optional.of(rabinSquare);
+        });
+        Optional<LatLng> second = geocodingCache.get("כיכר רבין תל-אביב", address -> {
+            geocodingCalls.incrementAndGet();
+            return Optional.of(rabinSquare);
+        });
+
+        // Assert
+        assertEquals(rabinSquare, first.orElseThrow());
+        assertEquals(rabinSquare, second.orElseThrow());
+        assertEquals(1, geocodingCalls.get());
+        assertEquals(1, geocodingCache.getHitCount());
+        assertEquals(1, geocodingCache.getMissCount());
+    }
+
+    @Test
+    public void get_CachesAddressesThatDoNotExist() {
+        // Arrange
+        GeocodingCache geocodingCache = new GeocodingCache(100, Duration.ofHours(1), Duration.ofMinutes(1));
+        AtomicInteger geocodingCalls = new AtomicInteger();
+
+        // Act
+        geocodingCache.get("אבגדabcd", address -> {
+            geocodingCalls.incrementAndGet();
+            return Optional.empty();
+        });
+        Optional<LatLng> result = geocodingCache.get("אבגדabcd", address -> {
+            geocodingCalls.incrementAndGet();
+            return Optional.empty();
+        });
+
+        // Assert
+        assertTrue(result.isEmpty());
+        assertEquals(1, geocodingCalls.get());
+    }
+
+    @Test
+    public void get_DoesNotCacheGeocodingErrors() {
+        // Arrange
+        GeocodingCache geocodingCache = new GeocodingCache(100, Duration.ofHours(1), Duration.ofMinutes(1));
+        LatLng rabinSquare = new LatLng(32.0804846, 34.7806198);
+
+        // Act & Assert
+        assertThrows(RuntimeException.class, () -> geocodingCache.get("כיכר רבין", address -> {
+            throw new RuntimeException("Google Maps API error");
+        }));
+        assertEquals(rabinSquare, geocodingCache.get("כיכר רבין", address -> Optional.of(rabinSquare)).orElseThrow());
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.RoutePlanner;
+
+import com.google.maps.model.DirectionsResult;
+import com.google.maps.model.LatLng;
+import com.google.maps.model.TravelMode;
+import org.example.routeplanner.service.LocalRoutingProvider;
+import org.example.routeplanner.service.RoadGraph;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Load test of the local routing provider on a road graph the size of Tel Aviv's: reports the time to build the graph,
+ * its estimated memory footprint and the latency percentiles of the driving and walking queries.
+ * <p>
+ * Excluded from the default build; run it with {@code mvn test -Pload-test}.
+ */
+@Tag("load")
+public class LocalRoutingLoadTest {
+
+    @Test
+    public void getDirections_ReportsLatencyOnCitySizedGrid() throws Exception {
+        // A 200x200 grid of two-way streets 100 meters apart, about the size of the road graph of Tel Aviv
+        int size = 200;
+        long start = System.nanoTime();
+        RoadGraph.Builder builder = new RoadGraph.Builder();
+        for (int row = 0; row < size; row++) {
+            for (int column = 0; column < size; column++) {
+                builder.addNode(32.0 + row * 0.0009, 34.7 + column * 0.00106);
+            }
+        }
+        for (int row = 0; row < size; row++) {
+            for (int column = 0; column < size; column++) {
+                int node = row * size + column;
+                double speed = row % 10 == 0 || column % 10 == 0 ? 50 : 30;
+                if (column + 1 < size) {
+                    builder.addEdge(node, node + 1, speed, true, true, "Row " + row);
+                    builder.addEdge(node + 1, node, speed, true, true, "Row " + row);
+                }
+                if (row + 1 < size) {
+                    builder.addEdge(node, node + size, speed, true, true, "Column " + column);
+                    builder.addEdge(node + size, node, speed, true, true, "Column " + column);
+                }
+            }
+        }
+        RoadGraph graph = builder.build();
+        long buildMillis = (System.nanoTime() - start) / 1_000_000;
+        LocalRoutingProvider gridProvider = new LocalRoutingProvider(graph, 5, 100);
+
+        Random random = new Random(42);
+        int queries = 300;
+        long[] nanos = new long[queries];
+        for (int i = 0; i < queries + 50; i++) {
+            LatLng from = new LatLng(32.0 + random.nextInt(size) * 0.0009, 34.7 + random.nextInt(size) * 0.00106);
+            LatLng to = new LatLng(32.0 + random.nextInt(size) * 0.0009, 34.7 + random.nextInt(size) * 0.00106);
+            long queryStart = System.nanoTime();
+            DirectionsResult result = gridProvider.getDirections(from, to, i % 2 == 0 ? TravelMode.DRIVING : TravelMode.WALKING);
+            // The first 50 queries warm up the JIT
+            if (i >= 50) {
+                nanos[i - 50] = System.nanoTime() - queryStart;
+            }
+            assertNotNull(result.routes[0].legs[0].duration);
+        }
+        Arrays.sort(nanos);
+
+        System.out.printf("Local routing on %d nodes and %d edges: built in %d ms, about %d KB, p50 %.2f ms, p99 %.2f ms%n",
+                graph.getNodeCount(), graph.getEdgeCount(), buildMillis, graph.getEstimatedBytes() / 1024,
+                nanos[queries / 2] / 1e6, nanos[queries * 99 / 100] / 1e6);
+        assertEquals(size * size, graph.getNodeCount());
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.RoutePlanner;
+
+import com.google.maps.errors.ZeroResultsException;
+import com.google.maps.model.DirectionsLeg;
+import com.google.maps.model.DirectionsResult;
+import com.google.maps.model.LatLng;
+import com.google.maps.model.TravelMode;
+import org.example.routeplanner.RoutePlannerProperties;
+import org.example.routeplanner.model.DrivingPath;
+import org.example.routeplanner.model.WalkingPath;
+import org.example.routeplanner.service.LocalRoutingProvider;
+import org.example.routeplanner.service.OsmRoadGraphLoader;
+import org.example.routeplanner.service.RoadGraph;
+import org.example.routeplanner.service.RoutePlannerService;
+import org.example.routeplanner.service.RoutingProviderType;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the local routing provider on a 3x3 grid of streets, 222 meters between the rows and 283 meters between
+ * the columns: the middle row is one-way eastwards, the middle column is a footway and the east column is a primary road.
+ */
+public class LocalRoutingProviderTests {
+
+    private static final String TINY_ROAD_NETWORK = "src/test/java/com/example/RoutePlanner/testData/tinyRoadNetwork.osm";
+    private static final LatLng MIDDLE_WEST = new LatLng(32.080, 34.778);
+    private static final LatLng MIDDLE_EAST = new LatLng(32.080, 34.784);
+    private static final LatLng SOUTH_CENTER = new LatLng(32.078, 34.781);
+    private static final LatLng NORTH_CENTER = new LatLng(32.082, 34.781);
+
+    private static LocalRoutingProvider provider;
+
+    @BeforeAll
+    public static void loadRoadNetwork() throws IOException {
+        provider = LocalRoutingProvider.load(Path.of(TINY_ROAD_NETWORK), 5, 100);
+    }
+
+    @Test
+    public void load_SkipsRoadsUnderConstruction() {
+        RoadGraph graph = provider.getGraph();
+
+        assertEquals(9, graph.getNodeCount());
+        // 12 street segments, each one an edge in both directions
+        assertEquals(24, graph.getEdgeCount());
+    }
+
+    @Test
+    public void getDirections_DrivesAlongOneWayStreet() throws Exception {
+        DirectionsLeg leg = provider.getDirections(MIDDLE_WEST, MIDDLE_EAST, TravelMode.DRIVING).routes[0].legs[0];
+
+        assertEquals(566, leg.distance.inMeters, 5);
+        assertEquals(1, leg.steps.length);
+        assertEquals("One Way Street", leg.steps[0].htmlInstructions);
+    }
+
+    @Test
+    public void getDirections_DrivesAroundOneWayStreetAgainstItsDirection() throws Exception {
+        DirectionsLeg leg = provider.getDirections(MIDDLE_EAST, MIDDLE_WEST, TravelMode.DRIVING).routes[0].legs[0];
+
+        assertEquals(1010, leg.distance.inMeters, 10);
+        assertTrue(Arrays.stream(leg.steps).noneMatch(step -> step.htmlInstructions.equals("One Way Street")));
+    }
+
+    @Test
+    public void getDirections_WalksAgainstOneWayStreet() throws Exception {
+        DirectionsLeg leg = provider.getDirections(MIDDLE_EAST, MIDDLE_WEST, TravelMode.WALKING).routes[0].legs[0];
+
+        assertEquals(566, leg.distance.inMeters, 5);
+        // 566 meters at 5 km/h
+        assertEquals(408, leg.duration.inSeconds, 2);
+    }
+
+    @Test
+    public void getDirections_WalksAlongFootwayButDoesNotDriveAlongIt() throws Exception {
+        DirectionsLeg walkingLeg = provider.getDirections(SOUTH_CENTER, NORTH_CENTER, TravelMode.WALKING).routes[0].legs[0];
+        DirectionsLeg drivingLeg = provider.getDirections(SOUTH_CENTER, NORTH_CENTER, TravelMode.DRIVING).routes[0].legs[0];
+
+        assertEquals(444, walkingLeg.distance.inMeters, 5);
+        assertEquals("Garden Path", walkingLeg.steps[0].htmlInstructions);
+        assertEquals(1010, drivingLeg.distance.inMeters, 10);
+    }
+
+    @Test
+    public void getDirections_ReturnsDirectionsShapedLikeGoogleMaps() throws Exception {
+        DirectionsResult result = provider.getDirections(MIDDLE_EAST, MIDDLE_WEST, TravelMode.DRIVING);
+
+        assertEquals(1, result.routes.length);
+        assertEquals(1, result.routes[0].legs.length);
+        DirectionsLeg leg = result.routes[0].legs[0];
+        assertLocation(MIDDLE_EAST, leg.startLocation);
+        assertLocation(MIDDLE_WEST, leg.endLocation);
+        assertEquals(leg.distance.inMeters, Arrays.stream(leg.steps).mapToLong(step -> step.distance.inMeters).sum(), 2);
+        assertEquals(leg.duration.inSeconds, Arrays.stream(leg.steps).mapToLong(step -> step.duration.inSeconds).sum(), 2);
+        assertLocation(MIDDLE_EAST, leg.steps[0].polyline.decodePath().get(0));
+        assertNotNull(result.routes[0].overviewPolyline);
+        assertEquals(32.082, result.routes[0].bounds.northeast.lat, 1e-9);
+        assertEquals("© OpenStreetMap contributors", result.routes[0].copyrights);
+    }
+
+    @Test
+    public void getDirections_LocationFarFromRoads_ThrowsZeroResults() {
+        LatLng farAway = new LatLng(32.1, 34.8);
+
+        assertThrows(ZeroResultsException.class, () -> provider.getDirections(farAway, MIDDLE_WEST, TravelMode.DRIVING));
+    }
+
+    @Test
+    public void getDirections_TransitMode_ThrowsIllegalArgument() {
+        assertThrows(IllegalArgumentException.class, () -> provider.getDirections(MIDDLE_EAST, MIDDLE_WEST, TravelMode.TRANSIT));
+    }
+
+    @Test
+    public void createPaths_WithLocalProvider_RoutesWithoutNetwork() throws Exception {
+        // Arrange
+        RoutePlannerProperties properties = new RoutePlannerProperties();
+        properties.getRouting().setProvider(RoutingProviderType.LOCAL);
+        properties.getRouting().setOsmFile(TINY_ROAD_NETWORK);
+        RoutePlannerService service = new RoutePlannerService(properties);
+
+        try {
+            // Act
+            DrivingPath drivingPath = service.createDrivingPath(MIDDLE_WEST, MIDDLE_EAST);
+            WalkingPath walkingPath = service.createWalkingPath(MIDDLE_WEST, NORTH_CENTER);
+
+            // Assert
+            assertEquals(drivingPath.getDirectionsRoute().legs[0].duration.inSeconds / 60, drivingPath.getTotalTime());
+            assertLocation(MIDDLE_WEST, drivingPath.getDirectionsRoute().legs[0].endLocation);
+            assertLocation(NORTH_CENTER, walkingPath.getDirectionsRoute().legs[0].endLocation);
+            assertTrue(walkingPath.getTotalTime() > 0);
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    public void load_InvalidXml_ThrowsIOException() {
+        assertThrows(IOException.class, () -> OsmRoadGraphLoader.load(new java.io.ByteArrayInputStream("<osm><node".getBytes())));
+    }
+
+    private static void assertLocation(LatLng expected, LatLng actual) {
+        // Encoded polylines keep 5 decimal places
+        assertEquals(expected.lat, actual.lat, 1e-5);
+        assertEquals(expected.lng, actual.lng, 1e-5);
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.RoutePlanner;
+
+import com.google.maps.model.LatLng;
+import org.example.routeplanner.service.ParkingLotDataset;
+import org.example.routeplanner.service.ParkingLotFileWatcher;
+import org.example.routeplanner.service.RoutePlannerMetrics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParkingLotDatasetTests {
+
+    private static final LatLng BEIT_HADAR = new LatLng(32.063837, 34.777047);
+    private static final LatLng GOLDA = new LatLng(32.0852196, 34.7858085);
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    public void write_ReadsBackTheSameParkingLotsAsTheJson() throws Exception {
+        // Arrange
+        ParkingLotDataset json = ParkingLotDataset.read(Path.of("src/main/resources/allParkingLotsLocations.json"));
+        Path file = directory.resolve("parkingLots.bin");
+
+        // Act
+        json.write(file);
+        ParkingLotDataset binary = ParkingLotDataset.read(file);
+
+        // Assert
+        assertEquals(json.getParkingLotsLocations().keySet(), binary.getParkingLotsLocations().keySet());
+        json.getParkingLotsLocations().forEach((name, location) -> {
+            assertEquals(location.lat, binary.getParkingLotsLocations().get(name).lat);
+            assertEquals(location.lng, binary.getParkingLotsLocations().get(name).lng);
+        });
+        assertEquals("בית הדר", binary.getMatcher().findBestMatch(BEIT_HADAR));
+    }
+
+    @Test
+    public void reload_SwapsTheDatasetAndKeepsItWhenTheFileIsInvalid() throws Exception {
+        // Arrange
+        Path file = directory.resolve("allParkingLotsLocations.json");
+        writeJson(file, "{\"בית הדר\":{\"lat\":32.063837,\"lng\":34.777047}}");
+        AtomicReference<ParkingLotDataset> current = new AtomicReference<>();
+        ParkingLotFileWatcher watcher = new ParkingLotFileWatcher(file, Duration.ofMillis(50), current::set, new RoutePlannerMetrics());
+        watcher.start();
+        try {
+            awaitSize(current, 1);
+
+            // Act
+            writeJson(file, "{\"בית הדר\":{\"lat\":32.063837,\"lng\":34.777047},\"גולדה\":{\"lat\":32.0852196,\"lng\":34.7858085}}");
+            awaitSize(current, 2);
+            ParkingLotDataset reloaded = current.get();
+            writeJson(file, "{\"בית הדר\":");
+            boolean reloadedInvalid = watcher.reload();
+
+            // Assert
+            assertEquals(Map.of("בית הדר", BEIT_HADAR, "גולדה", GOLDA), reloaded.getParkingLotsLocations());
+            assertFalse(reloadedInvalid);
+            assertSame(reloaded, current.get());
+        } finally {
+            watcher.shutdown();
+        }
+    }
+
+    private static void writeJson(Path file, String json) throws IOException {
+        Path temporaryFile = file.resolveSibling("parkingLots.tmp");
+        Files.writeString(temporaryFile, json, StandardCharsets.UTF_8);
+        Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void awaitSize(AtomicReference<ParkingLotDataset> current, int size) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(20).toNanos();
+        while (current.get() == null || current.get().size() != size) {
+            assertTrue(System.nanoTime() < deadline, "The dataset was not reloaded");
+            Thread.sleep(20);
+        }
+    }
+}
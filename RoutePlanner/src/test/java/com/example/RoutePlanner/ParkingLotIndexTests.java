@@ -0,0 +1,75 @@
+package com.example.RoutePlanner;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.maps.model.LatLng;
+import org.example.routeplanner.model.Place;
+import org.example.routeplanner.service.ParkingLotIndex;
+import org.example.routeplanner.service.RoutePlannerService;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParkingLotIndexTests {
+
+    private static Map<String, LatLng> readParkingLotsLocations() throws Exception {
+        return new ObjectMapper().readValue(new File("src/main/resources/allParkingLotsLocations.json"), new TypeReference<HashMap<String, LatLng>>() {});
+    }
+
+    @Test
+    public void findWithinRadius_ReturnsClosestParkingLotsFirst() {
+        // Arrange
+        Map<String, LatLng> parkingLotsLocations = new HashMap<>();
+        parkingLotsLocations.put("Close Parking Lot", new LatLng(32.0854, 34.7819));
+        parkingLotsLocations.put("Closer Parking Lot", new LatLng(32.0853, 34.7819));
+        parkingLotsLocations.put("Far Parking Lot", new LatLng(32.0853, 34.7918));
+        ParkingLotIndex parkingLotIndex = new ParkingLotIndex(parkingLotsLocations);
+
+        // Act
+        List<Place> parkingLots = parkingLotIndex.findWithinRadius(new LatLng(32.0853, 34.7818), 500);
+
+        // Assert
+        assertEquals(2, parkingLots.size());
+        assertEquals("Closer Parking Lot", parkingLots.get(0).getName());
+        assertEquals("Close Parking Lot", parkingLots.get(1).getName());
+        assertNull(parkingLots.get(0).getAddress());
+    }
+
+    @Test
+    public void findWithinRadius_MatchesLinearScanOverAllParkingLots() throws Exception {
+        // Arrange
+        Map<String, LatLng> parkingLotsLocations = readParkingLotsLocations();
+        ParkingLotIndex parkingLotIndex = new ParkingLotIndex(parkingLotsLocations);
+        Random random = new Random(42);
+
+        for (int i = 0; i < 1000; i++) {
+            LatLng center = new LatLng(32.0 + random.nextDouble() * 0.13, 34.75 + random.nextDouble() * 0.09);
+            double radius = 100 + random.nextDouble() * 1500;
+            Set<String> expected = new HashSet<>();
+            for (Map.Entry<String, LatLng> parkingLot : parkingLotsLocations.entrySet()) {
+                if (RoutePlannerService.distance(center, parkingLot.getValue()) <= radius) {
+                    expected.add(parkingLot.getKey());
+                }
+            }
+
+            // Act
+            List<Place> parkingLots = parkingLotIndex.findWithinRadius(center, radius);
+
+            // Assert
+            Set<String> actual = new HashSet<>();
+            parkingLots.forEach(parkingLot -> actual.add(parkingLot.getName()));
+            assertEquals(expected, actual);
+            assertEquals(expected.size(), parkingLots.size());
+        }
+    }
+
+    @Test
+    public void findWithinRadius_IsEmptyOutsideTelAviv() throws Exception {
+        ParkingLotIndex parkingLotIndex = new ParkingLotIndex(readParkingLotsLocations());
+
+        assertTrue(parkingLotIndex.findWithinRadius(new LatLng(31.7683, 35.2137), 500).isEmpty());
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.RoutePlanner;
+
+import com.sun.net.httpserver.HttpServer;
+import org.example.routeplanner.RoutePlannerProperties;
+import org.example.routeplanner.model.ParkingLotStatus;
+import org.example.routeplanner.service.ParkingOccupancyPoller;
+import org.example.routeplanner.service.RoutePlannerMetrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParkingOccupancyPollerTests {
+
+    private static final List<String> PARKING_LOT_NAMES = List.of("בית הדר", "אבולעפיה", "מונטיפיורי", "גולדה");
+
+    private HttpServer scraper;
+    private final AtomicReference<String> scraperResponse = new AtomicReference<>();
+    private final AtomicReference<URI> scraperRequest = new AtomicReference<>();
+    private final AtomicInteger scraperStatus = new AtomicInteger(200);
+    private MutableClock clock;
+    private ParkingOccupancyPoller poller;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        scraper = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        scraper.createContext("/api/parking-lot", exchange -> {
+            scraperRequest.set(exchange.getRequestURI());
+            byte[] body = scraperResponse.get().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(scraperStatus.get(), body.length);
+            try (OutputStream responseBody = exchange.getResponseBody()) {
+                responseBody.write(body);
+            }
+        });
+        scraper.start();
+        clock = new MutableClock(Instant.parse("2024-08-18T05:00:00Z"));
+
+        RoutePlannerProperties.Occupancy occupancy = new RoutePlannerProperties.Occupancy();
+        occupancy.setScraperUrl("http://127.0.0.1:" + scraper.getAddress().getPort() + "/");
+        occupancy.setTimeout(Duration.ofSeconds(5));
+        occupancy.setMaxAge(Duration.ofMinutes(10));
+        poller = new ParkingOccupancyPoller(occupancy, () -> PARKING_LOT_NAMES, new RoutePlannerMetrics(), clock);
+    }
+
+    @AfterEach
+    public void stopScraper() {
+        scraper.stop(0);
+    }
+
+    @Test
+    public void poll_MatchesTheScrapedPageTitlesToTheParkingLots() {
+        // Arrange
+        scraperResponse.set("""
+                [{"name":"חניון בית הדר ","address":"השוק 6","parkingLotStatus":"FULL","numberOfSpots":430},
+                 {"name":"חניון אבולעפיה","address":"אבולעפיה 15","parkingLotStatus":"ALMOST_FULL","numberOfSpots":70},
+                 {"name":"חניון מונטיפיורי","address":"מונטיפיורי 36","parkingLotStatus":"NO_INFORMATION","numberOfSpots":null},
+                 {"name":"חניון שאינו ידוע","address":null,"parkingLotStatus":"AVAILABLE","numberOfSpots":null}]""");
+
+        // Act
+        boolean polled = poller.poll();
+
+        // Assert
+        assertTrue(polled);
+        assertTrue(scraperRequest.get().getQuery().contains("names=בית הדר,אבולעפיה,מונטיפיורי,גולדה"));
+        Map<String, ParkingLotStatus> statuses = poller.getStatuses();
+        assertEquals(3, statuses.size());
+        assertEquals(ParkingLotStatus.FULL, statuses.get("בית הדר"));
+        assertEquals(ParkingLotStatus.ALMOST_FULL, statuses.get("אבולעפיה"));
+        assertEquals(ParkingLotStatus.NO_INFORMATION, statuses.get("מונטיפיורי"));
+    }
+
+    @Test
+    public void poll_ScraperFails_KeepsThePreviousSnapshotUntilItIsStale() {
+        // Arrange
+        scraperResponse.set("[{\"name\":\"חניון גולדה\",\"parkingLotStatus\":\"AVAILABLE\"}]");
+        poller.poll();
+        scraperStatus.set(500);
+        scraperResponse.set("{\"error\":\"Request failed with status code 503\"}");
+
+        // Act
+        clock.advance(Duration.ofMinutes(5));
+        boolean polled = poller.poll();
+
+        // Assert
+        assertFalse(polled);
+        assertEquals(ParkingLotStatus.AVAILABLE, poller.getStatuses().get("גולדה"));
+        clock.advance(Duration.ofMinutes(6));
+        assertTrue(poller.getStatuses().isEmpty());
+        assertNotNull(poller.getSnapshot());
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant instant;
+
+        private MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        private void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
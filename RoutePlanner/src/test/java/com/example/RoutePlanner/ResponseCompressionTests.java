@@ -0,0 +1,101 @@
+package com.example.RoutePlanner;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.maps.model.EncodedPolyline;
+import org.example.routeplanner.RoutePlannerApplication;
+import org.example.routeplanner.model.Route;
+import org.example.routeplanner.service.RoutePlannerService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.io.File;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Checks the bytes on the wire of /routes over a real server: uncompressed, gzip-encoded,
+ * and revalidated with the ETag of the previous response. RouteResponseBenchmarks measures the CPU each costs.
+ */
+@SpringBootTest(classes = RoutePlannerApplication.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class ResponseCompressionTests {
+
+    @LocalServerPort
+    private int port;
+
+    @MockBean
+    private RoutePlannerService routePlannerService;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    @BeforeEach
+    public void setup() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        File validOutput = new File("src/test/java/com/example/RoutePlanner/testData/validOutput.json");
+        List<Route> routes = objectMapper.readValue(validOutput, new TypeReference<>() {});
+        JsonNode routesJson = objectMapper.readTree(validOutput);
+        for (int i = 0; i < routes.size(); i++) {
+            routes.get(i).getDrivingPath().getDirectionsRoute().overviewPolyline = new EncodedPolyline(
+                    routesJson.get(i).at("/drivingPath/directionsRoute/overviewPolyline/encodedPath").asText());
+            routes.get(i).getWalkingPath().getDirectionsRoute().overviewPolyline = new EncodedPolyline(
+                    routesJson.get(i).at("/walkingPath/directionsRoute/overviewPolyline/encodedPath").asText());
+        }
+        when(routePlannerService.findRoutes(anyString(), anyString())).thenReturn(routes);
+    }
+
+    @Test
+    public void getRoutes_CompressesResponseWhenAccepted() throws Exception {
+        // Act
+        HttpResponse<byte[]> identity = getRoutes(null, null);
+        HttpResponse<byte[]> gzip = getRoutes("gzip", null);
+
+        // Assert
+        assertEquals(200, identity.statusCode());
+        assertEquals(200, gzip.statusCode());
+        assertTrue(identity.headers().firstValue("Content-Encoding").isEmpty());
+        assertEquals("gzip", gzip.headers().firstValue("Content-Encoding").orElse(null));
+        assertTrue(gzip.body().length * 4 < identity.body().length,
+                "gzip response of " + gzip.body().length + " bytes, identity response of " + identity.body().length + " bytes");
+    }
+
+    @Test
+    public void getRoutes_RevalidatesWithEtag() throws Exception {
+        // Act
+        HttpResponse<byte[]> first = getRoutes("gzip", null);
+        String etag = first.headers().firstValue("ETag").orElseThrow();
+        HttpResponse<byte[]> revalidated = getRoutes("gzip", etag);
+
+        // Assert
+        assertEquals(304, revalidated.statusCode());
+        assertEquals(0, revalidated.body().length);
+        assertEquals(etag, revalidated.headers().firstValue("ETag").orElse(null));
+    }
+
+    private HttpResponse<byte[]> getRoutes(String acceptEncoding, String ifNoneMatch) throws Exception {
+        String query = "origin=" + URLEncoder.encode("כפר סבא", StandardCharsets.UTF_8)
+                + "&destination=" + URLEncoder.encode("כיכר רבין, תל אביב", StandardCharsets.UTF_8);
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/routes?" + query));
+        if (acceptEncoding != null) {
+            request.header("Accept-Encoding", acceptEncoding);
+        }
+        if (ifNoneMatch != null) {
+            request.header("If-None-Match", ifNoneMatch);
+        }
+        return httpClient.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+}
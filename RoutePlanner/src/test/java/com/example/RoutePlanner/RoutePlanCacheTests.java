@@ -0,0 +1,137 @@
+package com.example.RoutePlanner;
+
+import org.example.routeplanner.service.RoutePlanCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RoutePlanCacheTests {
+
+    private static final String KFAR_SABA = "כפר סבא";
+    private static final String RABIN_SQUARE = "כיכר רבין, תל אביב";
+
+    private MutableClock clock;
+    private List<Runnable> refreshes;
+    private RoutePlanCache routePlanCache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    public void setup() {
+        clock = new MutableClock(Instant.parse("2024-08-18T05:00:00Z"));
+        refreshes = new ArrayList<>();
+        routePlanCache = new RoutePlanCache(1024 * 1024, Duration.ofMinutes(1), Duration.ofMinutes(5), refreshes::add, clock);
+        loads = new AtomicInteger();
+    }
+
+    private RoutePlanCache.CachedPlan get(String origin, String representation, String body) {
+        return routePlanCache.get(origin, RABIN_SQUARE, 3, representation, () -> {
+            loads.incrementAndGet();
+            return new RoutePlanCache.Plan(body.getBytes(StandardCharsets.UTF_8), "W/\"" + body + "\"");
+        });
+    }
+
+    private static String body(RoutePlanCache.CachedPlan cached) {
+        return new String(cached.plan().body(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void get_ServesSameAddressesWithTheAgeOfThePlan() {
+        // Act
+        RoutePlanCache.CachedPlan planned = get(KFAR_SABA, "full", "[1]");
+        clock.advance(Duration.ofSeconds(30));
+        RoutePlanCache.CachedPlan sameAddress = get("  כפר   סבא ", "full", "[2]");
+        RoutePlanCache.CachedPlan otherAddress = get("רעננה", "full", "[3]");
+        RoutePlanCache.CachedPlan compact = get(KFAR_SABA, "compact-15", "[4]");
+
+        // Assert
+        assertEquals(Duration.ZERO, planned.age());
+        assertEquals("[1]", body(sameAddress));
+        assertEquals(Duration.ofSeconds(30), sameAddress.age());
+        assertEquals("[3]", body(otherAddress));
+        assertEquals("[4]", body(compact));
+        assertEquals(3, loads.get());
+        assertEquals(1, routePlanCache.getHitCount());
+        assertEquals(3, routePlanCache.getMissCount());
+    }
+
+    @Test
+    public void get_ServesStalePlanWhileASingleRefreshReplansIt() {
+        // Act
+        get(KFAR_SABA, "full", "[1]");
+        clock.advance(Duration.ofMinutes(2));
+        RoutePlanCache.CachedPlan stale = get(KFAR_SABA, "full", "[2]");
+        RoutePlanCache.CachedPlan staleAgain = get(KFAR_SABA, "full", "[3]");
+        int refreshesScheduled = refreshes.size();
+        refreshes.forEach(Runnable::run);
+        clock.advance(Duration.ofSeconds(10));
+        RoutePlanCache.CachedPlan refreshed = get(KFAR_SABA, "full", "[4]");
+
+        // Assert
+        assertEquals("[1]", body(stale));
+        assertEquals(Duration.ofMinutes(2), stale.age());
+        assertEquals("[1]", body(staleAgain));
+        assertEquals(1, refreshesScheduled);
+        assertEquals("[2]", body(refreshed));
+        assertEquals(Duration.ofSeconds(10), refreshed.age());
+        assertEquals(2, loads.get());
+        assertEquals(2, routePlanCache.getStaleHitCount());
+        assertEquals(1, routePlanCache.getRefreshCount());
+    }
+
+    @Test
+    public void get_ReplansExpiredPlansAndDoesNotCacheFailures() {
+        // Arrange
+        get(KFAR_SABA, "full", "[1]");
+        clock.advance(Duration.ofMinutes(6));
+
+        // Act
+        assertThrows(IllegalArgumentException.class, () -> routePlanCache.get(KFAR_SABA, RABIN_SQUARE, 3, "full", () -> {
+            throw new IllegalArgumentException("Destination is not in Tel Aviv");
+        }));
+        RoutePlanCache.CachedPlan replanned = get(KFAR_SABA, "full", "[2]");
+
+        // Assert
+        assertEquals("[2]", body(replanned));
+        assertEquals(Duration.ZERO, replanned.age());
+        assertTrue(refreshes.isEmpty());
+        assertEquals(3, routePlanCache.getMissCount());
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant instant;
+
+        private MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        private void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -2,23 +2,48 @@ package com.example.RoutePlanner;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.google.maps.model.DirectionsLeg;
+import com.google.maps.model.DirectionsRoute;
+import com.google.maps.model.LatLng;
+import com.google.maps.model.TravelMode;
 import org.example.routeplanner.controller.RoutePlannerController;
+import org.example.routeplanner.model.DrivingPath;
 import org.example.routeplanner.model.Route;
+import org.example.routeplanner.model.RouteBatchResult;
+import org.example.routeplanner.model.RouteStreamSummary;
+import org.example.routeplanner.model.WalkingPath;
+import org.example.routeplanner.service.RoutePlanCache;
 import org.example.routeplanner.service.RoutePlannerService;
+import org.example.routeplanner.service.RouteStreamListener;
+import org.example.routeplanner.service.UpstreamRejectedException;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -60,6 +85,139 @@ public class RoutePlannerControllerTests {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    public void getRoutesWithLimit() throws Exception {
+        // Arrange
+        when(routePlannerService.findRoutes(anyString(), anyString(), eq(2))).thenReturn(List.of(
+                new Route(null, null, null, null, null, 14), new Route(null, null, null, null, null, 15)));
+        // Act & Assert
+        mockMvc.perform(MockMvcRequestBuilders.get("/routes")
+                        .param("origin", "כפר סבא")
+                        .param("destination", "כיכר רבין, תל אביב")
+                        .param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)));
+    }
+
+    @Test
+    public void getCompactRoutes() throws Exception {
+        // Arrange
+        Route route = new Route(null, null, null, new DrivingPath(new DirectionsRoute(), 25), new WalkingPath(null, 12), 37);
+        when(routePlannerService.findRoutes(anyString(), anyString())).thenReturn(List.of(route));
+        // Act & Assert
+        mockMvc.perform(MockMvcRequestBuilders.get("/routes")
+                        .param("origin", "כפר סבא")
+                        .param("destination", "כיכר רבין, תל אביב")
+                        .param("compact", "true")
+                        .param("zoom", "14"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].drivingPath.totalTime").value(25))
+                .andExpect(jsonPath("$[0].drivingPath.directionsRoute").doesNotExist())
+                .andExpect(jsonPath("$[0].totalTime").value(37));
+    }
+
+    @Test
+    public void getCompactRoutesWithInvalidZoom() throws Exception {
+        // Act & Assert
+        mockMvc.perform(MockMvcRequestBuilders.get("/routes")
+                        .param("origin", "כפר סבא")
+                        .param("destination", "כיכר רבין, תל אביב")
+                        .param("compact", "true")
+                        .param("zoom", "30"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Zoom must be between 0 and 21"));
+    }
+
+    @Test
+    public void getRoutesReturnsNotModifiedForSameRoutes() throws Exception {
+        // Arrange
+        when(routePlannerService.findRoutes(anyString(), anyString())).thenReturn(List.of(
+                new Route(null, null, null, new DrivingPath(null, 25), new WalkingPath(null, 12), 37)));
+        String etag = mockMvc.perform(MockMvcRequestBuilders.get("/routes")
+                        .param("origin", "כפר סבא")
+                        .param("destination", "כיכר רבין, תל אביב"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        // Act & Assert
+        mockMvc.perform(MockMvcRequestBuilders.get("/routes")
+                        .param("origin", "כפר סבא")
+                        .param("destination", "כיכר רבין, תל אביב")
+                        .header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        when(routePlannerService.findRoutes(anyString(), anyString())).thenReturn(List.of(
+                new Route(null, null, null, new DrivingPath(null, 26), new WalkingPath(null, 12), 38)));
+        mockMvc.perform(MockMvcRequestBuilders.get("/routes")
+                        .param("origin", "כפר סבא")
+                        .param("destination", "כיכר רבין, תל אביב")
+                        .header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].totalTime").value(38));
+    }
+
+    @Test
+    public void getRoutesChangesEtagWhenOnlySecondsOfDirectionsChange() throws Exception {
+        // Arrange
+        when(routePlannerService.findRoutes(anyString(), anyString())).thenReturn(List.of(routeWithLegSeconds(300)));
+        String etag = mockMvc.perform(MockMvcRequestBuilders.get("/routes")
+                        .param("origin", "כפר סבא")
+                        .param("destination", "כיכר רבין, תל אביב"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        when(routePlannerService.findRoutes(anyString(), anyString())).thenReturn(List.of(routeWithLegSeconds(310)));
+
+        // Act & Assert
+        // Both durations read "5 mins" and round to the same total time
+        mockMvc.perform(MockMvcRequestBuilders.get("/routes")
+                        .param("origin", "כפר סבא")
+                        .param("destination", "כיכר רבין, תל אביב")
+                        .header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].drivingPath.directionsRoute.legs[0].duration.inSeconds").value(310));
+    }
+
+    private static Route routeWithLegSeconds(long seconds) {
+        com.google.maps.model.Duration duration = new com.google.maps.model.Duration();
+        duration.inSeconds = seconds;
+        duration.humanReadable = "5 mins";
+        DirectionsLeg leg = new DirectionsLeg();
+        leg.duration = duration;
+        DirectionsRoute directionsRoute = new DirectionsRoute();
+        directionsRoute.legs = new DirectionsLeg[]{leg};
+        return new Route(null, null, null, new DrivingPath(directionsRoute, 5), new WalkingPath(null, 12), 17);
+    }
+
+    @Test
+    public void getRoutesFromRoutePlanCacheWithAge() throws Exception {
+        // Arrange
+        when(routePlannerService.isRoutePlanCacheEnabled()).thenReturn(true);
+        when(routePlannerService.findRoutePlan(anyString(), anyString(), eq(2), eq("full"), any())).thenAnswer(invocation -> {
+            Function<List<Route>, RoutePlanCache.Plan> serializer = invocation.getArgument(4);
+            RoutePlanCache.Plan plan = serializer.apply(List.of(
+                    new Route(null, null, null, new DrivingPath(null, 25), new WalkingPath(null, 12), 37)));
+            return new RoutePlanCache.CachedPlan(plan, Duration.ofSeconds(42));
+        });
+
+        // Act & Assert
+        String etag = mockMvc.perform(MockMvcRequestBuilders.get("/routes")
+                        .param("origin", "כפר סבא")
+                        .param("destination", "כיכר רבין, תל אביב")
+                        .param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().string("Age", "42"))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].totalTime").value(37))
+                .andReturn().getResponse().getHeader("ETag");
+        mockMvc.perform(MockMvcRequestBuilders.get("/routes")
+                        .param("origin", "כפר סבא")
+                        .param("destination", "כיכר רבין, תל אביב")
+                        .param("limit", "2")
+                        .header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+    }
+
     @Test
     public void destinationNotInTelAviv() throws Exception {
         // Arrange
@@ -73,6 +231,20 @@ public class RoutePlannerControllerTests {
         return;
     }
 
+    @Test
+    public void upstreamQuotaExceeded() throws Exception {
+        // Arrange
+        when(routePlannerService.findRoutes(anyString(), anyString()))
+                .thenThrow(new UpstreamRejectedException("Google Maps API quota exceeded: the geocoding queue is full"));
+
+        // Act & Assert
+        mockMvc.perform(MockMvcRequestBuilders.get("/routes")
+                        .param("origin", "כפר סבא")
+                        .param("destination", "כיכר רבין, תל אביב"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(content().string("Google Maps API quota exceeded: the geocoding queue is full"));
+    }
+
     @Test
     public void originNotInIsrael() throws Exception {
         // Arrange
@@ -125,6 +297,174 @@ public class RoutePlannerControllerTests {
                 .andExpect(content().string("Google Maps API error"));
     }
 
+    @Test
+    public void streamRoutesSendsEachRouteAndSummary() throws Exception {
+        // Arrange
+        when(routePlannerService.streamRoutes(anyString(), anyString(), any(RouteStreamListener.class))).thenAnswer(invocation -> {
+            RouteStreamListener listener = invocation.getArgument(2);
+            listener.onRoute(new Route(null, null, null, null, null, 14));
+            listener.onRoute(new Route(null, null, null, null, null, 15));
+            listener.onComplete(new RouteStreamSummary(2, List.of("גולדה", "דובנוב"), 120));
+            return CompletableFuture.completedFuture(null);
+        });
+
+        // Act
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/routes/stream")
+                        .param("origin", "כפר סבא")
+                        .param("destination", "כיכר רבין, תל אביב"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Assert
+        String events = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertEquals(2, events.split("event:route").length - 1);
+        assertTrue(events.contains("event:summary"));
+        assertTrue(events.indexOf("event:summary") > events.lastIndexOf("event:route"));
+    }
+
+    @Test
+    public void streamRoutesWithLimit() throws Exception {
+        // Arrange
+        when(routePlannerService.streamRoutes(anyString(), anyString(), eq(1), any(RouteStreamListener.class))).thenAnswer(invocation -> {
+            RouteStreamListener listener = invocation.getArgument(3);
+            listener.onRoute(new Route(null, null, null, null, null, 14));
+            listener.onComplete(new RouteStreamSummary(1, List.of("גולדה"), 120));
+            return CompletableFuture.completedFuture(null);
+        });
+
+        // Act
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/routes/stream")
+                        .param("origin", "כפר סבא")
+                        .param("destination", "כיכר רבין, תל אביב")
+                        .param("limit", "1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Assert
+        String events = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertEquals(1, events.split("event:route").length - 1);
+        verify(routePlannerService, never()).streamRoutes(anyString(), anyString(), any(RouteStreamListener.class));
+    }
+
+    @Test
+    public void streamRoutesWithMissingOrigin() throws Exception {
+        // Arrange
+        when(routePlannerService.streamRoutes(anyString(), anyString(), any(RouteStreamListener.class)))
+                .thenThrow(new IllegalArgumentException("Current location or destination are empty"));
+
+        // Act & Assert
+        mockMvc.perform(MockMvcRequestBuilders.get("/routes/stream")
+                        .param("origin", "")
+                        .param("destination", "כיכר רבין, תל אביב"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string(containsString("Current location or destination are empty")));
+    }
+
+    @Test
+    public void getRoutesAsyncWithLimit() throws Exception {
+        // Arrange
+        when(routePlannerService.findRoutesAsync(anyString(), anyString(), eq(2))).thenReturn(CompletableFuture.completedFuture(List.of(
+                new Route(null, null, null, null, null, 14), new Route(null, null, null, null, null, 15))));
+
+        // Act
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/routes/async")
+                        .param("origin", "כפר סבא")
+                        .param("destination", "כיכר רבין, תל אביב")
+                        .param("limit", "2"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Assert
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andExpect(jsonPath("$", hasSize(2)));
+    }
+
+    @Test
+    public void getRoutesAsyncWhenRejectedByUpstreamScheduler() throws Exception {
+        // Arrange
+        when(routePlannerService.findRoutesAsync(anyString(), anyString())).thenReturn(CompletableFuture.failedFuture(
+                new UpstreamRejectedException("directions call rejected: queue is full")));
+
+        // Act
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/routes/async")
+                        .param("origin", "כפר סבא")
+                        .param("destination", "כיכר רבין, תל אביב"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Assert
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    public void getRoutesBatchReturnsResultOfEachPair() throws Exception {
+        // Arrange
+        when(routePlannerService.findRoutesBatch(anyList())).thenReturn(List.of(
+                new RouteBatchResult(0, "כפר סבא", "כיכר רבין, תל אביב", RouteBatchResult.Status.OK,
+                        List.of(new Route(null, null, null, null, null, 14)), null),
+                new RouteBatchResult(1, "כפר סבא", "חיפה", RouteBatchResult.Status.INVALID_REQUEST,
+                        null, "Destination is not in Tel Aviv")));
+
+        // Act & Assert
+        mockMvc.perform(MockMvcRequestBuilders.post("/routes/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"origin\":\"כפר סבא\",\"destination\":\"כיכר רבין, תל אביב\"},"
+                                + "{\"origin\":\"כפר סבא\",\"destination\":\"חיפה\",\"limit\":3}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].status").value("OK"))
+                .andExpect(jsonPath("$[0].routes", hasSize(1)))
+                .andExpect(jsonPath("$[1].status").value("INVALID_REQUEST"))
+                .andExpect(jsonPath("$[1].error").value("Destination is not in Tel Aviv"));
+    }
+
+    @Test
+    public void getRoutesBatchWithTooManyPairs() throws Exception {
+        // Arrange
+        when(routePlannerService.findRoutesBatch(anyList()))
+                .thenThrow(new IllegalArgumentException("Batch has more than 100 pairs"));
+
+        // Act & Assert
+        mockMvc.perform(MockMvcRequestBuilders.post("/routes/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"origin\":\"כפר סבא\",\"destination\":\"כיכר רבין, תל אביב\"}]"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Batch has more than 100 pairs"));
+    }
+
+    @Test
+    public void getPathReturnsPathOnDemand() throws Exception {
+        // Arrange
+        when(routePlannerService.findPath(any(LatLng.class), any(LatLng.class), eq(TravelMode.WALKING)))
+                .thenReturn(new WalkingPath(new DirectionsRoute(), 11));
+
+        // Act & Assert
+        mockMvc.perform(MockMvcRequestBuilders.get("/routes/path")
+                        .param("from", "32.0776703,34.7857861")
+                        .param("to", "32.0804846,34.7806198")
+                        .param("mode", "walking"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalTime").value(11));
+    }
+
+    @Test
+    public void getPathWithInvalidLocation() throws Exception {
+        // Act & Assert
+        mockMvc.perform(MockMvcRequestBuilders.get("/routes/path")
+                        .param("from", "Tel Aviv")
+                        .param("to", "32.0804846,34.7806198")
+                        .param("mode", "walking"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Location must be given as lat,lng"));
+    }
+
     @Test
     public void addressDoesNotExist() throws Exception {
         // Arrange
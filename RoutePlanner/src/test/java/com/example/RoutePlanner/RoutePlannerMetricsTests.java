@@ -0,0 +1,102 @@
+package com.example.RoutePlanner;
+
+import com.google.maps.errors.OverQueryLimitException;
+import com.google.maps.model.TravelMode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.routeplanner.service.RoutePlannerMetrics;
+import org.example.routeplanner.service.SingleFlight;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RoutePlannerMetricsTests {
+
+    private SimpleMeterRegistry registry;
+    private RoutePlannerMetrics metrics;
+
+    @BeforeEach
+    public void setup() {
+        registry = new SimpleMeterRegistry();
+        metrics = new RoutePlannerMetrics(registry);
+    }
+
+    @Test
+    public void timeUpstream_Success_RecordsSuccessfulCall() throws Exception {
+        // Act
+        String result = metrics.timeUpstream(RoutePlannerMetrics.API_DIRECTIONS, TravelMode.WALKING, () -> "directions");
+
+        // Assert
+        assertEquals("directions", result);
+        assertEquals(1, registry.get("routeplanner.upstream")
+                .tags("api", "directions", "mode", "walking", "outcome", "success").timer().count());
+        assertTrue(registry.find("routeplanner.upstream.errors").counters().isEmpty());
+    }
+
+    @Test
+    public void timeUpstream_Failure_CountsErrorByTypeAndRethrows() {
+        // Act & Assert
+        assertThrows(OverQueryLimitException.class, () -> metrics.timeUpstream(RoutePlannerMetrics.API_GEOCODING, null, () -> {
+            throw new OverQueryLimitException("Over quota");
+        }));
+        assertEquals(1, registry.get("routeplanner.upstream")
+                .tags("api", "geocoding", "mode", "none", "outcome", "error").timer().count());
+        assertEquals(1, registry.get("routeplanner.upstream.errors")
+                .tags("api", "geocoding", "type", "OverQueryLimitException").counter().count());
+    }
+
+    @Test
+    public void bindCache_ExposesHitsMissesAndHitRatio() {
+        // Arrange
+        AtomicLong hits = new AtomicLong();
+        AtomicLong misses = new AtomicLong();
+        metrics.bindCache("walking", this, cache -> hits.get(), cache -> misses.get());
+
+        // Act
+        hits.set(3);
+        misses.set(1);
+
+        // Assert
+        assertEquals(3, registry.get("routeplanner.cache.hits").tag("cache", "walking").functionCounter().count());
+        assertEquals(1, registry.get("routeplanner.cache.misses").tag("cache", "walking").functionCounter().count());
+        assertEquals(0.75, registry.get("routeplanner.cache.hit.ratio").tag("cache", "walking").gauge().value());
+    }
+
+    @Test
+    public void bindCacheDrift_ExposesSamplesMeanAndMaxDrift() {
+        // Arrange
+        AtomicLong samples = new AtomicLong();
+        metrics.bindCacheDrift("driving", this, cache -> samples.get(), cache -> 1.5, cache -> 4);
+
+        // Act
+        samples.set(2);
+
+        // Assert
+        assertEquals(2, registry.get("routeplanner.cache.drift.samples").tag("cache", "driving").functionCounter().count());
+        assertEquals(1.5, registry.get("routeplanner.cache.drift.mean").tag("cache", "driving").gauge().value());
+        assertEquals(4, registry.get("routeplanner.cache.drift.max").tag("cache", "driving").gauge().value());
+    }
+
+    @Test
+    public void bindSingleFlight_ExposesCallsWaitersAndInFlight() throws Exception {
+        // Arrange
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        metrics.bindSingleFlight("directions", singleFlight);
+        CompletableFuture<String> call = new CompletableFuture<>();
+
+        // Act
+        singleFlight.executeAsync("גולדה", () -> call);
+        singleFlight.executeAsync("גולדה", () -> CompletableFuture.completedFuture("other"));
+        double inFlight = registry.get("routeplanner.coalescing.in.flight").tag("flight", "directions").gauge().value();
+        call.complete("directions");
+
+        // Assert
+        assertEquals(1, registry.get("routeplanner.coalescing.calls").tag("flight", "directions").functionCounter().count());
+        assertEquals(1, registry.get("routeplanner.coalescing.waiters").tag("flight", "directions").functionCounter().count());
+        assertEquals(1, inFlight);
+        assertEquals(0, registry.get("routeplanner.coalescing.in.flight").tag("flight", "directions").gauge().value());
+    }
+}
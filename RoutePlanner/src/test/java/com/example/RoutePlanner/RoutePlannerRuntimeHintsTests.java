@@ -0,0 +1,33 @@
+package com.example.RoutePlanner;
+
+import com.google.maps.model.DirectionsResult;
+import org.example.routeplanner.RoutePlannerRuntimeHints;
+import org.example.routeplanner.model.Route;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RoutePlannerRuntimeHintsTests {
+
+    @Test
+    public void registerHints_CoversTheDatasetTheGoogleMapsResponsesAndTheModels() {
+        // Arrange
+        RuntimeHints hints = new RuntimeHints();
+
+        // Act
+        new RoutePlannerRuntimeHints().registerHints(hints, getClass().getClassLoader());
+
+        // Assert
+        assertTrue(RuntimeHintsPredicates.resource().forResource("parkingLots.bin").test(hints));
+        assertTrue(RuntimeHintsPredicates.resource().forResource("allParkingLotsLocations.json").test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onType(TypeReference.of("com.google.maps.DirectionsApi$Response"))
+                .withMemberCategory(MemberCategory.DECLARED_FIELDS).test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onType(DirectionsResult.class)
+                .withMemberCategory(MemberCategory.DECLARED_FIELDS).test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onType(Route.class).test(hints));
+    }
+}
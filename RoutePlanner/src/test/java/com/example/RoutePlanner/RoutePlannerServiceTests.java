@@ -1,26 +1,66 @@
 package com.example.RoutePlanner;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.maps.*;
 import com.google.maps.errors.ApiException;
+import com.google.maps.errors.OverQueryLimitException;
 import com.google.maps.model.*;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.routeplanner.RoutePlannerProperties;
+import com.sun.net.httpserver.HttpServer;
 import org.example.routeplanner.model.DrivingPath;
+import org.example.routeplanner.model.ParkingLotStatus;
 import org.example.routeplanner.model.Route;
+import org.example.routeplanner.model.RouteBatchResult;
+import org.example.routeplanner.model.RoutePair;
+import org.example.routeplanner.model.RouteStreamSummary;
 import org.example.routeplanner.model.WalkingPath;
+import org.example.routeplanner.service.FullLotPolicy;
+import org.example.routeplanner.service.LotSearchSource;
+import org.example.routeplanner.service.ParkingLotDataset;
+import org.example.routeplanner.service.ParkingLotMatcher;
+import org.example.routeplanner.service.PlanningMode;
+import org.example.routeplanner.service.RoutePlanCache;
+import org.example.routeplanner.service.RoutePlannerMetrics;
 import org.example.routeplanner.service.RoutePlannerService;
+import org.example.routeplanner.service.RouteStreamListener;
+import org.example.routeplanner.service.UpstreamRejectedException;
+import org.example.routeplanner.service.WalkingTimeMatrix;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.*;
 import org.springframework.web.client.ResourceAccessException;
 import java.lang.reflect.Field;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
 import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -32,7 +72,7 @@ public class RoutePlannerServiceTests {
     private NearbySearchRequest nearbySearchRequest;
     @Spy
     @InjectMocks
-    private RoutePlannerService routePlannerService;
+    private RoutePlannerService routePlannerService = new RoutePlannerService();
 
     private ObjectMapper objectMapper;
 
@@ -88,12 +128,694 @@ public class RoutePlannerServiceTests {
         //Assert
         assertNotNull(routes);
         assertEquals(3, routes.size());
-        assertEquals("גולדה", routes.get(0).getParkingLot().getName());
-        assertEquals("רמז-ארלוזורוב", routes.get(1).getParkingLot().getName());
+        assertEquals("רמז-ארלוזורוב", routes.get(0).getParkingLot().getName());
+        assertEquals("גולדה", routes.get(1).getParkingLot().getName());
         assertEquals("דובנוב", routes.get(2).getParkingLot().getName());
+        assertTrue(routes.get(0).getTotalTime() <= routes.get(1).getTotalTime());
+        assertTrue(routes.get(1).getTotalTime() <= routes.get(2).getTotalTime());
         Mockito.framework().clearInlineMocks();
     }
 
+    @Test
+    public void findRoutes_ConcurrentModeReturnsSameRoutesAsSerialMode() throws Exception {
+        // Arrange
+        RoutePlannerProperties properties = new RoutePlannerProperties();
+        properties.getPlanning().setMode(PlanningMode.CONCURRENT);
+        properties.getPlanning().setMaxInFlightPerRequest(2);
+        RoutePlannerService concurrentRoutePlannerService = spy(new RoutePlannerService(properties));
+        stubUpstreams(routePlannerService);
+        stubUpstreams(concurrentRoutePlannerService);
+
+        // Act
+        List<Route> serialRoutes = routePlannerService.findRoutes("כפר סבא", "כיכר רבין, תל אביב");
+        List<Route> concurrentRoutes = concurrentRoutePlannerService.findRoutes("כפר סבא", "כיכר רבין, תל אביב");
+        concurrentRoutePlannerService.shutdown();
+
+        // Assert
+        assertEquals(3, concurrentRoutes.size());
+        for (int i = 0; i < serialRoutes.size(); i++) {
+            assertEquals(serialRoutes.get(i).getParkingLot().getName(), concurrentRoutes.get(i).getParkingLot().getName());
+            assertEquals(serialRoutes.get(i).getTotalTime(), concurrentRoutes.get(i).getTotalTime());
+        }
+    }
+
+    @Test
+    public void findRoutes_ConcurrentModeOverlapsLegsWithinInFlightLimit() throws Exception {
+        // Arrange
+        RoutePlannerProperties properties = new RoutePlannerProperties();
+        properties.getPlanning().setMode(PlanningMode.CONCURRENT);
+        properties.getPlanning().setMaxInFlightPerRequest(2);
+        RoutePlannerService concurrentRoutePlannerService = spy(new RoutePlannerService(properties));
+        stubUpstreams(concurrentRoutePlannerService);
+        // Answers like stubUpstreams once two legs are in flight together, and holds each leg a little so that legs
+        // beyond the limit would be in flight too, recording the most legs in flight at once
+        List<LatLng> parkingLotLocations = List.of(
+                new LatLng(32.0776703, 34.7857861),
+                new LatLng(32.0852196, 34.7858085),
+                new LatLng(32.0740802, 34.7838054));
+        CountDownLatch overlap = new CountDownLatch(2);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        doAnswer(invocation -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                overlap.countDown();
+                overlap.await(5, TimeUnit.SECONDS);
+                Thread.sleep(50);
+                return invocation.getArgument(2) == TravelMode.DRIVING
+                        ? directionsResult(60L * (25 + parkingLotLocations.indexOf(invocation.<LatLng>getArgument(1))))
+                        : directionsResult(60L * (12 - parkingLotLocations.indexOf(invocation.<LatLng>getArgument(0))));
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }).when(concurrentRoutePlannerService).getDirections(any(LatLng.class), any(LatLng.class), any(TravelMode.class));
+
+        // Act
+        List<Route> routes = concurrentRoutePlannerService.findRoutes("כפר סבא", "כיכר רבין, תל אביב");
+        concurrentRoutePlannerService.shutdown();
+
+        // Assert
+        assertEquals(3, routes.size());
+        assertEquals(0, overlap.getCount());
+        assertEquals(2, maxInFlight.get());
+    }
+
+    @Test
+    public void findRoutePlan_ServesSameAddressesFromCacheAndNeverOtherAddresses() throws Exception {
+        // Arrange
+        RoutePlannerProperties properties = new RoutePlannerProperties();
+        properties.getPlanCache().setEnabled(true);
+        RoutePlannerService cachingRoutePlannerService = spy(new RoutePlannerService(properties));
+        stubUpstreams(cachingRoutePlannerService);
+        LatLng raananaLatLng = new LatLng(32.184781, 34.871326);
+        doReturn(raananaLatLng).when(cachingRoutePlannerService).getLocationFromAddress(eq("רעננה"));
+        doReturn(directionsResult(60L * 20)).when(cachingRoutePlannerService).getDirections(
+                eq(raananaLatLng), any(LatLng.class), eq(TravelMode.DRIVING));
+        Function<List<Route>, RoutePlanCache.Plan> serializer = routes -> new RoutePlanCache.Plan(
+                routes.get(0).getOrigin().getName().getBytes(StandardCharsets.UTF_8), null);
+
+        // Act
+        RoutePlanCache.CachedPlan planned = cachingRoutePlannerService.findRoutePlan("כפר סבא", "כיכר רבין, תל אביב", "full", serializer);
+        RoutePlanCache.CachedPlan cached = cachingRoutePlannerService.findRoutePlan("כפר סבא", "כיכר רבין, תל אביב", "full", serializer);
+        RoutePlanCache.CachedPlan otherOrigin = cachingRoutePlannerService.findRoutePlan("רעננה", "כיכר רבין, תל אביב", "full", serializer);
+        cachingRoutePlannerService.shutdown();
+
+        // Assert
+        assertSame(planned.plan(), cached.plan());
+        assertEquals("רעננה", new String(otherOrigin.plan().body(), StandardCharsets.UTF_8));
+        verify(cachingRoutePlannerService, times(1)).getLocationFromAddress(eq("כפר סבא"));
+        verify(cachingRoutePlannerService, times(2)).getLocationFromAddress(eq("כיכר רבין, תל אביב"));
+    }
+
+    @Test
+    public void findRoutesAsync_ReturnsSameRoutesAsBlockingPlanning() throws Exception {
+        // Arrange
+        stubUpstreams(routePlannerService);
+        stubUpstreamsAsync(routePlannerService);
+
+        // Act
+        List<Route> blockingRoutes = routePlannerService.findRoutes("כפר סבא", "כיכר רבין, תל אביב");
+        List<Route> asyncRoutes = routePlannerService.findRoutesAsync("כפר סבא", "כיכר רבין, תל אביב").get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertEquals(3, asyncRoutes.size());
+        for (int i = 0; i < blockingRoutes.size(); i++) {
+            assertEquals(blockingRoutes.get(i).getParkingLot().getName(), asyncRoutes.get(i).getParkingLot().getName());
+            assertEquals(blockingRoutes.get(i).getTotalTime(), asyncRoutes.get(i).getTotalTime());
+        }
+        verify(routePlannerService, times(6)).getDirectionsAsync(any(LatLng.class), any(LatLng.class), any(TravelMode.class));
+    }
+
+    @Test
+    public void findRoutesAsync_FailsWithTheErrorOfTheRequest() throws Exception {
+        // Arrange
+        stubUpstreamsAsync(routePlannerService);
+        doReturn(CompletableFuture.completedFuture(new LatLng(32.794, 34.989))).when(routePlannerService)
+                .getLocationFromAddressAsync(eq("חיפה"));
+        doReturn(CompletableFuture.failedFuture(new OverQueryLimitException("Over the query limit"))).when(routePlannerService)
+                .getLocationFromAddressAsync(eq("רעננה"));
+
+        // Act
+        CompletableFuture<List<Route>> outsideTelAviv = routePlannerService.findRoutesAsync("כפר סבא", "חיפה");
+        CompletableFuture<List<Route>> googleError = routePlannerService.findRoutesAsync("רעננה", "כיכר רבין, תל אביב");
+
+        // Assert
+        ExecutionException outsideTelAvivError = assertThrows(ExecutionException.class, () -> outsideTelAviv.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalArgumentException.class, outsideTelAvivError.getCause());
+        assertEquals("Destination is not in Tel Aviv", outsideTelAvivError.getCause().getMessage());
+        ExecutionException upstreamError = assertThrows(ExecutionException.class, () -> googleError.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(ResourceAccessException.class, upstreamError.getCause());
+        assertThrows(IllegalArgumentException.class, () -> routePlannerService.findRoutesAsync("", "כיכר רבין, תל אביב"));
+    }
+
+    @Test
+    public void findRoutes_VirtualThreadsReturnSameRoutesAsPlatformThreads() throws Exception {
+        // Arrange
+        RoutePlannerProperties properties = new RoutePlannerProperties();
+        properties.getPlanning().setMode(PlanningMode.CONCURRENT);
+        properties.getThreads().setVirtual(true);
+        RoutePlannerService virtualRoutePlannerService = spy(new RoutePlannerService(properties));
+        stubUpstreams(routePlannerService);
+        stubUpstreams(virtualRoutePlannerService);
+        // Answers like stubUpstreams, recording the threads the legs run on
+        List<LatLng> parkingLotLocations = List.of(
+                new LatLng(32.0776703, 34.7857861),
+                new LatLng(32.0852196, 34.7858085),
+                new LatLng(32.0740802, 34.7838054));
+        List<Thread> legThreads = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> {
+            legThreads.add(Thread.currentThread());
+            return invocation.getArgument(2) == TravelMode.DRIVING
+                    ? directionsResult(60L * (25 + parkingLotLocations.indexOf(invocation.<LatLng>getArgument(1))))
+                    : directionsResult(60L * (12 - parkingLotLocations.indexOf(invocation.<LatLng>getArgument(0))));
+        }).when(virtualRoutePlannerService).getDirections(any(LatLng.class), any(LatLng.class), any(TravelMode.class));
+
+        // Act
+        List<Route> platformRoutes = routePlannerService.findRoutes("כפר סבא", "כיכר רבין, תל אביב");
+        List<Route> virtualRoutes = virtualRoutePlannerService.findRoutes("כפר סבא", "כיכר רבין, תל אביב");
+        virtualRoutePlannerService.shutdown();
+
+        // Assert
+        assertEquals(3, virtualRoutes.size());
+        for (int i = 0; i < platformRoutes.size(); i++) {
+            assertEquals(platformRoutes.get(i).getParkingLot().getName(), virtualRoutes.get(i).getParkingLot().getName());
+            assertEquals(platformRoutes.get(i).getTotalTime(), virtualRoutes.get(i).getTotalTime());
+        }
+        assertEquals(6, legThreads.size());
+        for (Thread legThread : legThreads) {
+            assertTrue(legThread.isVirtual());
+            assertTrue(legThread.getName().startsWith("directions-"));
+        }
+    }
+
+    @Test
+    public void findRoutes_MatrixModeRanksRoutesAndFetchesDirectionsOfBestRoutesOnly() throws Exception {
+        // Arrange
+        RoutePlannerProperties properties = new RoutePlannerProperties();
+        properties.getPlanning().setMode(PlanningMode.MATRIX);
+        properties.getPlanning().setMatrixDirectionsLimit(1);
+        RoutePlannerService matrixRoutePlannerService = spy(new RoutePlannerService(properties));
+        stubUpstreams(matrixRoutePlannerService);
+        long[] drivingSeconds = {60 * 25, 60 * 26, 60 * 27};
+        long[] walkingSeconds = {60 * 12, 60 * 9, 60 * 11};
+        doReturn(distanceMatrix(new long[][]{drivingSeconds})).when(matrixRoutePlannerService).getDistanceMatrix(
+                any(LatLng[].class), any(LatLng[].class), eq(TravelMode.DRIVING));
+        doReturn(distanceMatrix(new long[][]{{walkingSeconds[0]}, {walkingSeconds[1]}, {walkingSeconds[2]}})).when(matrixRoutePlannerService).getDistanceMatrix(
+                any(LatLng[].class), any(LatLng[].class), eq(TravelMode.WALKING));
+
+        // Act
+        List<Route> routes = matrixRoutePlannerService.findRoutes("כפר סבא", "כיכר רבין, תל אביב");
+
+        // Assert
+        assertEquals(3, routes.size());
+        assertEquals(35, routes.get(0).getTotalTime());
+        assertEquals(37, routes.get(1).getTotalTime());
+        assertEquals(38, routes.get(2).getTotalTime());
+        assertNotNull(routes.get(0).getDrivingPath().getDirectionsRoute());
+        assertNotNull(routes.get(0).getWalkingPath().getDirectionsRoute());
+        assertNull(routes.get(1).getDrivingPath().getDirectionsRoute());
+        assertNull(routes.get(2).getWalkingPath().getDirectionsRoute());
+        verify(matrixRoutePlannerService, times(2)).getDirections(any(LatLng.class), any(LatLng.class), any(TravelMode.class));
+    }
+
+    @Test
+    public void findRoutes_MatrixModeFetchesNoDirectionsByDefault() throws Exception {
+        // Arrange
+        RoutePlannerProperties properties = new RoutePlannerProperties();
+        properties.getPlanning().setMode(PlanningMode.MATRIX);
+        RoutePlannerService matrixRoutePlannerService = spy(new RoutePlannerService(properties));
+        stubUpstreams(matrixRoutePlannerService);
+        doReturn(distanceMatrix(new long[][]{{60 * 25, 60 * 26, 60 * 27}})).when(matrixRoutePlannerService).getDistanceMatrix(
+                any(LatLng[].class), any(LatLng[].class), eq(TravelMode.DRIVING));
+        doReturn(distanceMatrix(new long[][]{{60 * 12}, {60 * 9}, {60 * 11}})).when(matrixRoutePlannerService).getDistanceMatrix(
+                any(LatLng[].class), any(LatLng[].class), eq(TravelMode.WALKING));
+
+        // Act
+        List<Route> routes = matrixRoutePlannerService.findRoutes("כפר סבא", "כיכר רבין, תל אביב");
+
+        // Assert
+        assertEquals(3, routes.size());
+        assertNull(routes.get(0).getDrivingPath().getDirectionsRoute());
+        assertNull(routes.get(0).getWalkingPath().getDirectionsRoute());
+        verify(matrixRoutePlannerService, times(2)).getDistanceMatrix(any(LatLng[].class), any(LatLng[].class), any(TravelMode.class));
+        verify(matrixRoutePlannerService, never()).getDirections(any(LatLng.class), any(LatLng.class), any(TravelMode.class));
+    }
+
+    @Test
+    public void findRoutes_MatrixModeReadsWalkingTimesFromWalkingMatrix(@TempDir Path directory) throws Exception {
+        // Arrange
+        Path matrixFile = directory.resolve("walking-times.bin");
+        WalkingTimeMatrix.Grid grid = new WalkingTimeMatrix.Grid(32.07, 34.77, 32.09, 34.79, 50);
+        List<String> parkingLotNames = List.of(
+                RoutePlannerService.findBestMatch(new LatLng(32.0776703, 34.7857861)),
+                RoutePlannerService.findBestMatch(new LatLng(32.0852196, 34.7858085)),
+                RoutePlannerService.findBestMatch(new LatLng(32.0740802, 34.7838054)));
+        List<char[]> walkingSeconds = new ArrayList<>();
+        for (int i = 0; i < parkingLotNames.size(); i++) {
+            char[] seconds = new char[grid.rows() * grid.columns()];
+            Arrays.fill(seconds, (char) (60 * (12 - i)));
+            walkingSeconds.add(seconds);
+        }
+        WalkingTimeMatrix.write(matrixFile, grid, parkingLotNames, walkingSeconds);
+
+        RoutePlannerProperties properties = new RoutePlannerProperties();
+        properties.getPlanning().setMode(PlanningMode.MATRIX);
+        properties.getPlanning().setMatrixDirectionsLimit(1);
+        properties.getWalkingMatrix().setEnabled(true);
+        properties.getWalkingMatrix().setFile(matrixFile.toString());
+        RoutePlannerService matrixRoutePlannerService = spy(new RoutePlannerService(properties));
+        stubUpstreams(matrixRoutePlannerService);
+        doReturn(distanceMatrix(new long[][]{{60 * 25, 60 * 26, 60 * 27}})).when(matrixRoutePlannerService).getDistanceMatrix(
+                any(LatLng[].class), any(LatLng[].class), eq(TravelMode.DRIVING));
+
+        // Act
+        List<Route> routes = matrixRoutePlannerService.findRoutes("כפר סבא", "כיכר רבין, תל אביב");
+
+        // Assert
+        assertEquals(3, routes.size());
+        for (Route route : routes) {
+            assertEquals(37, route.getTotalTime());
+        }
+        assertNotNull(routes.get(0).getWalkingPath().getDirectionsRoute());
+        assertNull(routes.get(1).getWalkingPath().getDirectionsRoute());
+        verify(matrixRoutePlannerService, never()).getDistanceMatrix(any(LatLng[].class), any(LatLng[].class), eq(TravelMode.WALKING));
+        verify(matrixRoutePlannerService, times(1)).getDirections(any(LatLng.class), any(LatLng.class), eq(TravelMode.WALKING));
+    }
+
+    @Test
+    public void findRoutesBatch_SharesGeocodesLotSearchesAndLegsAcrossPairs() throws Exception {
+        // Arrange
+        LatLng raananaLatLng = new LatLng(32.184781, 34.871326);
+        doReturn(raananaLatLng).when(routePlannerService).getLocationFromAddress(eq("רעננה"));
+        doReturn(directionsResult(60L * 20)).when(routePlannerService).getDirections(
+                eq(raananaLatLng), any(LatLng.class), eq(TravelMode.DRIVING));
+        stubUpstreams(routePlannerService);
+        List<RoutePair> pairs = List.of(
+                new RoutePair("כפר סבא", "כיכר רבין, תל אביב", null),
+                new RoutePair("רעננה", "כיכר רבין, תל אביב", null),
+                new RoutePair("כפר סבא", "כיכר רבין, תל אביב", null),
+                new RoutePair("", "כיכר רבין, תל אביב", null));
+
+        // Act
+        List<RouteBatchResult> results = routePlannerService.findRoutesBatch(pairs);
+
+        // Assert
+        assertEquals(4, results.size());
+        assertEquals(RouteBatchResult.Status.OK, results.get(0).getStatus());
+        assertEquals(37, results.get(0).getRoutes().get(0).getTotalTime());
+        assertEquals(30, results.get(1).getRoutes().get(0).getTotalTime());
+        assertEquals(3, results.get(2).getRoutes().size());
+        assertEquals(RouteBatchResult.Status.INVALID_REQUEST, results.get(3).getStatus());
+        verify(routePlannerService, times(3)).getLocationFromAddress(anyString());
+        verify(routePlannerService, times(1)).getNearbyParkingLots(any(LatLng.class), anyInt());
+        // Each origin drives to the three parking lots, and each parking lot is walked from once for both origins
+        verify(routePlannerService, times(6)).getDirections(any(LatLng.class), any(LatLng.class), eq(TravelMode.DRIVING));
+        verify(routePlannerService, times(3)).getDirections(any(LatLng.class), any(LatLng.class), eq(TravelMode.WALKING));
+    }
+
+    @Test
+    public void findRoutesBatch_TooManyPairs_ThrowsIllegalArgumentException() {
+        // Arrange
+        RoutePlannerProperties properties = new RoutePlannerProperties();
+        properties.getBatch().setMaxPairs(1);
+        RoutePlannerService batchRoutePlannerService = new RoutePlannerService(properties);
+        List<RoutePair> pairs = List.of(
+                new RoutePair("כפר סבא", "כיכר רבין, תל אביב", null),
+                new RoutePair("רעננה", "כיכר רבין, תל אביב", null));
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> batchRoutePlannerService.findRoutesBatch(pairs));
+        batchRoutePlannerService.shutdown();
+    }
+
+    @Test
+    public void findRoutes_OccupancyDropsFullLots_SkipsTheirLegsAndAttachesStatuses() throws Exception {
+        // Arrange
+        String fullParkingLot = RoutePlannerService.findBestMatch(new LatLng(32.0776703, 34.7857861));
+        String availableParkingLot = RoutePlannerService.findBestMatch(new LatLng(32.0852196, 34.7858085));
+        HttpServer scraper = startScraper("[{\"name\":\"חניון " + fullParkingLot + "\",\"parkingLotStatus\":\"FULL\"},"
+                + "{\"name\":\"חניון " + availableParkingLot + "\",\"parkingLotStatus\":\"AVAILABLE\"}]");
+        RoutePlannerProperties properties = new RoutePlannerProperties();
+        properties.getOccupancy().setEnabled(true);
+        properties.getOccupancy().setScraperUrl("http://127.0.0.1:" + scraper.getAddress().getPort());
+        properties.getOccupancy().setFullLotPolicy(FullLotPolicy.DROP);
+        RoutePlannerService occupancyRoutePlannerService = spy(new RoutePlannerService(properties));
+        stubUpstreams(occupancyRoutePlannerService);
+        assertTrue(occupancyRoutePlannerService.getOccupancyPoller().poll());
+
+        // Act
+        List<Route> routes = occupancyRoutePlannerService.findRoutes("כפר סבא", "כיכר רבין, תל אביב");
+        occupancyRoutePlannerService.shutdown();
+        scraper.stop(0);
+
+        // Assert
+        assertEquals(2, routes.size());
+        assertTrue(routes.stream().noneMatch(route -> route.getParkingLot().getName().equals(fullParkingLot)));
+        assertEquals(ParkingLotStatus.AVAILABLE, routes.stream()
+                .filter(route -> route.getParkingLot().getName().equals(availableParkingLot))
+                .findFirst().orElseThrow().getParkingLotStatus());
+        assertTrue(routes.stream().anyMatch(route -> route.getParkingLotStatus() == ParkingLotStatus.NO_INFORMATION));
+        verify(occupancyRoutePlannerService, times(4)).getDirections(any(LatLng.class), any(LatLng.class), any(TravelMode.class));
+    }
+
+    @Test
+    public void findRoutes_OccupancyDownRanksFullLots_RanksThemLast() throws Exception {
+        // Arrange
+        String fullParkingLot = RoutePlannerService.findBestMatch(new LatLng(32.0852196, 34.7858085));
+        HttpServer scraper = startScraper("[{\"name\":\"חניון " + fullParkingLot + "\",\"parkingLotStatus\":\"FULL\"}]");
+        RoutePlannerProperties properties = new RoutePlannerProperties();
+        properties.getOccupancy().setEnabled(true);
+        properties.getOccupancy().setScraperUrl("http://127.0.0.1:" + scraper.getAddress().getPort());
+        RoutePlannerService occupancyRoutePlannerService = spy(new RoutePlannerService(properties));
+        stubUpstreams(occupancyRoutePlannerService);
+        assertTrue(occupancyRoutePlannerService.getOccupancyPoller().poll());
+
+        // Act
+        List<Route> allRoutes = occupancyRoutePlannerService.findRoutes("כפר סבא", "כיכר רבין, תל אביב");
+        List<Route> bestRoutes = occupancyRoutePlannerService.findRoutes("כפר סבא", "כיכר רבין, תל אביב", 2);
+        occupancyRoutePlannerService.shutdown();
+        scraper.stop(0);
+
+        // Assert
+        assertEquals(3, allRoutes.size());
+        assertEquals(fullParkingLot, allRoutes.get(2).getParkingLot().getName());
+        assertEquals(ParkingLotStatus.FULL, allRoutes.get(2).getParkingLotStatus());
+        assertEquals(2, bestRoutes.size());
+        assertTrue(bestRoutes.stream().noneMatch(route -> route.getParkingLotStatus() == ParkingLotStatus.FULL));
+    }
+
+    @Test
+    public void findRoutes_SchedulerRejectsLegs_ReturnsTheOtherRoutes() throws Exception {
+        // Arrange
+        RoutePlannerProperties properties = new RoutePlannerProperties();
+        properties.getScheduler().setEnabled(true);
+        properties.getScheduler().getDirections().setRatePerSecond(0.001);
+        properties.getScheduler().getDirections().setBurst(2);
+        RoutePlannerService scheduledRoutePlannerService = spy(new RoutePlannerService(properties));
+        stubUpstreams(scheduledRoutePlannerService);
+
+        // Act
+        List<Route> routes = scheduledRoutePlannerService.findRoutes("כפר סבא", "כיכר רבין, תל אביב");
+
+        // Assert
+        assertEquals(1, routes.size());
+        assertEquals(37, routes.get(0).getTotalTime());
+        verify(scheduledRoutePlannerService, times(2)).getDirections(any(LatLng.class), any(LatLng.class), any(TravelMode.class));
+    }
+
+    @Test
+    public void findRoutes_SchedulerRejectsEveryRoute_ThrowsUpstreamRejectedException() throws Exception {
+        // Arrange
+        RoutePlannerProperties properties = new RoutePlannerProperties();
+        properties.getScheduler().setEnabled(true);
+        properties.getScheduler().getDirections().setRatePerSecond(0.001);
+        properties.getScheduler().getDirections().setBurst(1);
+        RoutePlannerService scheduledRoutePlannerService = spy(new RoutePlannerService(properties));
+        stubUpstreams(scheduledRoutePlannerService);
+
+        // Act & Assert
+        assertThrows(UpstreamRejectedException.class,
+                () -> scheduledRoutePlannerService.findRoutes("כפר סבא", "כיכר רבין, תל אביב"));
+    }
+
+    @Test
+    public void findRoutes_RecordsStageTimersAndCandidateLots() throws Exception {
+        // Arrange
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        RoutePlannerService meteredRoutePlannerService = spy(new RoutePlannerService(new RoutePlannerProperties(), new RoutePlannerMetrics(registry)));
+        stubUpstreams(meteredRoutePlannerService);
+
+        // Act
+        List<Route> routes = meteredRoutePlannerService.findRoutes("כפר סבא", "כיכר רבין, תל אביב");
+
+        // Assert
+        assertEquals(2, registry.get("routeplanner.stage").tag("stage", RoutePlannerMetrics.STAGE_GEOCODING).timer().count());
+        assertEquals(1, registry.get("routeplanner.stage").tag("stage", RoutePlannerMetrics.STAGE_LOT_SEARCH).timer().count());
+        assertEquals(1, registry.get("routeplanner.stage").tag("stage", RoutePlannerMetrics.STAGE_LOT_MATCHING).timer().count());
+        assertEquals(1, registry.get("routeplanner.stage").tag("stage", RoutePlannerMetrics.STAGE_PLANNING).timer().count());
+        assertEquals(routes.size(), registry.get("routeplanner.stage").tag("stage", RoutePlannerMetrics.STAGE_DRIVING).timer().count());
+        assertEquals(routes.size(), registry.get("routeplanner.stage").tag("stage", RoutePlannerMetrics.STAGE_WALKING).timer().count());
+        assertEquals(1, registry.get("routeplanner.candidate.lots").summary().count());
+        assertEquals(3, registry.get("routeplanner.candidate.lots").summary().totalAmount());
+    }
+
+    @Test
+    public void findRoutes_LocalLotSearchDoesNotCallPlaces() throws Exception {
+        // Arrange
+        RoutePlannerProperties properties = new RoutePlannerProperties();
+        properties.getLotSearch().setSource(LotSearchSource.LOCAL);
+        RoutePlannerService localRoutePlannerService = spy(new RoutePlannerService(properties));
+        stubUpstreams(localRoutePlannerService);
+        doReturn(directionsResult(60 * 20)).when(localRoutePlannerService).getDirections(
+                any(LatLng.class), any(LatLng.class), any(TravelMode.class));
+
+        // Act
+        List<Route> routes = localRoutePlannerService.findRoutes("כפר סבא", "כיכר רבין, תל אביב");
+
+        // Assert
+        assertFalse(routes.isEmpty());
+        for (Route route : routes) {
+            assertTrue(RoutePlannerService.distance(route.getParkingLot().getLocation(), new LatLng(32.0804846, 34.7806198)) <= 800);
+        }
+        verify(localRoutePlannerService, never()).getNearbyParkingLots(any(LatLng.class), anyInt());
+    }
+
+    @Test
+    public void findRoutes_ReusesCachedWalkingPaths() throws Exception {
+        // Arrange
+        RoutePlannerProperties properties = new RoutePlannerProperties();
+        properties.getWalkingCache().setEnabled(true);
+        RoutePlannerService cachingRoutePlannerService = spy(new RoutePlannerService(properties));
+        stubUpstreams(cachingRoutePlannerService);
+
+        // Act
+        List<Route> firstRoutes = cachingRoutePlannerService.findRoutes("כפר סבא", "כיכר רבין, תל אביב");
+        List<Route> secondRoutes = cachingRoutePlannerService.findRoutes("כפר סבא", "כיכר רבין, תל אביב");
+
+        // Assert
+        assertEquals(firstRoutes.size(), secondRoutes.size());
+        for (int i = 0; i < firstRoutes.size(); i++) {
+            assertEquals(firstRoutes.get(i).getTotalTime(), secondRoutes.get(i).getTotalTime());
+        }
+        verify(cachingRoutePlannerService, times(firstRoutes.size())).getDirections(any(LatLng.class), any(LatLng.class), eq(TravelMode.WALKING));
+        verify(cachingRoutePlannerService, times(2 * firstRoutes.size())).getDirections(any(LatLng.class), any(LatLng.class), eq(TravelMode.DRIVING));
+    }
+
+    @Test
+    public void parkingLotReload_InvalidatesCachedPaths(@TempDir Path directory) throws Exception {
+        // Arrange
+        Path watchFile = directory.resolve("allParkingLotsLocations.json");
+        RoutePlannerProperties properties = new RoutePlannerProperties();
+        properties.getWalkingCache().setEnabled(true);
+        properties.getDrivingCache().setEnabled(true);
+        properties.getParkingLots().setWatchFile(watchFile.toString());
+        properties.getParkingLots().setReloadDelay(java.time.Duration.ofMillis(50));
+        RoutePlannerService cachingRoutePlannerService = spy(new RoutePlannerService(properties));
+        stubUpstreams(cachingRoutePlannerService);
+        try {
+            cachingRoutePlannerService.findRoutes("כפר סבא", "כיכר רבין, תל אביב");
+            long cachedWalkingPaths = cachingRoutePlannerService.getWalkingPathCache().getSize();
+            long cachedDrivingPaths = cachingRoutePlannerService.getDrivingPathCache().getSize();
+
+            // Act
+            Path temporaryFile = directory.resolve("parkingLots.tmp");
+            Files.writeString(temporaryFile, objectMapper.writeValueAsString(
+                    RoutePlannerService.getParkingLotDataset().getParkingLotsLocations()), StandardCharsets.UTF_8);
+            Files.move(temporaryFile, watchFile, StandardCopyOption.REPLACE_EXISTING);
+
+            // Assert
+            assertTrue(cachedWalkingPaths > 0);
+            assertTrue(cachedDrivingPaths > 0);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(20);
+            // The caches are invalidated one after the other, so both are waited for
+            while (cachingRoutePlannerService.getWalkingPathCache().getSize() > 0
+                    || cachingRoutePlannerService.getDrivingPathCache().getSize() > 0) {
+                assertTrue(System.nanoTime() < deadline, "The parking lots were not reloaded");
+                Thread.sleep(20);
+            }
+        } finally {
+            cachingRoutePlannerService.shutdown();
+        }
+    }
+
+    @Test
+    public void findRoutes_SkipsDirectionsOfParkingLotsThatCannotMakeTheLimit() throws Exception {
+        // Arrange
+        stubUpstreams(routePlannerService);
+        LatLng originLatLng = new LatLng(32.178195, 34.90761);
+        LatLng destinationLatLng = new LatLng(32.0804846, 34.7806198);
+        LatLng closestParkingLotLatLng = new LatLng(32.0776703, 34.7857861);
+        // 14 minutes in total, while the lower bounds of the other parking lots are 14 and 15 minutes
+        doReturn(directionsResult(60 * 8)).when(routePlannerService).getDirections(
+                eq(originLatLng), eq(closestParkingLotLatLng), eq(TravelMode.DRIVING));
+        doReturn(directionsResult(60 * 6)).when(routePlannerService).getDirections(
+                eq(closestParkingLotLatLng), eq(destinationLatLng), eq(TravelMode.WALKING));
+
+        // Act
+        List<Route> routes = routePlannerService.findRoutes("כפר סבא", "כיכר רבין, תל אביב", 1);
+
+        // Assert
+        assertEquals(1, routes.size());
+        assertEquals(14, routes.get(0).getTotalTime());
+        verify(routePlannerService, times(2)).getDirections(any(LatLng.class), any(LatLng.class), any(TravelMode.class));
+    }
+
+    @Test
+    public void findRoutes_ConcurrentModeReturnsBestRoutesWithinLimit() throws Exception {
+        // Arrange
+        RoutePlannerProperties properties = new RoutePlannerProperties();
+        properties.getPlanning().setMode(PlanningMode.CONCURRENT);
+        RoutePlannerService concurrentRoutePlannerService = spy(new RoutePlannerService(properties));
+        stubUpstreams(routePlannerService);
+        stubUpstreams(concurrentRoutePlannerService);
+
+        // Act
+        List<Route> allRoutes = routePlannerService.findRoutes("כפר סבא", "כיכר רבין, תל אביב");
+        List<Route> bestRoutes = concurrentRoutePlannerService.findRoutes("כפר סבא", "כיכר רבין, תל אביב", 2);
+        concurrentRoutePlannerService.shutdown();
+
+        // Assert
+        assertEquals(2, bestRoutes.size());
+        for (int i = 0; i < bestRoutes.size(); i++) {
+            assertEquals(allRoutes.get(i).getTotalTime(), bestRoutes.get(i).getTotalTime());
+        }
+    }
+
+    @Test
+    public void findRoutes_IsThrowingExceptionIfLimitIsNegative() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> routePlannerService.findRoutes("כפר סבא", "כיכר רבין, תל אביב", -1));
+    }
+
+    @Test
+    public void streamRoutes_SendsEachRouteAndThenSummary() throws Exception {
+        // Arrange
+        stubUpstreams(routePlannerService);
+        List<String> events = new CopyOnWriteArrayList<>();
+        RouteStreamListener listener = new RouteStreamListener() {
+            @Override
+            public void onRoute(Route route) {
+                events.add("route " + route.getParkingLot().getName());
+            }
+
+            @Override
+            public void onComplete(RouteStreamSummary summary) {
+                events.add("summary " + summary.getRouteCount());
+            }
+
+            @Override
+            public void onError(RuntimeException e) {
+                events.add("error " + e.getMessage());
+            }
+        };
+
+        // Act
+        routePlannerService.streamRoutes("כפר סבא", "כיכר רבין, תל אביב", 0, listener).get(10, TimeUnit.SECONDS);
+
+        // Assert
+        assertEquals(4, events.size());
+        assertTrue(events.subList(0, 3).stream().allMatch(event -> event.startsWith("route ")));
+        assertEquals("summary 3", events.get(3));
+    }
+
+    @Test
+    public void streamRoutes_WithoutLimitStreamsDefaultLimitOfRoutes() throws Exception {
+        // Arrange
+        RoutePlannerProperties properties = new RoutePlannerProperties();
+        properties.getRanking().setDefaultLimit(1);
+        RoutePlannerService limitedRoutePlannerService = spy(new RoutePlannerService(properties));
+        stubUpstreams(limitedRoutePlannerService);
+        List<RouteStreamSummary> summaries = new CopyOnWriteArrayList<>();
+        RouteStreamListener listener = new RouteStreamListener() {
+            @Override
+            public void onRoute(Route route) {
+            }
+
+            @Override
+            public void onComplete(RouteStreamSummary summary) {
+                summaries.add(summary);
+            }
+
+            @Override
+            public void onError(RuntimeException e) {
+                fail(e);
+            }
+        };
+
+        // Act
+        limitedRoutePlannerService.streamRoutes("כפר סבא", "כיכר רבין, תל אביב", listener).get(10, TimeUnit.SECONDS);
+        limitedRoutePlannerService.shutdown();
+
+        // Assert
+        assertEquals(1, summaries.size());
+        assertEquals(1, summaries.get(0).getRouteCount());
+        assertEquals(1, summaries.get(0).getRankedParkingLots().size());
+        verify(limitedRoutePlannerService).streamRoutes(eq("כפר סבא"), eq("כיכר רבין, תל אביב"), eq(1), eq(listener));
+    }
+
+    @Test
+    public void streamRoutes_CancellingStopsRemainingUpstreamCalls() throws Exception {
+        // Arrange
+        stubUpstreams(routePlannerService);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            started.countDown();
+            try {
+                Thread.sleep(10_000);
+                return directionsResult(60 * 25);
+            } finally {
+                finished.countDown();
+            }
+        }).when(routePlannerService).getDirections(any(LatLng.class), any(LatLng.class), eq(TravelMode.DRIVING));
+        RouteStreamListener listener = mock(RouteStreamListener.class);
+
+        // Act
+        Future<?> search = routePlannerService.streamRoutes("כפר סבא", "כיכר רבין, תל אביב", 0, listener);
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        search.cancel(true);
+
+        // Assert
+        assertTrue(finished.await(10, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        verify(routePlannerService, times(1)).getDirections(any(LatLng.class), any(LatLng.class), any(TravelMode.class));
+        verifyNoInteractions(listener);
+    }
+
+    @Test
+    public void findRoutes_CoalescesIdenticalConcurrentRequests() throws Exception {
+        // Arrange
+        RoutePlannerProperties properties = new RoutePlannerProperties();
+        properties.getCoalescing().setEnabled(true);
+        RoutePlannerService coalescingRoutePlannerService = spy(new RoutePlannerService(properties));
+        stubUpstreams(coalescingRoutePlannerService);
+        doAnswer(invocation -> {
+            // Holds the search in flight until the identical request waits for it
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (coalescingRoutePlannerService.getRouteRequestFlight().getWaiterCount() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            return new LatLng(32.178195, 34.90761);
+        }).when(coalescingRoutePlannerService).getLocationFromAddress(eq("כפר סבא"));
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        // Act
+        Future<List<Route>> firstRoutes = executor.submit(() -> coalescingRoutePlannerService.findRoutes("כפר סבא", "כיכר רבין, תל אביב"));
+        Future<List<Route>> secondRoutes = executor.submit(() -> coalescingRoutePlannerService.findRoutes("כפר סבא", "כיכר רבין, תל אביב"));
+        List<Route> first = firstRoutes.get(10, TimeUnit.SECONDS);
+        List<Route> second = secondRoutes.get(10, TimeUnit.SECONDS);
+        executor.shutdown();
+        coalescingRoutePlannerService.shutdown();
+
+        // Assert
+        assertEquals(3, first.size());
+        assertEquals(first, second);
+        assertNotSame(first, second);
+        assertEquals(1, coalescingRoutePlannerService.getRouteRequestFlight().getWaiterCount());
+        verify(coalescingRoutePlannerService, times(1)).getNearbyParkingLots(any(LatLng.class), anyInt());
+        verify(coalescingRoutePlannerService, times(6)).getDirections(any(LatLng.class), any(LatLng.class), any(TravelMode.class));
+    }
+
     @Test
     public void findRoutes_IsThrowingExceptionIfMissingValidParameter() {
         assertThrows(IllegalArgumentException.class, () -> {
@@ -182,6 +904,29 @@ public class RoutePlannerServiceTests {
         Mockito.framework().clearInlineMocks();
     }
 
+    @Test
+    public void getLocationFromAddress_isGeocodingSameAddressOnce() throws Exception {
+        // Arrange
+        var geocodingApiMock = mockStatic(GeocodingApi.class);
+        GeocodingApiRequest geocodingApiRequest = mock(GeocodingApiRequest.class);
+        GeocodingResult geocodingResult = new GeocodingResult();
+        geocodingResult.geometry = new Geometry();
+        geocodingResult.geometry.location = new LatLng(32.0804846, 34.7806198);
+        when(geocodingApiRequest.await()).thenReturn(new GeocodingResult[]{geocodingResult});
+        geocodingApiMock.when(() -> GeocodingApi.geocode(any(GeoApiContext.class), any()))
+                .thenReturn(geocodingApiRequest);
+
+        // Act
+        LatLng first = routePlannerService.getLocationFromAddress("כיכר רבין, תל אביב");
+        LatLng second = routePlannerService.getLocationFromAddress("כיכר רבין תל-אביב");
+
+        // Assert
+        assertEquals(geocodingResult.geometry.location, first);
+        assertEquals(geocodingResult.geometry.location, second);
+        geocodingApiMock.verify(() -> GeocodingApi.geocode(any(GeoApiContext.class), any()), times(1));
+        Mockito.framework().clearInlineMocks();
+    }
+
     @Test
     public void getNearbyParkingLots_isThrowingExceptionIfGoogleApiUnavailable() throws IOException, InterruptedException, ApiException {
         // Arrange
@@ -303,6 +1048,135 @@ public class RoutePlannerServiceTests {
         assertEquals(walkingPath.getTotalTime(), 11);
     }
 
+    @Test
+    public void findPath_WalkingFromParkingLot_ReturnsPath() throws Exception {
+        // Arrange
+        LatLng parkingLotLatLng = new LatLng(32.0776703, 34.7857861);
+        LatLng destinationLatLng = new LatLng(32.0804846, 34.7806198);
+        doReturn(directionsResult(60 * 11)).when(routePlannerService).getDirections(
+                eq(parkingLotLatLng), eq(destinationLatLng), eq(TravelMode.WALKING));
+
+        // Act
+        org.example.routeplanner.model.Path path = routePlannerService.findPath(parkingLotLatLng, destinationLatLng, TravelMode.WALKING);
+
+        // Assert
+        assertEquals(11, path.getTotalTime());
+    }
+
+    @Test
+    public void findPath_OutsideServiceArea_ThrowsWithoutCallingDirections() throws Exception {
+        // Arrange
+        LatLng paris = new LatLng(48.8566, 2.3522);
+        LatLng jerusalem = new LatLng(31.7683, 35.2137);
+        LatLng rabinSquare = new LatLng(32.0804846, 34.7806198);
+        LatLng dizengoffSquare = new LatLng(32.0776, 34.7741);
+
+        // Act & Assert
+        assertEquals("Start of the path is not in Israel", assertThrows(IllegalArgumentException.class,
+                () -> routePlannerService.findPath(paris, rabinSquare, TravelMode.DRIVING)).getMessage());
+        assertEquals("End of the path is not in Tel Aviv", assertThrows(IllegalArgumentException.class,
+                () -> routePlannerService.findPath(rabinSquare, jerusalem, TravelMode.DRIVING)).getMessage());
+        assertEquals("Start of the path is not in Tel Aviv", assertThrows(IllegalArgumentException.class,
+                () -> routePlannerService.findPath(jerusalem, rabinSquare, TravelMode.WALKING)).getMessage());
+        assertEquals("A walking path must start or end at a parking lot", assertThrows(IllegalArgumentException.class,
+                () -> routePlannerService.findPath(dizengoffSquare, rabinSquare, TravelMode.WALKING)).getMessage());
+        verify(routePlannerService, never()).getDirections(any(LatLng.class), any(LatLng.class), any(TravelMode.class));
+    }
+
+    /**
+     * Stubs the geocoding, the nearby search and the directions of the given service with three
+     * parking lots around Rabin Square, each with a different driving and walking time.
+     */
+    private void stubUpstreams(RoutePlannerService service) throws Exception {
+        LatLng originLatLng = new LatLng(32.178195, 34.90761);
+        LatLng destinationLatLng = new LatLng(32.0804846, 34.7806198);
+        doReturn(originLatLng).when(service).getLocationFromAddress(eq("כפר סבא"));
+        doReturn(destinationLatLng).when(service).getLocationFromAddress(eq("כיכר רבין, תל אביב"));
+
+        LatLng[] parkingLotLocations = {
+                new LatLng(32.0776703, 34.7857861),
+                new LatLng(32.0852196, 34.7858085),
+                new LatLng(32.0740802, 34.7838054)};
+        PlacesSearchResult[] parkingLots = new PlacesSearchResult[parkingLotLocations.length];
+        for (int i = 0; i < parkingLotLocations.length; i++) {
+            parkingLots[i] = new PlacesSearchResult();
+            parkingLots[i].geometry = new Geometry();
+            parkingLots[i].geometry.location = parkingLotLocations[i];
+            doReturn(directionsResult(60L * (25 + i))).when(service).getDirections(
+                    eq(originLatLng), eq(parkingLotLocations[i]), eq(TravelMode.DRIVING));
+            doReturn(directionsResult(60L * (12 - i))).when(service).getDirections(
+                    eq(parkingLotLocations[i]), eq(destinationLatLng), eq(TravelMode.WALKING));
+        }
+        doReturn(parkingLots).when(service).getNearbyParkingLots(eq(destinationLatLng), eq(500));
+    }
+
+    /**
+     * Stubs the asynchronous geocoding, nearby search and directions of the given service like {@link #stubUpstreams}.
+     */
+    private void stubUpstreamsAsync(RoutePlannerService service) throws Exception {
+        LatLng originLatLng = new LatLng(32.178195, 34.90761);
+        LatLng destinationLatLng = new LatLng(32.0804846, 34.7806198);
+        doReturn(CompletableFuture.completedFuture(originLatLng)).when(service).getLocationFromAddressAsync(eq("כפר סבא"));
+        doReturn(CompletableFuture.completedFuture(destinationLatLng)).when(service).getLocationFromAddressAsync(eq("כיכר רבין, תל אביב"));
+
+        LatLng[] parkingLotLocations = {
+                new LatLng(32.0776703, 34.7857861),
+                new LatLng(32.0852196, 34.7858085),
+                new LatLng(32.0740802, 34.7838054)};
+        PlacesSearchResult[] parkingLots = new PlacesSearchResult[parkingLotLocations.length];
+        for (int i = 0; i < parkingLotLocations.length; i++) {
+            parkingLots[i] = new PlacesSearchResult();
+            parkingLots[i].geometry = new Geometry();
+            parkingLots[i].geometry.location = parkingLotLocations[i];
+            doReturn(CompletableFuture.completedFuture(directionsResult(60L * (25 + i)))).when(service).getDirectionsAsync(
+                    eq(originLatLng), eq(parkingLotLocations[i]), eq(TravelMode.DRIVING));
+            doReturn(CompletableFuture.completedFuture(directionsResult(60L * (12 - i)))).when(service).getDirectionsAsync(
+                    eq(parkingLotLocations[i]), eq(destinationLatLng), eq(TravelMode.WALKING));
+        }
+        doReturn(CompletableFuture.completedFuture(parkingLots)).when(service).getNearbyParkingLotsAsync(eq(destinationLatLng), eq(500));
+    }
+
+    /**
+     * Starts a fake Achuzot Hachof scraper that responds to every poll with the given parking lots.
+     */
+    private static HttpServer startScraper(String parkingLotsJson) throws IOException {
+        HttpServer scraper = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        scraper.createContext("/api/parking-lot", exchange -> {
+            byte[] body = parkingLotsJson.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream responseBody = exchange.getResponseBody()) {
+                responseBody.write(body);
+            }
+        });
+        scraper.start();
+        return scraper;
+    }
+
+    private static DirectionsResult directionsResult(long durationInSeconds) {
+        DirectionsLeg leg = new DirectionsLeg();
+        leg.duration = new Duration();
+        leg.duration.inSeconds = durationInSeconds;
+        DirectionsRoute route = new DirectionsRoute();
+        route.legs = new DirectionsLeg[]{leg};
+        DirectionsResult result = new DirectionsResult();
+        result.routes = new DirectionsRoute[]{route};
+        return result;
+    }
+
+    private static DistanceMatrix distanceMatrix(long[][] durationsInSeconds) {
+        DistanceMatrixRow[] rows = new DistanceMatrixRow[durationsInSeconds.length];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = new DistanceMatrixRow();
+            rows[i].elements = new DistanceMatrixElement[durationsInSeconds[i].length];
+            for (int j = 0; j < durationsInSeconds[i].length; j++) {
+                rows[i].elements[j] = new DistanceMatrixElement();
+                rows[i].elements[j].status = DistanceMatrixElementStatus.OK;
+                rows[i].elements[j].duration = new Duration();
+                rows[i].elements[j].duration.inSeconds = durationsInSeconds[i][j];
+            }
+        }
+        return new DistanceMatrix(new String[0], new String[0], rows);
+    }
 
     @Test
     public void isInIsrael_isFalseIfNotInIsrael() {
@@ -339,17 +1213,49 @@ public class RoutePlannerServiceTests {
         mockParkingLots.put("Close Parking Lot", closeLocation);
         mockParkingLots.put("Far Parking Lot", farLocation);
 
-        Field field = RoutePlannerService.class.getDeclaredField("allParkingLotsLocations");
+        Field field = RoutePlannerService.class.getDeclaredField("parkingLotDataset");
         field.setAccessible(true);
-        Map<String, LatLng> allParkingLotsLocations = (Map<String, LatLng>) field.get(null);
-        allParkingLotsLocations.clear();
-        allParkingLotsLocations.putAll(mockParkingLots);
+        Object originalParkingLotDataset = field.get(null);
+        field.set(null, new ParkingLotDataset(mockParkingLots));
 
-        // Act
-        String result = RoutePlannerService.findBestMatch(inputLocation);
+        try {
+            // Act
+            String result = RoutePlannerService.findBestMatch(inputLocation);
 
-        // Assert
-        assertEquals("Close Parking Lot", result);
+            // Assert
+            assertEquals("Close Parking Lot", result);
+        } finally {
+            field.set(null, originalParkingLotDataset);
+        }
+    }
+
+    @Test
+    public void findBestMatch_MatchesLinearScanOverAllParkingLots() throws Exception {
+        // Arrange
+        Map<String, LatLng> parkingLotsLocations = objectMapper.readValue(
+                new File("src/main/resources/allParkingLotsLocations.json"), new TypeReference<HashMap<String, LatLng>>() {});
+        ParkingLotMatcher parkingLotMatcher = new ParkingLotMatcher(parkingLotsLocations);
+        Random random = new Random(42);
+
+        for (Map.Entry<String, LatLng> parkingLot : parkingLotsLocations.entrySet()) {
+            for (int i = 0; i < 20; i++) {
+                LatLng location = new LatLng(
+                        parkingLot.getValue().lat + (random.nextDouble() - 0.5) * 0.004,
+                        parkingLot.getValue().lng + (random.nextDouble() - 0.5) * 0.004);
+                String expected = null;
+                double expectedDistance = Double.MAX_VALUE;
+                for (Map.Entry<String, LatLng> candidate : parkingLotsLocations.entrySet()) {
+                    double distance = RoutePlannerService.distance(location, candidate.getValue());
+                    if (distance <= 150 && distance < expectedDistance) {
+                        expected = candidate.getKey();
+                        expectedDistance = distance;
+                    }
+                }
+
+                // Act & Assert
+                assertEquals(expected, parkingLotMatcher.findBestMatch(location));
+            }
+        }
     }
 
     @Test
@@ -0,0 +1,152 @@
+package com.example.RoutePlanner;
+
+import org.example.routeplanner.RoutePlannerApplication;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Load test of /routes against the fake Google Maps server, for each planning mode: closed-loop virtual users
+ * send requests back to back for a fixed duration, and the test reports the throughput, the latency percentiles
+ * and the upstream calls per request of each API.
+ * <p>
+ * Excluded from the default build; run it with {@code mvn test -Pload-test}. The scenario is tuned with
+ * system properties: {@code load.users} (default 32), {@code load.duration} (seconds, default 20),
+ * {@code load.warmup} (seconds, default 5), {@code load.upstreamMedianMillis} (default 80),
+ * {@code load.upstreamP99Millis} (default 400) and {@code load.upstreamErrorRate} (default 0.005).
+ */
+@Tag("load")
+public class RoutesLoadTest {
+
+    private static final List<String> ORIGINS = List.of(
+            "כפר סבא", "רעננה", "הרצליה", "רמת גן", "חולון", "בת ים", "פתח תקווה", "ראשון לציון");
+    private static final List<String> DESTINATIONS = List.of(
+            "כיכר רבין, תל אביב", "דיזנגוף סנטר", "שוק הכרמל", "נמל תל אביב", "עזריאלי", "הבימה",
+            "שרונה", "יפו העתיקה", "אוניברסיטת תל אביב", "רוטשילד 1");
+
+    private static final int USERS = Integer.getInteger("load.users", 32);
+    private static final Duration DURATION = Duration.ofSeconds(Integer.getInteger("load.duration", 20));
+    private static final Duration WARMUP = Duration.ofSeconds(Integer.getInteger("load.warmup", 5));
+
+    private static FakeGoogleMapsServer fakeGoogleMaps;
+    private static final List<String> reports = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeAll
+    public static void startFakeGoogleMaps() throws Exception {
+        fakeGoogleMaps = new FakeGoogleMapsServer(0, new FakeGoogleMapsServer.Behavior(
+                Duration.ofMillis(Integer.getInteger("load.upstreamMedianMillis", 80)),
+                Duration.ofMillis(Integer.getInteger("load.upstreamP99Millis", 400)),
+                Double.parseDouble(System.getProperty("load.upstreamErrorRate", "0.005"))));
+    }
+
+    @AfterAll
+    public static void printReports() {
+        fakeGoogleMaps.close();
+        System.out.printf("%nLoad test: %d users, %ds after %ds of warmup%n", USERS, DURATION.toSeconds(), WARMUP.toSeconds());
+        System.out.println("plan          requests    RPS  errors   p50 ms   p95 ms   p99 ms | geocode  nearby  directions  matrix (per request)");
+        reports.forEach(System.out::println);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"SERIAL", "CONCURRENT", "MATRIX"})
+    public void getRoutes_UnderLoad(String planningMode) throws Exception {
+        // Command line arguments, since they take precedence over application.properties
+        ConfigurableApplicationContext application = new SpringApplicationBuilder(RoutePlannerApplication.class).run(
+                "--server.port=0",
+                "--routeplanner.planning.mode=" + planningMode,
+                "--routeplanner.google.base-url=" + fakeGoogleMaps.getBaseUrl(),
+                "--routeplanner.google.api-key=" + FakeGoogleMapsServer.API_KEY,
+                "--routeplanner.google.max-retries=1");
+        try {
+            int port = ((ServletWebServerApplicationContext) application).getWebServer().getPort();
+            HttpClient httpClient = HttpClient.newHttpClient();
+
+            runUsers(httpClient, port, WARMUP, null);
+            fakeGoogleMaps.resetCallCounts();
+            List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+            AtomicLong errors = new AtomicLong();
+            long start = System.nanoTime();
+            runUsers(httpClient, port, DURATION, new Recorder(latencies, errors));
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            List<Long> sorted = new ArrayList<>(latencies);
+            Collections.sort(sorted);
+            int requests = sorted.size();
+            assertTrue(requests > 0);
+            reports.add(String.format("%-12s %9d %6.1f %7d %8.1f %8.1f %8.1f | %7.2f %7.2f %11.2f %7.2f",
+                    planningMode, requests, requests / seconds, errors.get(),
+                    percentile(sorted, 50), percentile(sorted, 95), percentile(sorted, 99),
+                    perRequest(FakeGoogleMapsServer.GEOCODING, requests), perRequest(FakeGoogleMapsServer.NEARBY_SEARCH, requests),
+                    perRequest(FakeGoogleMapsServer.DIRECTIONS, requests), perRequest(FakeGoogleMapsServer.DISTANCE_MATRIX, requests)));
+        } finally {
+            application.close();
+        }
+    }
+
+    private static void runUsers(HttpClient httpClient, int port, Duration duration, Recorder recorder) throws Exception {
+        long deadline = System.nanoTime() + duration.toNanos();
+        ExecutorService users = Executors.newFixedThreadPool(USERS);
+        try {
+            List<Future<?>> running = new ArrayList<>();
+            for (int user = 0; user < USERS; user++) {
+                running.add(users.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        ThreadLocalRandom random = ThreadLocalRandom.current();
+                        URI uri = URI.create("http://localhost:" + port + "/routes?origin="
+                                + URLEncoder.encode(ORIGINS.get(random.nextInt(ORIGINS.size())), StandardCharsets.UTF_8)
+                                + "&destination=" + URLEncoder.encode(DESTINATIONS.get(random.nextInt(DESTINATIONS.size())), StandardCharsets.UTF_8));
+                        long requestStart = System.nanoTime();
+                        HttpResponse<Void> response = httpClient.send(HttpRequest.newBuilder(uri).GET().build(), HttpResponse.BodyHandlers.discarding());
+                        if (recorder != null) {
+                            recorder.latencies.add(System.nanoTime() - requestStart);
+                            if (response.statusCode() != 200) {
+                                recorder.errors.incrementAndGet();
+                            }
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> user : running) {
+                user.get();
+            }
+        } finally {
+            users.shutdownNow();
+        }
+    }
+
+    private static double percentile(List<Long> sortedNanos, int percentile) {
+        int index = Math.min(sortedNanos.size() - 1, (int) Math.ceil(percentile / 100.0 * sortedNanos.size()) - 1);
+        return sortedNanos.get(Math.max(0, index)) / 1e6;
+    }
+
+    private static double perRequest(String api, int requests) {
+        return (double) fakeGoogleMaps.getCallCount(api) / requests;
+    }
+
+    private record Recorder(List<Long> latencies, AtomicLong errors) {
+    }
+}
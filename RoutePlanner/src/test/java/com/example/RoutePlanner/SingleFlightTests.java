@@ -0,0 +1,148 @@
+package com.example.RoutePlanner;
+
+import org.example.routeplanner.service.SingleFlight;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SingleFlightTests {
+
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>();
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void execute_SharesCallInFlight() throws Exception {
+        // Arrange
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+
+        // Act
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            results.add(executor.submit(() -> singleFlight.execute("כיכר רבין", () -> {
+                calls.incrementAndGet();
+                release.await();
+                return "routes";
+            })));
+        }
+        waitForWaiters(3);
+        release.countDown();
+
+        // Assert
+        for (Future<String> result : results) {
+            assertEquals("routes", result.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(1, calls.get());
+        assertEquals(1, singleFlight.getCallCount());
+        assertEquals(3, singleFlight.getWaiterCount());
+        assertEquals(0, singleFlight.getInFlightCount());
+    }
+
+    @Test
+    public void execute_SharesExceptionWithWaiters() throws Exception {
+        // Arrange
+        CountDownLatch release = new CountDownLatch(1);
+
+        // Act
+        Future<String> caller = executor.submit(() -> singleFlight.execute("כיכר רבין", () -> {
+            release.await();
+            throw new IOException("Google Maps API error");
+        }));
+        waitForInFlight();
+        Future<String> waiter = executor.submit(() -> singleFlight.execute("כיכר רבין", () -> "routes"));
+        waitForWaiters(1);
+        release.countDown();
+
+        // Assert
+        ExecutionException callerException = assertThrows(ExecutionException.class, () -> caller.get(10, TimeUnit.SECONDS));
+        ExecutionException waiterException = assertThrows(ExecutionException.class, () -> waiter.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(IOException.class, callerException.getCause());
+        assertSame(callerException.getCause(), waiterException.getCause());
+    }
+
+    @Test
+    public void execute_WaiterRunsCallAgainWhenCallerIsInterrupted() throws Exception {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+
+        // Act
+        Future<String> caller = executor.submit(() -> singleFlight.execute("כיכר רבין", () -> {
+            calls.incrementAndGet();
+            new CountDownLatch(1).await();
+            return "routes";
+        }));
+        waitForInFlight();
+        Future<String> waiter = executor.submit(() -> singleFlight.execute("כיכר רבין", () -> {
+            calls.incrementAndGet();
+            return "routes";
+        }));
+        waitForWaiters(1);
+        caller.cancel(true);
+
+        // Assert
+        assertEquals("routes", waiter.get(10, TimeUnit.SECONDS));
+        assertEquals(2, calls.get());
+        assertEquals(2, singleFlight.getCallCount());
+        assertEquals(0, singleFlight.getInFlightCount());
+    }
+
+    @Test
+    public void execute_CallsAgainOnceCallCompleted() throws Exception {
+        // Act
+        singleFlight.execute("כיכר רבין", () -> "first");
+        String result = singleFlight.execute("כיכר רבין", () -> "second");
+
+        // Assert
+        assertEquals("second", result);
+        assertEquals(2, singleFlight.getCallCount());
+        assertEquals(0, singleFlight.getWaiterCount());
+    }
+
+    @Test
+    public void executeAsync_FailsAndReleasesKeyWhenCallThrowsBeforeStarting() throws Exception {
+        // Act
+        CompletableFuture<String> failed = singleFlight.executeAsync("כיכר רבין", () -> {
+            throw new IllegalArgumentException("Destination is not in Tel Aviv");
+        });
+        String result = singleFlight.executeAsync("כיכר רבין", () -> CompletableFuture.completedFuture("routes"))
+                .get(10, TimeUnit.SECONDS);
+
+        // Assert
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> failed.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalArgumentException.class, exception.getCause());
+        assertEquals("routes", result);
+        assertEquals(0, singleFlight.getInFlightCount());
+    }
+
+    private void waitForInFlight() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (singleFlight.getInFlightCount() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private void waitForWaiters(int waiters) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (singleFlight.getWaiterCount() < waiters && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.RoutePlanner;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.routeplanner.RoutePlannerProperties;
+import org.example.routeplanner.service.RoutePlannerMetrics;
+import org.example.routeplanner.service.UpstreamRejectedException;
+import org.example.routeplanner.service.UpstreamScheduler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UpstreamSchedulerTests {
+
+    private static final String DIRECTIONS = RoutePlannerMetrics.API_DIRECTIONS;
+
+    private SimpleMeterRegistry registry;
+    private RoutePlannerProperties.Scheduler settings;
+
+    @BeforeEach
+    public void setup() {
+        registry = new SimpleMeterRegistry();
+        settings = new RoutePlannerProperties().getScheduler();
+    }
+
+    @Test
+    public void call_WithinBurst_RunsWithoutWaiting() throws Exception {
+        // Arrange
+        settings.getDirections().setRatePerSecond(0.001);
+        settings.getDirections().setBurst(3);
+        UpstreamScheduler scheduler = new UpstreamScheduler(settings, new RoutePlannerMetrics(registry));
+
+        // Act
+        for (int i = 0; i < 3; i++) {
+            assertEquals("directions", scheduler.call(DIRECTIONS, UpstreamScheduler.Priority.LOW, () -> "directions"));
+        }
+
+        // Assert
+        assertEquals(3, registry.get("routeplanner.scheduler.wait").tags("api", DIRECTIONS, "priority", "low").timer().count());
+        assertEquals(0, registry.get("routeplanner.scheduler.wait").timer().max(TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    public void call_QuotaCannotServeInTime_RejectsWithoutWaiting() throws Exception {
+        // Arrange
+        settings.getDirections().setRatePerSecond(1);
+        settings.getDirections().setBurst(1);
+        settings.setMaxWaitLow(Duration.ofMillis(100));
+        UpstreamScheduler scheduler = new UpstreamScheduler(settings, new RoutePlannerMetrics(registry));
+        scheduler.call(DIRECTIONS, UpstreamScheduler.Priority.LOW, () -> "directions");
+
+        // Act
+        long start = System.nanoTime();
+        assertThrows(UpstreamRejectedException.class, () -> scheduler.call(DIRECTIONS, UpstreamScheduler.Priority.LOW, () -> "directions"));
+
+        // Assert
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(100));
+        assertEquals(1, registry.get("routeplanner.scheduler.rejections").tags("api", DIRECTIONS, "priority", "low").counter().count());
+    }
+
+    @Test
+    public void call_QueueFull_RejectsWithoutWaiting() throws Exception {
+        // Arrange
+        settings.getDirections().setRatePerSecond(0.001);
+        settings.getDirections().setBurst(1);
+        settings.setQueueCapacity(1);
+        settings.setMaxWaitNormal(Duration.ofDays(1));
+        UpstreamScheduler scheduler = new UpstreamScheduler(settings, new RoutePlannerMetrics(registry));
+        scheduler.call(DIRECTIONS, UpstreamScheduler.Priority.NORMAL, () -> "directions");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> queued = executor.submit(() -> scheduler.call(DIRECTIONS, UpstreamScheduler.Priority.NORMAL, () -> "directions"));
+            awaitQueueDepth(scheduler, 1);
+
+            // Act & Assert
+            assertThrows(UpstreamRejectedException.class, () -> scheduler.call(DIRECTIONS, UpstreamScheduler.Priority.NORMAL, () -> "directions"));
+            assertEquals(1, registry.get("routeplanner.scheduler.queue.depth").tag("api", DIRECTIONS).gauge().value());
+            queued.cancel(true);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void call_QueueFullOfLowPriority_AdmitsHighPriorityAndRejectsLastLowPriority() throws Exception {
+        // Arrange
+        settings.getDirections().setRatePerSecond(2);
+        settings.getDirections().setBurst(1);
+        settings.setQueueCapacity(2);
+        settings.setMaxWaitLow(Duration.ofDays(1));
+        UpstreamScheduler scheduler = new UpstreamScheduler(settings, new RoutePlannerMetrics(registry));
+        scheduler.call(DIRECTIONS, UpstreamScheduler.Priority.LOW, () -> "directions");
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            Future<String> firstLow = executor.submit(() -> scheduler.call(DIRECTIONS, UpstreamScheduler.Priority.LOW, () -> "first low"));
+            awaitQueueDepth(scheduler, 1);
+            Future<String> lastLow = executor.submit(() -> scheduler.call(DIRECTIONS, UpstreamScheduler.Priority.LOW, () -> "last low"));
+            awaitQueueDepth(scheduler, 2);
+
+            // Act
+            Future<String> high = executor.submit(() -> scheduler.call(DIRECTIONS, UpstreamScheduler.Priority.HIGH, () -> "high"));
+
+            // Assert
+            assertEquals("high", high.get(5, TimeUnit.SECONDS));
+            ExecutionException rejected = assertThrows(ExecutionException.class, () -> lastLow.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(UpstreamRejectedException.class, rejected.getCause());
+            assertEquals("first low", firstLow.get(5, TimeUnit.SECONDS));
+            assertEquals(1, registry.get("routeplanner.scheduler.rejections").tags("api", DIRECTIONS, "priority", "low").counter().count());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void call_HighPriority_OvertakesQueuedLowPriority() throws Exception {
+        // Arrange
+        settings.getDirections().setRatePerSecond(4);
+        settings.getDirections().setBurst(1);
+        // The low priority call waits for its own token and the one of the high priority call, about 500 ms
+        settings.setMaxWaitLow(Duration.ofSeconds(2));
+        UpstreamScheduler scheduler = new UpstreamScheduler(settings, new RoutePlannerMetrics(registry));
+        scheduler.call(DIRECTIONS, UpstreamScheduler.Priority.LOW, () -> "directions");
+        List<String> completed = new CopyOnWriteArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // Act
+            Future<?> low = executor.submit(() -> scheduler.call(DIRECTIONS, UpstreamScheduler.Priority.LOW, () -> completed.add("low")));
+            awaitQueueDepth(scheduler, 1);
+            Future<?> high = executor.submit(() -> scheduler.call(DIRECTIONS, UpstreamScheduler.Priority.HIGH, () -> completed.add("high")));
+            high.get(5, TimeUnit.SECONDS);
+            low.get(5, TimeUnit.SECONDS);
+
+            // Assert
+            assertEquals(List.of("high", "low"), completed);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void awaitQueueDepth(UpstreamScheduler scheduler, int depth) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (scheduler.getQueueDepth(DIRECTIONS) != depth) {
+            assertTrue(System.nanoTime() < deadline, "The call was not queued");
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.RoutePlanner;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.routeplanner.RoutePlannerProperties;
+import org.example.routeplanner.service.RoutePlannerMetrics;
+import org.example.routeplanner.service.VirtualThreadPinningMonitor;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VirtualThreadPinningMonitorTests {
+
+    private final Object lock = new Object();
+
+    @Test
+    public void recordsVirtualThreadBlockedInSynchronizedBlock() throws Exception {
+        // Arrange
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        RoutePlannerProperties properties = new RoutePlannerProperties();
+        properties.getThreads().setPinnedThreshold(Duration.ofMillis(10));
+        VirtualThreadPinningMonitor monitor = new VirtualThreadPinningMonitor(properties, new RoutePlannerMetrics(registry));
+        try {
+            // Act
+            Thread.ofVirtual().start(() -> {
+                synchronized (lock) {
+                    try {
+                        Thread.sleep(100);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }).join();
+
+            // Assert
+            long deadline = System.nanoTime() + Duration.ofSeconds(20).toNanos();
+            Timer pinned = null;
+            while (pinned == null) {
+                assertTrue(System.nanoTime() < deadline, "The pinning was not recorded");
+                Thread.sleep(100);
+                pinned = registry.find("routeplanner.virtual.threads.pinned")
+                        .tag("site", VirtualThreadPinningMonitorTests.class.getName())
+                        .timer();
+            }
+            assertEquals(1, pinned.count());
+            assertTrue(pinned.totalTime(TimeUnit.MILLISECONDS) >= 50);
+        } finally {
+            monitor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.RoutePlanner;
+
+import com.google.maps.model.DirectionsRoute;
+import com.google.maps.model.LatLng;
+import org.example.routeplanner.model.WalkingPath;
+import org.example.routeplanner.service.GeoGrid;
+import org.example.routeplanner.service.RoutePlannerService;
+import org.example.routeplanner.service.WalkingPathCache;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WalkingPathCacheTests {
+
+    private static final LatLng RABIN_SQUARE = new LatLng(32.0804846, 34.7806198);
+
+    @Test
+    public void cellOf_SnapsNearbyLocationsToSameCell() {
+        long cell = GeoGrid.cellOf(RABIN_SQUARE, 25);
+        LatLng center = GeoGrid.centerOf(cell, 25);
+
+        assertEquals(cell, GeoGrid.cellOf(center, 25));
+        assertTrue(RoutePlannerService.distance(RABIN_SQUARE, center) < 25);
+        assertNotEquals(cell, GeoGrid.cellOf(new LatLng(RABIN_SQUARE.lat + 0.001, RABIN_SQUARE.lng), 25));
+    }
+
+    @Test
+    public void get_ReturnsWalkingPathOfSameParkingLotAndCell() {
+        // Arrange
+        WalkingPathCache walkingPathCache = new WalkingPathCache(1024 * 1024, Duration.ofDays(7), 25);
+        LatLng destinationInSameCell = GeoGrid.centerOf(GeoGrid.cellOf(RABIN_SQUARE, 25), 25);
+        walkingPathCache.put("גולדה", RABIN_SQUARE, new WalkingPath(new DirectionsRoute(), 11));
+
+        // Act
+        WalkingPath walkingPath = walkingPathCache.get("גולדה", destinationInSameCell);
+
+        // Assert
+        assertNotNull(walkingPath);
+        assertEquals(11, walkingPath.getTotalTime());
+        assertNull(walkingPathCache.get("דובנוב", RABIN_SQUARE));
+        assertNull(walkingPathCache.get("גולדה", new LatLng(RABIN_SQUARE.lat + 0.001, RABIN_SQUARE.lng)));
+        assertEquals(1, walkingPathCache.getHitCount());
+        assertEquals(2, walkingPathCache.getMissCount());
+    }
+
+    @Test
+    public void get_ReturnsCopyOfCachedWalkingPath() {
+        // Arrange
+        WalkingPathCache walkingPathCache = new WalkingPathCache(1024 * 1024, Duration.ofDays(7), 25);
+        walkingPathCache.put("גולדה", RABIN_SQUARE, new WalkingPath(new DirectionsRoute(), 11));
+
+        // Act
+        walkingPathCache.get("גולדה", RABIN_SQUARE).setDirectionsRoute(null);
+
+        // Assert
+        assertNotNull(walkingPathCache.get("גולדה", RABIN_SQUARE).getDirectionsRoute());
+    }
+}
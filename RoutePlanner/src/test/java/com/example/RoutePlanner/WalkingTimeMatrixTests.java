@@ -0,0 +1,93 @@
+package com.example.RoutePlanner;
+
+import com.google.maps.model.LatLng;
+import com.google.maps.model.TravelMode;
+import org.example.routeplanner.service.LocalRoutingProvider;
+import org.example.routeplanner.service.OsmRoadGraphLoader;
+import org.example.routeplanner.service.RoadGraph;
+import org.example.routeplanner.service.WalkingTimeMatrix;
+import org.example.routeplanner.service.WalkingTimeMatrixGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WalkingTimeMatrixTests {
+
+    private static final String TINY_ROAD_NETWORK = "src/test/java/com/example/RoutePlanner/testData/tinyRoadNetwork.osm";
+    // The middle of the west street and the middle of the south street of the tiny road network
+    private static final LatLng WEST_LOT = new LatLng(32.080, 34.778);
+    private static final LatLng SOUTH_LOT = new LatLng(32.078, 34.781);
+    private static final WalkingTimeMatrix.Grid GRID = new WalkingTimeMatrix.Grid(32.077, 34.777, 32.083, 34.785, 50);
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    public void walkingSeconds_MatchesLocalWalkingDirections() throws Exception {
+        // Arrange
+        RoadGraph graph = OsmRoadGraphLoader.load(Path.of(TINY_ROAD_NETWORK));
+        Path file = directory.resolve("walking-times.bin");
+        WalkingTimeMatrixGenerator.generate(graph, Map.of("west", WEST_LOT, "south", SOUTH_LOT), GRID, 5, 100, file);
+        LatLng eastEnd = new LatLng(32.080, 34.784);
+        long directionsSeconds = new LocalRoutingProvider(graph, 5, 100)
+                .getDirections(WEST_LOT, eastEnd, TravelMode.WALKING).routes[0].legs[0].duration.inSeconds;
+
+        // Act
+        WalkingTimeMatrix matrix = WalkingTimeMatrix.load(file);
+
+        // Assert
+        assertEquals(2, matrix.getParkingLotCount());
+        assertEquals(GRID.rows() * GRID.columns(), matrix.getCellCount());
+        // The destination is up to half a cell diagonal away from the center of its cell
+        assertEquals(directionsSeconds, matrix.walkingSeconds("west", eastEnd), 30);
+        assertTrue(matrix.walkingSeconds("south", SOUTH_LOT) < 30);
+    }
+
+    @Test
+    public void walkingSeconds_UnknownParkingLotOrDestinationOutsideGrid_ReturnsMinusOne() throws Exception {
+        // Arrange
+        Path file = directory.resolve("walking-times.bin");
+        char[] seconds = new char[GRID.rows() * GRID.columns()];
+        Arrays.fill(seconds, (char) 300);
+        WalkingTimeMatrix.write(file, GRID, List.of("west"), List.of(seconds));
+
+        // Act
+        WalkingTimeMatrix matrix = WalkingTimeMatrix.load(file);
+
+        // Assert
+        assertEquals(300, matrix.walkingSeconds("west", SOUTH_LOT));
+        assertEquals(-1, matrix.walkingSeconds("north", SOUTH_LOT));
+        assertEquals(-1, matrix.walkingSeconds("west", new LatLng(32.1, 34.78)));
+    }
+
+    @Test
+    public void walkingSeconds_CellFarFromRoads_ReturnsMinusOne() throws Exception {
+        // Arrange
+        RoadGraph graph = OsmRoadGraphLoader.load(Path.of(TINY_ROAD_NETWORK));
+        Path file = directory.resolve("walking-times.bin");
+        WalkingTimeMatrix.Grid wideGrid = new WalkingTimeMatrix.Grid(32.070, 34.777, 32.083, 34.785, 50);
+        WalkingTimeMatrixGenerator.generate(graph, Map.of("west", WEST_LOT), wideGrid, 5, 100, file);
+
+        // Act
+        WalkingTimeMatrix matrix = WalkingTimeMatrix.load(file);
+
+        // Assert
+        assertEquals(-1, matrix.walkingSeconds("west", new LatLng(32.071, 34.781)));
+    }
+
+    @Test
+    public void load_NotMatrixFile_ThrowsIOException() throws Exception {
+        Path file = directory.resolve("not-a-matrix.bin");
+        Files.writeString(file, "This is not a walking time matrix, but it is long enough to hold its header.......");
+
+        assertThrows(IOException.class, () -> WalkingTimeMatrix.load(file));
+    }
+}
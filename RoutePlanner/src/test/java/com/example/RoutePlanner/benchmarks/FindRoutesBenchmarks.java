@@ -0,0 +1,137 @@
+package com.example.RoutePlanner.benchmarks;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.maps.model.*;
+import org.example.routeplanner.RoutePlannerProperties;
+import org.example.routeplanner.model.Route;
+import org.example.routeplanner.service.PlanningMode;
+import org.example.routeplanner.service.RoutePlannerService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link RoutePlannerService#findRoutes(String, String)} end to end, from Kfar Saba to Rabin Square,
+ * in each planning mode. The upstreams answer instantly: geocoding returns fixed coordinates, nearby search returns
+ * the known parking lots within a kilometer of the destination, and the driving and walking times are derived from
+ * the straight-line distances. The caches and the coalescing of requests are off, so every call does the whole search.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FindRoutesBenchmarks {
+
+    private static final String ORIGIN = "כפר סבא";
+    private static final String DESTINATION = "כיכר רבין, תל אביב";
+
+    @Param({"SERIAL", "CONCURRENT", "MATRIX"})
+    private PlanningMode mode;
+
+    private RoutePlannerService service;
+
+    @Setup
+    public void setup() throws IOException {
+        RoutePlannerProperties properties = new RoutePlannerProperties();
+        properties.getPlanning().setMode(mode);
+        Map<String, LatLng> parkingLotsLocations = new ObjectMapper().readValue(
+                new File("src/main/resources/allParkingLotsLocations.json"), new TypeReference<HashMap<String, LatLng>>() {});
+        service = new StubbedRoutePlannerService(properties, parkingLotsLocations);
+    }
+
+    @TearDown
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    @Benchmark
+    public List<Route> findRoutes() {
+        return service.findRoutes(ORIGIN, DESTINATION);
+    }
+
+    private static class StubbedRoutePlannerService extends RoutePlannerService {
+
+        private static final LatLng ORIGIN_LOCATION = new LatLng(32.178195, 34.90761);
+        private static final LatLng DESTINATION_LOCATION = new LatLng(32.0804846, 34.7806198);
+        private static final double DRIVING_METERS_PER_SECOND = 25 / 3.6;
+        private static final double WALKING_METERS_PER_SECOND = 5 / 3.6;
+
+        private final PlacesSearchResult[] nearbyParkingLots;
+
+        StubbedRoutePlannerService(RoutePlannerProperties properties, Map<String, LatLng> parkingLotsLocations) {
+            super(properties);
+            nearbyParkingLots = parkingLotsLocations.values().stream()
+                    .filter(location -> distance(location, DESTINATION_LOCATION) <= 1000)
+                    .map(location -> {
+                        PlacesSearchResult parkingLot = new PlacesSearchResult();
+                        parkingLot.geometry = new Geometry();
+                        parkingLot.geometry.location = location;
+                        return parkingLot;
+                    })
+                    .toArray(PlacesSearchResult[]::new);
+        }
+
+        @Override
+        public LatLng getLocationFromAddress(String address) {
+            return ORIGIN.equals(address) ? ORIGIN_LOCATION : DESTINATION_LOCATION;
+        }
+
+        @Override
+        public PlacesSearchResult[] getNearbyParkingLots(LatLng destination, int radiusFromDestination) {
+            return nearbyParkingLots;
+        }
+
+        @Override
+        public DirectionsResult getDirections(LatLng origin, LatLng destination, TravelMode mode) {
+            DirectionsLeg leg = new DirectionsLeg();
+            leg.duration = new Duration();
+            leg.duration.inSeconds = seconds(origin, destination, mode);
+            DirectionsRoute route = new DirectionsRoute();
+            route.legs = new DirectionsLeg[]{leg};
+            DirectionsResult result = new DirectionsResult();
+            result.routes = new DirectionsRoute[]{route};
+            return result;
+        }
+
+        @Override
+        public DistanceMatrix getDistanceMatrix(LatLng[] origins, LatLng[] destinations, TravelMode mode) {
+            DistanceMatrixRow[] rows = new DistanceMatrixRow[origins.length];
+            for (int i = 0; i < origins.length; i++) {
+                rows[i] = new DistanceMatrixRow();
+                rows[i].elements = new DistanceMatrixElement[destinations.length];
+                for (int j = 0; j < destinations.length; j++) {
+                    rows[i].elements[j] = new DistanceMatrixElement();
+                    rows[i].elements[j].status = DistanceMatrixElementStatus.OK;
+                    rows[i].elements[j].duration = new Duration();
+                    rows[i].elements[j].duration.inSeconds = seconds(origins[i], destinations[j], mode);
+                }
+            }
+            return new DistanceMatrix(new String[0], new String[0], rows);
+        }
+
+        private static long seconds(LatLng origin, LatLng destination, TravelMode mode) {
+            double metersPerSecond = mode == TravelMode.DRIVING ? DRIVING_METERS_PER_SECOND : WALKING_METERS_PER_SECOND;
+            // Roads are about a third longer than the straight line
+            return Math.round(distance(origin, destination) * 1.3 / metersPerSecond);
+        }
+    }
+}
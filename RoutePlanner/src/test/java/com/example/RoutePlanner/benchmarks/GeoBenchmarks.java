@@ -0,0 +1,69 @@
+package com.example.RoutePlanner.benchmarks;
+
+import com.google.maps.model.LatLng;
+import org.example.routeplanner.service.RoutePlannerService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the geographic helpers of {@link RoutePlannerService} on random locations around Tel Aviv,
+ * about half of them inside the Tel Aviv bounding box.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class GeoBenchmarks {
+
+    private static final int LOCATIONS = 1024;
+
+    private final LatLng[] locations = new LatLng[LOCATIONS];
+    private final LatLng rabinSquare = new LatLng(32.0804846, 34.7806198);
+    private int next;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        for (int i = 0; i < LOCATIONS; i++) {
+            locations[i] = new LatLng(31.95 + random.nextDouble() * 0.25, 34.72 + random.nextDouble() * 0.16);
+        }
+    }
+
+    private LatLng nextLocation() {
+        next = (next + 1) & (LOCATIONS - 1);
+        return locations[next];
+    }
+
+    @Benchmark
+    public double distance() {
+        return RoutePlannerService.distance(nextLocation(), rabinSquare);
+    }
+
+    @Benchmark
+    public String findBestMatch() {
+        return RoutePlannerService.findBestMatch(nextLocation());
+    }
+
+    @Benchmark
+    public boolean isInIsrael() {
+        return RoutePlannerService.isInIsrael(nextLocation());
+    }
+
+    @Benchmark
+    public boolean isInTelAviv() {
+        return RoutePlannerService.isInTelAviv(nextLocation());
+    }
+}
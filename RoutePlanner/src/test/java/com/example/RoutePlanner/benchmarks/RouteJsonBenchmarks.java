@@ -0,0 +1,59 @@
+package com.example.RoutePlanner.benchmarks;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.routeplanner.model.Route;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the JSON serialization and deserialization of a realistic /routes response: the six routes of
+ * validOutput.json, each with the full Google Maps DirectionsRoute of its driving and walking paths.
+ * The object mapper is configured like the one of Spring MVC.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RouteJsonBenchmarks {
+
+    private static final TypeReference<List<Route>> ROUTES = new TypeReference<>() {};
+
+    private ObjectMapper objectMapper;
+    private List<Route> routes;
+    private byte[] json;
+
+    @Setup
+    public void setup() throws IOException {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        routes = objectMapper.readValue(Files.readAllBytes(Path.of("src/test/java/com/example/RoutePlanner/testData/validOutput.json")), ROUTES);
+        json = objectMapper.writeValueAsBytes(routes);
+    }
+
+    @Benchmark
+    public byte[] serializeRoutes() throws IOException {
+        return objectMapper.writeValueAsBytes(routes);
+    }
+
+    @Benchmark
+    public List<Route> deserializeRoutes() throws IOException {
+        return objectMapper.readValue(json, ROUTES);
+    }
+}
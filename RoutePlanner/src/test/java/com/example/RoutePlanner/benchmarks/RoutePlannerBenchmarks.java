@@ -0,0 +1,33 @@
+package com.example.RoutePlanner.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the RoutePlanner benchmarks, reporting the throughput in ops/s and, through the GC profiler,
+ * the bytes allocated per operation (gc.alloc.rate.norm). Run it from the RoutePlanner directory:
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark.args="FindRoutesBenchmarks -p mode=MATRIX"
+ * </pre>
+ * The arguments are those of the JMH command line, and override the iterations and forks set on the benchmarks.
+ */
+public final class RoutePlannerBenchmarks {
+
+    private RoutePlannerBenchmarks() {
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+        OptionsBuilder options = new OptionsBuilder();
+        if (commandLineOptions.getIncludes().isEmpty()) {
+            options.include(RoutePlannerBenchmarks.class.getPackageName() + ".");
+        }
+        options.addProfiler(GCProfiler.class).parent(commandLineOptions);
+        new Runner(options.build()).run();
+    }
+}
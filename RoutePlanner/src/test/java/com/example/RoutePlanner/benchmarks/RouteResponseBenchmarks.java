@@ -0,0 +1,111 @@
+package com.example.RoutePlanner.benchmarks;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.maps.model.EncodedPolyline;
+import org.example.routeplanner.RoutePlannerProperties;
+import org.example.routeplanner.controller.RoutePlannerController;
+import org.example.routeplanner.model.Route;
+import org.example.routeplanner.service.RoutePlannerService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Benchmarks the CPU a /routes response costs the server, for the six routes of validOutput.json: serializing them
+ * for a 200 response, serializing and gzip-encoding them like Tomcat does for a client that accepts gzip, and
+ * answering a revalidation, which only hashes the routes into their ETag and never serializes them.
+ * The bytes on the wire of each response are checked by ResponseCompressionTests.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RouteResponseBenchmarks {
+
+    private static final String ORIGIN = "כפר סבא";
+    private static final String DESTINATION = "כיכר רבין, תל אביב";
+
+    private ObjectMapper objectMapper;
+    private List<Route> routes;
+    private RoutePlannerService service;
+    private RoutePlannerController controller;
+
+    @Setup
+    public void setup() throws IOException {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        File validOutput = new File("src/test/java/com/example/RoutePlanner/testData/validOutput.json");
+        routes = objectMapper.readValue(validOutput, new TypeReference<>() {});
+        // The overview polylines are read back from their encoded paths, like the directions of Google Maps
+        JsonNode routesJson = objectMapper.readTree(validOutput);
+        for (int i = 0; i < routes.size(); i++) {
+            routes.get(i).getDrivingPath().getDirectionsRoute().overviewPolyline = new EncodedPolyline(
+                    routesJson.get(i).at("/drivingPath/directionsRoute/overviewPolyline/encodedPath").asText());
+            routes.get(i).getWalkingPath().getDirectionsRoute().overviewPolyline = new EncodedPolyline(
+                    routesJson.get(i).at("/walkingPath/directionsRoute/overviewPolyline/encodedPath").asText());
+        }
+        service = new FixedRoutePlannerService(new RoutePlannerProperties(), routes);
+        controller = new RoutePlannerController(service, objectMapper);
+    }
+
+    @TearDown
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    @Benchmark
+    public byte[] serializeRoutes() throws IOException {
+        return objectMapper.writeValueAsBytes(routes);
+    }
+
+    @Benchmark
+    public byte[] serializeAndGzipRoutes() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            objectMapper.writeValue(gzip, routes);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public String revalidateRoutes() {
+        // Spring answers a matching If-None-Match from the ETag of the entity, without writing its body
+        ResponseEntity<?> response = controller.getRoutes(ORIGIN, DESTINATION, null, false, 15);
+        return response.getHeaders().getETag();
+    }
+
+    private static class FixedRoutePlannerService extends RoutePlannerService {
+
+        private final List<Route> routes;
+
+        FixedRoutePlannerService(RoutePlannerProperties properties, List<Route> routes) {
+            super(properties);
+            this.routes = routes;
+        }
+
+        @Override
+        public List<Route> findRoutes(String origin, String destination) {
+            return routes;
+        }
+    }
+}